@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks of this module with the GC profiler attached, so that next to the throughput or latency the
+ * allocation rate per operation will be reported.<br>
+ * <br>
+ * Usage: {@code java -jar target/benchmarks.jar [regular expression to select benchmarks]}
+ * 
+ * @author André Rouél
+ */
+public final class BenchmarkRunner {
+
+	/**
+	 * Benchmarks which will be run if no selection was passed
+	 */
+	private static final String DEFAULT_INCLUDE = BenchmarkRunner.class.getPackage().getName() + ".*Benchmark.*";
+
+	public static void main(final String[] args) throws RunnerException {
+		final Options options = new OptionsBuilder().include(args.length > 0 ? args[0] : DEFAULT_INCLUDE)
+				.addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+
+	private BenchmarkRunner() {
+		// not intended to create an instance
+	}
+
+}
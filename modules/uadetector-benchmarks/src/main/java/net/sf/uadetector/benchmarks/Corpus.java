@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.sf.uadetector.OperatingSystemFamily;
+
+/**
+ * Loads the corpora of user agent strings which are used by the benchmarks. The corpora are the CSV files of the tests
+ * of the module <em>uadetector-resources</em>, which will be copied into this module when building it.
+ * 
+ * @author André Rouél
+ */
+final class Corpus {
+
+	/**
+	 * A user agent string of the operating system samples together with its expected family
+	 */
+	static final class Sample {
+
+		private final OperatingSystemFamily family;
+
+		private final String userAgent;
+
+		Sample(final OperatingSystemFamily family, final String userAgent) {
+			this.family = family;
+			this.userAgent = userAgent;
+		}
+
+		OperatingSystemFamily getFamily() {
+			return family;
+		}
+
+		String getUserAgent() {
+			return userAgent;
+		}
+
+	}
+
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	private static final String EXAMPLES = "examples/uas_example.csv";
+
+	private static final String SAMPLES = "samples/";
+
+	/**
+	 * Families for which a file with samples exists
+	 */
+	private static final OperatingSystemFamily[] SAMPLE_FAMILIES = { OperatingSystemFamily.ANDROID, OperatingSystemFamily.BADA,
+			OperatingSystemFamily.BSD, OperatingSystemFamily.IOS, OperatingSystemFamily.JVM, OperatingSystemFamily.MAC_OS,
+			OperatingSystemFamily.OS_X, OperatingSystemFamily.SYMBIAN, OperatingSystemFamily.WEBOS, OperatingSystemFamily.WINDOWS };
+
+	/**
+	 * Reads all user agent strings of the examples and the operating system samples.
+	 * 
+	 * @return list of user agent strings
+	 */
+	static List<String> readAllUserAgents() {
+		final List<String> userAgents = new ArrayList<String>(readExamples());
+		for (final Sample sample : readSamples()) {
+			userAgents.add(sample.getUserAgent());
+		}
+		return Collections.unmodifiableList(userAgents);
+	}
+
+	/**
+	 * Reads the user agent strings of the examples (the third column of {@code uas_example.csv}).
+	 * 
+	 * @return list of user agent strings
+	 */
+	static List<String> readExamples() {
+		final List<String> userAgents = new ArrayList<String>();
+		for (final List<String> record : readRecords(EXAMPLES)) {
+			if (record.size() >= 3) {
+				userAgents.add(record.get(2));
+			}
+		}
+		return Collections.unmodifiableList(userAgents);
+	}
+
+	/**
+	 * Reads the operating system samples (the first and fourth column of {@code samples/*.csv}).
+	 * 
+	 * @return list of samples
+	 */
+	static List<Sample> readSamples() {
+		final List<Sample> samples = new ArrayList<Sample>();
+		for (final OperatingSystemFamily family : SAMPLE_FAMILIES) {
+			for (final List<String> record : readRecords(SAMPLES + family.name() + ".csv")) {
+				if (record.size() >= 4) {
+					samples.add(new Sample(family, record.get(3)));
+				}
+			}
+		}
+		return Collections.unmodifiableList(samples);
+	}
+
+	/**
+	 * Splits one line of a CSV file into its fields. Fields can be enclosed in double quotes, a double quote within a
+	 * quoted field is escaped by doubling it.
+	 */
+	static List<String> split(final String line) {
+		final List<String> fields = new ArrayList<String>();
+		final StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			final char chr = line.charAt(i);
+			if (quoted) {
+				if (chr == '"') {
+					if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+						field.append('"');
+						i++;
+					} else {
+						quoted = false;
+					}
+				} else {
+					field.append(chr);
+				}
+			} else if (chr == '"') {
+				quoted = true;
+			} else if (chr == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(chr);
+			}
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+	private static List<List<String>> readRecords(final String resource) {
+		final InputStream stream = Corpus.class.getClassLoader().getResourceAsStream(resource);
+		if (stream == null) {
+			throw new IllegalStateException("Corpus '" + resource + "' can not be found on the classpath.");
+		}
+		final List<List<String>> records = new ArrayList<List<String>>();
+		try {
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(stream, CHARSET));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.length() > 0) {
+						records.add(split(line));
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (final IOException e) {
+			throw new IllegalStateException("Corpus '" + resource + "' can not be read.", e);
+		}
+		return records;
+	}
+
+	private Corpus() {
+		// not intended to create an instance
+	}
+
+}
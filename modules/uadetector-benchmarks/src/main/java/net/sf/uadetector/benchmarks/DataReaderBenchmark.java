@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.sf.uadetector.datareader.DataReader;
+import net.sf.uadetector.datareader.XmlDataReader;
+import net.sf.uadetector.datastore.DataStore;
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.service.UADetectorServiceFactory.ResourceModuleXmlDataStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long it takes to read the <em>UAS data</em> in XML format of the module <em>uadetector-resources</em>
+ * with {@link XmlDataReader#read(java.net.URL, java.nio.charset.Charset)}, including the construction of the indexes.
+ * Patterns are compiled on first use, therefore the compilation of all patterns is measured separately with
+ * {@link Data#compilePatterns()}.
+ * 
+ * @author André Rouél
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataReaderBenchmark {
+
+	private final DataReader reader = new XmlDataReader();
+
+	@Benchmark
+	public Data readXml() {
+		return reader.read(ResourceModuleXmlDataStore.UAS_DATA, DataStore.DEFAULT_CHARSET);
+	}
+
+	@Benchmark
+	public Data readXmlAndCompilePatterns() {
+		return reader.read(ResourceModuleXmlDataStore.UAS_DATA, DataStore.DEFAULT_CHARSET).compilePatterns();
+	}
+
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.uadetector.MutableUserAgent;
+import net.sf.uadetector.ReadableUserAgent;
+import net.sf.uadetector.UserAgentFamily;
+import net.sf.uadetector.UserAgentStringParser;
+import net.sf.uadetector.UserAgentType;
+import net.sf.uadetector.datastore.DataStore;
+import net.sf.uadetector.parser.PatternMatchingEngine;
+import net.sf.uadetector.parser.UserAgentStringParserImpl;
+import net.sf.uadetector.service.UADetectorServiceFactory.ResourceModuleXmlDataStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of {@link UserAgentStringParser#parse(String)} and of the variant which writes into a
+ * reusable {@link MutableUserAgent} with the UAS data of the module <em>uadetector-resources</em>.<br>
+ * <br>
+ * The corpus of user agent strings is split into robots (found by a lookup), known browsers (found by pattern
+ * matching) and unknown user agents (all patterns are tried without success), because the costs of these paths differ
+ * by orders of magnitude. Every thread iterates over the corpus with its own cursor, so that the branch predictor and
+ * caches see a realistic mix of inputs instead of one and the same string.
+ * 
+ * @author André Rouél
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+	/**
+	 * Category of user agent strings within the corpus
+	 */
+	public enum Category {
+
+		/**
+		 * User agent strings of known browsers, mobile browsers, libraries and so on
+		 */
+		KNOWN_BROWSER,
+
+		/**
+		 * User agent strings of known robots
+		 */
+		ROBOT,
+
+		/**
+		 * User agent strings which can not be assigned to any family
+		 */
+		UNKNOWN;
+
+		static Category of(final ReadableUserAgent agent) {
+			if (agent.getType() == UserAgentType.ROBOT) {
+				return ROBOT;
+			}
+			return agent.getFamily() == UserAgentFamily.UNKNOWN ? UNKNOWN : KNOWN_BROWSER;
+		}
+
+	}
+
+	/**
+	 * Position of a thread within the corpus
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+
+		private final MutableUserAgent agent = new MutableUserAgent();
+
+		private int position;
+
+		int next(final int size) {
+			final int current = position;
+			position = current + 1 == size ? 0 : current + 1;
+			return current;
+		}
+
+	}
+
+	/**
+	 * Number of synthetic user agent strings which will be added if the corpus contains no unknown user agents
+	 */
+	private static final int SYNTHETIC_UNKNOWNS = 64;
+
+	@Param
+	public Category category;
+
+	@Param
+	public PatternMatchingEngine engine;
+
+	private UserAgentStringParserImpl<DataStore> parser;
+
+	private String[] userAgents;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		parser = new UserAgentStringParserImpl<DataStore>(new ResourceModuleXmlDataStore(), engine);
+
+		final List<String> selected = new ArrayList<String>();
+		for (final String userAgent : Corpus.readAllUserAgents()) {
+			if (Category.of(parser.parse(userAgent)) == category) {
+				selected.add(userAgent);
+			}
+		}
+		if (selected.isEmpty() && category == Category.UNKNOWN) {
+			for (int i = 0; i < SYNTHETIC_UNKNOWNS; i++) {
+				selected.add("uadetector-benchmark/" + i + " (unidentifiable " + Integer.toHexString(i * 31) + ")");
+			}
+		}
+		if (selected.isEmpty()) {
+			throw new IllegalStateException("The corpus contains no user agent strings of category " + category + ".");
+		}
+		userAgents = selected.toArray(new String[selected.size()]);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public ReadableUserAgent parseIntoMutableMultiThreaded(final Cursor cursor) {
+		return parser.parse(userAgents[cursor.next(userAgents.length)], cursor.agent);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public ReadableUserAgent parseIntoMutableSingleThreaded(final Cursor cursor) {
+		return parser.parse(userAgents[cursor.next(userAgents.length)], cursor.agent);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public ReadableUserAgent parseMultiThreaded(final Cursor cursor) {
+		return parser.parse(userAgents[cursor.next(userAgents.length)]);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public ReadableUserAgent parseSingleThreaded(final Cursor cursor) {
+		return parser.parse(userAgents[cursor.next(userAgents.length)]);
+	}
+
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.uadetector.VersionNumber;
+import net.sf.uadetector.internal.util.VersionParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link VersionNumber#compareTo(net.sf.uadetector.ReadableVersionNumber)}, once for single comparisons of
+ * neighbouring versions and once for sorting a list of versions.
+ * 
+ * @author André Rouél
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class VersionNumberBenchmark {
+
+	private static final String[] VERSIONS = { "1", "1.0", "1.0.0", "1.0.1", "1.1", "2.0b1", "2.0", "3.6.28", "4.0b11", "5.1.7",
+			"6.0.2900.5512", "9.80", "10.0a1", "10.0", "11.0.696.16", "12.0", "17.0.963.56", "2.0.0.20", "1.2.3.4.5", "537.36" };
+
+	private int position;
+
+	private VersionNumber[] versions;
+
+	@Benchmark
+	public int compareTo() {
+		final int current = position;
+		final int next = current + 1 == versions.length ? 0 : current + 1;
+		position = next;
+		return versions[current].compareTo(versions[next]);
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		versions = new VersionNumber[VERSIONS.length];
+		for (int i = 0; i < VERSIONS.length; i++) {
+			versions[i] = VersionParser.parseVersion(VERSIONS[i]);
+		}
+	}
+
+	@Benchmark
+	public VersionNumber[] sort() {
+		final VersionNumber[] copy = versions.clone();
+		Arrays.sort(copy);
+		return copy;
+	}
+
+}
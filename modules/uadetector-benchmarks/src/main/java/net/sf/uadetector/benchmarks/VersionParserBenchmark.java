@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.uadetector.OperatingSystemFamily;
+import net.sf.uadetector.VersionNumber;
+import net.sf.uadetector.internal.util.VersionParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the methods of {@link VersionParser} which are called for every parsed user agent string.
+ * 
+ * @author André Rouél
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VersionParserBenchmark {
+
+	/**
+	 * Position of a thread within the inputs
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+
+		private int position;
+
+		int next(final int size) {
+			final int current = position;
+			position = current + 1 == size ? 0 : current + 1;
+			return current;
+		}
+
+	}
+
+	/**
+	 * Typical version strings as they are found by the first subgroup of browser patterns
+	 */
+	private static final String[] VERSIONS = { "1", "1.0", "3.6.28", "4.0b11", "5.1.7", "6.0.2900.5512", "9.80", "10.0a1", "11.0.696.16",
+			"12.0", "17.0.963.56", "2.0.0.20", "", "1.2.3.4.5", "537.36", "8.0.6001.18702" };
+
+	private OperatingSystemFamily[] families;
+
+	private String[] userAgents;
+
+	@Benchmark
+	@Threads(1)
+	public VersionNumber parseLastVersionNumber(final Cursor cursor) {
+		return VersionParser.parseLastVersionNumber(userAgents[cursor.next(userAgents.length)]);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public VersionNumber parseOperatingSystemVersion(final Cursor cursor) {
+		final int i = cursor.next(userAgents.length);
+		return VersionParser.parseOperatingSystemVersion(families[i], userAgents[i]);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public VersionNumber parseOperatingSystemVersionMultiThreaded(final Cursor cursor) {
+		final int i = cursor.next(userAgents.length);
+		return VersionParser.parseOperatingSystemVersion(families[i], userAgents[i]);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public VersionNumber parseVersion(final Cursor cursor) {
+		return VersionParser.parseVersion(VERSIONS[cursor.next(VERSIONS.length)]);
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final List<Corpus.Sample> samples = new ArrayList<Corpus.Sample>(Corpus.readSamples());
+		families = new OperatingSystemFamily[samples.size()];
+		userAgents = new String[samples.size()];
+		for (int i = 0; i < samples.size(); i++) {
+			families[i] = samples.get(i).getFamily();
+			userAgents[i] = samples.get(i).getUserAgent();
+		}
+	}
+
+}
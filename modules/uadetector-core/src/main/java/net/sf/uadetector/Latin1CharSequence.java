@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A {@code CharSequence} view on bytes which are encoded in ISO-8859-1 (Latin-1) or US-ASCII, as HTTP header values
+ * usually are. Every byte is interpreted as one character, the bytes are neither copied nor decoded.<br>
+ * <br>
+ * The view can be pointed to other bytes with {@link #wrap(byte[], int, int)} or {@link #wrap(ByteBuffer)}, so that one
+ * instance can be reused for many header values. A {@code String} is only created when calling {@link #toString()}.<br>
+ * <br>
+ * The content of a view changes when the underlying bytes change. A {@code Latin1CharSequence} is not thread safe.
+ * Like {@code StringBuilder} it does not override {@code equals} and {@code hashCode}.
+ * 
+ * @author André Rouél
+ */
+public final class Latin1CharSequence implements CharSequence {
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+
+	/**
+	 * Bytes of the view, if it is backed by an array
+	 */
+	private byte[] array;
+
+	/**
+	 * Bytes of the view, if it is backed by a buffer without an accessible array
+	 */
+	private ByteBuffer buffer;
+
+	private int length;
+
+	private int offset;
+
+	/**
+	 * Creates an empty view.
+	 */
+	public Latin1CharSequence() {
+		wrap(EMPTY, 0, 0);
+	}
+
+	/**
+	 * Creates a view on all bytes of the given array.
+	 * 
+	 * @param bytes
+	 *            Latin-1 encoded characters
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public Latin1CharSequence(final byte[] bytes) {
+		if (bytes == null) {
+			throw new IllegalArgumentException("Argument 'bytes' must not be null.");
+		}
+		wrap(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Creates a view on a slice of the given array.
+	 * 
+	 * @param bytes
+	 *            Latin-1 encoded characters
+	 * @param offset
+	 *            index of the first byte of the slice
+	 * @param length
+	 *            number of bytes of the slice
+	 * @throws IllegalArgumentException
+	 *             if the given array is {@code null} or the slice is not within the array
+	 */
+	public Latin1CharSequence(final byte[] bytes, final int offset, final int length) {
+		wrap(bytes, offset, length);
+	}
+
+	/**
+	 * Creates a view on the remaining bytes of the given buffer (from its position to its limit). The position of the
+	 * buffer will not be changed.
+	 * 
+	 * @param buffer
+	 *            Latin-1 encoded characters
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public Latin1CharSequence(final ByteBuffer buffer) {
+		wrap(buffer);
+	}
+
+	@Override
+	public char charAt(final int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("Index " + index + " is out of range [0, " + length + ").");
+		}
+		return (char) ((array != null ? array[offset + index] : buffer.get(offset + index)) & 0xFF);
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public CharSequence subSequence(final int start, final int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") is out of range [0, " + length + ").");
+		}
+		final Latin1CharSequence sub = new Latin1CharSequence();
+		sub.array = array;
+		sub.buffer = buffer;
+		sub.offset = offset + start;
+		sub.length = end - start;
+		return sub;
+	}
+
+	@Override
+	public String toString() {
+		if (array != null) {
+			return new String(array, offset, length, LATIN1);
+		}
+		final char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = (char) (buffer.get(offset + i) & 0xFF);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Points this view to a slice of the given array.
+	 * 
+	 * @param bytes
+	 *            Latin-1 encoded characters
+	 * @param offset
+	 *            index of the first byte of the slice
+	 * @param length
+	 *            number of bytes of the slice
+	 * @return this {@code Latin1CharSequence}, for chaining
+	 * @throws IllegalArgumentException
+	 *             if the given array is {@code null} or the slice is not within the array
+	 */
+	public Latin1CharSequence wrap(final byte[] bytes, final int offset, final int length) {
+		if (bytes == null) {
+			throw new IllegalArgumentException("Argument 'bytes' must not be null.");
+		}
+		if (offset < 0 || length < 0 || offset > bytes.length - length) {
+			throw new IllegalArgumentException("Slice [" + offset + ", " + offset + " + " + length + ") is not within the array of length "
+					+ bytes.length + ".");
+		}
+		this.array = bytes;
+		this.buffer = null;
+		this.offset = offset;
+		this.length = length;
+		return this;
+	}
+
+	/**
+	 * Points this view to the remaining bytes of the given buffer (from its position to its limit). The position of
+	 * the buffer will not be changed.
+	 * 
+	 * @param buffer
+	 *            Latin-1 encoded characters
+	 * @return this {@code Latin1CharSequence}, for chaining
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public Latin1CharSequence wrap(final ByteBuffer buffer) {
+		if (buffer == null) {
+			throw new IllegalArgumentException("Argument 'buffer' must not be null.");
+		}
+		if (buffer.hasArray()) {
+			return wrap(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		}
+		this.array = null;
+		this.buffer = buffer;
+		this.offset = buffer.position();
+		this.length = buffer.remaining();
+		return this;
+	}
+
+}
@@ -0,0 +1,309 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@code MutableUserAgent} is a reusable container for the informations about a network client. In contrast to
+ * {@link UserAgent} an instance can be filled again and again, which allows to analyze user agent strings without
+ * creating new objects in steady state (see
+ * {@link net.sf.uadetector.parser.AbstractUserAgentStringParser#parse(CharSequence, MutableUserAgent)}).<br>
+ * <br>
+ * The analyzed user agent string is kept as {@code CharSequence}. If it was passed as bytes (see
+ * {@link #reset(byte[], int, int)} and {@link #reset(ByteBuffer)}), it is a view on these bytes and no {@code String}
+ * will be created unless {@link #getUserAgentString()} is called.<br>
+ * <br>
+ * An instance is intended to be owned by one caller (e.g. one per thread) and is not thread safe. Use
+ * {@link #toUserAgent()} to get an immutable snapshot which can be shared or stored.
+ * 
+ * @author André Rouél
+ */
+public final class MutableUserAgent implements ReadableUserAgent {
+
+	private UserAgentFamily family;
+
+	private String name;
+
+	private OperatingSystem operatingSystem;
+
+	private String producer;
+
+	private String producerUrl;
+
+	private UserAgentType type;
+
+	private String typeName;
+
+	private String url;
+
+	private CharSequence userAgent;
+
+	private VersionNumber versionNumber;
+
+	/**
+	 * Reusable view on the bytes of the analyzed user agent string, created on first use
+	 */
+	private Latin1CharSequence view;
+
+	/**
+	 * Creates an empty {@code MutableUserAgent} which contains the informations of {@link UserAgent#EMPTY}.
+	 */
+	public MutableUserAgent() {
+		reset("");
+	}
+
+	@Override
+	public UserAgentFamily getFamily() {
+		return family;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public OperatingSystem getOperatingSystem() {
+		return operatingSystem;
+	}
+
+	@Override
+	public String getProducer() {
+		return producer;
+	}
+
+	@Override
+	public String getProducerUrl() {
+		return producerUrl;
+	}
+
+	@Override
+	public UserAgentType getType() {
+		return type;
+	}
+
+	@Override
+	public String getTypeName() {
+		return typeName;
+	}
+
+	@Override
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * Gets the user agent string which was analyzed to fill this instance without copying it.
+	 * 
+	 * @return analyzed user agent string
+	 */
+	public CharSequence getUserAgent() {
+		return userAgent;
+	}
+
+	/**
+	 * Gets the user agent string which was analyzed to fill this instance as {@code String}. If it was passed as
+	 * bytes, a new {@code String} will be created.
+	 * 
+	 * @return analyzed user agent string
+	 */
+	public String getUserAgentString() {
+		return userAgent.toString();
+	}
+
+	@Override
+	public VersionNumber getVersionNumber() {
+		return versionNumber;
+	}
+
+	/**
+	 * Resets all informations to the ones of {@link UserAgent#EMPTY} and takes a slice of the given Latin-1 encoded
+	 * bytes as the user agent string to be analyzed next. The bytes will not be copied.
+	 * 
+	 * @param bytes
+	 *            Latin-1 encoded user agent string
+	 * @param offset
+	 *            index of the first byte of the user agent string
+	 * @param length
+	 *            number of bytes of the user agent string
+	 * @return this {@code MutableUserAgent}, for chaining
+	 * @throws IllegalArgumentException
+	 *             if the given array is {@code null} or the slice is not within the array
+	 */
+	public MutableUserAgent reset(final byte[] bytes, final int offset, final int length) {
+		if (view == null) {
+			view = new Latin1CharSequence();
+		}
+		return reset(view.wrap(bytes, offset, length));
+	}
+
+	/**
+	 * Resets all informations to the ones of {@link UserAgent#EMPTY} and takes the remaining Latin-1 encoded bytes of
+	 * the given buffer as the user agent string to be analyzed next. The bytes will not be copied and the position of
+	 * the buffer will not be changed.
+	 * 
+	 * @param buffer
+	 *            Latin-1 encoded user agent string
+	 * @return this {@code MutableUserAgent}, for chaining
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public MutableUserAgent reset(final ByteBuffer buffer) {
+		if (view == null) {
+			view = new Latin1CharSequence();
+		}
+		return reset(view.wrap(buffer));
+	}
+
+	/**
+	 * Resets all informations to the ones of {@link UserAgent#EMPTY} and takes the given user agent string as the one
+	 * to be analyzed next.
+	 * 
+	 * @param userAgent
+	 *            user agent string
+	 * @return this {@code MutableUserAgent}, for chaining
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public MutableUserAgent reset(final CharSequence userAgent) {
+		if (userAgent == null) {
+			throw new IllegalArgumentException("Argument 'userAgent' must not be null.");
+		}
+		this.family = UserAgent.EMPTY.getFamily();
+		this.name = UserAgent.EMPTY.getName();
+		this.operatingSystem = UserAgent.EMPTY.getOperatingSystem();
+		this.producer = UserAgent.EMPTY.getProducer();
+		this.producerUrl = UserAgent.EMPTY.getProducerUrl();
+		this.type = UserAgent.EMPTY.getType();
+		this.typeName = UserAgent.EMPTY.getTypeName();
+		this.url = UserAgent.EMPTY.getUrl();
+		this.userAgent = userAgent;
+		this.versionNumber = UserAgent.EMPTY.getVersionNumber();
+		return this;
+	}
+
+	public MutableUserAgent setFamily(final UserAgentFamily family) {
+		if (family == null) {
+			throw new IllegalArgumentException("Argument 'family' must not be null.");
+		}
+		this.family = family;
+		return this;
+	}
+
+	public MutableUserAgent setName(final String name) {
+		if (name == null) {
+			throw new IllegalArgumentException("Argument 'name' must not be null.");
+		}
+		this.name = name;
+		return this;
+	}
+
+	public MutableUserAgent setOperatingSystem(final OperatingSystem operatingSystem) {
+		if (operatingSystem == null) {
+			throw new IllegalArgumentException("Argument 'operatingSystem' must not be null.");
+		}
+		this.operatingSystem = operatingSystem;
+		return this;
+	}
+
+	public MutableUserAgent setProducer(final String producer) {
+		if (producer == null) {
+			throw new IllegalArgumentException("Argument 'producer' must not be null.");
+		}
+		this.producer = producer;
+		return this;
+	}
+
+	public MutableUserAgent setProducerUrl(final String producerUrl) {
+		if (producerUrl == null) {
+			throw new IllegalArgumentException("Argument 'producerUrl' must not be null.");
+		}
+		this.producerUrl = producerUrl;
+		return this;
+	}
+
+	public MutableUserAgent setType(final UserAgentType type) {
+		if (type == null) {
+			throw new IllegalArgumentException("Argument 'type' must not be null.");
+		}
+		this.type = type;
+		this.typeName = type.getName();
+		return this;
+	}
+
+	public MutableUserAgent setTypeName(final String typeName) {
+		if (typeName == null) {
+			throw new IllegalArgumentException("Argument 'typeName' must not be null.");
+		}
+		this.type = UserAgentType.evaluateByTypeName(typeName);
+		this.typeName = typeName;
+		return this;
+	}
+
+	public MutableUserAgent setUrl(final String url) {
+		if (url == null) {
+			throw new IllegalArgumentException("Argument 'url' must not be null.");
+		}
+		this.url = url;
+		return this;
+	}
+
+	public MutableUserAgent setVersionNumber(final VersionNumber versionNumber) {
+		if (versionNumber == null) {
+			throw new IllegalArgumentException("Argument 'versionNumber' must not be null.");
+		}
+		this.versionNumber = versionNumber;
+		return this;
+	}
+
+	/**
+	 * Creates an immutable {@link UserAgent} with the current informations of this instance.
+	 * 
+	 * @return immutable copy of this instance
+	 */
+	public UserAgent toUserAgent() {
+		return new UserAgent(family, name, operatingSystem, producer, producerUrl, type, typeName, url, versionNumber);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("MutableUserAgent [family=");
+		builder.append(family);
+		builder.append(", name=");
+		builder.append(name);
+		builder.append(", operatingSystem=");
+		builder.append(operatingSystem);
+		builder.append(", producer=");
+		builder.append(producer);
+		builder.append(", producerUrl=");
+		builder.append(producerUrl);
+		builder.append(", type=");
+		builder.append(type);
+		builder.append(", typeName=");
+		builder.append(typeName);
+		builder.append(", url=");
+		builder.append(url);
+		builder.append(", userAgent=");
+		builder.append(userAgent);
+		builder.append(", versionNumber=");
+		builder.append(versionNumber);
+		builder.append("]");
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector;
+
+/**
+ * Extracts the version number of an operating system from an user agent string. The user agent string is passed as
+ * {@code CharSequence}, so that it can also be a view on bytes which have not been decoded into a {@code String}.<br>
+ * <br>
+ * Implementations can be registered per operating system family on a parser and are called for every user agent
+ * string whose operating system has been identified. They must therefore be safe when used concurrently by multiple
+ * threads and should avoid unnecessary allocations.
+ * 
+ * @see net.sf.uadetector.parser.AbstractUserAgentStringParser#setOperatingSystemVersionExtractor(OperatingSystemFamily,
+ *      VersionExtractor)
+ * 
+ * @author André Rouél
+ */
+public interface VersionExtractor {
+
+	/**
+	 * Extracts a version number from the given user agent string.
+	 * 
+	 * @param userAgent
+	 *            user agent string
+	 * @return extracted version number or {@link VersionNumber#UNKNOWN}, never {@code null}
+	 */
+	VersionNumber extract(CharSequence userAgent);
+
+}
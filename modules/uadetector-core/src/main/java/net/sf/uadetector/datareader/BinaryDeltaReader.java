@@ -0,0 +1,261 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datareader;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import net.sf.uadetector.UserAgentFamily;
+import net.sf.uadetector.internal.data.DataDelta;
+import net.sf.uadetector.internal.data.domain.Browser;
+import net.sf.uadetector.internal.data.domain.BrowserOperatingSystemMapping;
+import net.sf.uadetector.internal.data.domain.BrowserPattern;
+import net.sf.uadetector.internal.data.domain.BrowserType;
+import net.sf.uadetector.internal.data.domain.OperatingSystem;
+import net.sf.uadetector.internal.data.domain.OperatingSystemPattern;
+import net.sf.uadetector.internal.data.domain.Robot;
+
+/**
+ * Reader for deltas between two versions of <em>UAS data</em> which were written by
+ * {@link net.sf.uadetector.datawriter.BinaryDeltaWriter}.<br>
+ * <br>
+ * The read in {@link DataDelta} can be applied to the <em>UAS data</em> of its base version with
+ * {@link DataDelta#applyTo(net.sf.uadetector.internal.data.Data)}.<br>
+ * <br>
+ * This reader is safe when used concurrently by multiple threads.
+ * 
+ * @author André Rouél
+ */
+public final class BinaryDeltaReader {
+
+	/**
+	 * Reads a single entry of a delta
+	 */
+	private interface EntryReader<T> {
+		int keyOf(T entry);
+
+		T read(DataInputStream in) throws IOException;
+	}
+
+	private static final EntryReader<Browser> BROWSER = new EntryReader<Browser>() {
+		@Override
+		public int keyOf(final Browser browser) {
+			return browser.getId();
+		}
+
+		@Override
+		public Browser read(final DataInputStream in) throws IOException {
+			final int id = in.readInt();
+			final BrowserType type = new BrowserType(in.readInt(), readString(in));
+			final UserAgentFamily family = readFamily(in);
+			final String url = readString(in);
+			final String producer = readString(in);
+			final String producerUrl = readString(in);
+			final String icon = readString(in);
+			final String infoUrl = readString(in);
+			return new Browser(id, type, family, url, producer, producerUrl, icon, infoUrl, new TreeSet<BrowserPattern>(), null);
+		}
+	};
+
+	private static final EntryReader<BrowserOperatingSystemMapping> MAPPING = new EntryReader<BrowserOperatingSystemMapping>() {
+		@Override
+		public int keyOf(final BrowserOperatingSystemMapping mapping) {
+			return mapping.getBrowserId();
+		}
+
+		@Override
+		public BrowserOperatingSystemMapping read(final DataInputStream in) throws IOException {
+			final int browserId = in.readInt();
+			return new BrowserOperatingSystemMapping(browserId, in.readInt());
+		}
+	};
+
+	private static final EntryReader<OperatingSystem> OPERATING_SYSTEM = new EntryReader<OperatingSystem>() {
+		@Override
+		public int keyOf(final OperatingSystem os) {
+			return os.getId();
+		}
+
+		@Override
+		public OperatingSystem read(final DataInputStream in) throws IOException {
+			final int id = in.readInt();
+			final String family = readString(in);
+			final String icon = readString(in);
+			final String infoUrl = readString(in);
+			final String name = readString(in);
+			final String producer = readString(in);
+			final String producerUrl = readString(in);
+			final String url = readString(in);
+			return new OperatingSystem(family, icon, id, infoUrl, name, new TreeSet<OperatingSystemPattern>(), producer, producerUrl,
+					url);
+		}
+	};
+
+	private static final EntryReader<BrowserPattern> BROWSER_PATTERN = new EntryReader<BrowserPattern>() {
+		@Override
+		public int keyOf(final BrowserPattern pattern) {
+			return pattern.getPosition();
+		}
+
+		@Override
+		public BrowserPattern read(final DataInputStream in) throws IOException {
+			final int id = in.readInt();
+			final int position = in.readInt();
+			final String regex = readString(in);
+			return new BrowserPattern(id, regex, in.readInt(), position);
+		}
+	};
+
+	private static final EntryReader<OperatingSystemPattern> OS_PATTERN = new EntryReader<OperatingSystemPattern>() {
+		@Override
+		public int keyOf(final OperatingSystemPattern pattern) {
+			return pattern.getPosition();
+		}
+
+		@Override
+		public OperatingSystemPattern read(final DataInputStream in) throws IOException {
+			final int id = in.readInt();
+			final int position = in.readInt();
+			final String regex = readString(in);
+			return new OperatingSystemPattern(id, regex, in.readInt(), position);
+		}
+	};
+
+	private static final EntryReader<Robot> ROBOT = new EntryReader<Robot>() {
+		@Override
+		public int keyOf(final Robot robot) {
+			return robot.getId();
+		}
+
+		@Override
+		public Robot read(final DataInputStream in) throws IOException {
+			final int id = in.readInt();
+			final UserAgentFamily family = readFamily(in);
+			final String icon = readString(in);
+			final String infoUrl = readString(in);
+			final String name = readString(in);
+			final String producer = readString(in);
+			final String producerUrl = readString(in);
+			final String url = readString(in);
+			final String userAgentString = readString(in);
+			return new Robot(family, icon, id, infoUrl, name, producer, producerUrl, url, userAgentString);
+		}
+	};
+
+	/**
+	 * Magic number at the beginning and the end of every delta (the characters {@code UADD})
+	 */
+	public static final int MAGIC_NUMBER = 0x55414444;
+
+	/**
+	 * Version of the delta format, which will be incremented on every incompatible change
+	 */
+	public static final int FORMAT_VERSION = 1;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static <T> DataDelta.Changes<T> readChanges(final DataInputStream in, final EntryReader<T> reader) throws IOException {
+		final Map<Integer, T> added = readEntries(in, reader);
+		final Map<Integer, T> changed = readEntries(in, reader);
+		final Set<Integer> removed = new HashSet<Integer>();
+		for (int n = in.readInt(); n > 0; n--) {
+			removed.add(in.readInt());
+		}
+		return new DataDelta.Changes<T>(added, changed, removed);
+	}
+
+	private static <T> Map<Integer, T> readEntries(final DataInputStream in, final EntryReader<T> reader) throws IOException {
+		final Map<Integer, T> entries = new HashMap<Integer, T>();
+		for (int n = in.readInt(); n > 0; n--) {
+			final T entry = reader.read(in);
+			entries.put(reader.keyOf(entry), entry);
+		}
+		return entries;
+	}
+
+	private static UserAgentFamily readFamily(final DataInputStream in) throws IOException {
+		final String name = readString(in);
+		try {
+			return UserAgentFamily.valueOf(name);
+		} catch (final IllegalArgumentException e) {
+			throw new IOException("Unknown user agent family '" + name + "'.");
+		}
+	}
+
+	private static String readString(final DataInputStream in) throws IOException {
+		final int length = in.readInt();
+		if (length < 0) {
+			throw new IOException("The delta is corrupted: negative string length " + length + ".");
+		}
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	/**
+	 * Reads a delta from the given stream. The stream will not be closed.
+	 * 
+	 * @param stream
+	 *            stream to read from
+	 * @return read in delta
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 * @throws IOException
+	 *             if the delta is incomplete, corrupted or was written in another format version
+	 */
+	public DataDelta read(final InputStream stream) throws IOException {
+		if (stream == null) {
+			throw new IllegalArgumentException("Argument 'stream' must not be null.");
+		}
+
+		final DataInputStream in = new DataInputStream(stream);
+		try {
+			if (in.readInt() != MAGIC_NUMBER) {
+				throw new IOException("The given resource is not a delta of UAS data.");
+			}
+			final int formatVersion = in.readInt();
+			if (formatVersion != FORMAT_VERSION) {
+				throw new IOException("Unsupported delta format version " + formatVersion + ".");
+			}
+			final String baseVersion = readString(in);
+			final String version = readString(in);
+			final DataDelta.Changes<Browser> browsers = readChanges(in, BROWSER);
+			final DataDelta.Changes<OperatingSystem> operatingSystems = readChanges(in, OPERATING_SYSTEM);
+			final DataDelta.Changes<Robot> robots = readChanges(in, ROBOT);
+			final DataDelta.Changes<BrowserPattern> browserPatterns = readChanges(in, BROWSER_PATTERN);
+			final DataDelta.Changes<OperatingSystemPattern> operatingSystemPatterns = readChanges(in, OS_PATTERN);
+			final DataDelta.Changes<BrowserOperatingSystemMapping> mappings = readChanges(in, MAPPING);
+			if (in.readInt() != MAGIC_NUMBER) {
+				throw new IOException("The delta is corrupted: missing trailer.");
+			}
+			return new DataDelta(baseVersion, version, browsers, operatingSystems, robots, browserPatterns, operatingSystemPatterns,
+					mappings);
+		} catch (final EOFException e) {
+			throw new IOException("The delta is incomplete.");
+		} catch (final IllegalArgumentException e) {
+			throw new IOException("The delta is corrupted: " + e.getLocalizedMessage());
+		}
+	}
+
+}
@@ -0,0 +1,428 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datareader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import net.sf.uadetector.UserAgentFamily;
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.data.OrderedPatternComparator;
+import net.sf.uadetector.internal.data.domain.Browser;
+import net.sf.uadetector.internal.data.domain.BrowserPattern;
+import net.sf.uadetector.internal.data.domain.BrowserType;
+import net.sf.uadetector.internal.data.domain.OperatingSystem;
+import net.sf.uadetector.internal.data.domain.OperatingSystemPattern;
+import net.sf.uadetector.internal.data.domain.Robot;
+import net.sf.uadetector.internal.util.FileUtil;
+import net.sf.uadetector.internal.util.UrlUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reader for binary snapshots of <em>UAS data</em> which were written by
+ * {@link net.sf.uadetector.datawriter.BinarySnapshotDataWriter}.<br>
+ * <br>
+ * A snapshot is read in with a single sequential read and all records are created directly, without any XML parsing
+ * or intermediate builders. Strings within a snapshot are always encoded in UTF-8, therefore the character set passed
+ * to {@link #read(URL, Charset)} will be ignored.<br>
+ * <br>
+ * The header of a snapshot records the length and the CRC-32 checksum of the file from which the data have been read,
+ * so that {@link #isSnapshotOf(File, File)} can check whether a snapshot still belongs to the current content of this
+ * file.<br>
+ * <br>
+ * This reader is safe when used concurrently by multiple threads.
+ * 
+ * @author André Rouél
+ */
+public final class BinarySnapshotDataReader implements StreamDataReader {
+
+	/**
+	 * Cursor over the records of a snapshot, which resolves references into the string table
+	 */
+	private static final class Input {
+
+		private final ByteBuffer buffer;
+
+		private String[] strings;
+
+		private Input(final ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		private boolean readBoolean() {
+			return buffer.get() != 0;
+		}
+
+		/**
+		 * Reads the number of the following records and checks it against the remaining bytes, so that a corrupted
+		 * number can not allocate an oversized array.
+		 * 
+		 * @param recordSize
+		 *            minimum size of a record in bytes
+		 */
+		private int readCount(final int recordSize) throws IOException {
+			final int count = buffer.getInt();
+			if (count < 0 || count > buffer.remaining() / recordSize) {
+				throw new IOException("The snapshot is corrupted: invalid number of records (" + count + ").");
+			}
+			return count;
+		}
+
+		private UserAgentFamily readFamily() throws IOException {
+			final String name = readString();
+			try {
+				return UserAgentFamily.valueOf(name);
+			} catch (final IllegalArgumentException e) {
+				throw new IOException("Unknown user agent family '" + name + "'.");
+			}
+		}
+
+		private int readInt() {
+			return buffer.getInt();
+		}
+
+		private long readLong() {
+			return buffer.getLong();
+		}
+
+		private String readString() {
+			return strings[buffer.getInt()];
+		}
+
+		private void readStrings() throws IOException {
+			final int count = readCount(4);
+			strings = new String[count];
+			for (int i = 0; i < count; i++) {
+				final int length = buffer.getInt();
+				if (length < 0 || length > buffer.remaining()) {
+					throw new IOException("The snapshot is corrupted: invalid length of string (" + length + ").");
+				}
+				strings[i] = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+				buffer.position(buffer.position() + length);
+			}
+		}
+
+	}
+
+	/**
+	 * Magic number at the beginning and the end of every snapshot (the characters {@code UADS})
+	 */
+	public static final int MAGIC_NUMBER = 0x55414453;
+
+	/**
+	 * Version of the snapshot format, which will be incremented on every incompatible change
+	 */
+	public static final int FORMAT_VERSION = 2;
+
+	/**
+	 * Source length within the header of a snapshot which has not been created from a file
+	 */
+	public static final long NO_SOURCE = -1l;
+
+	/**
+	 * Length of the header of a snapshot, which consists of the magic number, the format version and the length and
+	 * the checksum of the source
+	 */
+	private static final int HEADER_LENGTH = 24;
+
+	/**
+	 * Corresponding default logger for this class
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(BinarySnapshotDataReader.class);
+
+	private static final OrderedPatternComparator<BrowserPattern> BROWSER_PATTERN_COMPARATOR = new OrderedPatternComparator<BrowserPattern>();
+
+	private static final OrderedPatternComparator<OperatingSystemPattern> OS_PATTERN_COMPARATOR = new OrderedPatternComparator<OperatingSystemPattern>();
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * Checks whether the given snapshot has been created from the current content of the given source file. The length
+	 * and the CRC-32 checksum of the source, which are recorded in the header of the snapshot, will be compared with
+	 * the file.
+	 * 
+	 * @param snapshot
+	 *            file of a binary snapshot
+	 * @param source
+	 *            file from which the snapshot should have been created
+	 * @return {@code true} if the snapshot belongs to the current content of the source, otherwise {@code false}
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 */
+	public static boolean isSnapshotOf(final File snapshot, final File source) {
+		if (snapshot == null) {
+			throw new IllegalArgumentException("Argument 'snapshot' must not be null.");
+		}
+		if (source == null) {
+			throw new IllegalArgumentException("Argument 'source' must not be null.");
+		}
+
+		if (!snapshot.isFile() || !source.isFile() || snapshot.length() < HEADER_LENGTH) {
+			return false;
+		}
+		try {
+			final long length;
+			final long checksum;
+			final DataInputStream in = new DataInputStream(new FileInputStream(snapshot));
+			try {
+				if (in.readInt() != MAGIC_NUMBER || in.readInt() != FORMAT_VERSION) {
+					return false;
+				}
+				length = in.readLong();
+				checksum = in.readLong();
+			} finally {
+				in.close();
+			}
+			return length != NO_SOURCE && length == source.length() && checksum == FileUtil.checksum(source);
+		} catch (final IOException e) {
+			LOG.debug("Can not check the snapshot of UAS data: " + e.getLocalizedMessage());
+			return false;
+		}
+	}
+
+	private static byte[] readFully(final InputStream stream) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(256 * 1024);
+		final byte[] chunk = new byte[64 * 1024];
+		int read;
+		while ((read = stream.read(chunk)) != -1) {
+			out.write(chunk, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Creates {@code Data} from the given binary snapshot.
+	 * 
+	 * @param snapshot
+	 *            complete content of a snapshot
+	 * @return read in <em>UAS data</em>
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 * @throws IOException
+	 *             if the snapshot is incomplete, corrupted or was written in another format version
+	 */
+	protected static Data readSnapshot(final byte[] snapshot) throws IOException {
+		if (snapshot == null) {
+			throw new IllegalArgumentException("Argument 'snapshot' must not be null.");
+		}
+
+		try {
+			return readSnapshot(new Input(ByteBuffer.wrap(snapshot)));
+		} catch (final BufferUnderflowException e) {
+			throw new IOException("The snapshot is incomplete.");
+		} catch (final IndexOutOfBoundsException e) {
+			throw new IOException("The snapshot is corrupted: " + e.getLocalizedMessage());
+		} catch (final IllegalArgumentException e) {
+			throw new IOException("The snapshot is corrupted: " + e.getLocalizedMessage());
+		}
+	}
+
+	private static Data readSnapshot(final Input in) throws IOException {
+		if (in.readInt() != MAGIC_NUMBER) {
+			throw new IOException("The given resource is not a snapshot of UAS data.");
+		}
+		final int formatVersion = in.readInt();
+		if (formatVersion != FORMAT_VERSION) {
+			throw new IOException("Unsupported snapshot format version " + formatVersion + ".");
+		}
+		in.readLong(); // length of the source
+		in.readLong(); // checksum of the source
+		in.readStrings();
+		final String version = in.readString();
+
+		final BrowserType[] browserTypes = new BrowserType[in.readCount(8)];
+		for (int i = 0; i < browserTypes.length; i++) {
+			final int id = in.readInt();
+			browserTypes[i] = new BrowserType(id, in.readString());
+		}
+
+		final OperatingSystemPattern[] osPatterns = new OperatingSystemPattern[in.readCount(16)];
+		for (int i = 0; i < osPatterns.length; i++) {
+			final int id = in.readInt();
+			final int position = in.readInt();
+			osPatterns[i] = new OperatingSystemPattern(id, in.readString(), in.readInt(), position);
+		}
+
+		final OperatingSystem[] operatingSystems = new OperatingSystem[in.readCount(37)];
+		final Set<OperatingSystem> osSet = new HashSet<OperatingSystem>(operatingSystems.length * 4 / 3 + 1);
+		for (int i = 0; i < operatingSystems.length; i++) {
+			final int id = in.readInt();
+			final String family = in.readString();
+			final String icon = in.readString();
+			final String infoUrl = in.readString();
+			final String name = in.readString();
+			final String producer = in.readString();
+			final String producerUrl = in.readString();
+			final String url = in.readString();
+			final SortedSet<OperatingSystemPattern> patternSet = new TreeSet<OperatingSystemPattern>(OS_PATTERN_COMPARATOR);
+			for (int n = in.readCount(4); n > 0; n--) {
+				patternSet.add(osPatterns[in.readInt()]);
+			}
+			operatingSystems[i] = new OperatingSystem(family, icon, id, infoUrl, name, patternSet, producer, producerUrl, url);
+			if (in.readBoolean()) {
+				osSet.add(operatingSystems[i]);
+			}
+		}
+
+		final BrowserPattern[] browserPatterns = new BrowserPattern[in.readCount(16)];
+		for (int i = 0; i < browserPatterns.length; i++) {
+			final int id = in.readInt();
+			final int position = in.readInt();
+			browserPatterns[i] = new BrowserPattern(id, in.readString(), in.readInt(), position);
+		}
+
+		final Browser[] browsers = new Browser[in.readCount(41)];
+		final Set<Browser> browserSet = new HashSet<Browser>(browsers.length * 4 / 3 + 1);
+		for (int i = 0; i < browsers.length; i++) {
+			final int id = in.readInt();
+			final BrowserType type = browserTypes[in.readInt()];
+			final UserAgentFamily family = in.readFamily();
+			final String url = in.readString();
+			final String producer = in.readString();
+			final String producerUrl = in.readString();
+			final String icon = in.readString();
+			final String infoUrl = in.readString();
+			final SortedSet<BrowserPattern> patternSet = new TreeSet<BrowserPattern>(BROWSER_PATTERN_COMPARATOR);
+			for (int n = in.readCount(4); n > 0; n--) {
+				patternSet.add(browserPatterns[in.readInt()]);
+			}
+			final int os = in.readInt();
+			browsers[i] = new Browser(id, type, family, url, producer, producerUrl, icon, infoUrl, patternSet, os < 0 ? null
+					: operatingSystems[os]);
+			if (in.readBoolean()) {
+				browserSet.add(browsers[i]);
+			}
+		}
+
+		final int robotCount = in.readCount(36);
+		final Set<Robot> robots = new HashSet<Robot>(robotCount * 4 / 3 + 1);
+		for (int i = 0; i < robotCount; i++) {
+			final int id = in.readInt();
+			final UserAgentFamily family = in.readFamily();
+			final String icon = in.readString();
+			final String infoUrl = in.readString();
+			final String name = in.readString();
+			final String producer = in.readString();
+			final String producerUrl = in.readString();
+			final String url = in.readString();
+			robots.add(new Robot(family, icon, id, infoUrl, name, producer, producerUrl, url, in.readString()));
+		}
+
+		final SortedMap<BrowserPattern, Browser> patternBrowserMap = new TreeMap<BrowserPattern, Browser>(BROWSER_PATTERN_COMPARATOR);
+		for (int n = in.readCount(8); n > 0; n--) {
+			final BrowserPattern pattern = browserPatterns[in.readInt()];
+			patternBrowserMap.put(pattern, browsers[in.readInt()]);
+		}
+
+		final SortedMap<OperatingSystemPattern, OperatingSystem> patternOsMap = new TreeMap<OperatingSystemPattern, OperatingSystem>(
+				OS_PATTERN_COMPARATOR);
+		for (int n = in.readCount(8); n > 0; n--) {
+			final OperatingSystemPattern pattern = osPatterns[in.readInt()];
+			patternOsMap.put(pattern, operatingSystems[in.readInt()]);
+		}
+
+		if (in.readInt() != MAGIC_NUMBER) {
+			throw new IOException("The snapshot is corrupted.");
+		}
+		return new Data(browserSet, osSet, robots, patternBrowserMap, patternOsMap, version);
+	}
+
+	/**
+	 * Reads a binary snapshot of <em>UAS data</em> from the given stream. The stream will not be closed.<br>
+	 * <br>
+	 * When the snapshot can not be read completely or was written in an unsupported format version, the information
+	 * will be written to a log and {@link Data#EMPTY} will be returned.
+	 * 
+	 * @param stream
+	 *            stream of a binary snapshot
+	 * @param charset
+	 *            will be ignored, because strings within a snapshot are always encoded in UTF-8
+	 * @return read User-Agent data as {@code Data} instance or {@link Data#EMPTY} if the snapshot is not readable
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 */
+	@Override
+	public Data read(final InputStream stream, final Charset charset) {
+		if (stream == null) {
+			throw new IllegalArgumentException("Argument 'stream' must not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Argument 'charset' must not be null.");
+		}
+
+		try {
+			return readSnapshot(readFully(stream));
+		} catch (final IOException e) {
+			LOG.warn("Can not read snapshot of UAS data: " + e.getLocalizedMessage());
+			return Data.EMPTY;
+		}
+	}
+
+	/**
+	 * Reads a binary snapshot of <em>UAS data</em> from the given URL.<br>
+	 * <br>
+	 * When the snapshot can not be read completely or was written in an unsupported format version, the information
+	 * will be written to a log and {@link Data#EMPTY} will be returned, so that callers can fall back to another
+	 * source.
+	 * 
+	 * @param url
+	 *            {@code URL} to a binary snapshot
+	 * @param charset
+	 *            will be ignored, because strings within a snapshot are always encoded in UTF-8
+	 * @return read User-Agent data as {@code Data} instance or {@link Data#EMPTY} if the snapshot is not readable
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 * @throws net.sf.uadetector.exception.CanNotOpenStreamException
+	 *             if no stream to the given {@code URL} can be established
+	 */
+	@Override
+	public Data read(final URL url, final Charset charset) {
+		if (url == null) {
+			throw new IllegalArgumentException("Argument 'url' must not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Argument 'charset' must not be null.");
+		}
+
+		final InputStream stream = UrlUtil.open(url);
+		try {
+			return read(stream, charset);
+		} finally {
+			try {
+				stream.close();
+			} catch (final IOException e) {
+				LOG.warn("The input stream could not be closed.");
+			}
+		}
+	}
+
+}
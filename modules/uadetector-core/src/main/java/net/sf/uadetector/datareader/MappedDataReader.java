@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datareader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.data.MappedData;
+import net.sf.uadetector.internal.util.UrlUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reader for <em>UAS data</em> in the flat layout of {@link MappedData}, which were written by
+ * {@link net.sf.uadetector.datawriter.MappedDataWriter}.<br>
+ * <br>
+ * Files will be mapped read-only into memory, so that all processes on a host which read the same file share one copy
+ * of it in the page cache. Only the robot table remains in the buffer, browsers, operating systems and their patterns
+ * are created on the heap when reading (see {@link MappedData}). Resources which are not files will be read completely
+ * into the heap. The character set passed to {@link #read(URL, Charset)} will be ignored, because strings are always
+ * encoded in UTF-8.<br>
+ * <br>
+ * This reader is safe when used concurrently by multiple threads.
+ * 
+ * @author André Rouél
+ */
+public final class MappedDataReader implements StreamDataReader {
+
+	/**
+	 * Corresponding default logger for this class
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(MappedDataReader.class);
+
+	/**
+	 * Maps the given file read-only into memory.
+	 * 
+	 * @param file
+	 *            file in the layout of {@link MappedData}
+	 * @return <em>UAS data</em> backed by the mapped file
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 * @throws IOException
+	 *             if the file can not be mapped, is incomplete, corrupted or has another format version
+	 */
+	protected static MappedData map(final File file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("Argument 'file' must not be null.");
+		}
+
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = raf.getChannel();
+			// the mapping stays valid after the channel has been closed
+			return MappedData.map(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static ByteBuffer readFully(final InputStream stream) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(256 * 1024);
+		final byte[] chunk = new byte[64 * 1024];
+		int read;
+		while ((read = stream.read(chunk)) != -1) {
+			out.write(chunk, 0, read);
+		}
+		return ByteBuffer.wrap(out.toByteArray());
+	}
+
+	private static ByteBuffer readFully(final URL url) throws IOException {
+		final InputStream stream = UrlUtil.open(url);
+		try {
+			return readFully(stream);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Reads <em>UAS data</em> in the layout of {@link MappedData} from the given stream into the heap. The stream will
+	 * not be closed.<br>
+	 * <br>
+	 * When the data can not be read completely or were written in an unsupported format version, the information will
+	 * be written to a log and {@link Data#EMPTY} will be returned.
+	 * 
+	 * @param stream
+	 *            stream of <em>UAS data</em> in the layout of {@link MappedData}
+	 * @param charset
+	 *            will be ignored, because strings are always encoded in UTF-8
+	 * @return read User-Agent data as {@code Data} instance or {@link Data#EMPTY} if the data are not readable
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 */
+	@Override
+	public Data read(final InputStream stream, final Charset charset) {
+		if (stream == null) {
+			throw new IllegalArgumentException("Argument 'stream' must not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Argument 'charset' must not be null.");
+		}
+
+		try {
+			return MappedData.map(readFully(stream));
+		} catch (final IOException e) {
+			LOG.warn("Can not map UAS data: " + e.getLocalizedMessage());
+		}
+		return Data.EMPTY;
+	}
+
+	/**
+	 * Reads <em>UAS data</em> in the layout of {@link MappedData} from the given URL. URLs to files will be mapped into
+	 * memory.<br>
+	 * <br>
+	 * When the data can not be read completely or were written in an unsupported format version, the information will
+	 * be written to a log and {@link Data#EMPTY} will be returned, so that callers can fall back to another source.
+	 * 
+	 * @param url
+	 *            {@code URL} to <em>UAS data</em> in the layout of {@link MappedData}
+	 * @param charset
+	 *            will be ignored, because strings are always encoded in UTF-8
+	 * @return read User-Agent data as {@code Data} instance or {@link Data#EMPTY} if the data are not readable
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 * @throws net.sf.uadetector.exception.CanNotOpenStreamException
+	 *             if no stream to the given {@code URL} (which is not a file) can be established
+	 */
+	@Override
+	public Data read(final URL url, final Charset charset) {
+		if (url == null) {
+			throw new IllegalArgumentException("Argument 'url' must not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Argument 'charset' must not be null.");
+		}
+
+		try {
+			if ("file".equals(url.getProtocol())) {
+				return map(new File(url.toURI()));
+			}
+			return MappedData.map(readFully(url));
+		} catch (final URISyntaxException e) {
+			LOG.warn("Can not map UAS data: " + e.getLocalizedMessage());
+		} catch (final IOException e) {
+			LOG.warn("Can not map UAS data: " + e.getLocalizedMessage());
+		}
+		return Data.EMPTY;
+	}
+
+}
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datareader;
+
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import net.sf.uadetector.internal.data.Data;
+
+/**
+ * A {@link DataReader} which can also read <em>UAS data</em> from an already opened stream. Data stores check with
+ * {@code instanceof} for this interface, so that data which have been retrieved with a conditional request can be read
+ * without requesting them again.
+ * 
+ * @author André Rouél
+ */
+public interface StreamDataReader extends DataReader {
+
+	/**
+	 * Reads <em>UAS data</em> from the given stream. The stream will not be closed.
+	 * 
+	 * @param stream
+	 *            the stream where the <em>UAS data</em> can be read
+	 * @param charset
+	 *            the character set in which the data should be read
+	 * @return read in <em>UAS data</em> as {@code Data} instance
+	 */
+	Data read(final InputStream stream, final Charset charset);
+
+}
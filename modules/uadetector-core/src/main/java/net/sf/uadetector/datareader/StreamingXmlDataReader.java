@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datareader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+
+import javax.xml.stream.XMLStreamException;
+
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.data.StreamingDataBuilder;
+import net.sf.uadetector.internal.data.StreamingXmlDataParser;
+import net.sf.uadetector.internal.util.CompressionUtil;
+import net.sf.uadetector.internal.util.UrlUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reader for the XML data for UASparser from <a
+ * href="http://user-agent-string.info/">http://user-agent-string.info</a>, which uses a pull parser (StAX) instead of
+ * SAX.<br>
+ * <br>
+ * The document is read in one pass with a reusable character buffer, and the records are linked over primitive IDs
+ * (see {@link StreamingDataBuilder}). Besides {@code URL}s this reader accepts any {@code InputStream}, e.g. of data held
+ * in memory. Data compressed in GZIP format will be decompressed on the fly. The read {@code Data} are equal to the
+ * ones of {@link XmlDataReader}.<br>
+ * <br>
+ * This reader is safe when used concurrently by multiple threads.
+ * 
+ * @author André Rouél
+ */
+public final class StreamingXmlDataReader implements StreamDataReader {
+
+	/**
+	 * Corresponding default logger for this class
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(StreamingXmlDataReader.class);
+
+	/**
+	 * Reads the <em>UAS data</em> in XML format from the given stream. The stream will not be closed.<br>
+	 * <br>
+	 * When during the reading errors occur which lead to a termination of the read operation, the information will be
+	 * written to a log and the records read so far will be returned.
+	 * 
+	 * @param stream
+	 *            stream of <em>UAS data</em> in XML format
+	 * @param charset
+	 *            the character set in which the data should be read
+	 * @return read User-Agent data as {@code Data} instance
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 */
+	@Override
+	public Data read(final InputStream stream, final Charset charset) {
+		if (stream == null) {
+			throw new IllegalArgumentException("Argument 'stream' must not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Argument 'charset' must not be null.");
+		}
+
+		final StreamingDataBuilder builder = new StreamingDataBuilder();
+		try {
+			new StreamingXmlDataParser().parse(CompressionUtil.decompress(stream), charset, builder);
+		} catch (final XMLStreamException e) {
+			LOG.warn(e.getLocalizedMessage());
+		} catch (final IOException e) {
+			LOG.warn(e.getLocalizedMessage());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Reads the <em>UAS data</em> in XML format based on the given URL.
+	 * 
+	 * @param url
+	 *            {@code URL} to User-Agent informations
+	 * @param charset
+	 *            the character set in which the data should be read
+	 * @return read User-Agent data as {@code Data} instance
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 * @throws net.sf.uadetector.exception.CanNotOpenStreamException
+	 *             if no stream to the given {@code URL} can be established
+	 */
+	@Override
+	public Data read(final URL url, final Charset charset) {
+		if (url == null) {
+			throw new IllegalArgumentException("Argument 'url' must not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Argument 'charset' must not be null.");
+		}
+
+		final InputStream stream = UrlUtil.open(url);
+		try {
+			return read(stream, charset);
+		} finally {
+			try {
+				stream.close();
+			} catch (final IOException e) {
+				LOG.warn(e.getLocalizedMessage());
+			}
+		}
+	}
+
+}
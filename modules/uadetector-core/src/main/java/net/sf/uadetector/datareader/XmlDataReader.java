@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.concurrent.Executor;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
@@ -27,6 +28,7 @@ import javax.xml.parsers.SAXParserFactory;
 import net.sf.uadetector.internal.data.Data;
 import net.sf.uadetector.internal.data.Data.Builder;
 import net.sf.uadetector.internal.data.XmlDataHandler;
+import net.sf.uadetector.internal.util.CompressionUtil;
 import net.sf.uadetector.internal.util.UrlUtil;
 
 import org.slf4j.Logger;
@@ -37,11 +39,13 @@ import org.xml.sax.SAXException;
  * Reader for the XML data for UASparser from <a
  * href="http://user-agent-string.info/">http://user-agent-string.info</a>.<br>
  * <br>
+ * Data compressed in GZIP format (e.g. {@code uas.xml.gz}) will be recognized and decompressed on the fly.<br>
+ * <br>
  * This reader is safe when used concurrently by multiple threads.
  * 
  * @author André Rouél
  */
-public final class XmlDataReader implements DataReader {
+public final class XmlDataReader implements StreamDataReader {
 
 	protected static final class XmlParser {
 
@@ -49,7 +53,7 @@ public final class XmlDataReader implements DataReader {
 				IOException {
 			final SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
 			final XmlDataHandler handler = new XmlDataHandler(builder);
-			parser.parse(stream, handler);
+			parser.parse(CompressionUtil.decompress(stream), handler);
 		}
 
 		private XmlParser() {
@@ -80,6 +84,10 @@ public final class XmlDataReader implements DataReader {
 	 *             if no stream to the given {@code URL} can be established
 	 */
 	protected static Data readXml(final URL url, final Charset charset) {
+		return readXml(url, charset, null);
+	}
+
+	private static Data readXml(final URL url, final Charset charset, final Executor executor) {
 		if (url == null) {
 			throw new IllegalArgumentException("Argument 'url' must not be null.");
 		}
@@ -87,9 +95,22 @@ public final class XmlDataReader implements DataReader {
 			throw new IllegalArgumentException("Argument 'charset' must not be null.");
 		}
 
+		final InputStream stream = UrlUtil.open(url);
+		try {
+			return readXml(stream, executor);
+		} finally {
+			try {
+				stream.close();
+			} catch (final IOException e) {
+				LOG.warn("The input stream could not be closed.");
+			}
+		}
+	}
+
+	private static Data readXml(final InputStream stream, final Executor executor) {
 		final Builder builder = new Builder();
 		try {
-			XmlParser.parse(UrlUtil.open(url), builder);
+			XmlParser.parse(stream, builder);
 		} catch (final ParserConfigurationException e) {
 			LOG.warn(e.getLocalizedMessage());
 		} catch (final SAXException e) {
@@ -97,7 +118,94 @@ public final class XmlDataReader implements DataReader {
 		} catch (final IOException e) {
 			LOG.warn(e.getLocalizedMessage());
 		}
-		return builder.build();
+		return executor != null ? builder.build(executor) : builder.build();
+	}
+
+	/**
+	 * Executor to build the read data in parallel or {@code null} to build it in the calling thread
+	 */
+	private final Executor executor;
+
+	/**
+	 * Creates a reader which builds the read data sequentially in the calling thread.
+	 */
+	public XmlDataReader() {
+		executor = null;
+	}
+
+	/**
+	 * Creates a reader which builds the read data in parallel with tasks on the given executor. Parsing the XML
+	 * document is still performed sequentially.
+	 * 
+	 * @param executor
+	 *            executor to run the tasks of a build
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 * @see Data.Builder#build(Executor)
+	 */
+	public XmlDataReader(final Executor executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException("Argument 'executor' must not be null.");
+		}
+
+		this.executor = executor;
+	}
+
+	/**
+	 * Reads the <em>UAS data</em> in XML format from the given stream. The stream will not be closed.
+	 * 
+	 * @param stream
+	 *            stream of <em>UAS data</em> in XML format
+	 * @param charset
+	 *            the character set in which the data should be read
+	 * @return read User-Agent data as {@code Data} instance
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 */
+	@Override
+	public Data read(final InputStream stream, final Charset charset) {
+		if (stream == null) {
+			throw new IllegalArgumentException("Argument 'stream' must not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Argument 'charset' must not be null.");
+		}
+
+		return readXml(stream, executor);
+	}
+
+	/**
+	 * Reads the <em>UAS data</em> in XML format from the given stream like {@link #read(InputStream, Charset)}, but
+	 * instead of returning the records read so far it fails, if the document can not be read completely. The stream
+	 * will not be closed.
+	 * 
+	 * @param stream
+	 *            stream of <em>UAS data</em> in XML format
+	 * @param charset
+	 *            the character set in which the data should be read
+	 * @return read User-Agent data as {@code Data} instance
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 * @throws IOException
+	 *             if the document is not well-formed or an I/O error occurs
+	 */
+	public Data readStrictly(final InputStream stream, final Charset charset) throws IOException {
+		if (stream == null) {
+			throw new IllegalArgumentException("Argument 'stream' must not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Argument 'charset' must not be null.");
+		}
+
+		final Builder builder = new Builder();
+		try {
+			XmlParser.parse(stream, builder);
+		} catch (final ParserConfigurationException e) {
+			throw new IOException("Can not create an XML parser: " + e.getLocalizedMessage(), e);
+		} catch (final SAXException e) {
+			throw new IOException("The UAS data can not be read completely: " + e.getLocalizedMessage(), e);
+		}
+		return executor != null ? builder.build(executor) : builder.build();
 	}
 
 	/**
@@ -122,7 +230,7 @@ public final class XmlDataReader implements DataReader {
 			throw new IllegalArgumentException("Argument 'charset' must not be null.");
 		}
 
-		return readXml(url, charset);
+		return readXml(url, charset, executor);
 	}
 
 }
@@ -15,11 +15,16 @@
  ******************************************************************************/
 package net.sf.uadetector.datastore;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.nio.charset.Charset;
 
 import net.sf.uadetector.datareader.DataReader;
+import net.sf.uadetector.datareader.StreamDataReader;
+import net.sf.uadetector.exception.CanNotOpenStreamException;
 import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.util.ConditionalFetcher;
 import net.sf.uadetector.internal.util.UrlUtil;
 
 import org.slf4j.Logger;
@@ -29,7 +34,10 @@ import org.slf4j.LoggerFactory;
  * The abstract implementation to store <em>UAS data</em> only in the heap space.<br>
  * <br>
  * A store must always have an usable instance of {@link Data}. It is recommended to initialize it with the supplied UAS
- * file in the <em>uadetector-resources</em> module.
+ * file in the <em>uadetector-resources</em> module.<br>
+ * <br>
+ * New data will be published safely without locking, so that {@link #getData()} never waits for a running refresh. To
+ * perform refreshes in the background use a {@link BackgroundRefresher}.
  * 
  * @author André Rouél
  */
@@ -74,9 +82,15 @@ public abstract class AbstractDataStore implements DataStore {
 	private final Charset charset;
 
 	/**
-	 * Current <em>UAS data</em>
+	 * Current <em>UAS data</em>, which will be replaced completely built by a single volatile write, so that readers
+	 * always see a consistent instance without locking
+	 */
+	private volatile Data data;
+
+	/**
+	 * Fetcher which remembers the validators of the last retrieval of the data URL
 	 */
-	private Data data;
+	private final ConditionalFetcher fetcher = new ConditionalFetcher();
 
 	/**
 	 * The data reader to read in <em>UAS data</em>
@@ -188,6 +202,75 @@ public abstract class AbstractDataStore implements DataStore {
 		return versionUrl;
 	}
 
+	/**
+	 * Opens a stream to the data URL, unless the <em>UAS data</em> have not been modified since the last retrieval. For
+	 * HTTP URLs a conditional request will be sent.
+	 * 
+	 * @return opened stream (which must be closed by the caller) or {@code null} if the data have not been modified
+	 * @throws CanNotOpenStreamException
+	 *             if no stream to the data URL can be established
+	 */
+	protected InputStream openDataIfModified() {
+		final InputStream stream;
+		try {
+			stream = fetcher.open(dataUrl);
+		} catch (final IOException e) {
+			throw new CanNotOpenStreamException(dataUrl.toString(), e);
+		}
+		if (stream == null) {
+			LOG.debug("The UAS data have not been modified since the last retrieval.");
+		}
+		return stream;
+	}
+
+	/**
+	 * Reads the <em>UAS data</em> from the data URL, unless they have not been modified since the last call of this
+	 * method. For HTTP URLs a conditional request will be sent, so that unchanged data will be neither transferred nor
+	 * parsed again.<br>
+	 * <br>
+	 * If the read data are empty, the validators of the response will be forgotten, so that the next call retrieves
+	 * the data again. A data reader which can not read from a stream (see {@link StreamDataReader}) reads the data URL
+	 * once more, after the conditional request has reported a modification.
+	 * 
+	 * @return new read <em>UAS data</em> or {@code null} if the data have not been modified
+	 * @throws CanNotOpenStreamException
+	 *             if no stream to the data URL can be established
+	 */
+	protected Data readDataIfModified() {
+		final InputStream stream = openDataIfModified();
+		if (stream == null) {
+			return null;
+		}
+
+		Data read = null;
+		try {
+			if (reader instanceof StreamDataReader) {
+				read = ((StreamDataReader) reader).read(stream, charset);
+			} else {
+				read = reader.read(dataUrl, charset);
+			}
+		} finally {
+			if (read == null || read == Data.EMPTY) {
+				resetDataValidators();
+			}
+			try {
+				stream.close();
+			} catch (final IOException e) {
+				LOG.warn("The input stream could not be closed.");
+			}
+		}
+		return read;
+	}
+
+	/**
+	 * Forgets the validators of the last retrieval of the data URL, so that the next request will be unconditional.
+	 * This should be called when the content of a stream opened by {@link #openDataIfModified()} could not be
+	 * processed.
+	 */
+	protected void resetDataValidators() {
+		fetcher.forget(dataUrl);
+	}
+
 	/**
 	 * Sets new <em>UAS data</em> in the store.
 	 * 
@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datastore;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import net.sf.uadetector.internal.data.Data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Refreshes a {@link RefreshableDataStore} in the background, so that the calling thread does not have to wait for the
+ * network I/O and the parsing of the <em>UAS data</em>.<br>
+ * <br>
+ * The next {@code Data} will be built completely on a dedicated executor and afterwards published by the store with a
+ * single volatile write (see {@link AbstractDataStore}). Parsers which are currently working with the previous
+ * {@code Data} keep their consistent snapshot and never wait for a refresh.<br>
+ * <br>
+ * Refresh requests which arrive while another refresh is still waiting for execution will be merged into it. The
+ * completion can be observed by the returned {@code Future} or by {@link RefreshListener}s.<br>
+ * <br>
+ * A refresh which has been reported as failed by the store (see {@link ReportingRefreshableDataStore#tryRefresh()})
+ * will be treated like a refresh which has thrown an exception.<br>
+ * <br>
+ * The parsers of this library do not use a {@code BackgroundRefresher} on their own, it must be created explicitly for
+ * a store whose refreshes should be requested in the background.<br>
+ * <br>
+ * A {@code BackgroundRefresher} is safe when used concurrently by multiple threads.
+ * 
+ * @author André Rouél
+ */
+public final class BackgroundRefresher {
+
+	/**
+	 * Factory to create daemon threads with the lowest priority, so that a refresh does not compete with parsing
+	 */
+	private static final class LowPriorityThreadFactory implements ThreadFactory {
+
+		@Override
+		public Thread newThread(final Runnable r) {
+			final Thread thread = new Thread(r, "uadetector-refresh");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		}
+
+	}
+
+	/**
+	 * A refresh which knows whether its execution has been started
+	 */
+	private final class Refresh extends FutureTask<Data> {
+
+		private volatile boolean started = false;
+
+		public Refresh(final Callable<Data> callable) {
+			super(callable);
+		}
+
+		@Override
+		protected void done() {
+			finished(this);
+		}
+
+		public boolean isStarted() {
+			return started;
+		}
+
+		@Override
+		public void run() {
+			started = true;
+			super.run();
+		}
+
+	}
+
+	/**
+	 * Corresponding default logger for this class
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(BackgroundRefresher.class);
+
+	/**
+	 * Refreshes the given store and reports whether the data are up to date. Stores which do not implement
+	 * {@link ReportingRefreshableDataStore} can only report a failure by throwing an exception.
+	 */
+	private static boolean refresh(final RefreshableDataStore store) {
+		if (store instanceof ReportingRefreshableDataStore) {
+			return ((ReportingRefreshableDataStore) store).tryRefresh();
+		}
+		store.refresh();
+		return true;
+	}
+
+	/**
+	 * Executor which performs the refreshes
+	 */
+	private final Executor executor;
+
+	/**
+	 * Registered listeners
+	 */
+	private final List<RefreshListener> listeners = new CopyOnWriteArrayList<RefreshListener>();
+
+	/**
+	 * Executor service which has been created by this refresher and must be shut down by it, otherwise {@code null}
+	 */
+	private final ExecutorService ownExecutor;
+
+	/**
+	 * Refresh which has been requested last and is not yet completed, otherwise {@code null}
+	 */
+	private Refresh pending;
+
+	/**
+	 * Store to be refreshed
+	 */
+	private final RefreshableDataStore store;
+
+	/**
+	 * Creates a refresher which performs the refreshes of the given store on its own daemon thread with the lowest
+	 * priority.
+	 * 
+	 * @param store
+	 *            store to be refreshed
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public BackgroundRefresher(final RefreshableDataStore store) {
+		if (store == null) {
+			throw new IllegalArgumentException("Argument 'store' must not be null.");
+		}
+
+		this.store = store;
+		ownExecutor = Executors.newSingleThreadExecutor(new LowPriorityThreadFactory());
+		executor = ownExecutor;
+	}
+
+	/**
+	 * Creates a refresher which performs the refreshes of the given store with the passed executor.
+	 * 
+	 * @param store
+	 *            store to be refreshed
+	 * @param executor
+	 *            executor to perform the refreshes (will not be shut down by this refresher)
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 */
+	public BackgroundRefresher(final RefreshableDataStore store, final Executor executor) {
+		if (store == null) {
+			throw new IllegalArgumentException("Argument 'store' must not be null.");
+		}
+		if (executor == null) {
+			throw new IllegalArgumentException("Argument 'executor' must not be null.");
+		}
+
+		this.store = store;
+		this.executor = executor;
+		ownExecutor = null;
+	}
+
+	/**
+	 * Adds a listener which will be notified after every refresh.
+	 * 
+	 * @param listener
+	 *            listener to be added
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public void addListener(final RefreshListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Argument 'listener' must not be null.");
+		}
+
+		listeners.add(listener);
+	}
+
+	private synchronized void finished(final Refresh refresh) {
+		if (pending == refresh) {
+			pending = null;
+		}
+	}
+
+	/**
+	 * Gets the refreshed store.
+	 * 
+	 * @return refreshed store
+	 */
+	public RefreshableDataStore getStore() {
+		return store;
+	}
+
+	private Data performRefresh() {
+		final Data previous = store.getData();
+		try {
+			if (!refresh(store)) {
+				throw new IllegalStateException("The store could not refresh the UAS data and keeps the previous ones.");
+			}
+		} catch (final RuntimeException e) {
+			LOG.warn("Can not refresh UAS data: " + e.getLocalizedMessage());
+			for (final RefreshListener listener : listeners) {
+				try {
+					listener.onFailure(store, e);
+				} catch (final RuntimeException listenerException) {
+					LOG.warn("A refresh listener has failed: " + listenerException.getLocalizedMessage(), listenerException);
+				}
+			}
+			throw e;
+		}
+		final Data current = store.getData();
+		for (final RefreshListener listener : listeners) {
+			try {
+				listener.onRefresh(store, previous, current);
+			} catch (final RuntimeException e) {
+				LOG.warn("A refresh listener has failed: " + e.getLocalizedMessage(), e);
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Requests a refresh of the store in the background. If a previously requested refresh has not been started yet,
+	 * no further refresh will be scheduled and its {@code Future} will be returned.
+	 * 
+	 * @return {@code Future} which provides the <em>UAS data</em> of the store after the refresh or the exception of a
+	 *         failed refresh
+	 * @throws IllegalStateException
+	 *             if the executor does not accept the refresh, e.g. because it has been shut down
+	 */
+	public synchronized Future<Data> refresh() {
+		if (pending != null && !pending.isStarted() && !pending.isDone()) {
+			return pending;
+		}
+
+		final Refresh refresh = new Refresh(new Callable<Data>() {
+			@Override
+			public Data call() {
+				return performRefresh();
+			}
+		});
+		try {
+			executor.execute(refresh);
+		} catch (final RejectedExecutionException e) {
+			throw new IllegalStateException("The refresh can not be scheduled: " + e.getLocalizedMessage(), e);
+		}
+		pending = refresh;
+		return refresh;
+	}
+
+	/**
+	 * Removes a previously added listener.
+	 * 
+	 * @param listener
+	 *            listener to be removed
+	 * @return {@code true} if the listener has been removed, otherwise {@code false}
+	 */
+	public boolean removeListener(final RefreshListener listener) {
+		return listeners.remove(listener);
+	}
+
+	/**
+	 * Shuts down the own executor of this refresher after the already requested refreshes. An executor which has been
+	 * passed on construction will not be affected.
+	 */
+	public void shutdown() {
+		if (ownExecutor != null) {
+			ownExecutor.shutdown();
+		}
+	}
+
+}
@@ -15,16 +15,23 @@
  ******************************************************************************/
 package net.sf.uadetector.datastore;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.nio.charset.Charset;
 
-import net.sf.uadetector.datareader.DataReader;
+import net.sf.uadetector.datareader.BinarySnapshotDataReader;
 import net.sf.uadetector.datareader.XmlDataReader;
+import net.sf.uadetector.datawriter.BinarySnapshotDataWriter;
 import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.util.CompressionUtil;
 import net.sf.uadetector.internal.util.FileUtil;
+import net.sf.uadetector.internal.util.TeeInputStream;
 import net.sf.uadetector.internal.util.UrlUtil;
 
 import org.slf4j.Logger;
@@ -34,11 +41,27 @@ import org.slf4j.LoggerFactory;
  * Implementation of a {@link DataStore} which is able to recover <em>UAS data</em> in XML format from a cache file. If
  * the cache file is empty, the data will be read from the given data URL.<br>
  * <br>
- * You can also update the data of the store at any time if you trigger {@link CachingXmlDataStore#refresh()}.
+ * You can also update the data of the store at any time if you trigger {@link CachingXmlDataStore#refresh()}. A refresh
+ * downloads the data once and passes the bytes to the parser and into a temporary file at the same time. Only if the
+ * data could be parsed completely, the temporary file replaces the cache file and the new data will be used.<br>
+ * <br>
+ * Next to the cache file a binary snapshot of the read in data will be saved (see {@link #getSnapshotFile(File)}). If
+ * the snapshot has been created from the current content of the cache file, it will be loaded instead of parsing the
+ * cached XML again.<br>
+ * <br>
+ * A store created with a maximum age (see {@link #createCachingXmlDataStore(File, URL, URL, Charset, long)}) trusts a
+ * filled cache file, whose last modification is not older than the maximum age or whose version is still current, and
+ * does not download the data on creation. Further checks should be left to a background scheduler (e.g.
+ * {@link net.sf.uadetector.parser.UpdatingUserAgentStringParserImpl} with an initial delay), so that a warm restart
+ * costs only one local load.<br>
+ * <br>
+ * If the name of the cache file ends with {@code .gz}, the cached XML will be compressed in GZIP format. Compressed
+ * data sources (e.g. {@code uas.xml.gz} or a download with GZIP content encoding) are decompressed on the fly in
+ * both cases.
  * 
  * @author André Rouél
  */
-public final class CachingXmlDataStore extends AbstractDataStore implements RefreshableDataStore {
+public final class CachingXmlDataStore extends AbstractDataStore implements ReportingRefreshableDataStore {
 
 	/**
 	 * The suffix string to be used in generating the cache file's name; may be {@code null}, in which case the suffix "
@@ -51,6 +74,11 @@ public final class CachingXmlDataStore extends AbstractDataStore implements Refr
 	 */
 	private static final String PREFIX = "uas";
 
+	/**
+	 * The suffix which will be appended to the name of the cache file to get the name of its binary snapshot
+	 */
+	private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
 	/**
 	 * The default temporary-file directory
 	 */
@@ -71,6 +99,26 @@ public final class CachingXmlDataStore extends AbstractDataStore implements Refr
 	 */
 	private static final String MSG_CACHE_FILE_IS_FILLED = "The cache file is filled and will be imported.";
 
+	/**
+	 * Message for the log if the snapshot of the cache file is usable
+	 */
+	private static final String MSG_SNAPSHOT_IS_USABLE = "The snapshot of the cache file is up to date and will be imported.";
+
+	/**
+	 * Message for the log if the cache file is trusted without downloading the data
+	 */
+	private static final String MSG_CACHE_FILE_IS_CURRENT = "The cache file is current. The data will not be downloaded on creation.";
+
+	/**
+	 * Maximum age which indicates that a store always refreshes the cache file on creation
+	 */
+	private static final long NO_MAX_AGE = -1L;
+
+	/**
+	 * Message for the log if the cache file already contains the read in data
+	 */
+	private static final String MSG_SAME_CONTENT = "The cache file is up to date. It was not overwritten.";
+
 	/**
 	 * Message for the log if the passed resources are the same and an update makes no sense
 	 */
@@ -112,20 +160,54 @@ public final class CachingXmlDataStore extends AbstractDataStore implements Refr
 			throw new IllegalArgumentException("Argument 'versionUrl' must not be null.");
 		}
 
-		final DataReader reader = new XmlDataReader();
+		return create(cacheFile, dataUrl, versionUrl, charset, NO_MAX_AGE);
+	}
 
-		final Data data;
-		if (!isEmpty(cacheFile, charset)) {
-			data = reader.read(UrlUtil.toUrl(cacheFile), charset);
-			LOG.debug(MSG_CACHE_FILE_IS_FILLED);
-		} else {
-			data = reader.read(dataUrl, charset);
-			LOG.debug(MSG_CACHE_FILE_IS_EMPTY);
+	/**
+	 * Constructs a new instance of {@code CachingXmlDataStore} with the given arguments, which trusts a filled cache
+	 * file on creation, if its last modification is not older than the given maximum age or the version URL reports
+	 * no newer version. Only otherwise the data will be downloaded. The given {@code cacheFile} can be empty or filled
+	 * with previously cached data in XML format. The file must be writable otherwise an exception will be thrown.
+	 * 
+	 * @param cacheFile
+	 *            file with cached <em>UAS data</em> in XML format or empty file
+	 * @param dataUrl
+	 *            URL to <em>UAS data</em>
+	 * @param versionUrl
+	 *            URL to version information about the given <em>UAS data</em>
+	 * @param charset
+	 *            the character set in which the data should be read
+	 * @param maxAge
+	 *            maximum age of the cache file in milliseconds, which will be trusted without any network I/O
+	 * @return new instance of {@link CachingXmlDataStore}
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 * @throws IllegalArgumentException
+	 *             if the given maximum age is less than 0
+	 * @throws IllegalArgumentException
+	 *             if the given cache file can not be read
+	 * @throws IllegalStateException
+	 *             if no URL can be resolved to the given given file
+	 */
+	public static CachingXmlDataStore createCachingXmlDataStore(final File cacheFile, final URL dataUrl, final URL versionUrl,
+			final Charset charset, final long maxAge) {
+		if (cacheFile == null) {
+			throw new IllegalArgumentException("Argument 'cacheFile' must not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Argument 'charset' must not be null.");
+		}
+		if (dataUrl == null) {
+			throw new IllegalArgumentException("Argument 'dataUrl' must not be null.");
+		}
+		if (versionUrl == null) {
+			throw new IllegalArgumentException("Argument 'versionUrl' must not be null.");
+		}
+		if (maxAge < 0) {
+			throw new IllegalArgumentException("Argument 'maxAge' must not be less than 0.");
 		}
 
-		final CachingXmlDataStore store = new CachingXmlDataStore(data, reader, dataUrl, versionUrl, charset, cacheFile);
-		store.refresh(); // update the cache file
-		return store;
+		return create(cacheFile, dataUrl, versionUrl, charset, maxAge);
 	}
 
 	/**
@@ -150,6 +232,39 @@ public final class CachingXmlDataStore extends AbstractDataStore implements Refr
 		return createCachingXmlDataStore(findOrCreateCacheFile(), dataUrl, versionUrl, charset);
 	}
 
+	/**
+	 * Creates a store with the data of the given cache file, which will be refreshed unless the cache file is current
+	 * regarding the given maximum age (or {@link #NO_MAX_AGE} to refresh it always).
+	 */
+	private static CachingXmlDataStore create(final File cacheFile, final URL dataUrl, final URL versionUrl, final Charset charset,
+			final long maxAge) {
+		final XmlDataReader reader = new XmlDataReader();
+
+		Data data;
+		if (!isEmpty(cacheFile, charset)) {
+			data = readSnapshot(cacheFile, charset);
+			if (data != null) {
+				LOG.debug(MSG_SNAPSHOT_IS_USABLE);
+			} else {
+				data = reader.read(UrlUtil.toUrl(cacheFile), charset);
+				LOG.debug(MSG_CACHE_FILE_IS_FILLED);
+			}
+		} else {
+			// the data will be read once by the following refresh
+			data = Data.EMPTY;
+			LOG.debug(MSG_CACHE_FILE_IS_EMPTY);
+		}
+
+		final CachingXmlDataStore store = new CachingXmlDataStore(data, reader, dataUrl, versionUrl, charset, cacheFile);
+		if (maxAge != NO_MAX_AGE && data != Data.EMPTY && isCurrent(cacheFile, data, versionUrl, charset, maxAge)) {
+			LOG.debug(MSG_CACHE_FILE_IS_CURRENT);
+			return store;
+		}
+		store.refresh(); // update the cache file
+		return store;
+	}
+
+
 	/**
 	 * Gets the cache file for <em>UAS data</em> in the default temporary-file directory. If no cache file exists, a new
 	 * empty file in the default temporary-file directory will be created, using the default prefix and suffix to
@@ -171,6 +286,46 @@ public final class CachingXmlDataStore extends AbstractDataStore implements Refr
 		return file;
 	}
 
+	/**
+	 * Gets the file in which a binary snapshot of the <em>UAS data</em> of the given cache file will be saved.
+	 * 
+	 * @param cacheFile
+	 *            file to cache <em>UAS data</em> in XML format
+	 * @return file of the binary snapshot next to the given cache file
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public static File getSnapshotFile(final File cacheFile) {
+		if (cacheFile == null) {
+			throw new IllegalArgumentException("Argument 'cacheFile' must not be null.");
+		}
+
+		return new File(cacheFile.getPath() + SNAPSHOT_SUFFIX);
+	}
+
+	/**
+	 * Opens a buffered stream to write into the given file, which compresses all bytes if requested.
+	 */
+	private static OutputStream openOutput(final File file, final boolean compressed) throws IOException {
+		final OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		if (!compressed) {
+			return out;
+		}
+		try {
+			return CompressionUtil.compress(out);
+		} catch (final IOException e) {
+			out.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Gets the temporary file in which the content of the given cache file will be written before replacing it.
+	 */
+	private static File getTempFile(final File cacheFile) {
+		return new File(cacheFile.getParent(), cacheFile.getName() + ".temp");
+	}
+
 	/**
 	 * Checks if the given file is empty.
 	 * 
@@ -191,20 +346,87 @@ public final class CachingXmlDataStore extends AbstractDataStore implements Refr
 	}
 
 	/**
-	 * Reads the content from the given {@link URL} and saves it to the passed file.
+	 * Checks whether the cached <em>UAS data</em> can be trusted without downloading them. This is the case, if the
+	 * cache file is not older than the given maximum age, or if the version URL reports no newer version. Because a
+	 * failed check would not lead to newer data either, the cache file will be trusted then as well.
+	 */
+	private static boolean isCurrent(final File cacheFile, final Data data, final URL versionUrl, final Charset charset,
+			final long maxAge) {
+		final long age = System.currentTimeMillis() - cacheFile.lastModified();
+		if (age >= 0 && age <= maxAge) {
+			return true;
+		}
+		try {
+			final String version = UrlUtil.read(versionUrl, charset).trim();
+			return version.compareTo(data.getVersion()) <= 0;
+		} catch (final IOException e) {
+			LOG.info("Can not check the version of the cache file: " + e.getLocalizedMessage());
+			return true;
+		} catch (final RuntimeException e) {
+			LOG.info("Can not check the version of the cache file: " + e.getLocalizedMessage());
+			return true;
+		}
+	}
+
+	/**
+	 * Replaces the given cache file by the completely written temporary file. If the cache file already has exactly
+	 * the same content, it will not be touched (so that its binary snapshot stays valid) and the temporary file will
+	 * be deleted.
+	 * 
+	 * @return {@code true} if the content of the cache file has been replaced, otherwise {@code false}
+	 */
+	private static boolean replaceCacheFile(final File tempFile, final File cacheFile) throws IOException {
+		if (FileUtil.hasSameContent(tempFile, cacheFile)) {
+			LOG.debug(MSG_SAME_CONTENT);
+			tempFile.delete();
+			return false;
+		}
+
+		// rename the new file to the original one
+		if (!FileUtil.replace(tempFile, cacheFile)) {
+			LOG.warn("Renaming of temporary file to the original file has failed.");
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the binary snapshot of the given cache file, if it exists and has been created from the current content of
+	 * the cache file.
+	 * 
+	 * @param cacheFile
+	 *            file with cached <em>UAS data</em> in XML format
+	 * @param charset
+	 *            the character set in which the data should be read
+	 * @return read in <em>UAS data</em> or {@code null} if there is no usable snapshot
+	 */
+	private static Data readSnapshot(final File cacheFile, final Charset charset) {
+		final File snapshot = getSnapshotFile(cacheFile);
+		if (!BinarySnapshotDataReader.isSnapshotOf(snapshot, cacheFile)) {
+			return null;
+		}
+		final Data data = new BinarySnapshotDataReader().read(UrlUtil.toUrl(snapshot), charset);
+		return data == Data.EMPTY ? null : data;
+	}
+
+	/**
+	 * Reads the content from the given {@link URL} and saves it to the passed file. The content will be streamed into
+	 * a temporary file, which replaces the passed file afterwards. If the file already has exactly this content, it
+	 * will not be touched, so that its binary snapshot stays valid.
 	 * 
 	 * @param url
 	 *            URL to <em>UAS data</em>
 	 * @param file
 	 *            file in which the entire contents from the given URL can be saved
 	 * @param charset
-	 *            the character set in which the data should be read
+	 *            the character set of the data (the bytes will be saved decompressed and compressed again, if the
+	 *            name of the file ends with {@code .gz})
+	 * @return {@code true} if the content of the file has been replaced, otherwise {@code false}
 	 * @throws IllegalArgumentException
 	 *             if any of the passed arguments is {@code null}
 	 * @throws IOException
 	 *             if an I/O error occurs
 	 */
-	protected static void readAndSave(final URL url, final File file, final Charset charset) throws IOException {
+	protected static boolean readAndSave(final URL url, final File file, final Charset charset) throws IOException {
 		if (url == null) {
 			throw new IllegalArgumentException("Argument 'url' must not be null.");
 		}
@@ -216,38 +438,85 @@ public final class CachingXmlDataStore extends AbstractDataStore implements Refr
 		}
 
 		final boolean isEqual = url.toExternalForm().equals(UrlUtil.toUrl(file).toExternalForm());
-		if (!isEqual) {
-			FileOutputStream outputStream = null;
+		if (isEqual) {
+			LOG.debug(MSG_SAME_RESOURCES);
+			return false;
+		}
+
+		final File tempFile = getTempFile(file);
+
+		// remove orphaned temporary file
+		tempFile.delete();
+
+		// write data to temporary file
+		final InputStream inputStream = UrlUtil.open(url);
+		try {
+			final InputStream decompressed = CompressionUtil.decompress(inputStream);
+			final OutputStream outputStream = openOutput(tempFile, CompressionUtil.isCompressed(file));
 			try {
-				final File tempFile = new File(file.getParent(), file.getName() + ".temp");
+				final byte[] buffer = new byte[8 * 1024];
+				int read;
+				while ((read = decompressed.read(buffer)) != -1) {
+					outputStream.write(buffer, 0, read);
+				}
+			} finally {
+				outputStream.close();
+			}
+		} finally {
+			inputStream.close();
+		}
 
-				// remove orphaned temporary file
-				tempFile.delete();
+		return replaceCacheFile(tempFile, file);
+	}
 
-				// write data to temporary file
-				outputStream = new FileOutputStream(tempFile);
-				final String data = UrlUtil.read(url, charset);
-				outputStream.write(data.getBytes(charset));
+	/**
+	 * Writes a binary snapshot of the given <em>UAS data</em> into the passed file. The snapshot will be written into a
+	 * temporary file first, which replaces the passed file afterwards.
+	 * 
+	 * @param data
+	 *            <em>UAS data</em> to be saved
+	 * @param source
+	 *            file from which the data have been read
+	 * @param file
+	 *            file in which the snapshot should be saved
+	 * @throws IllegalArgumentException
+	 *             if any of the passed arguments is {@code null}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	protected static void writeSnapshot(final Data data, final File source, final File file) throws IOException {
+		if (data == null) {
+			throw new IllegalArgumentException("Argument 'data' must not be null.");
+		}
+		if (source == null) {
+			throw new IllegalArgumentException("Argument 'source' must not be null.");
+		}
+		if (file == null) {
+			throw new IllegalArgumentException("Argument 'file' must not be null.");
+		}
 
-				// delete the original file
-				file.delete();
+		final File tempFile = new File(file.getPath() + ".temp");
 
-				// rename the new file to the original one
-				if (!tempFile.renameTo(file)) {
-					LOG.warn("Renaming of temporary file to the original file has failed.");
-				}
+		// remove orphaned temporary file
+		tempFile.delete();
 
-			} finally {
-				if (outputStream != null) {
-					try {
-						outputStream.close();
-					} catch (final IOException e) {
-						LOG.warn("The output stream could not be closed.");
-					}
+		OutputStream outputStream = null;
+		try {
+			outputStream = new BufferedOutputStream(new FileOutputStream(tempFile));
+			new BinarySnapshotDataWriter().write(data, source, outputStream);
+		} finally {
+			if (outputStream != null) {
+				try {
+					outputStream.close();
+				} catch (final IOException e) {
+					LOG.warn("The output stream could not be closed.");
 				}
 			}
-		} else {
-			LOG.debug(MSG_SAME_RESOURCES);
+		}
+
+		// replace the previous snapshot
+		if (!FileUtil.replace(tempFile, file)) {
+			LOG.warn("Renaming of temporary snapshot file to the original file has failed.");
 		}
 	}
 
@@ -256,6 +525,11 @@ public final class CachingXmlDataStore extends AbstractDataStore implements Refr
 	 */
 	private final File cacheFile;
 
+	/**
+	 * Reader which fails if the <em>UAS data</em> can not be read completely
+	 */
+	private final XmlDataReader reader;
+
 	/**
 	 * Constructs an {@code CachingXmlDataStore} with the given arguments.
 	 * 
@@ -274,20 +548,89 @@ public final class CachingXmlDataStore extends AbstractDataStore implements Refr
 	 * @throws IllegalArgumentException
 	 *             if one of the given arguments is {@code null}
 	 */
-	private CachingXmlDataStore(final Data data, final DataReader reader, final URL dataUrl, final URL versionUrl, final Charset charset,
-			final File cacheFile) {
+	private CachingXmlDataStore(final Data data, final XmlDataReader reader, final URL dataUrl, final URL versionUrl,
+			final Charset charset, final File cacheFile) {
 		super(data, reader, dataUrl, versionUrl, charset);
 		this.cacheFile = cacheFile;
+		this.reader = reader;
+	}
+
+	/**
+	 * Reads the <em>UAS data</em> from the given stream and writes all read bytes into the passed file at the same
+	 * time. Compressed data will be decompressed first and compressed again, if the cache file is compressed. The
+	 * given stream will be closed.
+	 * 
+	 * @throws IOException
+	 *             if the data can not be read completely or an I/O error occurs
+	 */
+	private Data readAndSave(final InputStream stream, final File file) throws IOException {
+		final TeeInputStream tee;
+		try {
+			final InputStream decompressed = CompressionUtil.decompress(stream);
+			tee = new TeeInputStream(decompressed, openOutput(file, CompressionUtil.isCompressed(cacheFile)));
+		} catch (final IOException e) {
+			stream.close();
+			throw e;
+		}
+		try {
+			// the parser closes the stream after reading the document, but the remaining bytes are still needed
+			final Data data = reader.readStrictly(new FilterInputStream(tee) {
+				@Override
+				public void close() {
+					// will be closed after draining
+				}
+			}, getCharset());
+
+			// the parser may stop before the end of the stream, but the file must be complete
+			tee.drain();
+			return data;
+		} finally {
+			tee.close();
+		}
+	}
+
+	@Override
+	public void refresh() {
+		tryRefresh();
 	}
 
 	@Override
-	public synchronized void refresh() {
+	public synchronized boolean tryRefresh() {
+		final InputStream stream = openDataIfModified();
+		if (stream == null) {
+			return true;
+		}
+
+		final File tempFile = getTempFile(cacheFile);
+
+		// remove orphaned temporary file
+		tempFile.delete();
+
+		final Data data;
+		boolean replaced = true;
 		try {
-			readAndSave(getDataUrl(), cacheFile, getCharset());
+			data = readAndSave(stream, tempFile);
+			replaced = replaceCacheFile(tempFile, cacheFile);
 		} catch (final IOException e) {
 			LOG.warn("Can not read and save UAS data: " + e.getLocalizedMessage(), e);
+			resetDataValidators();
+			tempFile.delete();
+			return false;
+		}
+
+		// the current data has been read from the unchanged cache file, if its snapshot is still valid
+		final File snapshot = getSnapshotFile(cacheFile);
+		if (!replaced && getData() != Data.EMPTY && BinarySnapshotDataReader.isSnapshotOf(snapshot, cacheFile)) {
+			return true;
+		}
+
+		setData(data);
+		try {
+			writeSnapshot(data, cacheFile, snapshot);
+		} catch (final IOException e) {
+			LOG.warn("Can not save snapshot of UAS data: " + e.getLocalizedMessage(), e);
 		}
-		setData(getDataReader().read(getDataUrl(), getCharset()));
+		return true;
 	}
 
 }
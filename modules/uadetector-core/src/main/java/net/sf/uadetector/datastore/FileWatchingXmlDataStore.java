@@ -0,0 +1,520 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datastore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.uadetector.datareader.XmlDataReader;
+import net.sf.uadetector.exception.CanNotOpenStreamException;
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.util.UrlUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implementation of a {@link RefreshableDataStore} which reads the <em>UAS data</em> from a local file and watches it
+ * for modifications, e.g. when the file will be distributed to the hosts by a configuration management tool instead of
+ * being retrieved from the public URL.<br>
+ * <br>
+ * Instead of the file also its directory can be passed. In that case the file {@code uas.xml.gz} or
+ * {@code uas.xml} within this directory will be watched. Replacing the file by renaming a new one onto it will be
+ * recognized as well.<br>
+ * <br>
+ * While watching, the modification time and length of the file will be checked in the given interval. A burst of writes
+ * will be merged: the file will be read not until it has not been modified for the given quiet period. The data will
+ * only be parsed and published when the content of the file has actually been changed, and will be published with a
+ * single volatile write, so that parsers never wait for a reload (see {@link AbstractDataStore}). An incomplete or
+ * unreadable file will be ignored until it will be modified again.<br>
+ * <br>
+ * Many parsers can share one store and therefore one watch task. The watch tasks of several stores can share one
+ * {@code ScheduledExecutorService} with {@link #startWatching(ScheduledExecutorService, long, long)}.
+ * 
+ * @author André Rouél
+ */
+public final class FileWatchingXmlDataStore extends AbstractDataStore implements ReportingRefreshableDataStore {
+
+	/**
+	 * Factory to create daemon threads for watching files
+	 */
+	private static final class DaemonThreadFactory implements ThreadFactory {
+
+		@Override
+		public Thread newThread(final Runnable r) {
+			final Thread thread = new Thread(r, "uadetector-file-watch");
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
+	/**
+	 * Modification time and length of a file
+	 */
+	private static final class Stamp {
+
+		private final long lastModified;
+
+		private final long length;
+
+		public Stamp(final File file) {
+			lastModified = file.lastModified();
+			length = file.length();
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			final Stamp other = (Stamp) obj;
+			return lastModified == other.lastModified && length == other.length;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (int) (lastModified ^ lastModified >>> 32) + (int) (length ^ length >>> 32);
+		}
+
+	}
+
+	/**
+	 * Task which checks the watched file for modifications
+	 */
+	private final class WatchTask implements Runnable {
+
+		/**
+		 * Quiet period in nanoseconds
+		 */
+		private final long quietPeriod;
+
+		public WatchTask(final long quietPeriod) {
+			this.quietPeriod = quietPeriod;
+		}
+
+		@Override
+		public void run() {
+			try {
+				check(quietPeriod);
+			} catch (final RuntimeException e) {
+				// an exception would suppress all further executions
+				LOG.warn("Can not check the UAS data file: " + e.getLocalizedMessage(), e);
+			}
+		}
+
+	}
+
+	/**
+	 * Default interval in milliseconds in which the file will be checked for modifications
+	 */
+	public static final long DEFAULT_CHECK_INTERVAL = 500L;
+
+	/**
+	 * Default period in milliseconds without further modifications, after which a modified file will be read
+	 */
+	public static final long DEFAULT_QUIET_PERIOD = 200L;
+
+	/**
+	 * Names of the files which will be watched within a directory in order of precedence
+	 */
+	private static final String[] FILE_NAMES = { "uas.xml.gz", "uas.xml" };
+
+	/**
+	 * Corresponding default logger of this class
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(FileWatchingXmlDataStore.class);
+
+	/**
+	 * The default data reader to read in <em>UAS data</em> in XML format
+	 */
+	private static final XmlDataReader DEFAULT_DATA_READER = new XmlDataReader();
+
+	/**
+	 * Algorithm to create a digest of the file content
+	 */
+	private static final String DIGEST_ALGORITHM = "SHA-1";
+
+	private static byte[] digest(final byte[] content) {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM).digest(content);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Every Java platform must support " + DIGEST_ALGORITHM + ".", e);
+		}
+	}
+
+	/**
+	 * Reads the given file completely into memory, so that the digest and the data are based on the same content.
+	 */
+	private static byte[] readContent(final File file) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.max(file.length(), 1024L));
+		final InputStream in = new FileInputStream(file);
+		try {
+			final byte[] buffer = new byte[16 * 1024];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Resolves the file which should be watched. If the given file is a directory, the first existing file of
+	 * {@link #FILE_NAMES} within it will be returned (or the last name, if none exists).
+	 */
+	private static File resolve(final File file) {
+		if (!file.isDirectory()) {
+			return file;
+		}
+		File candidate = null;
+		for (final String name : FILE_NAMES) {
+			candidate = new File(file, name);
+			if (candidate.isFile()) {
+				break;
+			}
+		}
+		return candidate;
+	}
+
+	/**
+	 * Converts the given file or directory into the URL of the watched file.
+	 */
+	private static URL toUrl(final File file) {
+		if (file == null) {
+			throw new IllegalArgumentException("Argument 'file' must not be null.");
+		}
+		return UrlUtil.toUrl(resolve(file));
+	}
+
+	/**
+	 * Digest of the content from which the current data have been read
+	 */
+	private byte[] digest;
+
+	/**
+	 * Watched file or directory as passed on construction
+	 */
+	private final File file;
+
+	/**
+	 * Reader which fails if the <em>UAS data</em> can not be read completely
+	 */
+	private final XmlDataReader reader;
+
+	/**
+	 * Registered listeners
+	 */
+	private final List<RefreshListener> listeners = new CopyOnWriteArrayList<RefreshListener>();
+
+	/**
+	 * Point in time (in nanoseconds) of the last observed modification which has not been handled yet
+	 */
+	private long modifiedAt;
+
+	/**
+	 * Indicates whether a modification has been observed which has not been handled yet
+	 */
+	private boolean modified = false;
+
+	/**
+	 * Executor service which has been created by this store and must be shut down by it, otherwise {@code null}
+	 */
+	private ScheduledExecutorService ownExecutor;
+
+	/**
+	 * Last observed modification time and length of the watched file
+	 */
+	private Stamp stamp;
+
+	/**
+	 * Currently running watch task or {@code null} if the file is not watched
+	 */
+	private ScheduledFuture<?> watching;
+
+	/**
+	 * Constructs a new instance of {@code FileWatchingXmlDataStore} by reading <em>UAS data</em> in XML format from the
+	 * given file or directory with the default character set {@link DataStore#DEFAULT_CHARSET}.
+	 * 
+	 * @param file
+	 *            file with <em>UAS data</em> or directory which contains it
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 * @throws CanNotOpenStreamException
+	 *             if the file can not be read completely
+	 */
+	public FileWatchingXmlDataStore(final File file) {
+		this(DEFAULT_DATA_READER, file, DEFAULT_CHARSET);
+	}
+
+	/**
+	 * Constructs a new instance of {@code FileWatchingXmlDataStore} by reading <em>UAS data</em> from the given file or
+	 * directory. The file will not be watched until {@link #startWatching()} will be called.
+	 * 
+	 * @param reader
+	 *            reader which reads the file strictly, so that incomplete files will be ignored
+	 * @param file
+	 *            file with <em>UAS data</em> or directory which contains it
+	 * @param charset
+	 *            the character set in which the data should be read
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 * @throws CanNotOpenStreamException
+	 *             if the file can not be read completely
+	 */
+	public FileWatchingXmlDataStore(final XmlDataReader reader, final File file, final Charset charset) {
+		super(Data.EMPTY, reader, toUrl(file), toUrl(file), charset);
+		this.file = file;
+		this.reader = reader;
+		final File current = resolve(file);
+		stamp = new Stamp(current);
+		try {
+			reload(current);
+		} catch (final IOException e) {
+			throw new CanNotOpenStreamException(current.getPath(), e);
+		}
+	}
+
+	/**
+	 * Adds a listener which will be notified after every reload of the file, which has been triggered by watching it or
+	 * by {@link #refresh()}.
+	 * 
+	 * @param listener
+	 *            listener to be added
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public void addListener(final RefreshListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Argument 'listener' must not be null.");
+		}
+
+		listeners.add(listener);
+	}
+
+	/**
+	 * Checks the watched file for modifications and reloads it, if it has not been modified for the given quiet
+	 * period.
+	 * 
+	 * @param quietPeriod
+	 *            period in nanoseconds
+	 */
+	private synchronized void check(final long quietPeriod) {
+		final File current = resolve(file);
+		final Stamp observed = new Stamp(current);
+		final long now = System.nanoTime();
+		if (!observed.equals(stamp)) {
+			stamp = observed;
+			modified = true;
+			modifiedAt = now;
+		} else if (modified && now - modifiedAt >= quietPeriod) {
+			modified = false;
+			reloadAndNotify(current);
+		}
+	}
+
+	/**
+	 * Gets the watched file or directory as passed on construction.
+	 * 
+	 * @return watched file or directory
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Indicates whether the file is currently watched.
+	 * 
+	 * @return {@code true} if the file is watched, otherwise {@code false}
+	 */
+	public synchronized boolean isWatching() {
+		return watching != null;
+	}
+
+	/**
+	 * Reloads the file immediately, regardless of an ongoing quiet period. The data will only be parsed and published
+	 * if the content of the file has been changed.
+	 */
+	@Override
+	public void refresh() {
+		tryRefresh();
+	}
+
+	/**
+	 * Reloads the file immediately like {@link #refresh()} and reports whether the current content could be read.
+	 */
+	@Override
+	public synchronized boolean tryRefresh() {
+		final File current = resolve(file);
+		stamp = new Stamp(current);
+		modified = false;
+		return reloadAndNotify(current);
+	}
+
+	/**
+	 * Reads the given file and publishes the contained <em>UAS data</em>, if the content has been changed and could be
+	 * read.
+	 * 
+	 * @return {@code true} if new data have been published, otherwise {@code false}
+	 * @throws IOException
+	 *             if the file can not be read completely
+	 */
+	private boolean reload(final File current) throws IOException {
+		final byte[] content = readContent(current);
+		final byte[] contentDigest = digest(content);
+		if (Arrays.equals(digest, contentDigest)) {
+			LOG.debug("The content of the UAS data file has not been changed.");
+			return false;
+		}
+		final Data read;
+		try {
+			// a file which is still being written is not a well-formed document
+			read = reader.readStrictly(new ByteArrayInputStream(content), getCharset());
+		} catch (final RuntimeException e) {
+			throw new IOException("The UAS data file can not be read completely: " + e.getLocalizedMessage(), e);
+		}
+		if (read == Data.EMPTY || read.getVersion().isEmpty()) {
+			throw new IOException("The UAS data file does not contain any UAS data: " + current.getPath());
+		}
+		digest = contentDigest;
+		setData(read);
+		return true;
+	}
+
+	/**
+	 * Reloads the given file and notifies the listeners about the outcome.
+	 * 
+	 * @return {@code false} if the file could not be read, otherwise {@code true}
+	 */
+	private boolean reloadAndNotify(final File watched) {
+		final Data previous = getData();
+		try {
+			if (!reload(watched)) {
+				return true;
+			}
+		} catch (final IOException e) {
+			LOG.warn("Can not read the UAS data file: " + e.getLocalizedMessage());
+			final RuntimeException exception = new CanNotOpenStreamException(watched.getPath(), e);
+			for (final RefreshListener listener : listeners) {
+				try {
+					listener.onFailure(this, exception);
+				} catch (final RuntimeException listenerException) {
+					LOG.warn("A refresh listener has failed: " + listenerException.getLocalizedMessage(), listenerException);
+				}
+			}
+			return false;
+		}
+		final Data current = getData();
+		for (final RefreshListener listener : listeners) {
+			try {
+				listener.onRefresh(this, previous, current);
+			} catch (final RuntimeException e) {
+				LOG.warn("A refresh listener has failed: " + e.getLocalizedMessage(), e);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes a previously added listener.
+	 * 
+	 * @param listener
+	 *            listener to be removed
+	 * @return {@code true} if the listener has been removed, otherwise {@code false}
+	 */
+	public boolean removeListener(final RefreshListener listener) {
+		return listeners.remove(listener);
+	}
+
+	/**
+	 * Starts watching the file on an own daemon thread with the default check interval
+	 * {@link #DEFAULT_CHECK_INTERVAL} and the default quiet period {@link #DEFAULT_QUIET_PERIOD}. If the file is
+	 * already watched, nothing happens.
+	 */
+	public synchronized void startWatching() {
+		if (watching == null) {
+			ownExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory());
+			startWatching(ownExecutor, DEFAULT_CHECK_INTERVAL, DEFAULT_QUIET_PERIOD);
+		}
+	}
+
+	/**
+	 * Starts watching the file with a task on the given executor, which can be shared by several stores. If the file is
+	 * already watched, nothing happens.
+	 * 
+	 * @param executor
+	 *            executor to check the file (will not be shut down by this store)
+	 * @param checkInterval
+	 *            interval in milliseconds in which the file will be checked for modifications
+	 * @param quietPeriod
+	 *            period in milliseconds without further modifications, after which a modified file will be read
+	 * @throws IllegalArgumentException
+	 *             if the given executor is {@code null}, the interval is not positive or the quiet period is negative
+	 */
+	public synchronized void startWatching(final ScheduledExecutorService executor, final long checkInterval, final long quietPeriod) {
+		if (executor == null) {
+			throw new IllegalArgumentException("Argument 'executor' must not be null.");
+		}
+		if (checkInterval <= 0) {
+			throw new IllegalArgumentException("Argument 'checkInterval' must be greater than 0.");
+		}
+		if (quietPeriod < 0) {
+			throw new IllegalArgumentException("Argument 'quietPeriod' must not be negative.");
+		}
+
+		if (watching == null) {
+			watching = executor.scheduleWithFixedDelay(new WatchTask(TimeUnit.MILLISECONDS.toNanos(quietPeriod)), checkInterval,
+					checkInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stops watching the file. An executor which has been passed by
+	 * {@link #startWatching(ScheduledExecutorService, long, long)} will not be shut down.
+	 */
+	public synchronized void stopWatching() {
+		if (watching != null) {
+			watching.cancel(false);
+			watching = null;
+		}
+		if (ownExecutor != null) {
+			ownExecutor.shutdown();
+			ownExecutor = null;
+		}
+	}
+
+}
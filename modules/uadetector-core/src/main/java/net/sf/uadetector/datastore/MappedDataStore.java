@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datastore;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+
+import net.sf.uadetector.datareader.MappedDataReader;
+import net.sf.uadetector.datareader.XmlDataReader;
+import net.sf.uadetector.datawriter.MappedDataWriter;
+import net.sf.uadetector.exception.CanNotOpenStreamException;
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.util.FileUtil;
+import net.sf.uadetector.internal.util.UrlUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implementation of a {@link DataStore} whose <em>UAS data</em> are backed by a read-only memory mapped file (see
+ * {@link net.sf.uadetector.internal.data.MappedData}). All processes on a host which use the same file share one copy
+ * of it in the page cache and do not need to read in any XML on start.<br>
+ * <br>
+ * Only the robots, the robot hash index and their strings stay within the mapped file and are created on the heap on
+ * first access. Browsers, operating systems and their patterns are still created on the heap when the file is mapped,
+ * because the parsers and the prefilter evaluate all of their patterns on every parse. A start therefore avoids the
+ * parsing of XML and the largest table, but it is not free of deserialization: every process builds the browser and
+ * operating system part of the object graph once. Regular expressions are compiled on first use.<br>
+ * <br>
+ * If the file is empty or not usable, the data will be read from the given data URL and the file will be written
+ * once. When triggering {@link MappedDataStore#refresh()} the data will be read again from the data URL (unless they
+ * have not been modified) and the file will be replaced by renaming a completely written temporary file, so that
+ * processes which still map the previous file are not affected. Because the file is shared by all processes on a host,
+ * it will only be written with data which could be read completely.
+ * 
+ * @author André Rouél
+ */
+public final class MappedDataStore extends AbstractDataStore implements ReportingRefreshableDataStore {
+
+	/**
+	 * Corresponding default logger of this class
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(MappedDataStore.class);
+
+	/**
+	 * Message for the log if the mapped file is not usable
+	 */
+	private static final String MSG_FILE_IS_NOT_USABLE = "The mapped file is empty or not usable. The given UAS data source will be imported.";
+
+	/**
+	 * Constructs a new instance of {@code MappedDataStore} with the given arguments. The given file can be empty or
+	 * filled with previously written data in the layout of {@link net.sf.uadetector.internal.data.MappedData}. The
+	 * directory of the file must be writable if the file is not usable.
+	 * 
+	 * @param file
+	 *            file with mapped <em>UAS data</em> or empty file
+	 * @param dataUrl
+	 *            URL to <em>UAS data</em> in XML format
+	 * @param versionUrl
+	 *            URL to version information about the given <em>UAS data</em>
+	 * @param charset
+	 *            the character set in which the data should be read
+	 * @return new instance of {@link MappedDataStore}
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 * @throws net.sf.uadetector.exception.CanNotOpenStreamException
+	 *             if the file is not usable and no stream to the given data URL can be established
+	 */
+	public static MappedDataStore createMappedDataStore(final File file, final URL dataUrl, final URL versionUrl, final Charset charset) {
+		if (file == null) {
+			throw new IllegalArgumentException("Argument 'file' must not be null.");
+		}
+		if (dataUrl == null) {
+			throw new IllegalArgumentException("Argument 'dataUrl' must not be null.");
+		}
+		if (versionUrl == null) {
+			throw new IllegalArgumentException("Argument 'versionUrl' must not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Argument 'charset' must not be null.");
+		}
+
+		final XmlDataReader reader = new XmlDataReader();
+		Data data = file.length() > 0 ? new MappedDataReader().read(UrlUtil.toUrl(file), charset) : Data.EMPTY;
+		if (!isUsable(data)) {
+			LOG.debug(MSG_FILE_IS_NOT_USABLE);
+			final Data read = readStrictly(reader, dataUrl, charset);
+			data = read != null ? writeAndMap(read, file, charset) : Data.EMPTY;
+		}
+		return new MappedDataStore(data, reader, dataUrl, versionUrl, charset, file);
+	}
+
+	/**
+	 * Checks whether the given data, which have been mapped from a file, are complete enough to be used.
+	 */
+	private static boolean isUsable(final Data data) {
+		return data != Data.EMPTY && !data.getVersion().isEmpty() && !data.getBrowsers().isEmpty();
+	}
+
+	/**
+	 * Reads the <em>UAS data</em> of the given URL completely.
+	 * 
+	 * @return read data or {@code null} if they could not be read completely
+	 */
+	private static Data readStrictly(final XmlDataReader reader, final URL url, final Charset charset) {
+		try {
+			final InputStream stream = UrlUtil.open(url);
+			try {
+				return readStrictly(reader, stream, charset);
+			} finally {
+				stream.close();
+			}
+		} catch (final IOException e) {
+			LOG.warn("Can not read UAS data: " + e.getLocalizedMessage());
+		} catch (final CanNotOpenStreamException e) {
+			LOG.warn("Can not read UAS data: " + e.getLocalizedMessage());
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the <em>UAS data</em> of the given stream completely. The stream will not be closed.
+	 * 
+	 * @throws IOException
+	 *             if the data can not be read completely or are empty
+	 */
+	private static Data readStrictly(final XmlDataReader reader, final InputStream stream, final Charset charset) throws IOException {
+		final Data data = reader.readStrictly(stream, charset);
+		if (data == Data.EMPTY || data.getVersion().isEmpty()) {
+			throw new IOException("The read UAS data are empty.");
+		}
+		return data;
+	}
+
+	/**
+	 * Writes the given <em>UAS data</em> into the passed file and maps it. If this fails, the given data will be
+	 * returned.
+	 */
+	private static Data writeAndMap(final Data data, final File file, final Charset charset) {
+		try {
+			write(data, file);
+		} catch (final IOException e) {
+			LOG.warn("Can not write mapped UAS data: " + e.getLocalizedMessage(), e);
+			return data;
+		}
+		final Data mapped = new MappedDataReader().read(UrlUtil.toUrl(file), charset);
+		return mapped == Data.EMPTY ? data : mapped;
+	}
+
+	/**
+	 * Writes the given <em>UAS data</em> in the layout of {@link net.sf.uadetector.internal.data.MappedData} into the
+	 * passed file. The data will be written into a temporary file in the same directory first, which replaces the
+	 * passed file afterwards.
+	 * 
+	 * @param data
+	 *            <em>UAS data</em> to be saved
+	 * @param file
+	 *            file in which the data should be saved
+	 * @throws IllegalArgumentException
+	 *             if any of the passed arguments is {@code null}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	protected static void write(final Data data, final File file) throws IOException {
+		if (data == null) {
+			throw new IllegalArgumentException("Argument 'data' must not be null.");
+		}
+		if (file == null) {
+			throw new IllegalArgumentException("Argument 'file' must not be null.");
+		}
+
+		// a unique temporary file, because other processes may replace the file at the same time
+		final File tempFile = File.createTempFile(file.getName() + ".part", ".temp", file.getAbsoluteFile().getParentFile());
+		try {
+			final OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(tempFile));
+			try {
+				new MappedDataWriter().write(data, outputStream);
+			} finally {
+				outputStream.close();
+			}
+
+			if (!FileUtil.replace(tempFile, file)) {
+				throw new IOException("Renaming of temporary file to the mapped file has failed.");
+			}
+		} finally {
+			// the temporary file is left only if writing or renaming has failed
+			tempFile.delete();
+		}
+	}
+
+	/**
+	 * File with mapped <em>UAS data</em>
+	 */
+	private final File file;
+
+	/**
+	 * Reader which fails if the <em>UAS data</em> can not be read completely
+	 */
+	private final XmlDataReader reader;
+
+	private MappedDataStore(final Data data, final XmlDataReader reader, final URL dataUrl, final URL versionUrl,
+			final Charset charset, final File file) {
+		super(data, reader, dataUrl, versionUrl, charset);
+		this.file = file;
+		this.reader = reader;
+	}
+
+	@Override
+	public void refresh() {
+		tryRefresh();
+	}
+
+	@Override
+	public synchronized boolean tryRefresh() {
+		final InputStream stream = openDataIfModified();
+		if (stream == null) {
+			return true;
+		}
+
+		final Data data;
+		try {
+			try {
+				data = readStrictly(reader, stream, getCharset());
+			} finally {
+				stream.close();
+			}
+		} catch (final IOException e) {
+			LOG.warn("Can not read UAS data, the mapped file will not be replaced: " + e.getLocalizedMessage());
+			resetDataValidators();
+			return false;
+		}
+		setData(writeAndMap(data, file, getCharset()));
+		return true;
+	}
+
+}
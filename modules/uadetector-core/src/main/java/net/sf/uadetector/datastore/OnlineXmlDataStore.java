@@ -17,14 +17,18 @@ package net.sf.uadetector.datastore;
 
 import net.sf.uadetector.datareader.DataReader;
 import net.sf.uadetector.datareader.XmlDataReader;
+import net.sf.uadetector.internal.data.Data;
 
 /**
  * This is the simplest implementation of a {@link DataStore}. It initialize the store by reading the <em>UAS data</em>
- * online and store it only in the Java heap space.
+ * online and store it only in the Java heap space.<br>
+ * <br>
+ * When refreshing the store, the data will be requested conditionally, so that unchanged data will be neither
+ * transferred nor parsed again.
  * 
  * @author André Rouél
  */
-public final class OnlineXmlDataStore extends AbstractDataStore implements RefreshableDataStore {
+public final class OnlineXmlDataStore extends AbstractDataStore implements ReportingRefreshableDataStore {
 
 	/**
 	 * The default data reader to read in <em>UAS data</em> in XML format
@@ -40,9 +44,22 @@ public final class OnlineXmlDataStore extends AbstractDataStore implements Refre
 	}
 
 	@Override
-	public synchronized void refresh() {
+	public void refresh() {
+		tryRefresh();
+	}
+
+	@Override
+	public synchronized boolean tryRefresh() {
 		// access the resource protected by this lock
-		setData(getDataReader().read(getDataUrl(), getCharset()));
+		final Data data = readDataIfModified();
+		if (data == Data.EMPTY) {
+			// keep the current data, the next refresh will retrieve the data again
+			return false;
+		}
+		if (data != null) {
+			setData(data);
+		}
+		return true;
 	}
 
 }
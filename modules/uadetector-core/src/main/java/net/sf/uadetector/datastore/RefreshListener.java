@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datastore;
+
+import net.sf.uadetector.internal.data.Data;
+
+/**
+ * Listener which will be notified when a refresh of a {@link RefreshableDataStore} has been completed.<br>
+ * <br>
+ * The methods will be called by the thread which performed the refresh, so implementations should return quickly.
+ * 
+ * @author André Rouél
+ */
+public interface RefreshListener {
+
+	/**
+	 * Will be called after a refresh has failed. The store still provides its previous <em>UAS data</em>.
+	 * 
+	 * @param store
+	 *            store which should have been refreshed
+	 * @param exception
+	 *            reason of the failure
+	 */
+	void onFailure(final RefreshableDataStore store, final RuntimeException exception);
+
+	/**
+	 * Will be called after a refresh has been completed and the store provides the current <em>UAS data</em>. If the
+	 * data have not been modified, {@code previous} and {@code current} can be the same instance.
+	 * 
+	 * @param store
+	 *            refreshed store
+	 * @param previous
+	 *            <em>UAS data</em> before the refresh
+	 * @param current
+	 *            <em>UAS data</em> after the refresh
+	 */
+	void onRefresh(final RefreshableDataStore store, final Data previous, final Data current);
+
+}
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datastore;
+
+/**
+ * A {@link RefreshableDataStore} which reports whether a refresh could update its <em>UAS data</em>.<br>
+ * <br>
+ * Stores of this library keep their current data when new data can not be retrieved or read and return normally from
+ * {@link #refresh()}. Callers which need to count such failures, for example to back off before the next attempt,
+ * should check with {@code instanceof} for this interface and use {@link #tryRefresh()} instead.
+ * 
+ * @author André Rouél
+ */
+public interface ReportingRefreshableDataStore extends RefreshableDataStore {
+
+	/**
+	 * Triggers the update of the {@code DataStore} like {@link #refresh()} and reports the outcome. If the new data can
+	 * not be retrieved or read, the current data will be kept and {@code false} will be returned.
+	 * 
+	 * @return {@code true} if the data are up to date (refreshed or not modified), {@code false} if the refresh has
+	 *         failed
+	 */
+	boolean tryRefresh();
+
+}
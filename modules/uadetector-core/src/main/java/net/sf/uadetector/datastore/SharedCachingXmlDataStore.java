@@ -0,0 +1,458 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datastore;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.sf.uadetector.datareader.BinarySnapshotDataReader;
+import net.sf.uadetector.datareader.XmlDataReader;
+import net.sf.uadetector.exception.CanNotOpenStreamException;
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.util.CompressionUtil;
+import net.sf.uadetector.internal.util.FileUtil;
+import net.sf.uadetector.internal.util.TeeInputStream;
+import net.sf.uadetector.internal.util.UrlUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implementation of a {@link DataStore} which shares its cache directory with all other processes on a host, so that
+ * every version of the <em>UAS data</em> will be downloaded only once per host instead of once per process.<br>
+ * <br>
+ * Every version will be cached in its own file {@code uas-<version>.xml} next to a binary snapshot of it (see
+ * {@link CachingXmlDataStore#getSnapshotFile(File)}). A refresh first looks for a version in the cache directory which
+ * is newer than the current one. Only if there is none, it acquires an exclusive {@link FileLock} on the file
+ * {@code uas.lock} and looks again, because another process could have finished a download in the meantime. Only the
+ * process which still finds no newer version downloads the data, parses them and writes them into a temporary file,
+ * which will be renamed to its versioned name when it is complete. All other processes wait for the lock and load the
+ * finished snapshot afterwards. Cached files will never be modified, only older versions will be deleted.<br>
+ * <br>
+ * A cached file which can not be read completely (e.g. because it is broken or has just been removed by another
+ * process) will never replace the current <em>UAS data</em>. Instead the data will be downloaded, and a broken file of
+ * the downloaded version will be replaced.<br>
+ * <br>
+ * A store does not refresh itself. Use it with an {@link net.sf.uadetector.parser.UpdatingUserAgentStringParserImpl}
+ * or a {@link BackgroundRefresher}.
+ * 
+ * @author André Rouél
+ */
+public final class SharedCachingXmlDataStore extends AbstractDataStore implements ReportingRefreshableDataStore {
+
+	/**
+	 * Name of the default cache directory within the default temporary-file directory
+	 */
+	private static final String CACHE_DIR = "uadetector";
+
+	/**
+	 * Monitor to serialize the file locking within this process, because a {@link FileLock} is held on behalf of the
+	 * whole Java virtual machine and can not be acquired twice by it
+	 */
+	private static final Object IN_PROCESS_LOCK = new Object();
+
+	/**
+	 * Name of the file which will be locked while the cache directory is updated
+	 */
+	private static final String LOCK_FILE = "uas.lock";
+
+	/**
+	 * Corresponding default logger of this class
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(SharedCachingXmlDataStore.class);
+
+	/**
+	 * Number of versions which will be kept in the cache directory (another process may just read the previous one)
+	 */
+	private static final int KEPT_VERSIONS = 2;
+
+	/**
+	 * The prefix of the names of cached files
+	 */
+	private static final String PREFIX = "uas-";
+
+	/**
+	 * The suffix of the names of cached files
+	 */
+	private static final String SUFFIX = ".xml";
+
+	/**
+	 * Constructs a new instance of {@code SharedCachingXmlDataStore} with the given arguments. The newest version in the
+	 * cache directory will be loaded. If the directory does not contain any version, the data will be read from the
+	 * given data URL (by exactly one process at a time).
+	 * 
+	 * @param directory
+	 *            directory which is shared by all processes to cache <em>UAS data</em> (will be created if necessary)
+	 * @param dataUrl
+	 *            URL to <em>UAS data</em>
+	 * @param versionUrl
+	 *            URL to version information about the given <em>UAS data</em>
+	 * @param charset
+	 *            the character set in which the data should be read
+	 * @return new instance of {@link SharedCachingXmlDataStore}
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 * @throws IllegalStateException
+	 *             if the cache directory can not be created
+	 */
+	public static SharedCachingXmlDataStore createSharedCachingXmlDataStore(final File directory, final URL dataUrl,
+			final URL versionUrl, final Charset charset) {
+		if (directory == null) {
+			throw new IllegalArgumentException("Argument 'directory' must not be null.");
+		}
+		if (dataUrl == null) {
+			throw new IllegalArgumentException("Argument 'dataUrl' must not be null.");
+		}
+		if (versionUrl == null) {
+			throw new IllegalArgumentException("Argument 'versionUrl' must not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Argument 'charset' must not be null.");
+		}
+
+		if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+			throw new IllegalStateException("Can not create the cache directory: " + directory.getPath());
+		}
+
+		final XmlDataReader reader = new XmlDataReader();
+		final File newest = findNewestFile(directory);
+		final Data read = newest != null ? readFile(newest, charset) : null;
+		final Data data = read != null ? read : Data.EMPTY;
+		final SharedCachingXmlDataStore store = new SharedCachingXmlDataStore(data, reader, dataUrl, versionUrl, charset, directory);
+		if (data == Data.EMPTY) {
+			store.refresh();
+		}
+		return store;
+	}
+
+	/**
+	 * Constructs a new instance of {@code SharedCachingXmlDataStore} with the given arguments, which uses the directory
+	 * returned by {@link #getDefaultCacheDirectory()}.
+	 * 
+	 * @param dataUrl
+	 *            URL to <em>UAS data</em>
+	 * @param versionUrl
+	 *            URL to version information about the given <em>UAS data</em>
+	 * @param charset
+	 *            the character set in which the data should be read
+	 * @return new instance of {@link SharedCachingXmlDataStore}
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 * @throws IllegalStateException
+	 *             if the cache directory can not be created
+	 */
+	public static SharedCachingXmlDataStore createSharedCachingXmlDataStore(final URL dataUrl, final URL versionUrl,
+			final Charset charset) {
+		return createSharedCachingXmlDataStore(getDefaultCacheDirectory(), dataUrl, versionUrl, charset);
+	}
+
+	/**
+	 * Finds the cached file with the newest version in the given directory.
+	 * 
+	 * @return newest cached file or {@code null} if the directory contains none
+	 */
+	private static File findNewestFile(final File directory) {
+		final List<File> files = listFiles(directory);
+		return files.isEmpty() ? null : files.get(files.size() - 1);
+	}
+
+	/**
+	 * Gets the cache directory which will be shared by all processes of a host by default.
+	 * 
+	 * @return directory {@code uadetector} within the default temporary-file directory
+	 */
+	public static File getDefaultCacheDirectory() {
+		return new File(System.getProperty("java.io.tmpdir"), CACHE_DIR);
+	}
+
+	/**
+	 * Gets the file in which the given version of <em>UAS data</em> will be cached.
+	 * 
+	 * @param directory
+	 *            cache directory
+	 * @param version
+	 *            version of <em>UAS data</em>
+	 * @return file of the given version within the passed directory
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 */
+	public static File getVersionedFile(final File directory, final String version) {
+		if (directory == null) {
+			throw new IllegalArgumentException("Argument 'directory' must not be null.");
+		}
+		if (version == null) {
+			throw new IllegalArgumentException("Argument 'version' must not be null.");
+		}
+
+		// characters which are not allowed in file names on all platforms will be replaced
+		return new File(directory, PREFIX + version.replaceAll("[^A-Za-z0-9._-]", "_") + SUFFIX);
+	}
+
+	/**
+	 * Lists the cached files of the given directory in ascending order of their versions.
+	 */
+	private static List<File> listFiles(final File directory) {
+		final List<File> files = new ArrayList<File>();
+		final File[] children = directory.listFiles();
+		if (children != null) {
+			for (final File child : children) {
+				final String name = child.getName();
+				if (name.startsWith(PREFIX) && name.endsWith(SUFFIX) && child.isFile()) {
+					files.add(child);
+				}
+			}
+		}
+		// versions are compared like in the update check, and prefix and suffix are the same for all names
+		Collections.sort(files);
+		return files;
+	}
+
+	/**
+	 * Reads the <em>UAS data</em> of the given cached file completely, preferably from its binary snapshot.
+	 * 
+	 * @return read <em>UAS data</em> or {@code null} if the file does not exist anymore or can not be read completely
+	 */
+	private static Data readFile(final File file, final Charset charset) {
+		final File snapshot = CachingXmlDataStore.getSnapshotFile(file);
+		if (BinarySnapshotDataReader.isSnapshotOf(snapshot, file)) {
+			try {
+				final Data data = new BinarySnapshotDataReader().read(UrlUtil.toUrl(snapshot), charset);
+				if (data != Data.EMPTY) {
+					return data;
+				}
+			} catch (final CanNotOpenStreamException e) {
+				LOG.debug("The snapshot has been removed in the meantime: " + snapshot.getName());
+			}
+		}
+
+		final Data data;
+		try {
+			final InputStream stream = new FileInputStream(file);
+			try {
+				data = new XmlDataReader().readStrictly(stream, charset);
+			} finally {
+				stream.close();
+			}
+		} catch (final IOException e) {
+			LOG.warn("Can not read the cached file " + file.getName() + ": " + e.getLocalizedMessage());
+			return null;
+		} catch (final RuntimeException e) {
+			LOG.warn("Can not read the cached file " + file.getName() + ": " + e.getLocalizedMessage());
+			return null;
+		}
+		if (data == Data.EMPTY || data.getVersion().isEmpty()) {
+			LOG.warn("The cached file " + file.getName() + " does not contain any UAS data.");
+			return null;
+		}
+		return data;
+	}
+
+	/**
+	 * Deletes all cached files (and their snapshots) except the newest ones.
+	 */
+	private static void removeOldVersions(final File directory) {
+		final List<File> files = listFiles(directory);
+		for (int i = 0; i < files.size() - KEPT_VERSIONS; i++) {
+			final File file = files.get(i);
+			// deleting can fail, e.g. if another process is still reading the file on some platforms
+			CachingXmlDataStore.getSnapshotFile(file).delete();
+			file.delete();
+		}
+	}
+
+	/**
+	 * Shared cache directory
+	 */
+	private final File directory;
+
+	/**
+	 * Reader which fails if the <em>UAS data</em> can not be read completely
+	 */
+	private final XmlDataReader reader;
+
+	private SharedCachingXmlDataStore(final Data data, final XmlDataReader reader, final URL dataUrl, final URL versionUrl,
+			final Charset charset, final File directory) {
+		super(data, reader, dataUrl, versionUrl, charset);
+		this.directory = directory;
+		this.reader = reader;
+	}
+
+	/**
+	 * Downloads the <em>UAS data</em> into a temporary file and moves it to its versioned name. This method must only be
+	 * called while holding the lock of the cache directory.
+	 * 
+	 * @return downloaded <em>UAS data</em> or {@code null} if the data have not been modified
+	 * @throws IOException
+	 *             if the data can not be read completely or an I/O error occurs
+	 */
+	private Data download() throws IOException {
+		final InputStream stream = openDataIfModified();
+		if (stream == null) {
+			return null;
+		}
+
+		final File tempFile;
+		try {
+			tempFile = File.createTempFile(PREFIX, ".temp", directory);
+		} catch (final IOException e) {
+			stream.close();
+			throw e;
+		}
+		try {
+			final Data data = readAndSave(stream, tempFile);
+			final File file = getVersionedFile(directory, data.getVersion());
+			// a cached file without a matching snapshot may be broken, so it will be replaced atomically
+			if (!file.isFile() || !BinarySnapshotDataReader.isSnapshotOf(CachingXmlDataStore.getSnapshotFile(file), file)) {
+				CachingXmlDataStore.writeSnapshot(data, tempFile, CachingXmlDataStore.getSnapshotFile(file));
+				// the complete file becomes visible under its versioned name at once
+				if (!FileUtil.replace(tempFile, file)) {
+					throw new IOException("Renaming of temporary file to the versioned file has failed.");
+				}
+			}
+			return data;
+		} finally {
+			tempFile.delete();
+		}
+	}
+
+	/**
+	 * Gets the cached file with a newer version than the current <em>UAS data</em>.
+	 * 
+	 * @return newest cached file or {@code null} if no newer version is cached
+	 */
+	private File findNewerFile() {
+		final File newest = findNewestFile(directory);
+		if (newest != null && newest.compareTo(getVersionedFile(directory, getData().getVersion())) > 0) {
+			return newest;
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the shared cache directory.
+	 * 
+	 * @return cache directory
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Reads the <em>UAS data</em> from the given stream and writes all read bytes into the passed file at the same
+	 * time. The given stream will be closed.
+	 * 
+	 * @throws IOException
+	 *             if the data can not be read completely or an I/O error occurs
+	 */
+	private Data readAndSave(final InputStream stream, final File file) throws IOException {
+		final TeeInputStream tee;
+		try {
+			tee = new TeeInputStream(CompressionUtil.decompress(stream), new BufferedOutputStream(new FileOutputStream(file)));
+		} catch (final IOException e) {
+			stream.close();
+			throw e;
+		}
+		try {
+			// the parser closes the stream after reading the document, but the remaining bytes are still needed
+			final Data data = reader.readStrictly(new FilterInputStream(tee) {
+				@Override
+				public void close() {
+					// will be closed after draining
+				}
+			}, getCharset());
+
+			// the parser may stop before the end of the stream, but the file must be complete
+			tee.drain();
+			return data;
+		} finally {
+			tee.close();
+		}
+	}
+
+	@Override
+	public void refresh() {
+		tryRefresh();
+	}
+
+	@Override
+	public synchronized boolean tryRefresh() {
+		// usually another process has already downloaded the new version
+		final File newer = findNewerFile();
+		if (newer != null) {
+			final Data data = readFile(newer, getCharset());
+			if (data != null) {
+				setData(data);
+				return true;
+			}
+		}
+
+		try {
+			synchronized (IN_PROCESS_LOCK) {
+				final RandomAccessFile lockFile = new RandomAccessFile(new File(directory, LOCK_FILE), "rw");
+				try {
+					final FileLock lock = lockFile.getChannel().lock();
+					try {
+						refreshLocked();
+					} finally {
+						lock.release();
+					}
+				} finally {
+					lockFile.close();
+				}
+			}
+		} catch (final IOException e) {
+			LOG.warn("Can not refresh the shared cache of UAS data: " + e.getLocalizedMessage(), e);
+			resetDataValidators();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Refreshes the <em>UAS data</em> while holding the lock of the cache directory.
+	 */
+	private void refreshLocked() throws IOException {
+		// another process may have finished the download while this one was waiting for the lock
+		final File newer = findNewerFile();
+		if (newer != null) {
+			final Data data = readFile(newer, getCharset());
+			if (data != null) {
+				LOG.debug("The UAS data have been downloaded by another process: " + newer.getName());
+				setData(data);
+				return;
+			}
+		}
+
+		final Data data = download();
+		if (data != null) {
+			removeOldVersions(directory);
+			setData(data);
+		}
+	}
+
+}
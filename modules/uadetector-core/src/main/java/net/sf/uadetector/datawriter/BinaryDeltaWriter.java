@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datawriter;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+import net.sf.uadetector.datareader.BinaryDeltaReader;
+import net.sf.uadetector.internal.data.DataDelta;
+import net.sf.uadetector.internal.data.OrderedPattern;
+import net.sf.uadetector.internal.data.domain.Browser;
+import net.sf.uadetector.internal.data.domain.BrowserOperatingSystemMapping;
+import net.sf.uadetector.internal.data.domain.BrowserPattern;
+import net.sf.uadetector.internal.data.domain.OperatingSystem;
+import net.sf.uadetector.internal.data.domain.OperatingSystemPattern;
+import net.sf.uadetector.internal.data.domain.Robot;
+
+/**
+ * Writer for a compact binary representation of a {@link DataDelta}, which can be read in again by
+ * {@link BinaryDeltaReader}.<br>
+ * <br>
+ * A delta starts with the magic number {@link BinaryDeltaReader#MAGIC_NUMBER} and the
+ * {@link BinaryDeltaReader#FORMAT_VERSION}, followed by the base version and the resulting version. Then the changes of
+ * browsers, operating systems, robots, browser patterns, operating system patterns and browser to operating system
+ * mappings are written, each as added entries, changed entries and removed keys. Strings are encoded in UTF-8 and
+ * written inline, because a delta usually contains only a few entries. The delta ends with the magic number again.<br>
+ * <br>
+ * This writer is safe when used concurrently by multiple threads.
+ * 
+ * @author André Rouél
+ */
+public final class BinaryDeltaWriter {
+
+	/**
+	 * Writes a single entry of a delta
+	 */
+	private interface EntryWriter<T> {
+		void write(DataOutputStream out, T entry) throws IOException;
+	}
+
+	private static final EntryWriter<Browser> BROWSER = new EntryWriter<Browser>() {
+		@Override
+		public void write(final DataOutputStream out, final Browser browser) throws IOException {
+			out.writeInt(browser.getId());
+			out.writeInt(browser.getType().getId());
+			writeString(out, browser.getType().getName());
+			writeString(out, browser.getFamily().name());
+			writeString(out, browser.getUrl());
+			writeString(out, browser.getProducer());
+			writeString(out, browser.getProducerUrl());
+			writeString(out, browser.getIcon());
+			writeString(out, browser.getInfoUrl());
+		}
+	};
+
+	private static final EntryWriter<BrowserOperatingSystemMapping> MAPPING = new EntryWriter<BrowserOperatingSystemMapping>() {
+		@Override
+		public void write(final DataOutputStream out, final BrowserOperatingSystemMapping mapping) throws IOException {
+			out.writeInt(mapping.getBrowserId());
+			out.writeInt(mapping.getOperatingSystemId());
+		}
+	};
+
+	private static final EntryWriter<OperatingSystem> OPERATING_SYSTEM = new EntryWriter<OperatingSystem>() {
+		@Override
+		public void write(final DataOutputStream out, final OperatingSystem os) throws IOException {
+			out.writeInt(os.getId());
+			writeString(out, os.getFamily());
+			writeString(out, os.getIcon());
+			writeString(out, os.getInfoUrl());
+			writeString(out, os.getName());
+			writeString(out, os.getProducer());
+			writeString(out, os.getProducerUrl());
+			writeString(out, os.getUrl());
+		}
+	};
+
+	private static final EntryWriter<BrowserPattern> BROWSER_PATTERN = new EntryWriter<BrowserPattern>() {
+		@Override
+		public void write(final DataOutputStream out, final BrowserPattern pattern) throws IOException {
+			writePattern(out, pattern);
+		}
+	};
+
+	private static final EntryWriter<OperatingSystemPattern> OS_PATTERN = new EntryWriter<OperatingSystemPattern>() {
+		@Override
+		public void write(final DataOutputStream out, final OperatingSystemPattern pattern) throws IOException {
+			writePattern(out, pattern);
+		}
+	};
+
+	private static final EntryWriter<Robot> ROBOT = new EntryWriter<Robot>() {
+		@Override
+		public void write(final DataOutputStream out, final Robot robot) throws IOException {
+			out.writeInt(robot.getId());
+			writeString(out, robot.getFamily().name());
+			writeString(out, robot.getIcon());
+			writeString(out, robot.getInfoUrl());
+			writeString(out, robot.getName());
+			writeString(out, robot.getProducer());
+			writeString(out, robot.getProducerUrl());
+			writeString(out, robot.getUrl());
+			writeString(out, robot.getUserAgentString());
+		}
+	};
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static <T> void writeChanges(final DataOutputStream out, final DataDelta.Changes<T> changes, final EntryWriter<T> writer)
+			throws IOException {
+		writeEntries(out, changes.getAdded(), writer);
+		writeEntries(out, changes.getChanged(), writer);
+		out.writeInt(changes.getRemoved().size());
+		for (final Integer key : changes.getRemoved()) {
+			out.writeInt(key);
+		}
+	}
+
+	private static <T> void writeEntries(final DataOutputStream out, final Map<Integer, T> entries, final EntryWriter<T> writer)
+			throws IOException {
+		out.writeInt(entries.size());
+		for (final T entry : entries.values()) {
+			writer.write(out, entry);
+		}
+	}
+
+	private static void writePattern(final DataOutputStream out, final OrderedPattern<?> pattern) throws IOException {
+		out.writeInt(pattern.getId());
+		out.writeInt(pattern.getPosition());
+		writeString(out, pattern.getRegularExpression());
+		out.writeInt(pattern.getFlags());
+	}
+
+	private static void writeString(final DataOutputStream out, final String value) throws IOException {
+		final byte[] bytes = value.getBytes(UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Writes the given delta in binary form to the passed stream. The stream will not be closed.
+	 * 
+	 * @param delta
+	 *            delta between two versions of <em>UAS data</em>
+	 * @param stream
+	 *            stream to write into
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void write(final DataDelta delta, final OutputStream stream) throws IOException {
+		if (delta == null) {
+			throw new IllegalArgumentException("Argument 'delta' must not be null.");
+		}
+		if (stream == null) {
+			throw new IllegalArgumentException("Argument 'stream' must not be null.");
+		}
+
+		final DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(BinaryDeltaReader.MAGIC_NUMBER);
+		out.writeInt(BinaryDeltaReader.FORMAT_VERSION);
+		writeString(out, delta.getBaseVersion());
+		writeString(out, delta.getVersion());
+		writeChanges(out, delta.getBrowsers(), BROWSER);
+		writeChanges(out, delta.getOperatingSystems(), OPERATING_SYSTEM);
+		writeChanges(out, delta.getRobots(), ROBOT);
+		writeChanges(out, delta.getBrowserPatterns(), BROWSER_PATTERN);
+		writeChanges(out, delta.getOperatingSystemPatterns(), OS_PATTERN);
+		writeChanges(out, delta.getBrowserOperatingSystemMappings(), MAPPING);
+		out.writeInt(BinaryDeltaReader.MAGIC_NUMBER);
+		out.flush();
+	}
+
+}
@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datawriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+import net.sf.uadetector.datareader.BinarySnapshotDataReader;
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.data.domain.Browser;
+import net.sf.uadetector.internal.data.domain.BrowserPattern;
+import net.sf.uadetector.internal.data.domain.BrowserType;
+import net.sf.uadetector.internal.data.domain.OperatingSystem;
+import net.sf.uadetector.internal.data.domain.OperatingSystemPattern;
+import net.sf.uadetector.internal.data.domain.Robot;
+import net.sf.uadetector.internal.util.FileUtil;
+
+/**
+ * Writer for a compact binary snapshot of fully built <em>UAS data</em>, which can be read in again by
+ * {@link BinarySnapshotDataReader} without any XML parsing.<br>
+ * <br>
+ * A snapshot starts with the magic number {@link BinarySnapshotDataReader#MAGIC_NUMBER} and the
+ * {@link BinarySnapshotDataReader#FORMAT_VERSION}, followed by the length and the CRC-32 checksum of the file from
+ * which the data have been read (or {@link BinarySnapshotDataReader#NO_SOURCE} and {@code 0}). It is followed by a table of all distinct strings (encoded in
+ * UTF-8) and by the records of browser types, patterns, operating systems, browsers and robots. Records refer to
+ * strings and to other records by their index within the corresponding table. The order of the pattern maps of
+ * {@link Data} is written explicitly, the snapshot ends with the magic number again.<br>
+ * <br>
+ * This writer is safe when used concurrently by multiple threads.
+ * 
+ * @author André Rouél
+ */
+public final class BinarySnapshotDataWriter implements DataWriter {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static void writeBoolean(final DataOutputStream out, final boolean value) throws IOException {
+		out.writeByte(value ? 1 : 0);
+	}
+
+	private static void writePattern(final DataOutputStream out, final DataRecords.Table<String> strings, final int id, final int position,
+			final String regex, final int flags) throws IOException {
+		out.writeInt(id);
+		out.writeInt(position);
+		out.writeInt(strings.add(regex));
+		out.writeInt(flags);
+	}
+
+	private static void writeSnapshot(final Data data, final long sourceLength, final long sourceChecksum, final OutputStream stream)
+			throws IOException {
+		final DataRecords records = new DataRecords(data);
+		final DataRecords.Table<BrowserType> browserTypes = records.browserTypes;
+		final DataRecords.Table<BrowserPattern> browserPatterns = records.browserPatterns;
+		final DataRecords.Table<Browser> browsers = records.browsers;
+		final DataRecords.Table<OperatingSystemPattern> operatingSystemPatterns = records.operatingSystemPatterns;
+		final DataRecords.Table<OperatingSystem> operatingSystems = records.operatingSystems;
+
+		// write all records while collecting the strings which they refer to
+		final DataRecords.Table<String> strings = new DataRecords.Table<String>(false);
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256 * 1024);
+		final DataOutputStream body = new DataOutputStream(buffer);
+
+		body.writeInt(strings.add(data.getVersion()));
+
+		body.writeInt(browserTypes.size());
+		for (final BrowserType type : browserTypes.values()) {
+			body.writeInt(type.getId());
+			body.writeInt(strings.add(type.getName()));
+		}
+
+		body.writeInt(operatingSystemPatterns.size());
+		for (final OperatingSystemPattern pattern : operatingSystemPatterns.values()) {
+			writePattern(body, strings, pattern.getId(), pattern.getPosition(), pattern.getRegularExpression(), pattern.getFlags());
+		}
+
+		body.writeInt(operatingSystems.size());
+		for (final OperatingSystem os : operatingSystems.values()) {
+			body.writeInt(os.getId());
+			body.writeInt(strings.add(os.getFamily()));
+			body.writeInt(strings.add(os.getIcon()));
+			body.writeInt(strings.add(os.getInfoUrl()));
+			body.writeInt(strings.add(os.getName()));
+			body.writeInt(strings.add(os.getProducer()));
+			body.writeInt(strings.add(os.getProducerUrl()));
+			body.writeInt(strings.add(os.getUrl()));
+			body.writeInt(os.getPatternSet().size());
+			for (final OperatingSystemPattern pattern : os.getPatternSet()) {
+				body.writeInt(operatingSystemPatterns.indexOf(pattern));
+			}
+			writeBoolean(body, records.memberOperatingSystems.contains(os));
+		}
+
+		body.writeInt(browserPatterns.size());
+		for (final BrowserPattern pattern : browserPatterns.values()) {
+			writePattern(body, strings, pattern.getId(), pattern.getPosition(), pattern.getRegularExpression(), pattern.getFlags());
+		}
+
+		body.writeInt(browsers.size());
+		for (final Browser browser : browsers.values()) {
+			body.writeInt(browser.getId());
+			body.writeInt(browserTypes.indexOf(browser.getType()));
+			body.writeInt(strings.add(browser.getFamily().name()));
+			body.writeInt(strings.add(browser.getUrl()));
+			body.writeInt(strings.add(browser.getProducer()));
+			body.writeInt(strings.add(browser.getProducerUrl()));
+			body.writeInt(strings.add(browser.getIcon()));
+			body.writeInt(strings.add(browser.getInfoUrl()));
+			body.writeInt(browser.getPatternSet().size());
+			for (final BrowserPattern pattern : browser.getPatternSet()) {
+				body.writeInt(browserPatterns.indexOf(pattern));
+			}
+			body.writeInt(browser.getOperatingSystem() == null ? -1 : operatingSystems.indexOf(browser.getOperatingSystem()));
+			writeBoolean(body, records.memberBrowsers.contains(browser));
+		}
+
+		body.writeInt(data.getRobots().size());
+		for (final Robot robot : data.getRobots()) {
+			body.writeInt(robot.getId());
+			body.writeInt(strings.add(robot.getFamily().name()));
+			body.writeInt(strings.add(robot.getIcon()));
+			body.writeInt(strings.add(robot.getInfoUrl()));
+			body.writeInt(strings.add(robot.getName()));
+			body.writeInt(strings.add(robot.getProducer()));
+			body.writeInt(strings.add(robot.getProducerUrl()));
+			body.writeInt(strings.add(robot.getUrl()));
+			body.writeInt(strings.add(robot.getUserAgentString()));
+		}
+
+		body.writeInt(data.getPatternBrowserMap().size());
+		for (final Map.Entry<BrowserPattern, Browser> entry : data.getPatternBrowserMap().entrySet()) {
+			body.writeInt(browserPatterns.indexOf(entry.getKey()));
+			body.writeInt(browsers.indexOf(entry.getValue()));
+		}
+
+		body.writeInt(data.getPatternOsMap().size());
+		for (final Map.Entry<OperatingSystemPattern, OperatingSystem> entry : data.getPatternOsMap().entrySet()) {
+			body.writeInt(operatingSystemPatterns.indexOf(entry.getKey()));
+			body.writeInt(operatingSystems.indexOf(entry.getValue()));
+		}
+		body.flush();
+
+		// header, string table, records and trailer
+		final DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(BinarySnapshotDataReader.MAGIC_NUMBER);
+		out.writeInt(BinarySnapshotDataReader.FORMAT_VERSION);
+		out.writeLong(sourceLength);
+		out.writeLong(sourceChecksum);
+		out.writeInt(strings.size());
+		for (final String string : strings.values()) {
+			final byte[] bytes = string.getBytes(UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+		buffer.writeTo(out);
+		out.writeInt(BinarySnapshotDataReader.MAGIC_NUMBER);
+		out.flush();
+	}
+
+	/**
+	 * Writes the given <em>UAS data</em> as binary snapshot to the passed stream. The stream will not be closed.
+	 * 
+	 * @param data
+	 *            <em>UAS data</em> to be written
+	 * @param stream
+	 *            stream to write into
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	public void write(final Data data, final OutputStream stream) throws IOException {
+		if (data == null) {
+			throw new IllegalArgumentException("Argument 'data' must not be null.");
+		}
+		if (stream == null) {
+			throw new IllegalArgumentException("Argument 'stream' must not be null.");
+		}
+
+		writeSnapshot(data, BinarySnapshotDataReader.NO_SOURCE, 0l, stream);
+	}
+
+	/**
+	 * Writes the given <em>UAS data</em>, which have been read from the given file, as binary snapshot to the passed
+	 * stream. The length and the checksum of the file will be recorded, so that the snapshot can be recognized as
+	 * outdated when the file changes (see {@link BinarySnapshotDataReader#isSnapshotOf(File, File)}). The stream will
+	 * not be closed.
+	 * 
+	 * @param data
+	 *            <em>UAS data</em> to be written
+	 * @param source
+	 *            file from which the data have been read
+	 * @param stream
+	 *            stream to write into
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void write(final Data data, final File source, final OutputStream stream) throws IOException {
+		if (data == null) {
+			throw new IllegalArgumentException("Argument 'data' must not be null.");
+		}
+		if (source == null) {
+			throw new IllegalArgumentException("Argument 'source' must not be null.");
+		}
+		if (stream == null) {
+			throw new IllegalArgumentException("Argument 'stream' must not be null.");
+		}
+
+		writeSnapshot(data, source.length(), FileUtil.checksum(source), stream);
+	}
+
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datawriter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.data.domain.Browser;
+import net.sf.uadetector.internal.data.domain.BrowserPattern;
+import net.sf.uadetector.internal.data.domain.BrowserType;
+import net.sf.uadetector.internal.data.domain.OperatingSystem;
+import net.sf.uadetector.internal.data.domain.OperatingSystemPattern;
+
+/**
+ * Numbers all records of <em>UAS data</em>, so that writers can refer to records by their index within a table.
+ * Objects which are only referenced (for example by the pattern maps) but not part of the sets of {@link Data} are
+ * appended to the corresponding table.
+ * 
+ * @author André Rouél
+ */
+final class DataRecords {
+
+	/**
+	 * Table which numbers distinct objects in the order of their first occurrence. Domain objects are compared by
+	 * identity, because different objects can be equal to each other.
+	 */
+	static final class Table<T> {
+
+		private final Map<T, Integer> indexes;
+
+		private final List<T> values = new ArrayList<T>();
+
+		Table(final boolean identity) {
+			indexes = identity ? new IdentityHashMap<T, Integer>() : new HashMap<T, Integer>();
+		}
+
+		int add(final T value) {
+			Integer index = indexes.get(value);
+			if (index == null) {
+				index = Integer.valueOf(values.size());
+				indexes.put(value, index);
+				values.add(value);
+			}
+			return index.intValue();
+		}
+
+		int indexOf(final T value) {
+			final Integer index = indexes.get(value);
+			return index == null ? -1 : index.intValue();
+		}
+
+		int size() {
+			return values.size();
+		}
+
+		List<T> values() {
+			return values;
+		}
+
+	}
+
+	final Table<Browser> browsers = new Table<Browser>(true);
+
+	final Set<Browser> memberBrowsers;
+
+	final Table<OperatingSystem> operatingSystems = new Table<OperatingSystem>(true);
+
+	final Set<OperatingSystem> memberOperatingSystems;
+
+	final Table<BrowserType> browserTypes = new Table<BrowserType>(true);
+
+	final Table<BrowserPattern> browserPatterns = new Table<BrowserPattern>(true);
+
+	final Table<OperatingSystemPattern> operatingSystemPatterns = new Table<OperatingSystemPattern>(true);
+
+	DataRecords(final Data data) {
+		memberBrowsers = data.getBrowsers();
+		for (final Browser browser : memberBrowsers) {
+			browsers.add(browser);
+		}
+		for (final Browser browser : data.getPatternBrowserMap().values()) {
+			browsers.add(browser);
+		}
+
+		memberOperatingSystems = data.getOperatingSystems();
+		for (final OperatingSystem os : memberOperatingSystems) {
+			operatingSystems.add(os);
+		}
+		for (final OperatingSystem os : data.getPatternOsMap().values()) {
+			operatingSystems.add(os);
+		}
+		for (final Browser browser : browsers.values()) {
+			if (browser.getOperatingSystem() != null) {
+				operatingSystems.add(browser.getOperatingSystem());
+			}
+			browserTypes.add(browser.getType());
+			for (final BrowserPattern pattern : browser.getPatternSet()) {
+				browserPatterns.add(pattern);
+			}
+		}
+		for (final BrowserPattern pattern : data.getPatternBrowserMap().keySet()) {
+			browserPatterns.add(pattern);
+		}
+
+		for (final OperatingSystem os : operatingSystems.values()) {
+			for (final OperatingSystemPattern pattern : os.getPatternSet()) {
+				operatingSystemPatterns.add(pattern);
+			}
+		}
+		for (final OperatingSystemPattern pattern : data.getPatternOsMap().keySet()) {
+			operatingSystemPatterns.add(pattern);
+		}
+	}
+
+}
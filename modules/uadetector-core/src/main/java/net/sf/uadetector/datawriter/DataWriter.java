@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datawriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import net.sf.uadetector.internal.data.Data;
+
+/**
+ * Interface for data writers that persist User-Agent informations, so that they can be read in again by a
+ * corresponding {@link net.sf.uadetector.datareader.DataReader}.
+ * 
+ * @author André Rouél
+ */
+public interface DataWriter {
+
+	/**
+	 * Writes the given <em>UAS data</em> to the passed stream. The stream will not be closed.
+	 * 
+	 * @param data
+	 *            <em>UAS data</em> to be written
+	 * @param stream
+	 *            stream to write into
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void write(final Data data, final OutputStream stream) throws IOException;
+
+}
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datawriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import net.sf.uadetector.datareader.BinaryDeltaReader;
+import net.sf.uadetector.datareader.XmlDataReader;
+import net.sf.uadetector.datastore.DataStore;
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.data.DataDelta;
+
+/**
+ * Command line tool to compute deltas between two <em>UAS data</em> files in XML format, so that small patches can be
+ * distributed instead of whole documents.<br>
+ * <br>
+ * Usage:
+ * <ul>
+ * <li>{@code diff <older uas.xml> <newer uas.xml> <delta file>} writes the delta between both documents</li>
+ * <li>{@code patch <uas.xml> <delta file> <snapshot file>} applies a delta to a document and writes the resulting
+ * <em>UAS data</em> as binary snapshot, which can be read by
+ * {@link net.sf.uadetector.datareader.BinarySnapshotDataReader}</li>
+ * </ul>
+ * 
+ * @author André Rouél
+ */
+public final class DeltaTool {
+
+	/**
+	 * Computes the delta between two <em>UAS data</em> files in XML format and writes it to the given file.
+	 * 
+	 * @param older
+	 *            XML file of the older version
+	 * @param newer
+	 *            XML file of the newer version
+	 * @param deltaFile
+	 *            file in which the delta will be written
+	 * @return written delta
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 * @throws IOException
+	 *             if a document can not be read completely or the delta can not be written
+	 */
+	public static DataDelta diff(final File older, final File newer, final File deltaFile) throws IOException {
+		if (older == null) {
+			throw new IllegalArgumentException("Argument 'older' must not be null.");
+		}
+		if (newer == null) {
+			throw new IllegalArgumentException("Argument 'newer' must not be null.");
+		}
+		if (deltaFile == null) {
+			throw new IllegalArgumentException("Argument 'deltaFile' must not be null.");
+		}
+
+		final DataDelta delta = DataDelta.between(readXml(older), readXml(newer));
+		final OutputStream out = new BufferedOutputStream(new FileOutputStream(deltaFile));
+		try {
+			new BinaryDeltaWriter().write(delta, out);
+		} finally {
+			out.close();
+		}
+		return delta;
+	}
+
+	public static void main(final String[] args) throws IOException {
+		if (args.length == 4 && "diff".equals(args[0])) {
+			final DataDelta delta = diff(new File(args[1]), new File(args[2]), new File(args[3]));
+			System.out.print(delta.toStats());
+		} else if (args.length == 4 && "patch".equals(args[0])) {
+			final Data data = patch(new File(args[1]), new File(args[2]), new File(args[3]));
+			System.out.println("UAS data patched to version '" + data.getVersion() + "'");
+		} else {
+			System.err.println("Usage: java " + DeltaTool.class.getName() + " diff <older uas.xml> <newer uas.xml> <delta file>");
+			System.err.println("       java " + DeltaTool.class.getName() + " patch <uas.xml> <delta file> <snapshot file>");
+		}
+	}
+
+	/**
+	 * Applies a delta to a <em>UAS data</em> file in XML format and writes the result as binary snapshot to the given
+	 * file.
+	 * 
+	 * @param base
+	 *            XML file with the base version of the delta
+	 * @param deltaFile
+	 *            file which contains the delta
+	 * @param snapshotFile
+	 *            file in which the resulting <em>UAS data</em> will be written as binary snapshot
+	 * @return resulting <em>UAS data</em>
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 * @throws IllegalArgumentException
+	 *             if the delta does not belong to the version of the given document
+	 * @throws IOException
+	 *             if the document or the delta can not be read completely or the snapshot can not be written
+	 */
+	public static Data patch(final File base, final File deltaFile, final File snapshotFile) throws IOException {
+		if (base == null) {
+			throw new IllegalArgumentException("Argument 'base' must not be null.");
+		}
+		if (deltaFile == null) {
+			throw new IllegalArgumentException("Argument 'deltaFile' must not be null.");
+		}
+		if (snapshotFile == null) {
+			throw new IllegalArgumentException("Argument 'snapshotFile' must not be null.");
+		}
+
+		final DataDelta delta;
+		final InputStream in = new BufferedInputStream(new FileInputStream(deltaFile));
+		try {
+			delta = new BinaryDeltaReader().read(in);
+		} finally {
+			in.close();
+		}
+
+		final Data data = delta.applyTo(readXml(base));
+		final OutputStream out = new BufferedOutputStream(new FileOutputStream(snapshotFile));
+		try {
+			new BinarySnapshotDataWriter().write(data, out);
+		} finally {
+			out.close();
+		}
+		return data;
+	}
+
+	private static Data readXml(final File file) throws IOException {
+		final InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			return new XmlDataReader().readStrictly(in, DataStore.DEFAULT_CHARSET);
+		} finally {
+			in.close();
+		}
+	}
+
+	private DeltaTool() {
+		// This class is not intended to create objects from it.
+	}
+
+}
@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datawriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.data.MappedData;
+import net.sf.uadetector.internal.data.domain.Browser;
+import net.sf.uadetector.internal.data.domain.BrowserPattern;
+import net.sf.uadetector.internal.data.domain.BrowserType;
+import net.sf.uadetector.internal.data.domain.OperatingSystem;
+import net.sf.uadetector.internal.data.domain.OperatingSystemPattern;
+import net.sf.uadetector.internal.data.domain.Robot;
+
+/**
+ * Writer for <em>UAS data</em> in the flat layout of {@link MappedData}, which is intended to be mapped into memory
+ * as read-only file.<br>
+ * <br>
+ * This writer is safe when used concurrently by multiple threads.
+ * 
+ * @author André Rouél
+ */
+public final class MappedDataWriter implements DataWriter {
+
+	/**
+	 * Pool of distinct strings, each string is referred to by its offset within the pool
+	 */
+	private static final class StringPool {
+
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 * 1024);
+
+		private final DataOutputStream out = new DataOutputStream(bytes);
+
+		private final Map<String, Integer> references = new HashMap<String, Integer>();
+
+		private int add(final String string) throws IOException {
+			Integer reference = references.get(string);
+			if (reference == null) {
+				reference = Integer.valueOf(out.size());
+				references.put(string, reference);
+				final byte[] encoded = string.getBytes(UTF_8);
+				out.writeInt(encoded.length);
+				out.write(encoded);
+			}
+			return reference.intValue();
+		}
+
+	}
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * Builds the exact-match index of the given robots as sorted pairs of hash code and robot number. If several robots
+	 * share the same user agent string, the one with the lowest ID wins.
+	 */
+	private static long[] buildRobotIndex(final List<Robot> robots) {
+		final Map<String, Integer> winners = new HashMap<String, Integer>(robots.size() * 4 / 3 + 1);
+		for (int slot = 0; slot < robots.size(); slot++) {
+			final Robot robot = robots.get(slot);
+			final Integer existing = winners.get(robot.getUserAgentString());
+			if (existing == null || robot.getId() < robots.get(existing.intValue()).getId()) {
+				winners.put(robot.getUserAgentString(), Integer.valueOf(slot));
+			}
+		}
+		final long[] index = new long[winners.size()];
+		int i = 0;
+		for (final Map.Entry<String, Integer> entry : winners.entrySet()) {
+			index[i++] = (long) entry.getKey().hashCode() << 32 | entry.getValue().intValue();
+		}
+		Arrays.sort(index);
+		return index;
+	}
+
+	private static void writePattern(final DataOutputStream out, final StringPool strings, final int id, final int position,
+			final String regex, final int flags) throws IOException {
+		out.writeInt(id);
+		out.writeInt(position);
+		out.writeInt(strings.add(regex));
+		out.writeInt(flags);
+	}
+
+	/**
+	 * Writes the given <em>UAS data</em> in the layout of {@link MappedData} to the passed stream. The stream will not
+	 * be closed.
+	 * 
+	 * @param data
+	 *            <em>UAS data</em> to be written
+	 * @param stream
+	 *            stream to write into
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	public void write(final Data data, final OutputStream stream) throws IOException {
+		if (data == null) {
+			throw new IllegalArgumentException("Argument 'data' must not be null.");
+		}
+		if (stream == null) {
+			throw new IllegalArgumentException("Argument 'stream' must not be null.");
+		}
+
+		final DataRecords records = new DataRecords(data);
+		final List<Robot> robots = new ArrayList<Robot>(data.getRobots());
+		final long[] robotIndex = buildRobotIndex(robots);
+
+		// offsets of all tables, the lists of pattern numbers follow the tables
+		final int browserTypeTable = MappedData.HEADER_SIZE;
+		final int osPatternTable = browserTypeTable + records.browserTypes.size() * MappedData.BROWSER_TYPE_SIZE;
+		final int osTable = osPatternTable + records.operatingSystemPatterns.size() * MappedData.PATTERN_SIZE;
+		final int browserPatternTable = osTable + records.operatingSystems.size() * MappedData.OS_SIZE;
+		final int browserTable = browserPatternTable + records.browserPatterns.size() * MappedData.PATTERN_SIZE;
+		final int robotTable = browserTable + records.browsers.size() * MappedData.BROWSER_SIZE;
+		final int robotHashes = robotTable + robots.size() * MappedData.ROBOT_SIZE;
+		final int robotSlots = robotHashes + robotIndex.length * 4;
+		final int patternBrowserMap = robotSlots + robotIndex.length * 4;
+		final int patternOsMap = patternBrowserMap + data.getPatternBrowserMap().size() * 8;
+		final int lists = patternOsMap + data.getPatternOsMap().size() * 8;
+
+		final StringPool strings = new StringPool();
+		final ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(256 * 1024);
+		final DataOutputStream body = new DataOutputStream(bodyBytes);
+		final ByteArrayOutputStream listBytes = new ByteArrayOutputStream(8 * 1024);
+		final DataOutputStream list = new DataOutputStream(listBytes);
+
+		for (final BrowserType type : records.browserTypes.values()) {
+			body.writeInt(type.getId());
+			body.writeInt(strings.add(type.getName()));
+		}
+
+		for (final OperatingSystemPattern pattern : records.operatingSystemPatterns.values()) {
+			writePattern(body, strings, pattern.getId(), pattern.getPosition(), pattern.getRegularExpression(), pattern.getFlags());
+		}
+
+		for (final OperatingSystem os : records.operatingSystems.values()) {
+			body.writeInt(os.getId());
+			body.writeInt(strings.add(os.getFamily()));
+			body.writeInt(strings.add(os.getIcon()));
+			body.writeInt(strings.add(os.getInfoUrl()));
+			body.writeInt(strings.add(os.getName()));
+			body.writeInt(strings.add(os.getProducer()));
+			body.writeInt(strings.add(os.getProducerUrl()));
+			body.writeInt(strings.add(os.getUrl()));
+			body.writeInt(lists + list.size());
+			body.writeInt(os.getPatternSet().size());
+			for (final OperatingSystemPattern pattern : os.getPatternSet()) {
+				list.writeInt(records.operatingSystemPatterns.indexOf(pattern));
+			}
+			body.writeInt(records.memberOperatingSystems.contains(os) ? 1 : 0);
+		}
+
+		for (final BrowserPattern pattern : records.browserPatterns.values()) {
+			writePattern(body, strings, pattern.getId(), pattern.getPosition(), pattern.getRegularExpression(), pattern.getFlags());
+		}
+
+		for (final Browser browser : records.browsers.values()) {
+			body.writeInt(browser.getId());
+			body.writeInt(records.browserTypes.indexOf(browser.getType()));
+			body.writeInt(strings.add(browser.getFamily().name()));
+			body.writeInt(strings.add(browser.getUrl()));
+			body.writeInt(strings.add(browser.getProducer()));
+			body.writeInt(strings.add(browser.getProducerUrl()));
+			body.writeInt(strings.add(browser.getIcon()));
+			body.writeInt(strings.add(browser.getInfoUrl()));
+			body.writeInt(lists + list.size());
+			body.writeInt(browser.getPatternSet().size());
+			for (final BrowserPattern pattern : browser.getPatternSet()) {
+				list.writeInt(records.browserPatterns.indexOf(pattern));
+			}
+			body.writeInt(browser.getOperatingSystem() == null ? -1 : records.operatingSystems.indexOf(browser.getOperatingSystem()));
+			body.writeInt(records.memberBrowsers.contains(browser) ? 1 : 0);
+		}
+
+		for (final Robot robot : robots) {
+			body.writeInt(robot.getId());
+			body.writeInt(strings.add(robot.getFamily().name()));
+			body.writeInt(strings.add(robot.getIcon()));
+			body.writeInt(strings.add(robot.getInfoUrl()));
+			body.writeInt(strings.add(robot.getName()));
+			body.writeInt(strings.add(robot.getProducer()));
+			body.writeInt(strings.add(robot.getProducerUrl()));
+			body.writeInt(strings.add(robot.getUrl()));
+			body.writeInt(strings.add(robot.getUserAgentString()));
+		}
+		for (final long entry : robotIndex) {
+			body.writeInt((int) (entry >> 32));
+		}
+		for (final long entry : robotIndex) {
+			body.writeInt((int) entry);
+		}
+
+		for (final Map.Entry<BrowserPattern, Browser> entry : data.getPatternBrowserMap().entrySet()) {
+			body.writeInt(records.browserPatterns.indexOf(entry.getKey()));
+			body.writeInt(records.browsers.indexOf(entry.getValue()));
+		}
+		for (final Map.Entry<OperatingSystemPattern, OperatingSystem> entry : data.getPatternOsMap().entrySet()) {
+			body.writeInt(records.operatingSystemPatterns.indexOf(entry.getKey()));
+			body.writeInt(records.operatingSystems.indexOf(entry.getValue()));
+		}
+		final int version = strings.add(data.getVersion());
+		body.flush();
+		list.flush();
+		strings.out.flush();
+
+		final int stringPool = lists + listBytes.size();
+		final DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(MappedData.MAGIC_NUMBER);
+		out.writeInt(MappedData.FORMAT_VERSION);
+		out.writeInt(stringPool + strings.bytes.size());
+		out.writeInt(stringPool);
+		out.writeInt(version);
+		out.writeInt(records.browserTypes.size());
+		out.writeInt(browserTypeTable);
+		out.writeInt(records.operatingSystemPatterns.size());
+		out.writeInt(osPatternTable);
+		out.writeInt(records.operatingSystems.size());
+		out.writeInt(osTable);
+		out.writeInt(records.browserPatterns.size());
+		out.writeInt(browserPatternTable);
+		out.writeInt(records.browsers.size());
+		out.writeInt(browserTable);
+		out.writeInt(robots.size());
+		out.writeInt(robotTable);
+		out.writeInt(robotIndex.length);
+		out.writeInt(robotHashes);
+		out.writeInt(robotSlots);
+		out.writeInt(data.getPatternBrowserMap().size());
+		out.writeInt(patternBrowserMap);
+		out.writeInt(data.getPatternOsMap().size());
+		out.writeInt(patternOsMap);
+		out.write(new byte[MappedData.HEADER_SIZE - out.size()]);
+		bodyBytes.writeTo(out);
+		listBytes.writeTo(out);
+		strings.bytes.writeTo(out);
+		out.flush();
+	}
+
+}
@@ -15,9 +15,15 @@
  ******************************************************************************/
 package net.sf.uadetector.internal.data;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -25,6 +31,9 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import net.sf.uadetector.internal.data.domain.Browser;
@@ -34,6 +43,7 @@ import net.sf.uadetector.internal.data.domain.BrowserType;
 import net.sf.uadetector.internal.data.domain.OperatingSystem;
 import net.sf.uadetector.internal.data.domain.OperatingSystemPattern;
 import net.sf.uadetector.internal.data.domain.Robot;
+import net.sf.uadetector.internal.util.CharSequenceUtil;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -112,30 +122,86 @@ public class Data {
 			}
 		}
 
-		private static Set<Browser> buildBrowsers(final Map<Integer, Browser.Builder> browserBuilders) {
+		private static Set<Browser> buildBrowsers(final Map<Integer, Browser.Builder> browserBuilders, final Executor executor) {
+			final List<FutureTask<List<Browser>>> tasks = new ArrayList<FutureTask<List<Browser>>>();
+			for (final List<Browser.Builder> chunk : ParallelTasks.partition(browserBuilders.values())) {
+				tasks.add(ParallelTasks.fork(executor, new Callable<List<Browser>>() {
+					@Override
+					public List<Browser> call() {
+						final List<Browser> browsers = new ArrayList<Browser>(chunk.size());
+						for (final Browser.Builder builder : chunk) {
+							try {
+								browsers.add(builder.build());
+							} catch (final Exception e) {
+								LOG.warn("Can not build browser: " + e.getLocalizedMessage());
+							}
+						}
+						return browsers;
+					}
+				}));
+			}
+
+			// assemble in the iteration order of the builders, regardless of the order in which the tasks finished
 			final Set<Browser> browsers = new HashSet<Browser>();
-			for (final Map.Entry<Integer, Browser.Builder> entry : browserBuilders.entrySet()) {
-				try {
-					browsers.add(entry.getValue().build());
-				} catch (final Exception e) {
-					LOG.warn("Can not build browser: " + e.getLocalizedMessage());
-				}
+			for (final FutureTask<List<Browser>> task : tasks) {
+				browsers.addAll(ParallelTasks.join(task));
 			}
 			return browsers;
 		}
 
-		private static Map<Integer, OperatingSystem> buildOperatingSystems(final Map<Integer, OperatingSystem.Builder> osBuilders) {
+		private static Map<Integer, OperatingSystem> buildOperatingSystems(final Map<Integer, OperatingSystem.Builder> osBuilders,
+				final Executor executor) {
+			final List<FutureTask<Map<Integer, OperatingSystem>>> tasks = new ArrayList<FutureTask<Map<Integer, OperatingSystem>>>();
+			for (final List<Map.Entry<Integer, OperatingSystem.Builder>> chunk : ParallelTasks.partition(osBuilders.entrySet())) {
+				tasks.add(ParallelTasks.fork(executor, new Callable<Map<Integer, OperatingSystem>>() {
+					@Override
+					public Map<Integer, OperatingSystem> call() {
+						final Map<Integer, OperatingSystem> operatingSystems = new LinkedHashMap<Integer, OperatingSystem>();
+						for (final Map.Entry<Integer, OperatingSystem.Builder> entry : chunk) {
+							try {
+								operatingSystems.put(entry.getKey(), entry.getValue().build());
+							} catch (final Exception e) {
+								LOG.warn("Can not build operating system: " + e.getLocalizedMessage());
+							}
+						}
+						return operatingSystems;
+					}
+				}));
+			}
+
+			// assemble in the iteration order of the builders, regardless of the order in which the tasks finished
 			final Map<Integer, OperatingSystem> operatingSystems = new HashMap<Integer, OperatingSystem>();
-			for (final Map.Entry<Integer, OperatingSystem.Builder> entry : osBuilders.entrySet()) {
-				try {
-					operatingSystems.put(entry.getKey(), entry.getValue().build());
-				} catch (final Exception e) {
-					LOG.warn("Can not build operating system: " + e.getLocalizedMessage());
-				}
+			for (final FutureTask<Map<Integer, OperatingSystem>> task : tasks) {
+				operatingSystems.putAll(ParallelTasks.join(task));
 			}
 			return operatingSystems;
 		}
 
+		private static <P extends OrderedPattern<P>> void compilePatterns(final Collection<P> patterns, final Executor executor,
+				final List<FutureTask<Void>> tasks) {
+			for (final List<P> chunk : ParallelTasks.partition(patterns)) {
+				tasks.add(ParallelTasks.fork(executor, new Callable<Void>() {
+					@Override
+					public Void call() {
+						for (final P pattern : chunk) {
+							pattern.getPattern();
+						}
+						return null;
+					}
+				}));
+			}
+		}
+
+		private static <P extends OrderedPattern<P>, V> FutureTask<PatternIndex<P, V>> indexPatterns(final SortedMap<P, V> map,
+				final Executor executor) {
+			return ParallelTasks.fork(executor, new Callable<PatternIndex<P, V>>() {
+				@Override
+				public PatternIndex<P, V> call() {
+					return new PatternIndex<P, V>(map);
+				}
+			});
+		}
+
 		private static SortedMap<BrowserPattern, Browser> buildPatternBrowserMap(final Set<Browser> browserSet) {
 			final SortedMap<BrowserPattern, Browser> patternBrowser = new TreeMap<BrowserPattern, Browser>(BROWSER_PATTERN_COMPARATOR);
 			for (final Browser browser : browserSet) {
@@ -191,6 +257,11 @@ public class Data {
 
 		private String version;
 
+		/**
+		 * Indicates whether all patterns should be compiled when building, instead of on first use
+		 */
+		private boolean eagerPatternCompilation;
+
 		private final Set<BrowserOperatingSystemMapping> browserOperatingSystemMappings = new HashSet<BrowserOperatingSystemMapping>();
 
 		private static final OrderedPatternComparator<BrowserPattern> BROWSER_PATTERN_COMPARATOR = new OrderedPatternComparator<BrowserPattern>();
@@ -347,24 +418,82 @@ public class Data {
 			return this;
 		}
 
+		/**
+		 * Builds a new instance of {@code Data} sequentially in the calling thread and returns it.
+		 * 
+		 * @return a new instance of {@code Data}
+		 */
 		public Data build() {
+			return assemble(null);
+		}
+
+		/**
+		 * Builds a new instance of {@code Data} and returns it. Domain objects, prefilter indexes and (in case of eager
+		 * compilation) patterns are built by tasks on the given executor, while the calling thread takes part in the
+		 * work. The final assembly keeps the order of the sequential build, so that the result is equal to the one of
+		 * {@link #build()}.
+		 * 
+		 * @param executor
+		 *            executor to run the tasks of the build (e.g. a thread pool with one thread per core)
+		 * @return a new instance of {@code Data}
+		 * @throws IllegalArgumentException
+		 *             if the given argument is {@code null}
+		 */
+		public Data build(final Executor executor) {
+			if (executor == null) {
+				throw new IllegalArgumentException("Argument 'executor' must not be null.");
+			}
+
+			return assemble(executor);
+		}
+
+		private Data assemble(final Executor executor) {
 			addTypeToBrowser(browserBuilders, browserTypes);
 			addPatternToBrowser(browserBuilders, browserPatterns);
 			addPatternToOperatingSystem(operatingSystemBuilders, operatingSystemPatterns);
 
-			final Map<Integer, OperatingSystem> operatingSystems = buildOperatingSystems(operatingSystemBuilders);
+			final Map<Integer, OperatingSystem> operatingSystems = buildOperatingSystems(operatingSystemBuilders, executor);
 			addOperatingSystemToBrowser(browserBuilders, operatingSystems, convertBrowserOsMapping(browserOperatingSystemMappings));
 
 			final Set<OperatingSystem> osSet = convertOperatingSystems(operatingSystems);
 			osSet.addAll(this.operatingSystems);
 
-			final Set<Browser> browserSet = buildBrowsers(browserBuilders);
+			final Set<Browser> browserSet = buildBrowsers(browserBuilders, executor);
 			browserSet.addAll(browsers);
 
 			final SortedMap<BrowserPattern, Browser> patternBrowserMap = buildPatternBrowserMap(browserSet);
 			final SortedMap<OperatingSystemPattern, OperatingSystem> patternOsMap = buildPatternOperatingSystemMap(osSet);
 
-			return new Data(browserSet, osSet, robots, patternBrowserMap, patternOsMap, version);
+			// prefilter indexes to evaluate only patterns whose required literals occur in a user agent string
+			final FutureTask<PatternIndex<BrowserPattern, Browser>> browserPatternIndex = indexPatterns(patternBrowserMap, executor);
+			final FutureTask<PatternIndex<OperatingSystemPattern, OperatingSystem>> osPatternIndex = indexPatterns(patternOsMap, executor);
+
+			final List<FutureTask<Void>> compilations = new ArrayList<FutureTask<Void>>();
+			if (eagerPatternCompilation) {
+				compilePatterns(patternBrowserMap.keySet(), executor, compilations);
+				compilePatterns(patternOsMap.keySet(), executor, compilations);
+			}
+
+			final Data data = new Data(browserSet, osSet, robots, patternBrowserMap, patternOsMap, version,
+					ParallelTasks.join(browserPatternIndex), ParallelTasks.join(osPatternIndex));
+			for (final FutureTask<Void> compilation : compilations) {
+				ParallelTasks.join(compilation);
+			}
+			return data;
+		}
+
+		/**
+		 * Sets whether all patterns should be compiled when building the {@code Data} instead of on first use. Eager
+		 * compilation pays the whole compile cost up front and detects syntactically invalid expressions early.
+		 * 
+		 * @param eagerPatternCompilation
+		 *            {@code true} to compile all patterns in {@link #build()}, {@code false} to compile them on first
+		 *            use (default)
+		 * @return this {@code Builder}, for chaining
+		 */
+		public Builder setEagerPatternCompilation(final boolean eagerPatternCompilation) {
+			this.eagerPatternCompilation = eagerPatternCompilation;
+			return this;
 		}
 
 		public Builder setVersion(final String version) {
@@ -384,12 +513,59 @@ public class Data {
 	public static final Data EMPTY = new Data(new HashSet<Browser>(), new HashSet<OperatingSystem>(), new HashSet<Robot>(0),
 			new TreeMap<BrowserPattern, Browser>(), new TreeMap<OperatingSystemPattern, OperatingSystem>(), "");
 
+	/**
+	 * Builds an exact-match index of the given robots by their user agent string. If several robots share the same
+	 * user agent string, the one with the lowest ID wins.
+	 */
+	private static Map<String, Robot> buildRobotIndex(final Set<Robot> robots) {
+		final Map<String, Robot> index = new HashMap<String, Robot>(robots.size() * 4 / 3 + 1);
+		for (final Robot robot : robots) {
+			final Robot existing = index.get(robot.getUserAgentString());
+			if (existing == null || robot.getId() < existing.getId()) {
+				index.put(robot.getUserAgentString(), robot);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Sorts the robots of the given index by the hash code of their user agent string, so that robots can be looked up
+	 * by a {@code CharSequence} with a binary search.
+	 */
+	private static Robot[] sortByHash(final Map<String, Robot> robotIndex) {
+		final Robot[] sorted = robotIndex.values().toArray(new Robot[robotIndex.size()]);
+		Arrays.sort(sorted, new Comparator<Robot>() {
+			@Override
+			public int compare(final Robot r1, final Robot r2) {
+				final int h1 = r1.getUserAgentString().hashCode();
+				final int h2 = r2.getUserAgentString().hashCode();
+				return h1 < h2 ? -1 : h1 == h2 ? 0 : 1;
+			}
+		});
+		return sorted;
+	}
+
 	private final Set<Browser> browsers;
 
 	private final Set<OperatingSystem> operatingSystems;
 
 	private final Set<Robot> robots;
 
+	/**
+	 * Exact-match index of all robots by their user agent string
+	 */
+	private final Map<String, Robot> robotIndex;
+
+	/**
+	 * Hash codes of the user agent strings of {@link #robotsByHash} in ascending order
+	 */
+	private final int[] robotHashes;
+
+	/**
+	 * Robots of {@link #robotIndex} sorted by the hash code of their user agent string
+	 */
+	private final Robot[] robotsByHash;
+
 	/**
 	 * Version information of the UAS data
 	 */
@@ -399,9 +575,41 @@ public class Data {
 
 	private final SortedMap<OperatingSystemPattern, OperatingSystem> patternOsMap;
 
+	/**
+	 * Prefilter index over the browser patterns in the order of {@link #patternBrowserMap}
+	 */
+	private final PatternIndex<BrowserPattern, Browser> browserPatternIndex;
+
+	/**
+	 * Prefilter index over the operating system patterns in the order of {@link #patternOsMap}
+	 */
+	private final PatternIndex<OperatingSystemPattern, OperatingSystem> operatingSystemPatternIndex;
+
+	/**
+	 * Combined automaton over the browser patterns, built on first use
+	 */
+	private volatile PatternAutomaton<BrowserPattern, Browser> browserPatternAutomaton;
+
+	/**
+	 * Combined automaton over the operating system patterns, built on first use
+	 */
+	private volatile PatternAutomaton<OperatingSystemPattern, OperatingSystem> operatingSystemPatternAutomaton;
+
 	public Data(final Set<Browser> browsers, final Set<OperatingSystem> operatingSystems, final Set<Robot> robots,
 			final SortedMap<BrowserPattern, Browser> patternBrowserMap,
 			final SortedMap<OperatingSystemPattern, OperatingSystem> patternOsMap, final String version) {
+		this(browsers, operatingSystems, robots, patternBrowserMap, patternOsMap, version, null, null);
+	}
+
+	/**
+	 * Constructs a {@code Data} instance with already built prefilter indexes. If an index is {@code null} it will be
+	 * built from the corresponding pattern map.
+	 */
+	protected Data(final Set<Browser> browsers, final Set<OperatingSystem> operatingSystems, final Set<Robot> robots,
+			final SortedMap<BrowserPattern, Browser> patternBrowserMap,
+			final SortedMap<OperatingSystemPattern, OperatingSystem> patternOsMap, final String version,
+			final PatternIndex<BrowserPattern, Browser> browserPatternIndex,
+			final PatternIndex<OperatingSystemPattern, OperatingSystem> operatingSystemPatternIndex) {
 
 		if (browsers == null) {
 			throw new IllegalArgumentException("Argument 'browsers' must not be null.");
@@ -427,7 +635,47 @@ public class Data {
 		this.patternBrowserMap = patternBrowserMap;
 		this.patternOsMap = patternOsMap;
 		this.robots = robots;
+		robotIndex = buildRobotIndex(robots);
+		robotsByHash = sortByHash(robotIndex);
+		robotHashes = new int[robotsByHash.length];
+		for (int i = 0; i < robotsByHash.length; i++) {
+			robotHashes[i] = robotsByHash[i].getUserAgentString().hashCode();
+		}
 		this.version = version;
+		this.browserPatternIndex = browserPatternIndex != null ? browserPatternIndex : new PatternIndex<BrowserPattern, Browser>(
+				patternBrowserMap);
+		this.operatingSystemPatternIndex = operatingSystemPatternIndex != null ? operatingSystemPatternIndex
+				: new PatternIndex<OperatingSystemPattern, OperatingSystem>(patternOsMap);
+	}
+
+	/**
+	 * Gets the combined automaton over all browser patterns. It will be built on the first call of this method. The
+	 * positions of the patterns correspond to the iteration order of {@link #getPatternBrowserMap()}.
+	 * 
+	 * @return automaton of browser patterns
+	 */
+	public PatternAutomaton<BrowserPattern, Browser> getBrowserPatternAutomaton() {
+		PatternAutomaton<BrowserPattern, Browser> automaton = browserPatternAutomaton;
+		if (automaton == null) {
+			synchronized (this) {
+				automaton = browserPatternAutomaton;
+				if (automaton == null) {
+					automaton = new PatternAutomaton<BrowserPattern, Browser>(patternBrowserMap);
+					browserPatternAutomaton = automaton;
+				}
+			}
+		}
+		return automaton;
+	}
+
+	/**
+	 * Gets the prefilter index over all browser patterns. The positions of the candidates correspond to the iteration
+	 * order of {@link #getPatternBrowserMap()}.
+	 * 
+	 * @return prefilter index of browser patterns
+	 */
+	public PatternIndex<BrowserPattern, Browser> getBrowserPatternIndex() {
+		return browserPatternIndex;
 	}
 
 	public Set<Browser> getBrowsers() {
@@ -438,6 +686,36 @@ public class Data {
 		return Collections.unmodifiableSet(operatingSystems);
 	}
 
+	/**
+	 * Gets the combined automaton over all operating system patterns. It will be built on the first call of this
+	 * method. The positions of the patterns correspond to the iteration order of {@link #getPatternOsMap()}.
+	 * 
+	 * @return automaton of operating system patterns
+	 */
+	public PatternAutomaton<OperatingSystemPattern, OperatingSystem> getOperatingSystemPatternAutomaton() {
+		PatternAutomaton<OperatingSystemPattern, OperatingSystem> automaton = operatingSystemPatternAutomaton;
+		if (automaton == null) {
+			synchronized (this) {
+				automaton = operatingSystemPatternAutomaton;
+				if (automaton == null) {
+					automaton = new PatternAutomaton<OperatingSystemPattern, OperatingSystem>(patternOsMap);
+					operatingSystemPatternAutomaton = automaton;
+				}
+			}
+		}
+		return automaton;
+	}
+
+	/**
+	 * Gets the prefilter index over all operating system patterns. The positions of the candidates correspond to the
+	 * iteration order of {@link #getPatternOsMap()}.
+	 * 
+	 * @return prefilter index of operating system patterns
+	 */
+	public PatternIndex<OperatingSystemPattern, OperatingSystem> getOperatingSystemPatternIndex() {
+		return operatingSystemPatternIndex;
+	}
+
 	public SortedMap<BrowserPattern, Browser> getPatternBrowserMap() {
 		return patternBrowserMap;
 	}
@@ -446,6 +724,62 @@ public class Data {
 		return patternOsMap;
 	}
 
+	/**
+	 * Compiles all browser and operating system patterns which have not been used yet. Patterns are otherwise compiled
+	 * on first use, so calling this method is only necessary to pay the compile cost up front, e.g. before serving
+	 * requests. Expressions with an invalid syntax are logged and will never match.
+	 * 
+	 * @return this {@code Data}, for chaining
+	 */
+	public Data compilePatterns() {
+		for (final BrowserPattern pattern : getPatternBrowserMap().keySet()) {
+			pattern.getPattern();
+		}
+		for (final OperatingSystemPattern pattern : getPatternOsMap().keySet()) {
+			pattern.getPattern();
+		}
+		return this;
+	}
+
+	/**
+	 * Finds the robot whose user agent string is exactly equal to the given one.
+	 * 
+	 * @param userAgentString
+	 *            user agent string
+	 * @return matching robot or {@code null} if there is none
+	 */
+	public Robot findRobot(final String userAgentString) {
+		return robotIndex.get(userAgentString);
+	}
+
+	/**
+	 * Finds the robot whose user agent string is exactly equal to the characters of the given one, without converting
+	 * it into a {@code String}.
+	 * 
+	 * @param userAgent
+	 *            user agent string
+	 * @return matching robot or {@code null} if there is none
+	 */
+	public Robot findRobot(final CharSequence userAgent) {
+		if (userAgent instanceof String) {
+			return robotIndex.get(userAgent);
+		}
+		final int hash = CharSequenceUtil.hashCode(userAgent);
+		int i = Arrays.binarySearch(robotHashes, hash);
+		if (i < 0) {
+			return null;
+		}
+		while (i > 0 && robotHashes[i - 1] == hash) {
+			i--;
+		}
+		for (; i < robotHashes.length && robotHashes[i] == hash; i++) {
+			if (CharSequenceUtil.contentEquals(userAgent, robotsByHash[i].getUserAgentString())) {
+				return robotsByHash[i];
+			}
+		}
+		return null;
+	}
+
 	public Set<Robot> getRobots() {
 		return Collections.unmodifiableSet(robots);
 	}
@@ -498,7 +832,7 @@ public class Data {
 		builder.append(patternOsMap.size());
 		builder.append('\n');
 		builder.append("robots:\t\t\t");
-		builder.append(robots.size());
+		builder.append(getRobots().size());
 		builder.append('\n');
 		builder.append("----------------------------------------------------------------");
 		return builder.toString();
@@ -512,7 +846,7 @@ public class Data {
 		builder.append(", operatingSystems=");
 		builder.append(operatingSystems);
 		builder.append(", robots=");
-		builder.append(robots);
+		builder.append(getRobots());
 		builder.append(", version=");
 		builder.append(version);
 		builder.append(", patternBrowserMap=");
@@ -0,0 +1,718 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.data;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import net.sf.uadetector.internal.data.domain.Browser;
+import net.sf.uadetector.internal.data.domain.BrowserOperatingSystemMapping;
+import net.sf.uadetector.internal.data.domain.BrowserPattern;
+import net.sf.uadetector.internal.data.domain.OperatingSystem;
+import net.sf.uadetector.internal.data.domain.OperatingSystemPattern;
+import net.sf.uadetector.internal.data.domain.Robot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code DataDelta} class describes the differences between two versions of <em>UAS data</em>, so that the newer
+ * version can be produced from the older one without reading the whole document again.<br>
+ * <br>
+ * Entries are identified like in the XML document: browsers, operating systems and robots by their ID, patterns by
+ * their position and browser to operating system mappings by the ID of the browser. Browsers and operating systems are
+ * compared by their attributes only, because their patterns and the operating system of a browser are described by
+ * the pattern and mapping changes. Therefore browsers and operating systems within a delta never have patterns or a
+ * mapped operating system.<br>
+ * <br>
+ * When applying a delta with {@link #applyTo(Data)} all unchanged patterns, browsers, operating systems and robots of
+ * the existing {@code Data} are reused, so that already compiled patterns must not be compiled again. The prefilter
+ * indexes are reused too, if no browser or operating system pattern was affected.<br>
+ * <br>
+ * A {@code DataDelta} object is immutable and safe when used concurrently by multiple threads.
+ * 
+ * @author André Rouél
+ */
+public final class DataDelta {
+
+	/**
+	 * The {@code Changes} class contains the added, changed and removed entries of one kind, identified by an integer
+	 * key.<br>
+	 * <br>
+	 * A {@code Changes} object is immutable.
+	 * 
+	 * @param <T>
+	 *            type of the entries
+	 * @author André Rouél
+	 */
+	public static final class Changes<T> {
+
+		/**
+		 * Compares two sets of entries and collects their differences.
+		 * 
+		 * @param older
+		 *            entries of the older version
+		 * @param newer
+		 *            entries of the newer version
+		 * @return changes which transform the older entries to the newer ones
+		 */
+		static <T> Changes<T> between(final Map<Integer, T> older, final Map<Integer, T> newer) {
+			final Map<Integer, T> added = new HashMap<Integer, T>();
+			final Map<Integer, T> changed = new HashMap<Integer, T>();
+			final Set<Integer> removed = new HashSet<Integer>();
+			for (final Map.Entry<Integer, T> entry : newer.entrySet()) {
+				final T previous = older.get(entry.getKey());
+				if (previous == null) {
+					added.put(entry.getKey(), entry.getValue());
+				} else if (!previous.equals(entry.getValue())) {
+					changed.put(entry.getKey(), entry.getValue());
+				}
+			}
+			for (final Integer key : older.keySet()) {
+				if (!newer.containsKey(key)) {
+					removed.add(key);
+				}
+			}
+			return new Changes<T>(added, changed, removed);
+		}
+
+		private final SortedMap<Integer, T> added;
+
+		private final SortedMap<Integer, T> changed;
+
+		private final SortedSet<Integer> removed;
+
+		/**
+		 * Constructs changes of one kind of entries.
+		 * 
+		 * @param added
+		 *            entries which are new, by their key
+		 * @param changed
+		 *            entries which replace existing ones with the same key
+		 * @param removed
+		 *            keys of the entries which are removed
+		 * @throws IllegalArgumentException
+		 *             if one of the given arguments is {@code null}
+		 */
+		public Changes(final Map<Integer, T> added, final Map<Integer, T> changed, final Set<Integer> removed) {
+			if (added == null) {
+				throw new IllegalArgumentException("Argument 'added' must not be null.");
+			}
+			if (changed == null) {
+				throw new IllegalArgumentException("Argument 'changed' must not be null.");
+			}
+			if (removed == null) {
+				throw new IllegalArgumentException("Argument 'removed' must not be null.");
+			}
+
+			this.added = Collections.unmodifiableSortedMap(new TreeMap<Integer, T>(added));
+			this.changed = Collections.unmodifiableSortedMap(new TreeMap<Integer, T>(changed));
+			this.removed = Collections.unmodifiableSortedSet(new TreeSet<Integer>(removed));
+		}
+
+		/**
+		 * Applies these changes to a copy of the given entries.
+		 * 
+		 * @param entries
+		 *            entries of the older version
+		 * @return new map with the entries of the newer version
+		 */
+		Map<Integer, T> applyTo(final Map<Integer, T> entries) {
+			final Map<Integer, T> result = new HashMap<Integer, T>(entries);
+			for (final Integer key : removed) {
+				result.remove(key);
+			}
+			result.putAll(added);
+			result.putAll(changed);
+			return result;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null) {
+				return false;
+			}
+			if (getClass() != obj.getClass()) {
+				return false;
+			}
+			final Changes<?> other = (Changes<?>) obj;
+			if (!added.equals(other.added)) {
+				return false;
+			}
+			if (!changed.equals(other.changed)) {
+				return false;
+			}
+			if (!removed.equals(other.removed)) {
+				return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Gets the new entries ordered by their key.
+		 * 
+		 * @return unmodifiable map of added entries
+		 */
+		public SortedMap<Integer, T> getAdded() {
+			return added;
+		}
+
+		/**
+		 * Gets the entries which replace existing ones, ordered by their key.
+		 * 
+		 * @return unmodifiable map of changed entries
+		 */
+		public SortedMap<Integer, T> getChanged() {
+			return changed;
+		}
+
+		/**
+		 * Gets the keys of the removed entries.
+		 * 
+		 * @return unmodifiable set of removed keys
+		 */
+		public SortedSet<Integer> getRemoved() {
+			return removed;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + added.hashCode();
+			result = prime * result + changed.hashCode();
+			result = prime * result + removed.hashCode();
+			return result;
+		}
+
+		/**
+		 * Returns whether there are no changes at all.
+		 * 
+		 * @return {@code true} if nothing was added, changed or removed, otherwise {@code false}
+		 */
+		public boolean isEmpty() {
+			return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+		}
+
+		/**
+		 * Gets the number of added, changed and removed entries.
+		 * 
+		 * @return number of changes
+		 */
+		public int size() {
+			return added.size() + changed.size() + removed.size();
+		}
+
+		@Override
+		public String toString() {
+			final StringBuilder builder = new StringBuilder();
+			builder.append("Changes [added=");
+			builder.append(added.keySet());
+			builder.append(", changed=");
+			builder.append(changed.keySet());
+			builder.append(", removed=");
+			builder.append(removed);
+			builder.append("]");
+			return builder.toString();
+		}
+
+	}
+
+	/**
+	 * Corresponding default logger for this class
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(DataDelta.class);
+
+	private static final OrderedPatternComparator<BrowserPattern> BROWSER_PATTERN_COMPARATOR = new OrderedPatternComparator<BrowserPattern>();
+
+	private static final OrderedPatternComparator<OperatingSystemPattern> OS_PATTERN_COMPARATOR = new OrderedPatternComparator<OperatingSystemPattern>();
+
+	/**
+	 * Computes the differences between two versions of <em>UAS data</em>.
+	 * 
+	 * @param older
+	 *            <em>UAS data</em> to which the delta will be applied
+	 * @param newer
+	 *            <em>UAS data</em> which will be produced by the delta
+	 * @return delta from the older to the newer version
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 */
+	public static DataDelta between(final Data older, final Data newer) {
+		if (older == null) {
+			throw new IllegalArgumentException("Argument 'older' must not be null.");
+		}
+		if (newer == null) {
+			throw new IllegalArgumentException("Argument 'newer' must not be null.");
+		}
+
+		final Changes<Browser> browsers = Changes.between(withoutRelations(browsersById(older.getBrowsers())),
+				withoutRelations(browsersById(newer.getBrowsers())));
+		final Changes<OperatingSystem> operatingSystems = Changes.between(withoutPatterns(operatingSystemsById(older
+				.getOperatingSystems())), withoutPatterns(operatingSystemsById(newer.getOperatingSystems())));
+		final Changes<Robot> robots = Changes.between(robotsById(older.getRobots()), robotsById(newer.getRobots()));
+		final Changes<BrowserPattern> browserPatterns = Changes.between(byPosition(older.getPatternBrowserMap().keySet()),
+				byPosition(newer.getPatternBrowserMap().keySet()));
+		final Changes<OperatingSystemPattern> operatingSystemPatterns = Changes.between(byPosition(older.getPatternOsMap().keySet()),
+				byPosition(newer.getPatternOsMap().keySet()));
+		final Changes<BrowserOperatingSystemMapping> mappings = Changes.between(mappingsOf(older.getBrowsers()),
+				mappingsOf(newer.getBrowsers()));
+		return new DataDelta(older.getVersion(), newer.getVersion(), browsers, operatingSystems, robots, browserPatterns,
+				operatingSystemPatterns, mappings);
+	}
+
+	private static void appendStats(final StringBuilder builder, final String label, final Changes<?> changes) {
+		builder.append(label);
+		builder.append(": ");
+		builder.append(changes.getAdded().size());
+		builder.append(" added, ");
+		builder.append(changes.getChanged().size());
+		builder.append(" changed, ");
+		builder.append(changes.getRemoved().size());
+		builder.append(" removed\n");
+	}
+
+	private static Map<Integer, Browser> browsersById(final Collection<Browser> browsers) {
+		final Map<Integer, Browser> result = new HashMap<Integer, Browser>(browsers.size() * 2);
+		for (final Browser browser : browsers) {
+			result.put(browser.getId(), browser);
+		}
+		return result;
+	}
+
+	private static <P extends OrderedPattern<P>> Map<Integer, P> byPosition(final Collection<P> patterns) {
+		final Map<Integer, P> result = new HashMap<Integer, P>(patterns.size() * 2);
+		for (final P pattern : patterns) {
+			result.put(pattern.getPosition(), pattern);
+		}
+		return result;
+	}
+
+	private static <P extends OrderedPattern<P>> Map<Integer, SortedSet<P>> groupById(final Collection<P> patterns,
+			final OrderedPatternComparator<P> comparator) {
+		final Map<Integer, SortedSet<P>> result = new HashMap<Integer, SortedSet<P>>();
+		for (final P pattern : patterns) {
+			SortedSet<P> patternSet = result.get(pattern.getId());
+			if (patternSet == null) {
+				patternSet = new TreeSet<P>(comparator);
+				result.put(pattern.getId(), patternSet);
+			}
+			patternSet.add(pattern);
+		}
+		return result;
+	}
+
+	/**
+	 * Checks whether both sets contain the identical instances in the same order.
+	 */
+	private static <E> boolean isSame(final Collection<E> c1, final Collection<E> c2) {
+		if (c1.size() != c2.size()) {
+			return false;
+		}
+		final Iterator<E> i2 = c2.iterator();
+		for (final E e1 : c1) {
+			if (e1 != i2.next()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether both maps contain the identical keys and values in the same order.
+	 */
+	private static <K, V> boolean isSame(final SortedMap<K, V> m1, final SortedMap<K, V> m2) {
+		return isSame(m1.keySet(), m2.keySet()) && isSame(m1.values(), m2.values());
+	}
+
+	private static Map<Integer, BrowserOperatingSystemMapping> mappingsOf(final Collection<Browser> browsers) {
+		final Map<Integer, BrowserOperatingSystemMapping> result = new HashMap<Integer, BrowserOperatingSystemMapping>();
+		for (final Browser browser : browsers) {
+			if (browser.getOperatingSystem() != null) {
+				result.put(browser.getId(), new BrowserOperatingSystemMapping(browser.getId(), browser.getOperatingSystem().getId()));
+			}
+		}
+		return result;
+	}
+
+	private static Map<Integer, OperatingSystem> operatingSystemsById(final Collection<OperatingSystem> operatingSystems) {
+		final Map<Integer, OperatingSystem> result = new HashMap<Integer, OperatingSystem>(operatingSystems.size() * 2);
+		for (final OperatingSystem os : operatingSystems) {
+			result.put(os.getId(), os);
+		}
+		return result;
+	}
+
+	private static Map<Integer, Robot> robotsById(final Collection<Robot> robots) {
+		final Map<Integer, Robot> result = new HashMap<Integer, Robot>(robots.size() * 2);
+		for (final Robot robot : robots) {
+			result.put(robot.getId(), robot);
+		}
+		return result;
+	}
+
+	private static Map<Integer, OperatingSystem> withoutPatterns(final Map<Integer, OperatingSystem> operatingSystems) {
+		final Map<Integer, OperatingSystem> result = new HashMap<Integer, OperatingSystem>(operatingSystems.size() * 2);
+		for (final OperatingSystem os : operatingSystems.values()) {
+			result.put(os.getId(), new OperatingSystem(os.getFamily(), os.getIcon(), os.getId(), os.getInfoUrl(), os.getName(),
+					new TreeSet<OperatingSystemPattern>(OS_PATTERN_COMPARATOR), os.getProducer(), os.getProducerUrl(), os.getUrl()));
+		}
+		return result;
+	}
+
+	private static Map<Integer, Browser> withoutRelations(final Map<Integer, Browser> browsers) {
+		final Map<Integer, Browser> result = new HashMap<Integer, Browser>(browsers.size() * 2);
+		for (final Browser browser : browsers.values()) {
+			result.put(browser.getId(), new Browser(browser.getId(), browser.getType(), browser.getFamily(), browser.getUrl(),
+					browser.getProducer(), browser.getProducerUrl(), browser.getIcon(), browser.getInfoUrl(),
+					new TreeSet<BrowserPattern>(BROWSER_PATTERN_COMPARATOR), null));
+		}
+		return result;
+	}
+
+	private final String baseVersion;
+
+	private final String version;
+
+	private final Changes<Browser> browsers;
+
+	private final Changes<OperatingSystem> operatingSystems;
+
+	private final Changes<Robot> robots;
+
+	private final Changes<BrowserPattern> browserPatterns;
+
+	private final Changes<OperatingSystemPattern> operatingSystemPatterns;
+
+	private final Changes<BrowserOperatingSystemMapping> browserOperatingSystemMappings;
+
+	/**
+	 * Constructs a delta between two versions of <em>UAS data</em>.
+	 * 
+	 * @param baseVersion
+	 *            version of the data to which this delta can be applied
+	 * @param version
+	 *            version of the data which will be produced
+	 * @param browsers
+	 *            changes of browsers (without patterns and operating system) by ID
+	 * @param operatingSystems
+	 *            changes of operating systems (without patterns) by ID
+	 * @param robots
+	 *            changes of robots by ID
+	 * @param browserPatterns
+	 *            changes of browser patterns by position
+	 * @param operatingSystemPatterns
+	 *            changes of operating system patterns by position
+	 * @param browserOperatingSystemMappings
+	 *            changes of browser to operating system mappings by browser ID
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 */
+	public DataDelta(final String baseVersion, final String version, final Changes<Browser> browsers,
+			final Changes<OperatingSystem> operatingSystems, final Changes<Robot> robots, final Changes<BrowserPattern> browserPatterns,
+			final Changes<OperatingSystemPattern> operatingSystemPatterns,
+			final Changes<BrowserOperatingSystemMapping> browserOperatingSystemMappings) {
+		if (baseVersion == null) {
+			throw new IllegalArgumentException("Argument 'baseVersion' must not be null.");
+		}
+		if (version == null) {
+			throw new IllegalArgumentException("Argument 'version' must not be null.");
+		}
+		if (browsers == null) {
+			throw new IllegalArgumentException("Argument 'browsers' must not be null.");
+		}
+		if (operatingSystems == null) {
+			throw new IllegalArgumentException("Argument 'operatingSystems' must not be null.");
+		}
+		if (robots == null) {
+			throw new IllegalArgumentException("Argument 'robots' must not be null.");
+		}
+		if (browserPatterns == null) {
+			throw new IllegalArgumentException("Argument 'browserPatterns' must not be null.");
+		}
+		if (operatingSystemPatterns == null) {
+			throw new IllegalArgumentException("Argument 'operatingSystemPatterns' must not be null.");
+		}
+		if (browserOperatingSystemMappings == null) {
+			throw new IllegalArgumentException("Argument 'browserOperatingSystemMappings' must not be null.");
+		}
+
+		this.baseVersion = baseVersion;
+		this.version = version;
+		this.browsers = browsers;
+		this.operatingSystems = operatingSystems;
+		this.robots = robots;
+		this.browserPatterns = browserPatterns;
+		this.operatingSystemPatterns = operatingSystemPatterns;
+		this.browserOperatingSystemMappings = browserOperatingSystemMappings;
+	}
+
+	/**
+	 * Applies this delta to the given <em>UAS data</em> and returns the next version. The given data will not be
+	 * modified, unchanged domain objects and compiled patterns are shared between both instances.
+	 * 
+	 * @param data
+	 *            <em>UAS data</em> with the base version of this delta
+	 * @return new <em>UAS data</em> with the version of this delta
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 * @throws IllegalArgumentException
+	 *             if the version of the given data does not match the base version of this delta
+	 */
+	public Data applyTo(final Data data) {
+		if (data == null) {
+			throw new IllegalArgumentException("Argument 'data' must not be null.");
+		}
+		if (!baseVersion.equals(data.getVersion())) {
+			throw new IllegalArgumentException("The delta can only be applied to version '" + baseVersion + "' but not to '"
+					+ data.getVersion() + "'.");
+		}
+
+		// operating systems will be rebuilt only if their attributes or patterns were changed
+		final Map<Integer, SortedSet<OperatingSystemPattern>> osPatternSets = groupById(
+				operatingSystemPatterns.applyTo(byPosition(data.getPatternOsMap().keySet())).values(), OS_PATTERN_COMPARATOR);
+		final Map<Integer, OperatingSystem> previousOperatingSystems = operatingSystemsById(data.getOperatingSystems());
+		final Map<Integer, OperatingSystem> osMap = new HashMap<Integer, OperatingSystem>();
+		for (final OperatingSystem os : operatingSystems.applyTo(previousOperatingSystems).values()) {
+			SortedSet<OperatingSystemPattern> patternSet = osPatternSets.get(os.getId());
+			if (patternSet == null) {
+				patternSet = new TreeSet<OperatingSystemPattern>(OS_PATTERN_COMPARATOR);
+			}
+			if (previousOperatingSystems.get(os.getId()) == os && isSame(os.getPatternSet(), patternSet)) {
+				osMap.put(os.getId(), os);
+			} else {
+				osMap.put(os.getId(), new OperatingSystem(os.getFamily(), os.getIcon(), os.getId(), os.getInfoUrl(), os.getName(),
+						patternSet, os.getProducer(), os.getProducerUrl(), os.getUrl()));
+			}
+		}
+
+		// browsers will be rebuilt only if their attributes, patterns or operating system were changed
+		final Map<Integer, SortedSet<BrowserPattern>> browserPatternSets = groupById(
+				browserPatterns.applyTo(byPosition(data.getPatternBrowserMap().keySet())).values(), BROWSER_PATTERN_COMPARATOR);
+		final Map<Integer, BrowserOperatingSystemMapping> mappings = browserOperatingSystemMappings.applyTo(mappingsOf(data
+				.getBrowsers()));
+		final Map<Integer, Browser> previousBrowsers = browsersById(data.getBrowsers());
+		final Set<Browser> browserSet = new HashSet<Browser>();
+		for (final Browser browser : browsers.applyTo(previousBrowsers).values()) {
+			SortedSet<BrowserPattern> patternSet = browserPatternSets.get(browser.getId());
+			if (patternSet == null) {
+				patternSet = new TreeSet<BrowserPattern>(BROWSER_PATTERN_COMPARATOR);
+			}
+			OperatingSystem os = null;
+			final BrowserOperatingSystemMapping mapping = mappings.get(browser.getId());
+			if (mapping != null) {
+				os = osMap.get(mapping.getOperatingSystemId());
+				if (os == null) {
+					LOG.warn("Can not find an operating system with ID '" + mapping.getOperatingSystemId() + "' for browser '"
+							+ browser.getProducer() + " " + browser.getFamily() + "'.");
+				}
+			}
+			if (previousBrowsers.get(browser.getId()) == browser && isSame(browser.getPatternSet(), patternSet)
+					&& browser.getOperatingSystem() == os) {
+				browserSet.add(browser);
+			} else {
+				browserSet.add(new Browser(browser.getId(), browser.getType(), browser.getFamily(), browser.getUrl(), browser
+						.getProducer(), browser.getProducerUrl(), browser.getIcon(), browser.getInfoUrl(), patternSet, os));
+			}
+		}
+
+		final SortedMap<BrowserPattern, Browser> patternBrowserMap = new TreeMap<BrowserPattern, Browser>(BROWSER_PATTERN_COMPARATOR);
+		for (final Browser browser : browserSet) {
+			for (final BrowserPattern pattern : browser.getPatternSet()) {
+				patternBrowserMap.put(pattern, browser);
+			}
+		}
+		final SortedMap<OperatingSystemPattern, OperatingSystem> patternOsMap = new TreeMap<OperatingSystemPattern, OperatingSystem>(
+				OS_PATTERN_COMPARATOR);
+		for (final OperatingSystem os : osMap.values()) {
+			for (final OperatingSystemPattern pattern : os.getPatternSet()) {
+				patternOsMap.put(pattern, os);
+			}
+		}
+
+		final Set<Robot> robotSet = new HashSet<Robot>(robots.applyTo(robotsById(data.getRobots())).values());
+
+		// the prefilter indexes refer to patterns and values, so they can only be kept if both are identical
+		final PatternIndex<BrowserPattern, Browser> browserPatternIndex = isSame(data.getPatternBrowserMap(), patternBrowserMap) ? data
+				.getBrowserPatternIndex() : null;
+		final PatternIndex<OperatingSystemPattern, OperatingSystem> osPatternIndex = isSame(data.getPatternOsMap(), patternOsMap) ? data
+				.getOperatingSystemPatternIndex() : null;
+		return new Data(browserSet, new HashSet<OperatingSystem>(osMap.values()), robotSet, patternBrowserMap, patternOsMap, version,
+				browserPatternIndex, osPatternIndex);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		final DataDelta other = (DataDelta) obj;
+		if (!baseVersion.equals(other.baseVersion)) {
+			return false;
+		}
+		if (!version.equals(other.version)) {
+			return false;
+		}
+		if (!browsers.equals(other.browsers)) {
+			return false;
+		}
+		if (!operatingSystems.equals(other.operatingSystems)) {
+			return false;
+		}
+		if (!robots.equals(other.robots)) {
+			return false;
+		}
+		if (!browserPatterns.equals(other.browserPatterns)) {
+			return false;
+		}
+		if (!operatingSystemPatterns.equals(other.operatingSystemPatterns)) {
+			return false;
+		}
+		if (!browserOperatingSystemMappings.equals(other.browserOperatingSystemMappings)) {
+			return false;
+		}
+		return true;
+	}
+
+	public String getBaseVersion() {
+		return baseVersion;
+	}
+
+	public Changes<BrowserOperatingSystemMapping> getBrowserOperatingSystemMappings() {
+		return browserOperatingSystemMappings;
+	}
+
+	public Changes<BrowserPattern> getBrowserPatterns() {
+		return browserPatterns;
+	}
+
+	public Changes<Browser> getBrowsers() {
+		return browsers;
+	}
+
+	public Changes<OperatingSystemPattern> getOperatingSystemPatterns() {
+		return operatingSystemPatterns;
+	}
+
+	public Changes<OperatingSystem> getOperatingSystems() {
+		return operatingSystems;
+	}
+
+	public Changes<Robot> getRobots() {
+		return robots;
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + baseVersion.hashCode();
+		result = prime * result + version.hashCode();
+		result = prime * result + browsers.hashCode();
+		result = prime * result + operatingSystems.hashCode();
+		result = prime * result + robots.hashCode();
+		result = prime * result + browserPatterns.hashCode();
+		result = prime * result + operatingSystemPatterns.hashCode();
+		result = prime * result + browserOperatingSystemMappings.hashCode();
+		return result;
+	}
+
+	/**
+	 * Returns whether this delta contains no changes of entries. The versions may differ nevertheless.
+	 * 
+	 * @return {@code true} if no entry was added, changed or removed, otherwise {@code false}
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Gets the number of all added, changed and removed entries.
+	 * 
+	 * @return number of changes
+	 */
+	public int size() {
+		return browsers.size() + operatingSystems.size() + robots.size() + browserPatterns.size() + operatingSystemPatterns.size()
+				+ browserOperatingSystemMappings.size();
+	}
+
+	/**
+	 * Gives a summary of the number of changes per kind of entries.
+	 * 
+	 * @return summary of this delta
+	 */
+	public String toStats() {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("UAS data delta from '");
+		builder.append(baseVersion);
+		builder.append("' to '");
+		builder.append(version);
+		builder.append("'\n");
+		appendStats(builder, "browsers", browsers);
+		appendStats(builder, "operating systems", operatingSystems);
+		appendStats(builder, "robots", robots);
+		appendStats(builder, "browser patterns", browserPatterns);
+		appendStats(builder, "operating system patterns", operatingSystemPatterns);
+		appendStats(builder, "browser to operating system mappings", browserOperatingSystemMappings);
+		return builder.toString();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("DataDelta [baseVersion=");
+		builder.append(baseVersion);
+		builder.append(", version=");
+		builder.append(version);
+		builder.append(", browsers=");
+		builder.append(browsers);
+		builder.append(", operatingSystems=");
+		builder.append(operatingSystems);
+		builder.append(", robots=");
+		builder.append(robots);
+		builder.append(", browserPatterns=");
+		builder.append(browserPatterns);
+		builder.append(", operatingSystemPatterns=");
+		builder.append(operatingSystemPatterns);
+		builder.append(", browserOperatingSystemMappings=");
+		builder.append(browserOperatingSystemMappings);
+		builder.append("]");
+		return builder.toString();
+	}
+
+}
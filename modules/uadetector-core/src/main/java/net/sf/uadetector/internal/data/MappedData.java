@@ -0,0 +1,506 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.sf.uadetector.UserAgentFamily;
+import net.sf.uadetector.internal.data.domain.Browser;
+import net.sf.uadetector.internal.data.domain.BrowserPattern;
+import net.sf.uadetector.internal.data.domain.BrowserType;
+import net.sf.uadetector.internal.data.domain.OperatingSystem;
+import net.sf.uadetector.internal.data.domain.OperatingSystemPattern;
+import net.sf.uadetector.internal.data.domain.Robot;
+import net.sf.uadetector.internal.util.CharSequenceUtil;
+
+/**
+ * The {@code MappedData} class represents <em>UAS data</em> which are stored in flat tables of a (typically memory
+ * mapped) read-only buffer. Many processes can map the same file and share one copy of it in the page cache.<br>
+ * <br>
+ * The robots, which are by far the largest table, stay within the buffer. They are found via a sorted hash index in
+ * the buffer and a robot will be created on the heap not until it is found for the first time. Browsers, operating
+ * systems and their patterns are created once when mapping, because every parse evaluates the prefilter over all of
+ * their patterns.<br>
+ * <br>
+ * A buffer starts with a header of {@link #HEADER_SIZE} bytes which contains the number and the offset of every table
+ * (see the {@code HEADER_*} positions). All numbers are 32-bit integers in big-endian byte order. Strings are referred
+ * to by their offset within the string pool at the end of the buffer, every string in the pool consists of its length
+ * in bytes followed by its UTF-8 representation.<br>
+ * <br>
+ * A {@code MappedData} object is immutable and safe when used concurrently by multiple threads, as long as the
+ * underlying buffer will not be changed.
+ * 
+ * @author André Rouél
+ */
+public final class MappedData extends Data {
+
+	/**
+	 * Browsers, operating systems and pattern maps which will be created on the heap when mapping
+	 */
+	private static final class Tables {
+
+		private final Set<Browser> browsers = new HashSet<Browser>();
+
+		private final Set<OperatingSystem> operatingSystems = new HashSet<OperatingSystem>();
+
+		private final SortedMap<BrowserPattern, Browser> patternBrowserMap = new TreeMap<BrowserPattern, Browser>(
+				BROWSER_PATTERN_COMPARATOR);
+
+		private final SortedMap<OperatingSystemPattern, OperatingSystem> patternOsMap = new TreeMap<OperatingSystemPattern, OperatingSystem>(
+				OS_PATTERN_COMPARATOR);
+
+	}
+
+	/**
+	 * Magic number at the beginning of every buffer (the characters {@code UADM})
+	 */
+	public static final int MAGIC_NUMBER = 0x5541444D;
+
+	/**
+	 * Version of the layout, which will be incremented on every incompatible change
+	 */
+	public static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Header position of the magic number
+	 */
+	public static final int HEADER_MAGIC_NUMBER = 0;
+
+	/**
+	 * Header position of the format version
+	 */
+	public static final int HEADER_FORMAT_VERSION = 4;
+
+	/**
+	 * Header position of the total length of the buffer in bytes
+	 */
+	public static final int HEADER_LENGTH = 8;
+
+	/**
+	 * Header position of the offset of the string pool
+	 */
+	public static final int HEADER_STRING_POOL = 12;
+
+	/**
+	 * Header position of the string reference to the version of the <em>UAS data</em>
+	 */
+	public static final int HEADER_VERSION = 16;
+
+	/**
+	 * Header position of the number and offset of the browser type table (records of {@link #BROWSER_TYPE_SIZE})
+	 */
+	public static final int HEADER_BROWSER_TYPES = 20;
+
+	/**
+	 * Header position of the number and offset of the operating system pattern table (records of
+	 * {@link #PATTERN_SIZE})
+	 */
+	public static final int HEADER_OS_PATTERNS = 28;
+
+	/**
+	 * Header position of the number and offset of the operating system table (records of {@link #OS_SIZE})
+	 */
+	public static final int HEADER_OPERATING_SYSTEMS = 36;
+
+	/**
+	 * Header position of the number and offset of the browser pattern table (records of {@link #PATTERN_SIZE})
+	 */
+	public static final int HEADER_BROWSER_PATTERNS = 44;
+
+	/**
+	 * Header position of the number and offset of the browser table (records of {@link #BROWSER_SIZE})
+	 */
+	public static final int HEADER_BROWSERS = 52;
+
+	/**
+	 * Header position of the number and offset of the robot table (records of {@link #ROBOT_SIZE})
+	 */
+	public static final int HEADER_ROBOTS = 60;
+
+	/**
+	 * Header position of the number of entries of the robot index, the offset of their ascending hash codes and the
+	 * offset of the corresponding robot numbers
+	 */
+	public static final int HEADER_ROBOT_INDEX = 68;
+
+	/**
+	 * Header position of the number and offset of the entries of the pattern browser map (pairs of pattern and browser
+	 * number)
+	 */
+	public static final int HEADER_PATTERN_BROWSER_MAP = 80;
+
+	/**
+	 * Header position of the number and offset of the entries of the pattern operating system map (pairs of pattern
+	 * and operating system number)
+	 */
+	public static final int HEADER_PATTERN_OS_MAP = 88;
+
+	/**
+	 * Size of the header in bytes
+	 */
+	public static final int HEADER_SIZE = 128;
+
+	/**
+	 * Size of a browser type record: ID and name
+	 */
+	public static final int BROWSER_TYPE_SIZE = 2 * 4;
+
+	/**
+	 * Size of a pattern record: ID, position, regular expression and flags
+	 */
+	public static final int PATTERN_SIZE = 4 * 4;
+
+	/**
+	 * Size of an operating system record: ID, family, icon, info URL, name, producer, producer URL, URL, offset and
+	 * number of pattern numbers and if it is part of {@link #getOperatingSystems()}
+	 */
+	public static final int OS_SIZE = 11 * 4;
+
+	/**
+	 * Size of a browser record: ID, type number, family, URL, producer, producer URL, icon, info URL, offset and number
+	 * of pattern numbers, operating system number (or {@code -1}) and if it is part of {@link #getBrowsers()}
+	 */
+	public static final int BROWSER_SIZE = 12 * 4;
+
+	/**
+	 * Size of a robot record: ID, family, icon, info URL, name, producer, producer URL, URL and user agent string
+	 */
+	public static final int ROBOT_SIZE = 9 * 4;
+
+	private static final OrderedPatternComparator<BrowserPattern> BROWSER_PATTERN_COMPARATOR = new OrderedPatternComparator<BrowserPattern>();
+
+	private static final OrderedPatternComparator<OperatingSystemPattern> OS_PATTERN_COMPARATOR = new OrderedPatternComparator<OperatingSystemPattern>();
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static UserAgentFamily family(final String name) throws IOException {
+		try {
+			return UserAgentFamily.valueOf(name);
+		} catch (final IllegalArgumentException e) {
+			throw new IOException("Unknown user agent family '" + name + "'.");
+		}
+	}
+
+	/**
+	 * Creates {@code Data} which are backed by the given buffer. The buffer must not be changed afterwards.
+	 * 
+	 * @param buffer
+	 *            buffer with <em>UAS data</em> in the layout of this class
+	 * @return <em>UAS data</em> backed by the given buffer
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 * @throws IOException
+	 *             if the buffer is incomplete, corrupted or has another format version
+	 */
+	public static MappedData map(final ByteBuffer buffer) throws IOException {
+		if (buffer == null) {
+			throw new IllegalArgumentException("Argument 'buffer' must not be null.");
+		}
+
+		try {
+			final ByteBuffer view = buffer.slice();
+			if (view.limit() < HEADER_SIZE || view.getInt(HEADER_MAGIC_NUMBER) != MAGIC_NUMBER) {
+				throw new IOException("The given buffer does not contain UAS data.");
+			}
+			final int formatVersion = view.getInt(HEADER_FORMAT_VERSION);
+			if (formatVersion != FORMAT_VERSION) {
+				throw new IOException("Unsupported format version " + formatVersion + ".");
+			}
+			if (view.getInt(HEADER_LENGTH) != view.limit()) {
+				throw new IOException("The buffer is incomplete.");
+			}
+			final MappedData data = new MappedData(view, readTables(view));
+			data.validateRobots();
+			return data;
+		} catch (final IndexOutOfBoundsException e) {
+			throw new IOException("The buffer is corrupted: " + e.getLocalizedMessage());
+		} catch (final IllegalArgumentException e) {
+			throw new IOException("The buffer is corrupted: " + e.getLocalizedMessage());
+		}
+	}
+
+	private static SortedSet<BrowserPattern> readBrowserPatterns(final ByteBuffer buffer, final BrowserPattern[] patterns,
+			final int offset, final int count) {
+		final SortedSet<BrowserPattern> patternSet = new TreeSet<BrowserPattern>(BROWSER_PATTERN_COMPARATOR);
+		for (int i = 0; i < count; i++) {
+			patternSet.add(patterns[buffer.getInt(offset + i * 4)]);
+		}
+		return patternSet;
+	}
+
+	private static SortedSet<OperatingSystemPattern> readOsPatterns(final ByteBuffer buffer, final OperatingSystemPattern[] patterns,
+			final int offset, final int count) {
+		final SortedSet<OperatingSystemPattern> patternSet = new TreeSet<OperatingSystemPattern>(OS_PATTERN_COMPARATOR);
+		for (int i = 0; i < count; i++) {
+			patternSet.add(patterns[buffer.getInt(offset + i * 4)]);
+		}
+		return patternSet;
+	}
+
+	/**
+	 * Reads the string with the given reference from the string pool of the passed buffer.
+	 */
+	private static String readString(final ByteBuffer buffer, final int reference) {
+		final int position = buffer.getInt(HEADER_STRING_POOL) + reference;
+		final byte[] bytes = new byte[buffer.getInt(position)];
+		final ByteBuffer source = buffer.duplicate();
+		source.position(position + 4);
+		source.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	private static String readStringField(final ByteBuffer buffer, final int record, final int field) {
+		return readString(buffer, buffer.getInt(record + field * 4));
+	}
+
+	private static Tables readTables(final ByteBuffer buffer) throws IOException {
+		final Tables tables = new Tables();
+
+		final BrowserType[] browserTypes = new BrowserType[buffer.getInt(HEADER_BROWSER_TYPES)];
+		for (int i = 0, record = buffer.getInt(HEADER_BROWSER_TYPES + 4); i < browserTypes.length; i++, record += BROWSER_TYPE_SIZE) {
+			browserTypes[i] = new BrowserType(buffer.getInt(record), readStringField(buffer, record, 1));
+		}
+
+		final OperatingSystemPattern[] osPatterns = new OperatingSystemPattern[buffer.getInt(HEADER_OS_PATTERNS)];
+		for (int i = 0, record = buffer.getInt(HEADER_OS_PATTERNS + 4); i < osPatterns.length; i++, record += PATTERN_SIZE) {
+			osPatterns[i] = new OperatingSystemPattern(buffer.getInt(record), readStringField(buffer, record, 2),
+					buffer.getInt(record + 12), buffer.getInt(record + 4));
+		}
+
+		final OperatingSystem[] operatingSystems = new OperatingSystem[buffer.getInt(HEADER_OPERATING_SYSTEMS)];
+		for (int i = 0, record = buffer.getInt(HEADER_OPERATING_SYSTEMS + 4); i < operatingSystems.length; i++, record += OS_SIZE) {
+			operatingSystems[i] = new OperatingSystem(readStringField(buffer, record, 1), readStringField(buffer, record, 2),
+					buffer.getInt(record), readStringField(buffer, record, 3), readStringField(buffer, record, 4), readOsPatterns(buffer,
+							osPatterns, buffer.getInt(record + 8 * 4), buffer.getInt(record + 9 * 4)), readStringField(buffer, record, 5),
+					readStringField(buffer, record, 6), readStringField(buffer, record, 7));
+			if (buffer.getInt(record + 10 * 4) != 0) {
+				tables.operatingSystems.add(operatingSystems[i]);
+			}
+		}
+
+		final BrowserPattern[] browserPatterns = new BrowserPattern[buffer.getInt(HEADER_BROWSER_PATTERNS)];
+		for (int i = 0, record = buffer.getInt(HEADER_BROWSER_PATTERNS + 4); i < browserPatterns.length; i++, record += PATTERN_SIZE) {
+			browserPatterns[i] = new BrowserPattern(buffer.getInt(record), readStringField(buffer, record, 2), buffer.getInt(record + 12),
+					buffer.getInt(record + 4));
+		}
+
+		final Browser[] browsers = new Browser[buffer.getInt(HEADER_BROWSERS)];
+		for (int i = 0, record = buffer.getInt(HEADER_BROWSERS + 4); i < browsers.length; i++, record += BROWSER_SIZE) {
+			final int os = buffer.getInt(record + 10 * 4);
+			browsers[i] = new Browser(buffer.getInt(record), browserTypes[buffer.getInt(record + 4)], family(readStringField(buffer,
+					record, 2)), readStringField(buffer, record, 3), readStringField(buffer, record, 4), readStringField(buffer, record,
+					5), readStringField(buffer, record, 6), readStringField(buffer, record, 7), readBrowserPatterns(buffer,
+					browserPatterns, buffer.getInt(record + 8 * 4), buffer.getInt(record + 9 * 4)), os < 0 ? null
+					: operatingSystems[os]);
+			if (buffer.getInt(record + 11 * 4) != 0) {
+				tables.browsers.add(browsers[i]);
+			}
+		}
+
+		for (int i = 0, entry = buffer.getInt(HEADER_PATTERN_BROWSER_MAP + 4); i < buffer.getInt(HEADER_PATTERN_BROWSER_MAP); i++, entry += 8) {
+			tables.patternBrowserMap.put(browserPatterns[buffer.getInt(entry)], browsers[buffer.getInt(entry + 4)]);
+		}
+		for (int i = 0, entry = buffer.getInt(HEADER_PATTERN_OS_MAP + 4); i < buffer.getInt(HEADER_PATTERN_OS_MAP); i++, entry += 8) {
+			tables.patternOsMap.put(osPatterns[buffer.getInt(entry)], operatingSystems[buffer.getInt(entry + 4)]);
+		}
+		return tables;
+	}
+
+	/**
+	 * Buffer with the flat tables, starting at position {@code 0}
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * Offset of the string pool
+	 */
+	private final int stringPool;
+
+	/**
+	 * Number of robots
+	 */
+	private final int robotCount;
+
+	/**
+	 * Offset of the robot table
+	 */
+	private final int robotTable;
+
+	/**
+	 * Number of entries in the robot index
+	 */
+	private final int robotIndexCount;
+
+	/**
+	 * Offset of the ascending hash codes of the user agent strings of the robot index
+	 */
+	private final int robotHashes;
+
+	/**
+	 * Offset of the robot numbers of the robot index
+	 */
+	private final int robotSlots;
+
+	/**
+	 * Robots which have already been created on the heap, by their number
+	 */
+	private final AtomicReferenceArray<Robot> robotCache;
+
+	/**
+	 * Set of all robots, created on first use
+	 */
+	private volatile Set<Robot> allRobots;
+
+	private MappedData(final ByteBuffer buffer, final Tables tables) {
+		super(tables.browsers, tables.operatingSystems, new HashSet<Robot>(0), tables.patternBrowserMap, tables.patternOsMap,
+				readString(buffer, buffer.getInt(HEADER_VERSION)));
+		this.buffer = buffer;
+		stringPool = buffer.getInt(HEADER_STRING_POOL);
+		robotCount = buffer.getInt(HEADER_ROBOTS);
+		robotTable = buffer.getInt(HEADER_ROBOTS + 4);
+		robotIndexCount = buffer.getInt(HEADER_ROBOT_INDEX);
+		robotHashes = buffer.getInt(HEADER_ROBOT_INDEX + 4);
+		robotSlots = buffer.getInt(HEADER_ROBOT_INDEX + 8);
+		robotCache = new AtomicReferenceArray<Robot>(robotCount);
+	}
+
+	/**
+	 * Compares the string with the given reference in the string pool with the passed characters. Strings which
+	 * consist only of ASCII characters will be compared without decoding them.
+	 */
+	private boolean contentEquals(final int reference, final CharSequence text) {
+		final int position = stringPool + reference;
+		final int length = buffer.getInt(position);
+		for (int i = 0; i < length; i++) {
+			if (buffer.get(position + 4 + i) < 0) {
+				return CharSequenceUtil.contentEquals(text, readString(buffer, reference));
+			}
+		}
+		if (length != text.length()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (buffer.get(position + 4 + i) != text.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public Robot findRobot(final CharSequence userAgent) {
+		final int hash = CharSequenceUtil.hashCode(userAgent);
+		int low = 0;
+		int high = robotIndexCount - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			if (buffer.getInt(robotHashes + middle * 4) < hash) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		for (int i = low; i < robotIndexCount && buffer.getInt(robotHashes + i * 4) == hash; i++) {
+			final int slot = buffer.getInt(robotSlots + i * 4);
+			if (contentEquals(buffer.getInt(robotTable + slot * ROBOT_SIZE + 8 * 4), userAgent)) {
+				return getRobot(slot);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Robot findRobot(final String userAgentString) {
+		return findRobot((CharSequence) userAgentString);
+	}
+
+	/**
+	 * Gets the robot with the given number. It will be created on the heap on first access.
+	 */
+	private Robot getRobot(final int slot) {
+		Robot robot = robotCache.get(slot);
+		if (robot == null) {
+			try {
+				robot = readRobot(slot);
+			} catch (final IOException e) {
+				throw new IllegalStateException(e.getLocalizedMessage());
+			}
+			if (!robotCache.compareAndSet(slot, null, robot)) {
+				robot = robotCache.get(slot);
+			}
+		}
+		return robot;
+	}
+
+	@Override
+	public Set<Robot> getRobots() {
+		Set<Robot> robots = allRobots;
+		if (robots == null) {
+			final Set<Robot> set = new HashSet<Robot>(robotCount * 4 / 3 + 1);
+			for (int slot = 0; slot < robotCount; slot++) {
+				set.add(getRobot(slot));
+			}
+			robots = Collections.unmodifiableSet(set);
+			allRobots = robots;
+		}
+		return robots;
+	}
+
+	private Robot readRobot(final int slot) throws IOException {
+		final int record = robotTable + slot * ROBOT_SIZE;
+		return new Robot(family(readStringField(buffer, record, 1)), readStringField(buffer, record, 2), buffer.getInt(record),
+				readStringField(buffer, record, 3), readStringField(buffer, record, 4), readStringField(buffer, record, 5),
+				readStringField(buffer, record, 6), readStringField(buffer, record, 7), readStringField(buffer, record, 8));
+	}
+
+	/**
+	 * Checks that all references of the robot index and of the robot table lie within the buffer, so that lookups can
+	 * not fail later on.
+	 */
+	private void validateRobots() throws IOException {
+		final int limit = buffer.limit();
+		if (robotTable < 0 || robotTable + (long) robotCount * ROBOT_SIZE > stringPool || robotHashes < 0
+				|| robotHashes + (long) robotIndexCount * 4 > limit || robotSlots < 0 || robotSlots + (long) robotIndexCount * 4 > limit) {
+			throw new IOException("The robot tables are corrupted.");
+		}
+		for (int i = 0; i < robotIndexCount; i++) {
+			final int slot = buffer.getInt(robotSlots + i * 4);
+			if (slot < 0 || slot >= robotCount || i > 0 && buffer.getInt(robotHashes + (i - 1) * 4) > buffer.getInt(robotHashes + i * 4)) {
+				throw new IOException("The robot index is corrupted.");
+			}
+		}
+		for (int slot = 0; slot < robotCount; slot++) {
+			for (int field = 1; field < ROBOT_SIZE / 4; field++) {
+				final int reference = buffer.getInt(robotTable + slot * ROBOT_SIZE + field * 4);
+				if (reference < 0 || stringPool + (long) reference + 4 > limit
+						|| stringPool + (long) reference + 4 + buffer.getInt(stringPool + reference) > limit) {
+					throw new IOException("The robot table refers to strings outside of the string pool.");
+				}
+			}
+		}
+	}
+
+}
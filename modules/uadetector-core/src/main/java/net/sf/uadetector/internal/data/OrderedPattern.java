@@ -19,6 +19,20 @@ import java.util.regex.Pattern;
 
 public interface OrderedPattern<T extends OrderedPattern<?>> extends Comparable<T> {
 
+	/**
+	 * Gets the match flags of the regular expression without compiling it.
+	 * 
+	 * @return match flags as defined by {@link Pattern}
+	 */
+	int getFlags();
+
+	/**
+	 * Gets the identification number of the entry (browser or operating system) to which the pattern belongs.
+	 * 
+	 * @return identification number of the owning entry
+	 */
+	int getId();
+
 	/**
 	 * Gets a compiled representation of a regular expression.
 	 * 
@@ -33,4 +47,11 @@ public interface OrderedPattern<T extends OrderedPattern<?>> extends Comparable<
 	 */
 	int getPosition();
 
+	/**
+	 * Gets the source of the regular expression without compiling it.
+	 * 
+	 * @return source of the regular expression
+	 */
+	String getRegularExpression();
+
 }
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Helper to split the construction of {@link Data} into tasks which can be executed concurrently.<br>
+ * <br>
+ * A task is forked by handing it over to an {@link Executor}. When joining a task which has not been started yet, the
+ * calling thread runs it by itself. Therefore joining never waits for a free thread of the executor and a build can
+ * not dead-lock, even if it is started from within a thread of the same (bounded) executor. Without an executor all
+ * tasks are simply run in the calling thread.
+ * 
+ * @author André Rouél
+ */
+final class ParallelTasks {
+
+	/**
+	 * Maximum number of elements processed by one task
+	 */
+	static final int CHUNK_SIZE = 32;
+
+	/**
+	 * Forks the given task on the passed executor. If no executor is given or the executor rejects the task, it will be
+	 * run in the calling thread immediately.
+	 * 
+	 * @param executor
+	 *            executor to run the task or {@code null}
+	 * @param callable
+	 *            task to be forked
+	 * @return forked task
+	 */
+	static <T> FutureTask<T> fork(final Executor executor, final Callable<T> callable) {
+		final FutureTask<T> task = new FutureTask<T>(callable);
+		if (executor == null) {
+			task.run();
+		} else {
+			try {
+				executor.execute(task);
+			} catch (final RejectedExecutionException e) {
+				task.run();
+			}
+		}
+		return task;
+	}
+
+	/**
+	 * Waits until the given task has finished and returns its result. A task that has not been started yet will be
+	 * run in the calling thread.
+	 * 
+	 * @param task
+	 *            forked task
+	 * @return result of the task
+	 * @throws IllegalStateException
+	 *             if the calling thread has been interrupted while waiting
+	 */
+	static <T> T join(final FutureTask<T> task) {
+		task.run(); // does nothing if the task has already been started
+		try {
+			return task.get();
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a task.", e);
+		}
+	}
+
+	/**
+	 * Splits the given elements in consecutive chunks of at most {@link #CHUNK_SIZE} elements, keeping the iteration
+	 * order of the collection.
+	 * 
+	 * @param elements
+	 *            elements to be split
+	 * @return list of chunks
+	 */
+	static <T> List<List<T>> partition(final Collection<T> elements) {
+		final List<List<T>> chunks = new ArrayList<List<T>>(elements.size() / CHUNK_SIZE + 1);
+		List<T> chunk = null;
+		for (final T element : elements) {
+			if (chunk == null || chunk.size() == CHUNK_SIZE) {
+				chunk = new ArrayList<T>(CHUNK_SIZE);
+				chunks.add(chunk);
+			}
+			chunk.add(element);
+		}
+		return chunks;
+	}
+
+	/**
+	 * <strong>Attention:</strong> This class is not intended to create objects from it.
+	 */
+	private ParallelTasks() {
+		// This class is not intended to create objects from it.
+	}
+
+}
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.data;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.sf.uadetector.internal.util.MatcherCache;
+import net.sf.uadetector.internal.util.PatternSetAutomaton;
+
+/**
+ * The {@code PatternAutomaton} finds the first pattern of an ordered set of patterns that matches a text in one pass
+ * over the text. All patterns are combined into one lazily built {@link PatternSetAutomaton}.<br>
+ * <br>
+ * Patterns with constructs the automaton does not support are evaluated one by one with {@code java.util.regex}, but
+ * only those which are ordered before the first match of the automaton.<br>
+ * <br>
+ * A {@code PatternAutomaton} object is safe when used concurrently by multiple threads.
+ * 
+ * @param <P>
+ *            type of the pattern
+ * @param <V>
+ *            type of the value a pattern is associated with
+ * @author André Rouél
+ */
+public final class PatternAutomaton<P extends OrderedPattern<P>, V> {
+
+	/**
+	 * Patterns in ascending order
+	 */
+	private final List<P> patterns;
+
+	/**
+	 * Values associated with the patterns in the same order as {@link #patterns}
+	 */
+	private final List<V> values;
+
+	/**
+	 * Positions of patterns which can not be handled by the automaton
+	 */
+	private final BitSet fallbacks;
+
+	/**
+	 * Automaton over all supported patterns, the value of a pattern is its position
+	 */
+	private final PatternSetAutomaton automaton;
+
+	/**
+	 * Builds an automaton over the keys of the given sorted map. The iteration order of the map determines the order
+	 * of the patterns.
+	 * 
+	 * @param map
+	 *            sorted map of patterns to values
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public PatternAutomaton(final SortedMap<P, V> map) {
+		if (map == null) {
+			throw new IllegalArgumentException("Argument 'map' must not be null.");
+		}
+
+		patterns = new ArrayList<P>(map.size());
+		values = new ArrayList<V>(map.size());
+		fallbacks = new BitSet(map.size());
+		final PatternSetAutomaton.Builder builder = new PatternSetAutomaton.Builder();
+		int index = 0;
+		for (final Map.Entry<P, V> entry : map.entrySet()) {
+			patterns.add(entry.getKey());
+			values.add(entry.getValue());
+			if (!builder.add(entry.getKey().getRegularExpression(), entry.getKey().getFlags(), index)) {
+				fallbacks.set(index);
+			}
+			index++;
+		}
+		automaton = builder.build();
+	}
+
+	/**
+	 * Finds the position of the first pattern that matches the given text.
+	 * 
+	 * @param text
+	 *            text to be examined
+	 * @return position of the first matching pattern or {@code -1} if no pattern matches
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public int findFirst(final CharSequence text) {
+		if (text == null) {
+			throw new IllegalArgumentException("Argument 'text' must not be null.");
+		}
+
+		return scan(text, new BitSet(patterns.size()), null);
+	}
+
+	/**
+	 * Finds the position of the first pattern that matches the given text. The passed {@code BitSet} and matchers
+	 * will be reused, so that finding the first pattern does not create new objects when called repeatedly.
+	 * 
+	 * @param text
+	 *            text to be examined
+	 * @param matches
+	 *            set to collect intermediate results in (previously set bits will be cleared)
+	 * @param matchers
+	 *            cache of matchers for the patterns which are evaluated one by one
+	 * @return position of the first matching pattern or {@code -1} if no pattern matches
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 */
+	public int findFirst(final CharSequence text, final BitSet matches, final MatcherCache matchers) {
+		if (text == null) {
+			throw new IllegalArgumentException("Argument 'text' must not be null.");
+		}
+		if (matches == null) {
+			throw new IllegalArgumentException("Argument 'matches' must not be null.");
+		}
+		if (matchers == null) {
+			throw new IllegalArgumentException("Argument 'matchers' must not be null.");
+		}
+
+		matches.clear();
+		return scan(text, matches, matchers);
+	}
+
+	/**
+	 * Scans the text with the automaton and evaluates the fallback patterns before the first match one by one. If no
+	 * matcher cache is passed, a new matcher will be created for every fallback pattern.
+	 */
+	private int scan(final CharSequence text, final BitSet matches, final MatcherCache matchers) {
+		automaton.scan(text, matches);
+		final int first = matches.nextSetBit(0);
+		final int limit = first < 0 ? patterns.size() : first;
+		for (int i = fallbacks.nextSetBit(0); i >= 0 && i < limit; i = fallbacks.nextSetBit(i + 1)) {
+			final Pattern pattern = patterns.get(i).getPattern();
+			final Matcher matcher = matchers == null ? pattern.matcher(text) : matchers.matcher(i, pattern, text);
+			if (matcher.find()) {
+				return i;
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Gets the number of patterns which can not be handled by the automaton and are evaluated one by one.
+	 * 
+	 * @return number of patterns evaluated with {@code java.util.regex}
+	 */
+	public int getFallbackCount() {
+		return fallbacks.cardinality();
+	}
+
+	/**
+	 * Gets the pattern at the given position.
+	 * 
+	 * @param index
+	 *            position of a pattern
+	 * @return pattern at the given position
+	 */
+	public P getPattern(final int index) {
+		return patterns.get(index);
+	}
+
+	/**
+	 * Gets the value associated with the pattern at the given position.
+	 * 
+	 * @param index
+	 *            position of a pattern
+	 * @return value at the given position
+	 */
+	public V getValue(final int index) {
+		return values.get(index);
+	}
+
+	/**
+	 * Gets the number of patterns.
+	 * 
+	 * @return number of patterns
+	 */
+	public int size() {
+		return patterns.size();
+	}
+
+}
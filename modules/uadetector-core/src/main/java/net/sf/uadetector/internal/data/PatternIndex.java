@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.data;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import net.sf.uadetector.internal.util.AhoCorasickAutomaton;
+import net.sf.uadetector.internal.util.RequiredLiteralExtractor;
+
+/**
+ * The {@code PatternIndex} is a prefilter over an ordered set of patterns. For every pattern the literals which must
+ * occur in a matching text are extracted and compiled into one {@link AhoCorasickAutomaton}. A single pass over a text
+ * yields the candidates that can match at all, so that only these patterns have to be evaluated.<br>
+ * <br>
+ * Candidates are numbered by their position within the ordered set, so that evaluating them in ascending order keeps
+ * the first-match semantics of the sorted map the index was built from.<br>
+ * <br>
+ * A {@code PatternIndex} object is immutable and safe when used concurrently by multiple threads.
+ *
+ * @param <P>
+ *            type of the pattern
+ * @param <V>
+ *            type of the value a pattern is associated with
+ * @author André Rouél
+ */
+public final class PatternIndex<P extends OrderedPattern<P>, V> {
+
+	/**
+	 * Creates an empty index.
+	 *
+	 * @return an empty index
+	 */
+	public static <P extends OrderedPattern<P>, V> PatternIndex<P, V> empty() {
+		return new PatternIndex<P, V>(new TreeMap<P, V>());
+	}
+
+	/**
+	 * Patterns to be evaluated in ascending order
+	 */
+	private final List<P> patterns;
+
+	/**
+	 * Values associated with the patterns in the same order as {@link #patterns}
+	 */
+	private final List<V> values;
+
+	/**
+	 * Patterns for which no required literal can be determined and which are therefore always candidates
+	 */
+	private final BitSet alwaysCandidates;
+
+	/**
+	 * Automaton to find all required literals within a text in one pass
+	 */
+	private final AhoCorasickAutomaton automaton;
+
+	/**
+	 * Builds an index over the keys of the given sorted map. The iteration order of the map determines the order of
+	 * the candidates.
+	 *
+	 * @param map
+	 *            sorted map of patterns to values
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public PatternIndex(final SortedMap<P, V> map) {
+		if (map == null) {
+			throw new IllegalArgumentException("Argument 'map' must not be null.");
+		}
+
+		patterns = new ArrayList<P>(map.size());
+		values = new ArrayList<V>(map.size());
+		alwaysCandidates = new BitSet(map.size());
+		final AhoCorasickAutomaton.Builder builder = new AhoCorasickAutomaton.Builder();
+		int index = 0;
+		for (final Map.Entry<P, V> entry : map.entrySet()) {
+			patterns.add(entry.getKey());
+			values.add(entry.getValue());
+			final Set<String> literals = RequiredLiteralExtractor.extract(entry.getKey().getRegularExpression(),
+					entry.getKey().getFlags());
+			if (literals.isEmpty()) {
+				alwaysCandidates.set(index);
+			} else {
+				for (final String literal : literals) {
+					builder.add(literal, index);
+				}
+			}
+			index++;
+		}
+		automaton = builder.build();
+	}
+
+	/**
+	 * Scans the given text once and returns the positions of all patterns which can possibly match. Patterns which
+	 * are not in the returned set can not find a match in the text.
+	 *
+	 * @param text
+	 *            text to be examined
+	 * @return set of positions of candidate patterns (evaluate them in ascending order)
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public BitSet findCandidates(final CharSequence text) {
+		if (text == null) {
+			throw new IllegalArgumentException("Argument 'text' must not be null.");
+		}
+
+		final BitSet candidates = (BitSet) alwaysCandidates.clone();
+		automaton.scan(text, candidates);
+		return candidates;
+	}
+
+	/**
+	 * Scans the given text once and marks the positions of all patterns which can possibly match in the passed
+	 * {@code BitSet}. Previously set bits will be cleared, so that one set can be reused for many texts.
+	 *
+	 * @param text
+	 *            text to be examined
+	 * @param candidates
+	 *            set in which the positions of candidate patterns will be marked (evaluate them in ascending order)
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 */
+	public void findCandidates(final CharSequence text, final BitSet candidates) {
+		if (text == null) {
+			throw new IllegalArgumentException("Argument 'text' must not be null.");
+		}
+		if (candidates == null) {
+			throw new IllegalArgumentException("Argument 'candidates' must not be null.");
+		}
+
+		candidates.clear();
+		candidates.or(alwaysCandidates);
+		automaton.scan(text, candidates);
+	}
+
+	/**
+	 * Gets the number of patterns which will be evaluated on every text, because no required literals can be
+	 * determined for them.
+	 *
+	 * @return number of patterns without required literals
+	 */
+	public int getAlwaysCandidateCount() {
+		return alwaysCandidates.cardinality();
+	}
+
+	/**
+	 * Gets the pattern at the given position.
+	 *
+	 * @param index
+	 *            position of a candidate
+	 * @return pattern at the given position
+	 */
+	public P getPattern(final int index) {
+		return patterns.get(index);
+	}
+
+	/**
+	 * Gets the value associated with the pattern at the given position.
+	 *
+	 * @param index
+	 *            position of a candidate
+	 * @return value at the given position
+	 */
+	public V getValue(final int index) {
+		return values.get(index);
+	}
+
+	/**
+	 * Gets the number of patterns in this index.
+	 *
+	 * @return number of patterns
+	 */
+	public int size() {
+		return patterns.size();
+	}
+
+}
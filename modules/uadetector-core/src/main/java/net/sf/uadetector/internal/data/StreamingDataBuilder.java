@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import net.sf.uadetector.internal.data.domain.Browser;
+import net.sf.uadetector.internal.data.domain.BrowserPattern;
+import net.sf.uadetector.internal.data.domain.BrowserType;
+import net.sf.uadetector.internal.data.domain.OperatingSystem;
+import net.sf.uadetector.internal.data.domain.OperatingSystemPattern;
+import net.sf.uadetector.internal.data.domain.Robot;
+import net.sf.uadetector.internal.util.IntObjectMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A builder for {@link Data} which is fed record by record by a streaming reader. All relations between records are
+ * resolved over primitive {@code int} identifiers, so that no identifier has to be boxed. The linked domain objects are
+ * finally handed over to a {@link Data.Builder}.<br>
+ * <br>
+ * In contrast to {@link Data.Builder} the appended builders of browsers and operating systems are not copied, the
+ * caller must not modify them afterwards.<br>
+ * <br>
+ * This builder is not thread safe.
+ * 
+ * @author André Rouél
+ */
+public final class StreamingDataBuilder {
+
+	private static final Logger LOG = LoggerFactory.getLogger(StreamingDataBuilder.class);
+
+	private static final OrderedPatternComparator<BrowserPattern> BROWSER_PATTERN_COMPARATOR = new OrderedPatternComparator<BrowserPattern>();
+
+	private static final OrderedPatternComparator<OperatingSystemPattern> OS_PATTERN_COMPARATOR = new OrderedPatternComparator<OperatingSystemPattern>();
+
+	private final IntObjectMap<Browser.Builder> browserBuilders = new IntObjectMap<Browser.Builder>(512);
+
+	private final IntObjectMap<SortedSet<BrowserPattern>> browserPatterns = new IntObjectMap<SortedSet<BrowserPattern>>(512);
+
+	private final IntObjectMap<BrowserType> browserTypes = new IntObjectMap<BrowserType>();
+
+	/**
+	 * Browser IDs of the mappings between browsers and operating systems
+	 */
+	private int[] mappedBrowserIds = new int[512];
+
+	/**
+	 * Operating system IDs of the mappings between browsers and operating systems
+	 */
+	private int[] mappedOperatingSystemIds = new int[512];
+
+	/**
+	 * Number of mappings between browsers and operating systems
+	 */
+	private int mappings;
+
+	private final IntObjectMap<OperatingSystem.Builder> operatingSystemBuilders = new IntObjectMap<OperatingSystem.Builder>(128);
+
+	private final IntObjectMap<SortedSet<OperatingSystemPattern>> operatingSystemPatterns = new IntObjectMap<SortedSet<OperatingSystemPattern>>(
+			128);
+
+	private final List<Robot> robots = new ArrayList<Robot>(1024);
+
+	private String version;
+
+	/**
+	 * Appends the given builder of a browser.
+	 * 
+	 * @param browserBuilder
+	 *            builder of a browser (will not be copied)
+	 * @return this {@code StreamingDataBuilder}, for chaining
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 * @throws IllegalArgumentException
+	 *             if the ID or the type ID of the given builder is invalid
+	 * @throws IllegalArgumentException
+	 *             if a builder with the same ID already exists
+	 */
+	public StreamingDataBuilder appendBrowserBuilder(final Browser.Builder browserBuilder) {
+		if (browserBuilder == null) {
+			throw new IllegalArgumentException("Argument 'browserBuilder' must not be null.");
+		}
+		if (browserBuilder.getId() < 0) {
+			throw new IllegalArgumentException("The ID of argument 'browserBuilder' must not be smaller than 0.");
+		}
+		if (browserBuilder.getType() == null && browserBuilder.getTypeId() < 0) {
+			throw new IllegalArgumentException("A Type or Type-ID of argument 'browserBuilder' must be set.");
+		}
+		if (browserBuilders.containsKey(browserBuilder.getId())) {
+			throw new IllegalArgumentException("The browser builder '" + browserBuilder.getProducer() + " "
+					+ browserBuilder.getFamily() + "' is already in the map.");
+		}
+
+		browserBuilders.put(browserBuilder.getId(), browserBuilder);
+		return this;
+	}
+
+	/**
+	 * Appends a mapping between a browser and an operating system. If several mappings for one browser are appended,
+	 * the last one wins.
+	 * 
+	 * @param browserId
+	 *            ID of a browser
+	 * @param operatingSystemId
+	 *            ID of an operating system
+	 * @return this {@code StreamingDataBuilder}, for chaining
+	 */
+	public StreamingDataBuilder appendBrowserOperatingSystemMapping(final int browserId, final int operatingSystemId) {
+		if (mappings == mappedBrowserIds.length) {
+			final int length = mappings * 2;
+			final int[] browserIds = new int[length];
+			final int[] operatingSystemIds = new int[length];
+			System.arraycopy(mappedBrowserIds, 0, browserIds, 0, mappings);
+			System.arraycopy(mappedOperatingSystemIds, 0, operatingSystemIds, 0, mappings);
+			mappedBrowserIds = browserIds;
+			mappedOperatingSystemIds = operatingSystemIds;
+		}
+		mappedBrowserIds[mappings] = browserId;
+		mappedOperatingSystemIds[mappings] = operatingSystemId;
+		mappings++;
+		return this;
+	}
+
+	public StreamingDataBuilder appendBrowserPattern(final BrowserPattern pattern) {
+		if (pattern == null) {
+			throw new IllegalArgumentException("Argument 'pattern' must not be null.");
+		}
+
+		SortedSet<BrowserPattern> patterns = browserPatterns.get(pattern.getId());
+		if (patterns == null) {
+			patterns = new TreeSet<BrowserPattern>(BROWSER_PATTERN_COMPARATOR);
+			browserPatterns.put(pattern.getId(), patterns);
+		}
+		patterns.add(pattern);
+		return this;
+	}
+
+	public StreamingDataBuilder appendBrowserType(final BrowserType type) {
+		if (type == null) {
+			throw new IllegalArgumentException("Argument 'type' must not be null.");
+		}
+
+		browserTypes.put(type.getId(), type);
+		return this;
+	}
+
+	/**
+	 * Appends the given builder of an operating system. A builder with the same ID will be replaced.
+	 * 
+	 * @param operatingSystemBuilder
+	 *            builder of an operating system (will not be copied)
+	 * @return this {@code StreamingDataBuilder}, for chaining
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 * @throws IllegalArgumentException
+	 *             if the ID of the given builder is invalid
+	 */
+	public StreamingDataBuilder appendOperatingSystemBuilder(final OperatingSystem.Builder operatingSystemBuilder) {
+		if (operatingSystemBuilder == null) {
+			throw new IllegalArgumentException("Argument 'operatingSystemBuilder' must not be null.");
+		}
+		if (operatingSystemBuilder.getId() < 0) {
+			throw new IllegalArgumentException("The ID of argument 'operatingSystemBuilder' can not be smaller than 0.");
+		}
+
+		operatingSystemBuilders.put(operatingSystemBuilder.getId(), operatingSystemBuilder);
+		return this;
+	}
+
+	public StreamingDataBuilder appendOperatingSystemPattern(final OperatingSystemPattern pattern) {
+		if (pattern == null) {
+			throw new IllegalArgumentException("Argument 'pattern' must not be null.");
+		}
+
+		SortedSet<OperatingSystemPattern> patterns = operatingSystemPatterns.get(pattern.getId());
+		if (patterns == null) {
+			patterns = new TreeSet<OperatingSystemPattern>(OS_PATTERN_COMPARATOR);
+			operatingSystemPatterns.put(pattern.getId(), patterns);
+		}
+		patterns.add(pattern);
+		return this;
+	}
+
+	public StreamingDataBuilder appendRobot(final Robot robot) {
+		if (robot == null) {
+			throw new IllegalArgumentException("Argument 'robot' must not be null.");
+		}
+
+		robots.add(robot);
+		return this;
+	}
+
+	/**
+	 * Links all appended records, builds the domain objects and returns a new instance of {@code Data}.
+	 * 
+	 * @return a new instance of {@code Data}
+	 * @throws IllegalArgumentException
+	 *             if no version has been set
+	 */
+	public Data build() {
+		final Data.Builder builder = new Data.Builder();
+		if (version != null) {
+			builder.setVersion(version);
+		}
+
+		final IntObjectMap<OperatingSystem> operatingSystems = new IntObjectMap<OperatingSystem>(operatingSystemBuilders.size());
+		for (int i = 0; i < operatingSystemBuilders.size(); i++) {
+			final int id = operatingSystemBuilders.keyAt(i);
+			final OperatingSystem.Builder osBuilder = operatingSystemBuilders.valueAt(i);
+			final SortedSet<OperatingSystemPattern> patternSet = operatingSystemPatterns.get(id);
+			if (patternSet != null) {
+				osBuilder.addPatternSet(patternSet);
+			} else {
+				LOG.debug("No patterns for operating system entry (with id '" + id + "') available.");
+			}
+			try {
+				final OperatingSystem os = osBuilder.build();
+				operatingSystems.put(id, os);
+				builder.appendOperatingSystem(os);
+			} catch (final Exception e) {
+				LOG.warn("Can not build operating system: " + e.getLocalizedMessage());
+			}
+		}
+
+		for (int i = 0; i < mappings; i++) {
+			final Browser.Builder browserBuilder = browserBuilders.get(mappedBrowserIds[i]);
+			if (browserBuilder == null) {
+				LOG.warn("Can not find a browser with ID '" + mappedBrowserIds[i] + "'.");
+			} else if (operatingSystems.containsKey(mappedOperatingSystemIds[i])) {
+				browserBuilder.setOperatingSystem(operatingSystems.get(mappedOperatingSystemIds[i]));
+			} else {
+				LOG.warn("Can not find an operating system with ID '" + mappedOperatingSystemIds[i] + "' for browser '"
+						+ browserBuilder.getProducer() + " " + browserBuilder.getFamily() + "'.");
+			}
+		}
+
+		for (int i = 0; i < browserBuilders.size(); i++) {
+			final Browser.Builder browserBuilder = browserBuilders.valueAt(i);
+			final int typeId = browserBuilder.getTypeId();
+			if (typeId >= 0) {
+				if (browserTypes.containsKey(typeId)) {
+					browserBuilder.setType(browserTypes.get(typeId));
+				} else {
+					LOG.warn("No type available for '" + browserBuilder.getProducer() + " " + browserBuilder.getFamily() + "'.");
+				}
+			}
+			final SortedSet<BrowserPattern> patternSet = browserPatterns.get(browserBuilders.keyAt(i));
+			if (patternSet != null) {
+				browserBuilder.setPatternSet(patternSet);
+			} else {
+				LOG.warn("No pattern available for '" + browserBuilder.getProducer() + " " + browserBuilder.getFamily() + "'.");
+			}
+			try {
+				builder.appendBrowser(browserBuilder.build());
+			} catch (final Exception e) {
+				LOG.warn("Can not build browser: " + e.getLocalizedMessage());
+			}
+		}
+
+		for (final Robot robot : robots) {
+			builder.appendRobot(robot);
+		}
+		return builder.build();
+	}
+
+	public StreamingDataBuilder setVersion(final String version) {
+		if (version == null) {
+			throw new IllegalArgumentException("Argument 'version' must not be null.");
+		}
+
+		this.version = version;
+		return this;
+	}
+
+}
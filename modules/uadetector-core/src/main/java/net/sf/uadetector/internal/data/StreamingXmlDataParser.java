@@ -0,0 +1,548 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import net.sf.uadetector.UserAgentFamily;
+import net.sf.uadetector.internal.data.XmlDataHandler.Tag;
+import net.sf.uadetector.internal.data.domain.Browser;
+import net.sf.uadetector.internal.data.domain.BrowserPattern;
+import net.sf.uadetector.internal.data.domain.BrowserType;
+import net.sf.uadetector.internal.data.domain.OperatingSystem;
+import net.sf.uadetector.internal.data.domain.OperatingSystemPattern;
+import net.sf.uadetector.internal.data.domain.Robot;
+import net.sf.uadetector.internal.util.LazyPattern;
+import net.sf.uadetector.internal.util.RegularExpressionConverter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pull parser for <em>UAS data</em> in XML format, which feeds a {@link StreamingDataBuilder}.<br>
+ * <br>
+ * In contrast to {@link XmlDataHandler} this parser resolves tag names with a perfect hash table, collects the text of
+ * an element in one reusable character buffer and parses numeric values directly from this buffer. Strings are only
+ * created for values which are kept. The Document Type Definition referenced by the data will not be loaded and no
+ * entities will be resolved: a document type declaration with an internal subset or any entity reference aborts the
+ * parsing with an {@code XMLStreamException}.<br>
+ * <br>
+ * A parser object is not thread safe, but can be used for several documents one after another.
+ * 
+ * @author André Rouél
+ */
+public final class StreamingXmlDataParser {
+
+	/**
+	 * Kind of record whose fields are currently read
+	 */
+	private enum Record {
+		BROWSER, BROWSER_OS_MAPPING, BROWSER_PATTERN, BROWSER_TYPE, NONE, OPERATING_SYSTEM, OPERATING_SYSTEM_PATTERN, ROBOT
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(StreamingXmlDataParser.class);
+
+	/**
+	 * Number of bits of a slot in the tag table
+	 */
+	private static final int TAG_BITS = 7;
+
+	/**
+	 * Tags by their slot, as computed by {@link #slot(CharSequence, int)}
+	 */
+	private static final Tag[] TAGS = new Tag[1 << TAG_BITS];
+
+	/**
+	 * Multiplier of the perfect hash function of {@link #TAGS}
+	 */
+	private static final int TAG_SEED;
+
+	static {
+		// search a multiplier which maps all tag names to distinct slots
+		int seed = 1;
+		while (!fillTags(seed)) {
+			seed += 2;
+		}
+		TAG_SEED = seed;
+	}
+
+	private static boolean fillTags(final int seed) {
+		Arrays.fill(TAGS, null);
+		for (final Tag tag : Tag.values()) {
+			final int slot = slot(tag.getTagName(), seed);
+			if (TAGS[slot] != null) {
+				return false;
+			}
+			TAGS[slot] = tag;
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the tag with the given name (ignoring the case of ASCII letters) via the perfect hash table.
+	 * 
+	 * @param name
+	 *            name of an element
+	 * @return corresponding tag or {@code null} if the name is unknown
+	 */
+	static Tag findTag(final CharSequence name) {
+		final Tag tag = TAGS[slot(name, TAG_SEED)];
+		if (tag == null || tag.getTagName().length() != name.length()) {
+			return null;
+		}
+		final String tagName = tag.getTagName();
+		for (int i = 0; i < name.length(); i++) {
+			if (toLowerCase(name.charAt(i)) != tagName.charAt(i)) {
+				return null;
+			}
+		}
+		return tag;
+	}
+
+	/**
+	 * Parses an non-negative decimal number of the given characters, leading and trailing whitespaces are ignored.
+	 * 
+	 * @return parsed number or {@code -1} if the characters are not a valid number
+	 */
+	static int parseInt(final char[] chars, final int length) {
+		int start = 0;
+		int end = length;
+		while (start < end && chars[start] <= ' ') {
+			start++;
+		}
+		while (end > start && chars[end - 1] <= ' ') {
+			end--;
+		}
+		if (start == end || end - start > 9) {
+			return -1;
+		}
+		int result = 0;
+		for (int i = start; i < end; i++) {
+			final char chr = chars[i];
+			if (chr < '0' || chr > '9') {
+				return -1;
+			}
+			result = result * 10 + (chr - '0');
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the kind of record which is enclosed by the given tag.
+	 */
+	private static Record toRecord(final Tag tag) {
+		if (tag == null) {
+			return Record.NONE;
+		}
+		switch (tag) {
+		case BROWSER:
+			return Record.BROWSER;
+		case BROWSER_OS_MAPPING:
+			return Record.BROWSER_OS_MAPPING;
+		case BROWSER_PATTERN:
+			return Record.BROWSER_PATTERN;
+		case BROWSER_TYPE:
+			return Record.BROWSER_TYPE;
+		case OPERATING_SYSTEM:
+			return Record.OPERATING_SYSTEM;
+		case OPERATING_SYSTEM_PATTERN:
+			return Record.OPERATING_SYSTEM_PATTERN;
+		case ROBOT:
+			return Record.ROBOT;
+		default:
+			return Record.NONE;
+		}
+	}
+
+	private static int slot(final CharSequence name, final int seed) {
+		int hash = 0;
+		for (int i = 0; i < name.length(); i++) {
+			hash = 31 * hash + toLowerCase(name.charAt(i));
+		}
+		return hash * seed >>> 32 - TAG_BITS;
+	}
+
+	private static char toLowerCase(final char chr) {
+		return chr >= 'A' && chr <= 'Z' ? (char) (chr + ('a' - 'A')) : chr;
+	}
+
+	/**
+	 * Characters of the current element
+	 */
+	private char[] buffer = new char[256];
+
+	/**
+	 * Number of characters in {@link #buffer}
+	 */
+	private int length;
+
+	private Browser.Builder browser;
+
+	private int browserOsMappingBrowserId;
+
+	private int browserOsMappingOperatingSystemId;
+
+	private BrowserType.Builder browserType;
+
+	private OperatingSystem.Builder operatingSystem;
+
+	private int patternId;
+
+	private int patternPosition;
+
+	private String patternRegex;
+
+	private Robot.Builder robot;
+
+	private final XMLInputFactory factory;
+
+	public StreamingXmlDataParser() {
+		factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, Boolean.FALSE);
+		factory.setXMLResolver(new XMLResolver() {
+			@Override
+			public Object resolveEntity(final String publicId, final String systemId, final String baseUri, final String namespace) {
+				// nothing will be loaded, even if an implementation ignores the properties above
+				return new ByteArrayInputStream(new byte[0]);
+			}
+		});
+	}
+
+	private void append(final XMLStreamReader reader) {
+		final int count = reader.getTextLength();
+		if (length + count > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count));
+		}
+		System.arraycopy(reader.getTextCharacters(), reader.getTextStart(), buffer, length, count);
+		length += count;
+	}
+
+	/**
+	 * Checks that the current document type declaration only refers to an external DTD (like the one of the <em>UAS
+	 * data</em>), which will not be loaded. An internal subset could declare entities and will not be accepted.
+	 */
+	private static void checkDocumentTypeDeclaration(final XMLStreamReader reader) throws XMLStreamException {
+		final String declaration = reader.getText();
+		if (declaration != null && (declaration.indexOf('[') >= 0 || declaration.indexOf("<!ENTITY") >= 0)) {
+			throw new XMLStreamException("Document type declarations with an internal subset are not allowed.", reader.getLocation());
+		}
+	}
+
+	private void endRecord(final Record record, final StreamingDataBuilder builder) {
+		try {
+			switch (record) {
+			case BROWSER:
+				builder.appendBrowserBuilder(browser);
+				break;
+			case BROWSER_OS_MAPPING:
+				builder.appendBrowserOperatingSystemMapping(browserOsMappingBrowserId, browserOsMappingOperatingSystemId);
+				break;
+			case BROWSER_PATTERN:
+				final LazyPattern browserPattern = toLazyPattern();
+				builder.appendBrowserPattern(new BrowserPattern(patternId, browserPattern.getRegularExpression(), browserPattern.getFlags(),
+						patternPosition));
+				break;
+			case BROWSER_TYPE:
+				builder.appendBrowserType(browserType.build());
+				break;
+			case OPERATING_SYSTEM:
+				builder.appendOperatingSystemBuilder(operatingSystem);
+				break;
+			case OPERATING_SYSTEM_PATTERN:
+				final LazyPattern osPattern = toLazyPattern();
+				builder.appendOperatingSystemPattern(new OperatingSystemPattern(patternId, osPattern.getRegularExpression(), osPattern
+						.getFlags(), patternPosition));
+				break;
+			case ROBOT:
+				builder.appendRobot(robot.build());
+				break;
+			default:
+				break;
+			}
+		} catch (final IllegalArgumentException e) {
+			LOG.warn("Can not append record of type " + record.name() + ": " + e.getLocalizedMessage());
+		}
+	}
+
+	private void endField(final Record record, final Tag tag, final StreamingDataBuilder builder) {
+		try {
+			setField(record, tag, builder);
+		} catch (final IllegalArgumentException e) {
+			LOG.warn("Can not read value of '" + tag.getTagName() + "': " + e.getLocalizedMessage());
+		}
+	}
+
+	private void setField(final Record record, final Tag tag, final StreamingDataBuilder builder) {
+		if (tag == Tag.VERSION) {
+			builder.setVersion(text());
+			return;
+		}
+
+		switch (record) {
+		case BROWSER:
+			setBrowserField(tag);
+			break;
+		case BROWSER_OS_MAPPING:
+			if (tag == Tag.BROWSER_ID) {
+				browserOsMappingBrowserId = parseInt(buffer, length);
+			} else if (tag == Tag.OPERATING_SYSTEM_ID) {
+				browserOsMappingOperatingSystemId = parseInt(buffer, length);
+			}
+			break;
+		case BROWSER_PATTERN:
+			setPatternField(tag, Tag.BROWSER_ID);
+			break;
+		case BROWSER_TYPE:
+			if (tag == Tag.ID) {
+				browserType.setId(parseInt(buffer, length));
+			} else if (tag == Tag.BROWSER_TYPE_ID) {
+				browserType.setName(text());
+			}
+			break;
+		case OPERATING_SYSTEM:
+			setOperatingSystemField(tag);
+			break;
+		case OPERATING_SYSTEM_PATTERN:
+			setPatternField(tag, Tag.OPERATING_SYSTEM_ID);
+			break;
+		case ROBOT:
+			setRobotField(tag);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Parses the <em>UAS data</em> of the given stream and feeds the records into the given builder. The stream will
+	 * not be closed.
+	 * 
+	 * @param stream
+	 *            stream of an XML document
+	 * @param charset
+	 *            character set of the document
+	 * @param builder
+	 *            builder to feed
+	 * @throws XMLStreamException
+	 *             if the document is not well-formed or can not be read
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 */
+	public void parse(final InputStream stream, final Charset charset, final StreamingDataBuilder builder) throws XMLStreamException {
+		if (stream == null) {
+			throw new IllegalArgumentException("Argument 'stream' must not be null.");
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException("Argument 'charset' must not be null.");
+		}
+		if (builder == null) {
+			throw new IllegalArgumentException("Argument 'builder' must not be null.");
+		}
+
+		final XMLStreamReader reader = factory.createXMLStreamReader(stream, charset.name());
+		try {
+			Record record = Record.NONE;
+			Tag field = null;
+			while (reader.hasNext()) {
+				final int event = reader.next();
+				if (event == XMLStreamConstants.DTD) {
+					checkDocumentTypeDeclaration(reader);
+				} else if (event == XMLStreamConstants.ENTITY_REFERENCE) {
+					throw new XMLStreamException("Entity references are not allowed: " + reader.getLocalName(), reader.getLocation());
+				} else if (event == XMLStreamConstants.START_ELEMENT) {
+					final Tag tag = findTag(reader.getLocalName());
+					final Record started = toRecord(tag);
+					if (started != Record.NONE) {
+						record = started;
+						startRecord(record);
+						field = null;
+					} else {
+						field = tag;
+					}
+					length = 0;
+				} else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+					if (field != null) {
+						append(reader);
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					if (field != null) {
+						endField(record, field, builder);
+						field = null;
+					} else if (record != Record.NONE && toRecord(findTag(reader.getLocalName())) == record) {
+						endRecord(record, builder);
+						record = Record.NONE;
+					}
+					length = 0;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	private void setBrowserField(final Tag tag) {
+		switch (tag) {
+		case ID:
+			browser.setId(parseInt(buffer, length));
+			break;
+		case BROWSER_TYPE_ID:
+			browser.setTypeId(parseInt(buffer, length));
+			break;
+		case NAME:
+			browser.setFamily(UserAgentFamily.evaluate(text()));
+			break;
+		case URL:
+			browser.setUrl(text());
+			break;
+		case COMPANY:
+			browser.setProducer(text());
+			break;
+		case COMPANY_URL:
+			browser.setProducerUrl(text());
+			break;
+		case ICON:
+			browser.setIcon(text());
+			break;
+		case BROWSER_INFO_URL:
+			browser.setInfoUrl(text());
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void setOperatingSystemField(final Tag tag) {
+		switch (tag) {
+		case ID:
+			operatingSystem.setId(parseInt(buffer, length));
+			break;
+		case FAMILY:
+			operatingSystem.setFamily(text());
+			break;
+		case NAME:
+			operatingSystem.setName(text());
+			break;
+		case URL:
+			operatingSystem.setUrl(text());
+			break;
+		case COMPANY:
+			operatingSystem.setProducer(text());
+			break;
+		case COMPANY_URL:
+			operatingSystem.setProducerUrl(text());
+			break;
+		case ICON:
+			operatingSystem.setIcon(text());
+			break;
+		case OPERATING_SYSTEM_INFO_URL:
+			operatingSystem.setInfoUrl(text());
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void setPatternField(final Tag tag, final Tag idTag) {
+		if (tag == Tag.PATTERN_ORDER) {
+			patternPosition = parseInt(buffer, length);
+		} else if (tag == idTag) {
+			patternId = parseInt(buffer, length);
+		} else if (tag == Tag.PATTERN_REGEX) {
+			patternRegex = text();
+		}
+	}
+
+	private void setRobotField(final Tag tag) {
+		switch (tag) {
+		case ID:
+			robot.setId(parseInt(buffer, length));
+			break;
+		case USERAGENT:
+			robot.setUserAgentString(text());
+			break;
+		case FAMILY:
+			robot.setFamily(UserAgentFamily.evaluate(text()));
+			break;
+		case NAME:
+			robot.setName(text());
+			break;
+		case COMPANY:
+			robot.setProducer(text());
+			break;
+		case COMPANY_URL:
+			robot.setProducerUrl(text());
+			break;
+		case ICON:
+			robot.setIcon(text());
+			break;
+		case ROBOT_INFO_URL:
+			robot.setInfoUrl(text());
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void startRecord(final Record record) {
+		switch (record) {
+		case BROWSER:
+			browser = new Browser.Builder();
+			break;
+		case BROWSER_OS_MAPPING:
+			browserOsMappingBrowserId = -1;
+			browserOsMappingOperatingSystemId = -1;
+			break;
+		case BROWSER_TYPE:
+			browserType = new BrowserType.Builder();
+			break;
+		case OPERATING_SYSTEM:
+			operatingSystem = new OperatingSystem.Builder();
+			break;
+		case ROBOT:
+			robot = new Robot.Builder();
+			break;
+		default:
+			patternId = -1;
+			patternPosition = -1;
+			patternRegex = null;
+			break;
+		}
+	}
+
+	private String text() {
+		return new String(buffer, 0, length);
+	}
+
+	private LazyPattern toLazyPattern() {
+		if (patternRegex == null) {
+			throw new IllegalArgumentException("Regular expression of pattern with ID '" + patternId + "' is missing.");
+		}
+		return RegularExpressionConverter.convertPerlRegexToLazyPattern(patternRegex);
+	}
+
+}
@@ -18,8 +18,10 @@ package net.sf.uadetector.internal.data.domain;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
+import net.sf.uadetector.MutableUserAgent;
 import net.sf.uadetector.UserAgent;
 import net.sf.uadetector.UserAgentFamily;
+import net.sf.uadetector.UserAgentType;
 
 public final class Browser {
 
@@ -262,6 +264,12 @@ public final class Browser {
 	private final BrowserType type;
 	private final String url;
 
+	/**
+	 * User agent type which corresponds exactly to the name of the browser type or {@code null} if there is none. It is
+	 * resolved once on creation.
+	 */
+	private final UserAgentType resolvedType;
+
 	public Browser(final int id, final BrowserType type, final UserAgentFamily family, final String url, final String producer,
 			final String producerUrl, final String icon, final String infoUrl, final SortedSet<BrowserPattern> patternSet,
 			final OperatingSystem operatingSystem) {
@@ -304,6 +312,9 @@ public final class Browser {
 		this.producerUrl = producerUrl;
 		this.type = type;
 		this.url = url;
+
+		final UserAgentType userAgentType = UserAgentType.evaluateByTypeName(type.getName());
+		resolvedType = userAgentType.getName().equals(type.getName()) ? userAgentType : null;
 	}
 
 	/**
@@ -314,13 +325,38 @@ public final class Browser {
 		builder.setName(family.getName());
 		builder.setProducer(producer);
 		builder.setProducerUrl(producerUrl);
-		builder.setTypeName(type.getName());
+		if (resolvedType != null) {
+			builder.setType(resolvedType);
+		} else {
+			builder.setTypeName(type.getName());
+		}
 		builder.setUrl(url);
 		if (operatingSystem != null) {
 			operatingSystem.copyTo(builder);
 		}
 	}
 
+	/**
+	 * Copies all information of this browser, apart from the version number and the operating system, to the given
+	 * user agent. The operating system (see {@link #getOperatingSystem()}) depends on the user agent string and must
+	 * be resolved by the caller.
+	 * 
+	 * @param agent
+	 *            mutable user agent
+	 */
+	public void copyTo(final MutableUserAgent agent) {
+		agent.setFamily(family);
+		agent.setName(family.getName());
+		agent.setProducer(producer);
+		agent.setProducerUrl(producerUrl);
+		if (resolvedType != null) {
+			agent.setType(resolvedType);
+		} else {
+			agent.setTypeName(type.getName());
+		}
+		agent.setUrl(url);
+	}
+
 	@Override
 	public boolean equals(final Object obj) {
 		if (this == obj) {
@@ -15,12 +15,14 @@
  ******************************************************************************/
 package net.sf.uadetector.internal.data.domain;
 
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
 import net.sf.uadetector.OperatingSystemFamily;
 import net.sf.uadetector.UserAgent;
+import net.sf.uadetector.VersionExtractor;
 import net.sf.uadetector.VersionNumber;
 import net.sf.uadetector.internal.util.VersionParser;
 
@@ -226,6 +228,16 @@ public final class OperatingSystem {
 
 	private final String url;
 
+	/**
+	 * Family of this operating system which is resolved once on creation
+	 */
+	private final OperatingSystemFamily resolvedFamily;
+
+	/**
+	 * Immutable result for user agent strings in which no version number of this operating system can be found
+	 */
+	private final net.sf.uadetector.OperatingSystem withoutVersion;
+
 	public OperatingSystem(final String family, final String icon, final int id, final String infoUrl, final String name,
 			final SortedSet<OperatingSystemPattern> patternSet, final String producer, final String producerUrl, final String url) {
 
@@ -266,6 +278,11 @@ public final class OperatingSystem {
 		this.producer = producer;
 		this.producerUrl = producerUrl;
 		this.url = url;
+
+		// resolve everything which does not depend on the user agent string only once
+		resolvedFamily = OperatingSystemFamily.evaluate(family);
+		withoutVersion = new net.sf.uadetector.OperatingSystem(resolvedFamily, family, name, producer, producerUrl, url,
+				VersionNumber.UNKNOWN);
 	}
 
 	/**
@@ -275,9 +292,7 @@ public final class OperatingSystem {
 	 *            user agent builder
 	 */
 	public void copyTo(final UserAgent.Builder builder) {
-		final OperatingSystemFamily family = OperatingSystemFamily.evaluate(this.family);
-		final VersionNumber version = VersionParser.parseOperatingSystemVersion(family, builder.getUserAgentString());
-		builder.setOperatingSystem(new net.sf.uadetector.OperatingSystem(family, this.family, name, producer, producerUrl, url, version));
+		builder.setOperatingSystem(toOperatingSystem(builder.getUserAgentString()));
 	}
 
 	@Override
@@ -374,6 +389,40 @@ public final class OperatingSystem {
 		return result;
 	}
 
+	/**
+	 * Creates the operating system information of this entry for the given user agent string. The version number will
+	 * be taken from the user agent string, if the family of this entry supports it. Without a version number always
+	 * the same instance will be returned.
+	 * 
+	 * @param userAgent
+	 *            user agent string
+	 * @return operating system information
+	 */
+	public net.sf.uadetector.OperatingSystem toOperatingSystem(final CharSequence userAgent) {
+		return toOperatingSystem(userAgent, VersionParser.getOperatingSystemVersionExtractors());
+	}
+
+	/**
+	 * Creates the operating system information of this entry for the given user agent string. The version number will
+	 * be taken from the user agent string with the extractor of the given map which belongs to the family of this
+	 * entry, if there is one. Without a version number always the same instance will be returned.
+	 * 
+	 * @param userAgent
+	 *            user agent string
+	 * @param extractors
+	 *            extractors for version numbers per operating system family
+	 * @return operating system information
+	 */
+	public net.sf.uadetector.OperatingSystem toOperatingSystem(final CharSequence userAgent,
+			final Map<OperatingSystemFamily, VersionExtractor> extractors) {
+		final VersionExtractor extractor = extractors.get(resolvedFamily);
+		final VersionNumber version = extractor == null ? VersionNumber.UNKNOWN : extractor.extract(userAgent);
+		if (VersionNumber.UNKNOWN.equals(version)) {
+			return withoutVersion;
+		}
+		return new net.sf.uadetector.OperatingSystem(resolvedFamily, family, name, producer, producerUrl, url, version);
+	}
+
 	@Override
 	public String toString() {
 		final StringBuilder builder = new StringBuilder();
@@ -18,6 +18,7 @@ package net.sf.uadetector.internal.data.domain;
 import java.util.regex.Pattern;
 
 import net.sf.uadetector.internal.data.OrderedPattern;
+import net.sf.uadetector.internal.util.LazyPattern;
 import net.sf.uadetector.internal.util.RegularExpressionConverter;
 
 /**
@@ -42,9 +43,9 @@ public final class OperatingSystemPattern implements OrderedPattern<OperatingSys
 		private int id = Integer.MIN_VALUE;
 
 		/**
-		 * A compiled representation of a regular expression to detect an operating system
+		 * A representation of a regular expression to detect an operating system
 		 */
-		private Pattern pattern;
+		private LazyPattern pattern;
 
 		/**
 		 * Position of a {@code OperatingSystemPattern} (only relevant if there are multiple patterns for an operating
@@ -116,12 +117,13 @@ public final class OperatingSystemPattern implements OrderedPattern<OperatingSys
 				throw new IllegalArgumentException("Argument 'pattern' must not be null.");
 			}
 
-			this.pattern = pattern;
+			this.pattern = new LazyPattern(pattern);
 			return this;
 		}
 
 		/**
-		 * Converts a PERL regular expression in a Java regular expression and sets it in the {@code Builder}.
+		 * Converts a PERL regular expression in a Java regular expression and sets it in the {@code Builder}. The
+		 * expression will not be compiled before the pattern is used for the first time.
 		 * 
 		 * @param regex
 		 *            PERL style regular expression to be converted
@@ -132,7 +134,7 @@ public final class OperatingSystemPattern implements OrderedPattern<OperatingSys
 				throw new IllegalArgumentException("Argument 'regex' must not be null.");
 			}
 
-			this.setPattern(RegularExpressionConverter.convertPerlRegexToPattern(regex));
+			pattern = RegularExpressionConverter.convertPerlRegexToLazyPattern(regex);
 			return this;
 		}
 
@@ -185,9 +187,9 @@ public final class OperatingSystemPattern implements OrderedPattern<OperatingSys
 	private final int id;
 
 	/**
-	 * A compiled representation of a regular expression to detect an operating system
+	 * A representation of a regular expression to detect an operating system, which will be compiled on first use
 	 */
-	private final Pattern pattern;
+	private final LazyPattern pattern;
 
 	/**
 	 * Position of a {@code OperatingSystemPattern} (only relevant if there are multiple patterns for an operating
@@ -196,6 +198,28 @@ public final class OperatingSystemPattern implements OrderedPattern<OperatingSys
 	private final int position;
 
 	public OperatingSystemPattern(final int id, final Pattern pattern, final int position) {
+		this(id, pattern != null ? new LazyPattern(pattern) : null, position);
+	}
+
+	/**
+	 * Creates a pattern whose regular expression will be compiled on first use.
+	 * 
+	 * @param id
+	 *            identification number
+	 * @param regex
+	 *            source of a regular expression
+	 * @param flags
+	 *            match flags as defined by {@link Pattern}
+	 * @param position
+	 *            position in a set of patterns
+	 * @throws IllegalArgumentException
+	 *             if the given regular expression is {@code null}
+	 */
+	public OperatingSystemPattern(final int id, final String regex, final int flags, final int position) {
+		this(id, regex != null ? new LazyPattern(regex, flags) : null, position);
+	}
+
+	private OperatingSystemPattern(final int id, final LazyPattern pattern, final int position) {
 		if (id < 0) {
 			throw new IllegalArgumentException("Argument 'id' must not be smaller than 0.");
 		}
@@ -260,10 +284,7 @@ public final class OperatingSystemPattern implements OrderedPattern<OperatingSys
 		if (position != other.position) {
 			return false;
 		}
-		if (!pattern.pattern().equals(other.pattern.pattern())) {
-			return false;
-		}
-		if (pattern.flags() != other.pattern.flags()) {
+		if (!pattern.equals(other.pattern)) {
 			return false;
 		}
 		return true;
@@ -278,9 +299,19 @@ public final class OperatingSystemPattern implements OrderedPattern<OperatingSys
 		return id;
 	}
 
+	@Override
+	public int getFlags() {
+		return pattern.getFlags();
+	}
+
+	/**
+	 * Gets the compiled representation of the regular expression. The expression is compiled on first call.
+	 * 
+	 * @return compiled representation of a regular expression
+	 */
 	@Override
 	public Pattern getPattern() {
-		return pattern;
+		return pattern.get();
 	}
 
 	@Override
@@ -288,16 +319,30 @@ public final class OperatingSystemPattern implements OrderedPattern<OperatingSys
 		return position;
 	}
 
+	@Override
+	public String getRegularExpression() {
+		return pattern.getRegularExpression();
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + id;
 		result = prime * result + position;
-		result = prime * result + pattern.pattern().hashCode();
+		result = prime * result + pattern.getRegularExpression().hashCode();
 		return result;
 	}
 
+	/**
+	 * Returns whether the regular expression has already been compiled.
+	 * 
+	 * @return {@code true} if the expression is compiled, otherwise {@code false}
+	 */
+	public boolean isCompiled() {
+		return pattern.isCompiled();
+	}
+
 	@Override
 	public String toString() {
 		final StringBuilder builder = new StringBuilder();
@@ -15,9 +15,12 @@
  ******************************************************************************/
 package net.sf.uadetector.internal.data.domain;
 
+import net.sf.uadetector.MutableUserAgent;
 import net.sf.uadetector.UserAgent;
 import net.sf.uadetector.UserAgentFamily;
 import net.sf.uadetector.UserAgentType;
+import net.sf.uadetector.VersionNumber;
+import net.sf.uadetector.internal.util.VersionParser;
 
 public final class Robot {
 
@@ -180,6 +183,11 @@ public final class Robot {
 	private final String url;
 	private final String userAgentString;
 
+	/**
+	 * Version number of the robot, parsed once from the last version-like group of its name
+	 */
+	private final VersionNumber versionNumber;
+
 	public Robot(final UserAgentFamily family, final String icon, final int id, final String infoUrl, final String name,
 			final String producer, final String producerUrl, final String url, final String userAgentString) {
 
@@ -220,6 +228,7 @@ public final class Robot {
 		this.producerUrl = producerUrl;
 		this.url = url;
 		this.userAgentString = userAgentString;
+		versionNumber = VersionParser.parseLastVersionNumber(name);
 	}
 
 	public void copyTo(final UserAgent.Builder builder) {
@@ -231,6 +240,21 @@ public final class Robot {
 		builder.setType(UserAgentType.ROBOT);
 	}
 
+	/**
+	 * Copies all information of this robot, apart from the version number, to the given user agent.
+	 * 
+	 * @param agent
+	 *            mutable user agent
+	 */
+	public void copyTo(final MutableUserAgent agent) {
+		agent.setFamily(family);
+		agent.setName(name);
+		agent.setProducer(producer);
+		agent.setProducerUrl(producerUrl);
+		agent.setUrl(url);
+		agent.setType(UserAgentType.ROBOT);
+	}
+
 	@Override
 	public boolean equals(final Object obj) {
 		if (this == obj) {
@@ -309,6 +333,15 @@ public final class Robot {
 		return userAgentString;
 	}
 
+	/**
+	 * Gets the version number of this robot, which is taken from the last version-like group of its name.
+	 * 
+	 * @return version number of this robot
+	 */
+	public VersionNumber getVersionNumber() {
+		return versionNumber;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -0,0 +1,296 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * An Aho-Corasick automaton to search for a set of literal keywords within a text in one single pass.<br>
+ * <br>
+ * Each keyword is associated with a non-negative integer value. When scanning a text the values of all keywords which
+ * occur in the text are collected. The search is performed case-insensitive by lowering each character on both sides.<br>
+ * <br>
+ * The automaton is filled via a {@link Builder} and is immutable after creation. It is safe when used concurrently by
+ * multiple threads.
+ *
+ * @author André Rouél
+ */
+public final class AhoCorasickAutomaton {
+
+	/**
+	 * Factory that creates instances of {@code AhoCorasickAutomaton} via method calls.<br>
+	 * <br>
+	 * This builder is not thread safe.
+	 *
+	 * @author André Rouél
+	 */
+	public static final class Builder {
+
+		/**
+		 * Transitions of the trie, the index of the list is the number of the state
+		 */
+		private final List<Map<Character, Integer>> transitions = new ArrayList<Map<Character, Integer>>();
+
+		/**
+		 * Values of keywords which end in a state, the index of the list is the number of the state
+		 */
+		private final List<List<Integer>> values = new ArrayList<List<Integer>>();
+
+		public Builder() {
+			addState(); // root
+		}
+
+		/**
+		 * Adds a keyword with the associated value to the automaton.
+		 *
+		 * @param keyword
+		 *            literal to search for
+		 * @param value
+		 *            value which will be reported when the keyword occurs
+		 * @return this {@code Builder}, for chaining
+		 * @throws IllegalArgumentException
+		 *             if the given keyword is {@code null} or empty
+		 * @throws IllegalArgumentException
+		 *             if the given value is smaller than {@code 0}
+		 */
+		public Builder add(final String keyword, final int value) {
+			if (keyword == null) {
+				throw new IllegalArgumentException("Argument 'keyword' must not be null.");
+			}
+			if (keyword.length() == 0) {
+				throw new IllegalArgumentException("Argument 'keyword' must not be empty.");
+			}
+			if (value < 0) {
+				throw new IllegalArgumentException("Argument 'value' must not be smaller than 0.");
+			}
+
+			int state = 0;
+			for (int i = 0; i < keyword.length(); i++) {
+				final Character chr = Character.valueOf(toLowerCase(keyword.charAt(i)));
+				Integer next = transitions.get(state).get(chr);
+				if (next == null) {
+					next = Integer.valueOf(addState());
+					transitions.get(state).put(chr, next);
+				}
+				state = next.intValue();
+			}
+			values.get(state).add(Integer.valueOf(value));
+			return this;
+		}
+
+		private int addState() {
+			transitions.add(new TreeMap<Character, Integer>());
+			values.add(new ArrayList<Integer>(1));
+			return transitions.size() - 1;
+		}
+
+		/**
+		 * Builds a new instance of {@code AhoCorasickAutomaton} and returns it.
+		 *
+		 * @return a new instance of {@code AhoCorasickAutomaton}
+		 */
+		public AhoCorasickAutomaton build() {
+			final int size = transitions.size();
+			final char[][] keys = new char[size][];
+			final int[][] targets = new int[size][];
+			for (int state = 0; state < size; state++) {
+				final Map<Character, Integer> map = transitions.get(state);
+				keys[state] = new char[map.size()];
+				targets[state] = new int[map.size()];
+				int i = 0;
+				for (final Map.Entry<Character, Integer> entry : map.entrySet()) {
+					keys[state][i] = entry.getKey().charValue();
+					targets[state][i] = entry.getValue().intValue();
+					i++;
+				}
+			}
+
+			// compute failure links in breadth-first order and merge the outputs of the failure states
+			final int[] failures = new int[size];
+			final int[][] outputs = new int[size][];
+			outputs[0] = toArray(values.get(0));
+			final Queue<Integer> queue = new LinkedList<Integer>();
+			for (final int child : targets[0]) {
+				failures[child] = 0;
+				outputs[child] = merge(toArray(values.get(child)), outputs[0]);
+				queue.add(Integer.valueOf(child));
+			}
+			while (!queue.isEmpty()) {
+				final int state = queue.remove().intValue();
+				for (int i = 0; i < keys[state].length; i++) {
+					final char chr = keys[state][i];
+					final int child = targets[state][i];
+					int failure = failures[state];
+					while (failure != 0 && next(keys, targets, failure, chr) < 0) {
+						failure = failures[failure];
+					}
+					final int target = next(keys, targets, failure, chr);
+					failures[child] = target < 0 ? 0 : target;
+					outputs[child] = merge(toArray(values.get(child)), outputs[failures[child]]);
+					queue.add(Integer.valueOf(child));
+				}
+			}
+
+			return new AhoCorasickAutomaton(keys, targets, failures, outputs);
+		}
+
+	}
+
+	/**
+	 * Number of characters which can be resolved from the root state by a direct lookup
+	 */
+	private static final int ROOT_TABLE_SIZE = 128;
+
+	private static final int[] EMPTY = new int[0];
+
+	private static int[] merge(final int[] a, final int[] b) {
+		if (a.length == 0) {
+			return b;
+		}
+		if (b.length == 0) {
+			return a;
+		}
+		final int[] result = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+
+	private static int next(final char[][] keys, final int[][] targets, final int state, final char chr) {
+		final int index = Arrays.binarySearch(keys[state], chr);
+		return index < 0 ? -1 : targets[state][index];
+	}
+
+	private static int[] toArray(final List<Integer> list) {
+		if (list.isEmpty()) {
+			return EMPTY;
+		}
+		final int[] result = new int[list.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = list.get(i).intValue();
+		}
+		return result;
+	}
+
+	/**
+	 * Lowers the given character in the same way for keywords and scanned texts. Non-ASCII characters are folded like
+	 * {@link java.util.regex.Pattern#UNICODE_CASE} does it, so that a search never misses a case-insensitive match.
+	 *
+	 * @param chr
+	 *            character
+	 * @return lower case representation of the given character
+	 */
+	static char toLowerCase(final char chr) {
+		if (chr < ROOT_TABLE_SIZE) {
+			return chr >= 'A' && chr <= 'Z' ? (char) (chr + ('a' - 'A')) : chr;
+		}
+		return Character.toLowerCase(Character.toUpperCase(chr));
+	}
+
+	/**
+	 * Sorted characters of outgoing transitions per state
+	 */
+	private final char[][] keys;
+
+	/**
+	 * Target states of outgoing transitions per state (in the same order as {@link #keys})
+	 */
+	private final int[][] targets;
+
+	/**
+	 * Failure link per state
+	 */
+	private final int[] failures;
+
+	/**
+	 * Values of all keywords which end in a state (including the ones reachable over failure links)
+	 */
+	private final int[][] outputs;
+
+	/**
+	 * Direct lookup of the transitions of the root state for ASCII characters
+	 */
+	private final int[] rootTable = new int[ROOT_TABLE_SIZE];
+
+	private AhoCorasickAutomaton(final char[][] keys, final int[][] targets, final int[] failures, final int[][] outputs) {
+		this.keys = keys;
+		this.targets = targets;
+		this.failures = failures;
+		this.outputs = outputs;
+		for (int chr = 0; chr < ROOT_TABLE_SIZE; chr++) {
+			final int target = next(keys, targets, 0, (char) chr);
+			rootTable[chr] = target < 0 ? 0 : target;
+		}
+	}
+
+	/**
+	 * Gets the number of states of this automaton.
+	 *
+	 * @return number of states
+	 */
+	public int getStateCount() {
+		return failures.length;
+	}
+
+	private int rootTransition(final char chr) {
+		if (chr < ROOT_TABLE_SIZE) {
+			return rootTable[chr];
+		}
+		final int target = next(keys, targets, 0, chr);
+		return target < 0 ? 0 : target;
+	}
+
+	/**
+	 * Scans the given text and sets the values of all keywords which occur in the text in the passed {@code BitSet}.
+	 *
+	 * @param text
+	 *            text to scan
+	 * @param result
+	 *            set in which the values of found keywords will be marked
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 */
+	public void scan(final CharSequence text, final BitSet result) {
+		if (text == null) {
+			throw new IllegalArgumentException("Argument 'text' must not be null.");
+		}
+		if (result == null) {
+			throw new IllegalArgumentException("Argument 'result' must not be null.");
+		}
+
+		int state = 0;
+		final int length = text.length();
+		for (int i = 0; i < length; i++) {
+			final char chr = toLowerCase(text.charAt(i));
+			int target = state == 0 ? rootTransition(chr) : next(keys, targets, state, chr);
+			while (target < 0) {
+				state = failures[state];
+				target = state == 0 ? rootTransition(chr) : next(keys, targets, state, chr);
+			}
+			state = target;
+			for (final int value : outputs[state]) {
+				result.set(value);
+			}
+		}
+	}
+
+}
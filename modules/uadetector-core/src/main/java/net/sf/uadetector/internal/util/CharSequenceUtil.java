@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+/**
+ * This class is intended to provide the operations of {@code String} which are needed while analyzing a user agent
+ * string for any {@code CharSequence}, so that views on bytes can be examined without copying them into a
+ * {@code String}. For instances of {@code String} the methods delegate to their counterparts of {@code String}.
+ * 
+ * @author André Rouél
+ */
+public final class CharSequenceUtil {
+
+	/**
+	 * Compares the given text with the given string character by character.
+	 * 
+	 * @param text
+	 *            text to compare
+	 * @param string
+	 *            string to compare with
+	 * @return {@code true} if both contain the same characters, otherwise {@code false}
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 */
+	public static boolean contentEquals(final CharSequence text, final String string) {
+		if (text == null) {
+			throw new IllegalArgumentException("Argument 'text' must not be null.");
+		}
+		if (string == null) {
+			throw new IllegalArgumentException("Argument 'string' must not be null.");
+		}
+
+		return string.contentEquals(text);
+	}
+
+	/**
+	 * Calculates the hash code of the given text in the same way as {@link String#hashCode()} does it.
+	 * 
+	 * @param text
+	 *            text
+	 * @return hash code which is equal to the one of a {@code String} with the same characters
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public static int hashCode(final CharSequence text) {
+		if (text == null) {
+			throw new IllegalArgumentException("Argument 'text' must not be null.");
+		}
+
+		if (text instanceof String) {
+			return text.hashCode();
+		}
+		int hash = 0;
+		final int length = text.length();
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + text.charAt(i);
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the index within the given text of the first occurrence of the specified string, starting at the
+	 * specified index.
+	 * 
+	 * @param text
+	 *            text to search in
+	 * @param string
+	 *            string to search for
+	 * @param fromIndex
+	 *            index from which to start the search
+	 * @return index of the first occurrence or {@code -1} if there is none
+	 * @throws IllegalArgumentException
+	 *             if the given text or string is {@code null}
+	 */
+	public static int indexOf(final CharSequence text, final String string, final int fromIndex) {
+		if (text == null) {
+			throw new IllegalArgumentException("Argument 'text' must not be null.");
+		}
+		if (string == null) {
+			throw new IllegalArgumentException("Argument 'string' must not be null.");
+		}
+
+		if (text instanceof String) {
+			return ((String) text).indexOf(string, fromIndex);
+		}
+		final int last = text.length() - string.length();
+		for (int i = Math.min(Math.max(fromIndex, 0), text.length()); i <= last; i++) {
+			if (regionMatches(text, i, string, 0, string.length())) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Tests if a region of the given text is equal to a region of the given string.
+	 * 
+	 * @param text
+	 *            text
+	 * @param offset
+	 *            start of the region within the text
+	 * @param string
+	 *            string
+	 * @param stringOffset
+	 *            start of the region within the string
+	 * @param length
+	 *            number of characters to compare
+	 * @return {@code true} if the regions are equal, otherwise {@code false}
+	 * @throws IllegalArgumentException
+	 *             if the given text or string is {@code null}
+	 */
+	public static boolean regionMatches(final CharSequence text, final int offset, final String string, final int stringOffset,
+			final int length) {
+		if (text == null) {
+			throw new IllegalArgumentException("Argument 'text' must not be null.");
+		}
+		if (string == null) {
+			throw new IllegalArgumentException("Argument 'string' must not be null.");
+		}
+
+		if (text instanceof String) {
+			return ((String) text).regionMatches(offset, string, stringOffset, length);
+		}
+		if (offset < 0 || stringOffset < 0 || offset > text.length() - length || stringOffset > string.length() - length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (text.charAt(offset + i) != string.charAt(stringOffset + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Tests if the given text contains the specified string at the given index.
+	 * 
+	 * @param text
+	 *            text
+	 * @param string
+	 *            string to look for
+	 * @param offset
+	 *            index within the text
+	 * @return {@code true} if the text contains the string at the given index, otherwise {@code false}
+	 * @throws IllegalArgumentException
+	 *             if the given text or string is {@code null}
+	 */
+	public static boolean startsWith(final CharSequence text, final String string, final int offset) {
+		if (string == null) {
+			throw new IllegalArgumentException("Argument 'string' must not be null.");
+		}
+
+		return regionMatches(text, offset, string, 0, string.length());
+	}
+
+	private CharSequenceUtil() {
+		// This class is not intended to create objects from it.
+	}
+
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This class is intended to provide utility functions to read and write <em>UAS data</em> compressed in GZIP format.
+ * Compressed data will be recognized by their magic number, so that compressed and uncompressed resources can be
+ * processed in the same way. All streams decompress and compress on the fly, no content will be buffered completely.
+ * 
+ * @author André Rouél
+ */
+public final class CompressionUtil {
+
+	/**
+	 * Suffix of file names whose content will be compressed in GZIP format
+	 */
+	public static final String GZIP_SUFFIX = ".gz";
+
+	/**
+	 * First byte of the magic number of the GZIP format
+	 */
+	private static final int GZIP_MAGIC_1 = 0x1f;
+
+	/**
+	 * Second byte of the magic number of the GZIP format
+	 */
+	private static final int GZIP_MAGIC_2 = 0x8b;
+
+	/**
+	 * Size of the buffers for compression and decompression
+	 */
+	private static final int BUFFER_SIZE = 16 * 1024;
+
+	/**
+	 * Wraps the given stream into a stream which compresses all written bytes in GZIP format. Closing the returned
+	 * stream finishes the compressed data and closes the given stream.
+	 * 
+	 * @param stream
+	 *            stream to write compressed bytes into
+	 * @return stream which compresses all written bytes
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public static OutputStream compress(final OutputStream stream) throws IOException {
+		if (stream == null) {
+			throw new IllegalArgumentException("Argument 'stream' must not be null.");
+		}
+
+		return new GZIPOutputStream(stream, BUFFER_SIZE);
+	}
+
+	/**
+	 * Wraps the given stream into a stream which decompresses it on the fly, if it starts with the magic number of the
+	 * GZIP format. Otherwise the returned stream delivers the given bytes unchanged. Closing the returned stream closes
+	 * the given stream.
+	 * 
+	 * @param stream
+	 *            stream with compressed or uncompressed content
+	 * @return stream which delivers the uncompressed content
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public static InputStream decompress(final InputStream stream) throws IOException {
+		if (stream == null) {
+			throw new IllegalArgumentException("Argument 'stream' must not be null.");
+		}
+
+		final InputStream in = stream.markSupported() ? stream : new BufferedInputStream(stream, BUFFER_SIZE);
+		in.mark(2);
+		final int b1 = in.read();
+		final int b2 = in.read();
+		in.reset();
+		return b1 == GZIP_MAGIC_1 && b2 == GZIP_MAGIC_2 ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+	}
+
+	/**
+	 * Checks whether the content of the given file should be compressed, which is determined by the suffix
+	 * {@link #GZIP_SUFFIX} of its name.
+	 * 
+	 * @param file
+	 *            file to check
+	 * @return {@code true} if the content should be compressed, otherwise {@code false}
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public static boolean isCompressed(final File file) {
+		if (file == null) {
+			throw new IllegalArgumentException("Argument 'file' must not be null.");
+		}
+
+		return file.getName().endsWith(GZIP_SUFFIX);
+	}
+
+	/**
+	 * <strong>Attention:</strong> This class is not intended to create objects from it.
+	 */
+	private CompressionUtil() {
+		// This class is not intended to create objects from it.
+	}
+
+}
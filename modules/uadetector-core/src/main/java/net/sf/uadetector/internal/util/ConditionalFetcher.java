@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * This class opens streams to {@code URL}s with conditional requests, so that resources which have not changed since
+ * the last retrieval will not be transferred again.<br>
+ * <br>
+ * For every HTTP {@code URL} the validators of the last successful response ({@code ETag} and {@code Last-Modified})
+ * are remembered and sent with the next request ({@code If-None-Match} and {@code If-Modified-Since}). If the server
+ * answers with <em>304 Not Modified</em>, no stream will be returned. Responses may be transferred compressed with
+ * <em>gzip</em>. {@code URL}s of other protocols (e.g. {@code file} or {@code jar}) will always be opened
+ * unconditionally.<br>
+ * <br>
+ * A {@code ConditionalFetcher} is safe when used concurrently by multiple threads.
+ * 
+ * @author André Rouél
+ */
+public final class ConditionalFetcher {
+
+	/**
+	 * Validators of a response which will be sent with the next request to the same resource
+	 */
+	private static final class Validators {
+
+		private final String entityTag;
+
+		private final String lastModified;
+
+		public Validators(final String entityTag, final String lastModified) {
+			this.entityTag = entityTag;
+			this.lastModified = lastModified;
+		}
+
+	}
+
+	/**
+	 * Name of the HTTP header to accept compressed responses
+	 */
+	private static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+	/**
+	 * Name of the HTTP header which specifies the compression of a response
+	 */
+	private static final String CONTENT_ENCODING = "Content-Encoding";
+
+	/**
+	 * Name of the HTTP header which contains the entity tag of a response
+	 */
+	private static final String ETAG = "ETag";
+
+	/**
+	 * Token of the <em>gzip</em> compression
+	 */
+	private static final String GZIP = "gzip";
+
+	/**
+	 * Name of the HTTP header to request a resource only if it has been modified since the given date
+	 */
+	private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+
+	/**
+	 * Name of the HTTP header to request a resource only if its entity tag has changed
+	 */
+	private static final String IF_NONE_MATCH = "If-None-Match";
+
+	/**
+	 * Name of the HTTP header which contains the date of the last modification of a response
+	 */
+	private static final String LAST_MODIFIED = "Last-Modified";
+
+	private static InputStream decode(final URLConnection connection, final InputStream stream) throws IOException {
+		final String encoding = connection.getHeaderField(CONTENT_ENCODING);
+		return encoding != null && GZIP.equalsIgnoreCase(encoding.trim()) ? new GZIPInputStream(stream) : stream;
+	}
+
+	/**
+	 * Remembered validators by the external form of an {@code URL}
+	 */
+	private final ConcurrentMap<String, Validators> validators = new ConcurrentHashMap<String, Validators>();
+
+	/**
+	 * Forgets the validators of the given {@code URL}, so that the next request will be unconditional. This should be
+	 * called when the content of a returned stream could not be processed.
+	 * 
+	 * @param url
+	 *            URL of a resource
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public void forget(final URL url) {
+		if (url == null) {
+			throw new IllegalArgumentException("Argument 'url' must not be null.");
+		}
+
+		validators.remove(url.toExternalForm());
+	}
+
+	/**
+	 * Returns whether validators of the given {@code URL} are remembered, so that the next request will be conditional.
+	 * 
+	 * @param url
+	 *            URL of a resource
+	 * @return {@code true} if validators are remembered, otherwise {@code false}
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public boolean isRemembered(final URL url) {
+		if (url == null) {
+			throw new IllegalArgumentException("Argument 'url' must not be null.");
+		}
+
+		return validators.containsKey(url.toExternalForm());
+	}
+
+	/**
+	 * Opens a stream to the given {@code URL}, unless the resource has not been modified since the last retrieval.
+	 * Compressed responses will be decompressed transparently.
+	 * 
+	 * @param url
+	 *            URL of a resource
+	 * @return opened stream (which must be closed by the caller) or {@code null} if the resource has not been modified
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 * @throws IOException
+	 *             if no stream to the given {@code URL} can be established or the server responds with an error
+	 */
+	public InputStream open(final URL url) throws IOException {
+		if (url == null) {
+			throw new IllegalArgumentException("Argument 'url' must not be null.");
+		}
+
+		final URLConnection connection = url.openConnection();
+		if (!(connection instanceof HttpURLConnection)) {
+			return connection.getInputStream();
+		}
+
+		final HttpURLConnection http = (HttpURLConnection) connection;
+		final String key = url.toExternalForm();
+		final Validators previous = validators.get(key);
+		http.setUseCaches(false);
+		http.setRequestProperty(ACCEPT_ENCODING, GZIP);
+		if (previous != null) {
+			if (previous.entityTag != null) {
+				http.setRequestProperty(IF_NONE_MATCH, previous.entityTag);
+			}
+			if (previous.lastModified != null) {
+				http.setRequestProperty(IF_MODIFIED_SINCE, previous.lastModified);
+			}
+		}
+
+		final int code = http.getResponseCode();
+		if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+			http.disconnect();
+			return null;
+		}
+		if (code != HttpURLConnection.HTTP_OK) {
+			http.disconnect();
+			throw new IOException("Unexpected response '" + code + "' from " + key);
+		}
+
+		final String entityTag = http.getHeaderField(ETAG);
+		final String lastModified = http.getHeaderField(LAST_MODIFIED);
+		if (entityTag != null || lastModified != null) {
+			validators.put(key, new Validators(entityTag, lastModified));
+		} else {
+			validators.remove(key);
+		}
+		return decode(http, http.getInputStream());
+	}
+
+}
@@ -1,11 +1,14 @@
 package net.sf.uadetector.internal.util;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
+import java.util.zip.CRC32;
 
 /**
  * This class is intended to provide file utility functions.
@@ -14,6 +17,80 @@ import java.nio.charset.Charset;
  */
 public final class FileUtil {
 
+	/**
+	 * Calculates the CRC-32 checksum of the content of the given file.
+	 * 
+	 * @param file
+	 *            file whose content should be checked
+	 * @return CRC-32 checksum of the content
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public static long checksum(final File file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("Argument 'file' must not be null.");
+		}
+
+		final CRC32 crc = new CRC32();
+		final byte[] buffer = new byte[8 * 1024];
+		final InputStream stream = new FileInputStream(file);
+		try {
+			int read;
+			while ((read = stream.read(buffer)) != -1) {
+				crc.update(buffer, 0, read);
+			}
+		} finally {
+			stream.close();
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Checks if the given files consist exactly of the same bytes.
+	 * 
+	 * @param file
+	 *            file to compare
+	 * @param other
+	 *            another file to compare
+	 * @return {@code true} when both files exist and their contents are equal otherwise {@code false}
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public static boolean hasSameContent(final File file, final File other) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("Argument 'file' must not be null.");
+		}
+		if (other == null) {
+			throw new IllegalArgumentException("Argument 'other' must not be null.");
+		}
+
+		if (!file.isFile() || !other.isFile() || file.length() != other.length()) {
+			return false;
+		}
+		final InputStream stream = new BufferedInputStream(new FileInputStream(file));
+		try {
+			final InputStream otherStream = new BufferedInputStream(new FileInputStream(other));
+			try {
+				int b;
+				do {
+					b = stream.read();
+					if (b != otherStream.read()) {
+						return false;
+					}
+				} while (b != -1);
+				return true;
+			} finally {
+				otherStream.close();
+			}
+		} finally {
+			stream.close();
+		}
+	}
+
 	/**
 	 * Checks if the given file is empty.
 	 * 
@@ -38,6 +115,34 @@ public final class FileUtil {
 		return empty;
 	}
 
+	/**
+	 * Replaces the given target file by the passed source file. On systems which support it the file will be renamed
+	 * atomically over the target, so that other readers see either the previous or the new content. Otherwise the
+	 * target will be deleted before renaming.
+	 * 
+	 * @param source
+	 *            completely written file which replaces the target
+	 * @param target
+	 *            file to be replaced
+	 * @return {@code true} if the source has been renamed to the target otherwise {@code false}
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 */
+	public static boolean replace(final File source, final File target) {
+		if (source == null) {
+			throw new IllegalArgumentException("Argument 'source' must not be null.");
+		}
+		if (target == null) {
+			throw new IllegalArgumentException("Argument 'target' must not be null.");
+		}
+
+		if (source.renameTo(target)) {
+			return true;
+		}
+		target.delete();
+		return source.renameTo(target);
+	}
+
 	/**
 	 * <strong>Attention:</strong> This class is not intended to create objects from it.
 	 */
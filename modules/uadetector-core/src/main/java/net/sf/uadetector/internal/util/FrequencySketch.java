@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+/**
+ * A probabilistic counter that estimates how often an object was seen within a recent period of time. It is a
+ * Count-Min sketch with four hash functions and 4-bit counters, of which sixteen are packed into one {@code long}.<br>
+ * <br>
+ * To keep the estimates fresh, all counters are halved as soon as a sample of ten times the configured capacity has
+ * been recorded. As a consequence the estimated frequency of an object is at most {@code 15}.<br>
+ * <br>
+ * This class is not thread safe and must be guarded by the caller.
+ * 
+ * @author André Rouél
+ */
+public final class FrequencySketch {
+
+	/**
+	 * Maximum value a counter can reach
+	 */
+	public static final int MAXIMUM_FREQUENCY = 15;
+
+	/**
+	 * Seeds for the four hash functions (taken from FNV-1a and CityHash)
+	 */
+	private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+	/**
+	 * Mask to halve all sixteen counters of a {@code long} at once
+	 */
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	private static int ceilingPowerOfTwo(final int value) {
+		return 1 << -Integer.numberOfLeadingZeros(value - 1);
+	}
+
+	/**
+	 * Applies a supplemental hash function to defend against poor quality hash codes.
+	 */
+	private static int spread(final int hashCode) {
+		int h = hashCode * 0x9e3779b9;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/**
+	 * Packed 4-bit counters
+	 */
+	private final long[] table;
+
+	/**
+	 * Mask to convert a hash into an index of {@link #table}
+	 */
+	private final int tableMask;
+
+	/**
+	 * Number of recorded occurrences after which all counters will be halved
+	 */
+	private final int sampleSize;
+
+	/**
+	 * Number of recorded occurrences since the last reset
+	 */
+	private int size;
+
+	/**
+	 * Constructs a {@code FrequencySketch} that is suitable to rank the given number of distinct objects.
+	 * 
+	 * @param capacity
+	 *            expected number of distinct objects to be ranked
+	 * @throws IllegalArgumentException
+	 *             if the given capacity is smaller than {@code 1}
+	 */
+	public FrequencySketch(final int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Argument 'capacity' must not be smaller than 1.");
+		}
+
+		final int length = ceilingPowerOfTwo(Math.min(capacity, 1 << 30));
+		table = new long[length];
+		tableMask = length - 1;
+		sampleSize = capacity > Integer.MAX_VALUE / 10 ? Integer.MAX_VALUE : capacity * 10;
+	}
+
+	/**
+	 * Estimates how often the given object was recorded within the recent period.
+	 * 
+	 * @param obj
+	 *            object to look up
+	 * @return estimated frequency between {@code 0} and {@link #MAXIMUM_FREQUENCY}
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public int frequency(final Object obj) {
+		if (obj == null) {
+			throw new IllegalArgumentException("Argument 'obj' must not be null.");
+		}
+
+		final int hash = spread(obj.hashCode());
+		final int start = (hash & 3) << 2;
+		int frequency = MAXIMUM_FREQUENCY;
+		for (int i = 0; i < SEEDS.length; i++) {
+			final int offset = (start + i) << 2;
+			final int count = (int) ((table[indexOf(hash, i)] >>> offset) & 0xfL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/**
+	 * Gets the number of recorded occurrences since the last reset.
+	 * 
+	 * @return number of recorded occurrences
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Records an occurrence of the given object.
+	 * 
+	 * @param obj
+	 *            object to record
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public void increment(final Object obj) {
+		if (obj == null) {
+			throw new IllegalArgumentException("Argument 'obj' must not be null.");
+		}
+
+		final int hash = spread(obj.hashCode());
+		final int start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < SEEDS.length; i++) {
+			added |= incrementAt(indexOf(hash, i), start + i);
+		}
+		if (added && ++size >= sampleSize) {
+			reset();
+		}
+	}
+
+	/**
+	 * Increments the counter at the given position if it is not saturated.
+	 */
+	private boolean incrementAt(final int index, final int counter) {
+		final int offset = counter << 2;
+		final long mask = 0xfL << offset;
+		if ((table[index] & mask) != mask) {
+			table[index] += 1L << offset;
+			return true;
+		}
+		return false;
+	}
+
+	private int indexOf(final int hash, final int i) {
+		long h = (hash + SEEDS[i]) * SEEDS[i];
+		h += h >>> 32;
+		return (int) h & tableMask;
+	}
+
+	/**
+	 * Halves all counters, so that older occurrences lose weight against recent ones.
+	 */
+	private void reset() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		size /= 2;
+	}
+
+}
@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.util.Arrays;
+
+/**
+ * A map from primitive {@code int} keys to objects, which avoids boxing the keys. Entries are kept in the order in which
+ * their keys were added first, so iterating over the positions {@code 0} to {@code size() - 1} is deterministic.<br>
+ * <br>
+ * Keys are found via open addressing with linear probing. Entries can not be removed.<br>
+ * <br>
+ * This class is not thread safe and must be guarded by the caller.
+ * 
+ * @param <V>
+ *            type of the values
+ * @author André Rouél
+ */
+public final class IntObjectMap<V> {
+
+	/**
+	 * Default number of entries which can be stored without growing
+	 */
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * Marker of an empty slot in the hash table
+	 */
+	private static final int EMPTY = -1;
+
+	/**
+	 * Creates a hash table which is at most half full with the given number of entries.
+	 */
+	private static int[] newTable(final int capacity) {
+		final int[] table = new int[Integer.highestOneBit(capacity) << 2];
+		Arrays.fill(table, EMPTY);
+		return table;
+	}
+
+	/**
+	 * Applies a supplemental hash function to spread consecutive keys over the table.
+	 */
+	private static int spread(final int key) {
+		final int h = key * 0x9e3779b9;
+		return h ^ h >>> 16;
+	}
+
+	/**
+	 * Keys in the order of their insertion
+	 */
+	private int[] keys;
+
+	/**
+	 * Number of entries
+	 */
+	private int size;
+
+	/**
+	 * Hash table with the positions of the entries or {@link #EMPTY}
+	 */
+	private int[] table;
+
+	/**
+	 * Values in the order of the insertion of their keys
+	 */
+	private Object[] values;
+
+	/**
+	 * Creates an empty map with a default capacity.
+	 */
+	public IntObjectMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty map which can hold the given number of entries without growing.
+	 * 
+	 * @param capacity
+	 *            expected number of entries
+	 * @throws IllegalArgumentException
+	 *             if the given capacity is smaller than {@code 0}
+	 */
+	public IntObjectMap(final int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Argument 'capacity' must not be smaller than 0.");
+		}
+
+		final int length = Math.max(capacity, 1);
+		keys = new int[length];
+		values = new Object[length];
+		table = newTable(length);
+	}
+
+	/**
+	 * Returns whether an entry with the given key exists.
+	 * 
+	 * @param key
+	 *            key of an entry
+	 * @return {@code true} if the key is present, otherwise {@code false}
+	 */
+	public boolean containsKey(final int key) {
+		return table[slot(key)] != EMPTY;
+	}
+
+	/**
+	 * Gets the value associated with the given key.
+	 * 
+	 * @param key
+	 *            key of an entry
+	 * @return associated value or {@code null} if the key is not present
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(final int key) {
+		final int position = table[slot(key)];
+		return position == EMPTY ? null : (V) values[position];
+	}
+
+	/**
+	 * Gets the key of the entry at the given position in insertion order.
+	 * 
+	 * @param position
+	 *            position between {@code 0} and {@code size() - 1}
+	 * @return key at the given position
+	 * @throws IndexOutOfBoundsException
+	 *             if the position is out of range
+	 */
+	public int keyAt(final int position) {
+		checkPosition(position);
+		return keys[position];
+	}
+
+	/**
+	 * Associates the given value with the given key. If the key is already present, its value will be replaced and the
+	 * entry keeps its position.
+	 * 
+	 * @param key
+	 *            key of an entry
+	 * @param value
+	 *            value to be associated
+	 * @return previous value or {@code null} if the key was not present
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(final int key, final V value) {
+		int slot = slot(key);
+		final int position = table[slot];
+		if (position != EMPTY) {
+			final V previous = (V) values[position];
+			values[position] = value;
+			return previous;
+		}
+
+		if (size == keys.length) {
+			grow();
+			slot = slot(key);
+		}
+		keys[size] = key;
+		values[size] = value;
+		table[slot] = size;
+		size++;
+		return null;
+	}
+
+	/**
+	 * Gets the number of entries.
+	 * 
+	 * @return number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the value of the entry at the given position in insertion order.
+	 * 
+	 * @param position
+	 *            position between {@code 0} and {@code size() - 1}
+	 * @return value at the given position
+	 * @throws IndexOutOfBoundsException
+	 *             if the position is out of range
+	 */
+	@SuppressWarnings("unchecked")
+	public V valueAt(final int position) {
+		checkPosition(position);
+		return (V) values[position];
+	}
+
+	private void checkPosition(final int position) {
+		if (position < 0 || position >= size) {
+			throw new IndexOutOfBoundsException("Position: " + position + ", size: " + size);
+		}
+	}
+
+	private void grow() {
+		final int length = keys.length * 2;
+		keys = Arrays.copyOf(keys, length);
+		values = Arrays.copyOf(values, length);
+		table = newTable(length);
+		final int mask = table.length - 1;
+		for (int position = 0; position < size; position++) {
+			int slot = spread(keys[position]) & mask;
+			while (table[slot] != EMPTY) {
+				slot = slot + 1 & mask;
+			}
+			table[slot] = position;
+		}
+	}
+
+	/**
+	 * Finds the slot of the given key or the empty slot where it would be inserted.
+	 */
+	private int slot(final int key) {
+		final int mask = table.length - 1;
+		int slot = spread(key) & mask;
+		int position = table[slot];
+		while (position != EMPTY && keys[position] != key) {
+			slot = slot + 1 & mask;
+			position = table[slot];
+		}
+		return slot;
+	}
+
+}
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code LazyPattern} class holds the source of a regular expression and its flags and compiles the expression to
+ * a {@link Pattern} not before it is used for the first time.<br>
+ * <br>
+ * Compilation is race-tolerant: if several threads request the compiled pattern at once, the expression may be compiled
+ * more than once, but all results are equivalent and only one of them will be kept. A {@code LazyPattern} object is
+ * therefore safe when used concurrently by multiple threads.<br>
+ * <br>
+ * Note: a syntactically invalid expression will not be noticed before compilation. {@link #get()} logs such an
+ * expression once and treats it as never matching, so that a single broken pattern in the <em>UAS data</em> can not
+ * break the parsing of every user agent string. Call {@link #compile()} to check an expression up front.
+ * 
+ * @author André Rouél
+ */
+public final class LazyPattern {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(LazyPattern.class);
+
+	/**
+	 * Pattern that is used instead of a syntactically invalid expression and does not match any input
+	 */
+	private static final Pattern NEVER_MATCHING = Pattern.compile("(?!)");
+
+	/**
+	 * Match flags of the regular expression
+	 */
+	private final int flags;
+
+	/**
+	 * Compiled representation of the regular expression or {@code null} if not compiled yet
+	 */
+	private volatile Pattern pattern;
+
+	/**
+	 * Source of the regular expression
+	 */
+	private final String regex;
+
+	/**
+	 * Creates a {@code LazyPattern} that holds an already compiled expression.
+	 * 
+	 * @param pattern
+	 *            compiled representation of a regular expression
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public LazyPattern(final Pattern pattern) {
+		if (pattern == null) {
+			throw new IllegalArgumentException("Argument 'pattern' must not be null.");
+		}
+
+		regex = pattern.pattern();
+		flags = pattern.flags();
+		this.pattern = pattern;
+	}
+
+	/**
+	 * Creates a {@code LazyPattern} that compiles the given expression on first use.
+	 * 
+	 * @param regex
+	 *            source of a regular expression
+	 * @param flags
+	 *            match flags as defined by {@link Pattern}
+	 * @throws IllegalArgumentException
+	 *             if the given regular expression is {@code null}
+	 */
+	public LazyPattern(final String regex, final int flags) {
+		if (regex == null) {
+			throw new IllegalArgumentException("Argument 'regex' must not be null.");
+		}
+
+		this.regex = regex;
+		this.flags = flags;
+	}
+
+	/**
+	 * Compiles the regular expression, if this has not happened yet.
+	 * 
+	 * @return this {@code LazyPattern}, for chaining
+	 * @throws java.util.regex.PatternSyntaxException
+	 *             if the syntax of the expression is invalid
+	 */
+	public LazyPattern compile() {
+		final Pattern result = pattern;
+		if (result == null || result == NEVER_MATCHING) {
+			pattern = Pattern.compile(regex, flags);
+		}
+		return this;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		final LazyPattern other = (LazyPattern) obj;
+		if (flags != other.flags) {
+			return false;
+		}
+		if (!regex.equals(other.regex)) {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the compiled representation of the regular expression. The expression is compiled on first call.<br>
+	 * <br>
+	 * If the syntax of the expression is invalid, a warning will be logged and a pattern that never matches will be
+	 * returned from now on.
+	 * 
+	 * @return compiled representation of the regular expression or a pattern which never matches
+	 */
+	public Pattern get() {
+		Pattern result = pattern;
+		if (result == null) {
+			try {
+				result = Pattern.compile(regex, flags);
+			} catch (final PatternSyntaxException e) {
+				LOG.warn("Ignoring the invalid regular expression '" + regex + "': " + e.getDescription());
+				result = NEVER_MATCHING;
+			}
+			pattern = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the match flags of the regular expression.
+	 * 
+	 * @return match flags as defined by {@link Pattern}
+	 */
+	public int getFlags() {
+		return flags;
+	}
+
+	/**
+	 * Gets the source of the regular expression.
+	 * 
+	 * @return source of the regular expression
+	 */
+	public String getRegularExpression() {
+		return regex;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + flags;
+		result = prime * result + regex.hashCode();
+		return result;
+	}
+
+	/**
+	 * Returns whether the regular expression has already been compiled.
+	 * 
+	 * @return {@code true} if the expression is compiled, otherwise {@code false}
+	 */
+	public boolean isCompiled() {
+		return pattern != null;
+	}
+
+	/**
+	 * Returns the source of the regular expression, like {@link Pattern#toString()} does.
+	 */
+	@Override
+	public String toString() {
+		return regex;
+	}
+
+}
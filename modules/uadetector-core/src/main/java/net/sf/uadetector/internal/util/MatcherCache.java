@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Holds one {@link Matcher} per position of an ordered set of patterns, so that matching a pattern against many texts
+ * creates a {@code Matcher} only once per pattern. A cached {@code Matcher} will be reset with the new text via
+ * {@link Matcher#reset(CharSequence)}.<br>
+ * <br>
+ * A {@code MatcherCache} is not thread safe, because a {@code Matcher} is not. Use one instance per thread.
+ * 
+ * @author André Rouél
+ */
+public final class MatcherCache {
+
+	/**
+	 * Cached matchers, the index of the array is the position of the pattern
+	 */
+	private final Matcher[] matchers;
+
+	/**
+	 * Creates a cache for the given number of patterns.
+	 * 
+	 * @param size
+	 *            number of patterns
+	 * @throws IllegalArgumentException
+	 *             if the given size is smaller than {@code 0}
+	 */
+	public MatcherCache(final int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("Argument 'size' must not be smaller than 0.");
+		}
+		matchers = new Matcher[size];
+	}
+
+	/**
+	 * Gets a matcher of the pattern at the given position which is reset to the given text. A new matcher will only
+	 * be created, if none is cached at this position or if it belongs to another pattern.
+	 * 
+	 * @param index
+	 *            position of the pattern
+	 * @param pattern
+	 *            pattern at the given position
+	 * @param text
+	 *            text to be examined
+	 * @return matcher of the given pattern for the given text
+	 * @throws IllegalArgumentException
+	 *             if the given pattern or text is {@code null}
+	 */
+	public Matcher matcher(final int index, final Pattern pattern, final CharSequence text) {
+		if (pattern == null) {
+			throw new IllegalArgumentException("Argument 'pattern' must not be null.");
+		}
+		if (text == null) {
+			throw new IllegalArgumentException("Argument 'text' must not be null.");
+		}
+
+		Matcher matcher = matchers[index];
+		if (matcher == null || matcher.pattern() != pattern) {
+			matcher = pattern.matcher(text);
+			matchers[index] = matcher;
+		} else {
+			matcher.reset(text);
+		}
+		return matcher;
+	}
+
+	/**
+	 * Gets the number of patterns this cache can hold matchers for.
+	 * 
+	 * @return number of patterns
+	 */
+	public int size() {
+		return matchers.length;
+	}
+
+}
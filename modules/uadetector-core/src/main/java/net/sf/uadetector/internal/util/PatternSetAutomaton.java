@@ -0,0 +1,396 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+/**
+ * Determines in one linear pass over a text which of a set of regular expressions can find a match in it.<br>
+ * <br>
+ * All expressions are compiled into one NFA (see {@link PatternSetNfa} for the supported syntax). The NFA is converted
+ * lazily into a DFA while texts are scanned: a DFA state and its transitions are created once when they are needed
+ * for the first time and are reused afterwards. To bound the memory consumption the cache of DFA states will be
+ * flushed when it exceeds {@link #MAXIMUM_STATES}.<br>
+ * <br>
+ * The automaton is filled via a {@link Builder} and is safe when used concurrently by multiple threads.
+ * 
+ * @author André Rouél
+ */
+public final class PatternSetAutomaton {
+
+	/**
+	 * Factory that creates instances of {@code PatternSetAutomaton} via method calls.<br>
+	 * <br>
+	 * This builder is not thread safe.
+	 * 
+	 * @author André Rouél
+	 */
+	public static final class Builder {
+
+		private final PatternSetNfa.Builder nfa = new PatternSetNfa.Builder();
+
+		/**
+		 * Adds a regular expression to the automaton, if it contains only supported constructs.
+		 * 
+		 * @param pattern
+		 *            compiled regular expression
+		 * @param value
+		 *            value which will be reported when the expression finds a match
+		 * @return {@code true} if the expression was added, {@code false} if it must be evaluated otherwise
+		 * @throws IllegalArgumentException
+		 *             if the given pattern is {@code null}
+		 * @throws IllegalArgumentException
+		 *             if the given value is smaller than {@code 0}
+		 */
+		public boolean add(final Pattern pattern, final int value) {
+			return nfa.add(pattern, value);
+		}
+
+		/**
+		 * Adds a regular expression, given by its source and flags, to the automaton, if it contains only supported
+		 * constructs. The expression will not be compiled.
+		 * 
+		 * @param regex
+		 *            source of a regular expression
+		 * @param flags
+		 *            match flags as defined by {@link Pattern}
+		 * @param value
+		 *            value which will be reported when the expression finds a match
+		 * @return {@code true} if the expression was added, {@code false} if it must be evaluated otherwise
+		 * @throws IllegalArgumentException
+		 *             if the given regular expression is {@code null}
+		 * @throws IllegalArgumentException
+		 *             if the given value is smaller than {@code 0}
+		 */
+		public boolean add(final String regex, final int flags, final int value) {
+			return nfa.add(regex, flags, value);
+		}
+
+		/**
+		 * Builds a new instance of {@code PatternSetAutomaton} and returns it.
+		 * 
+		 * @return a new instance of {@code PatternSetAutomaton}
+		 */
+		public PatternSetAutomaton build() {
+			return new PatternSetAutomaton(nfa.build());
+		}
+
+	}
+
+	/**
+	 * Cache of DFA states, which will be replaced as a whole when it is full
+	 */
+	private static final class Cache {
+		private final ConcurrentMap<Key, State> states = new ConcurrentHashMap<Key, State>();
+		private volatile State initial;
+	}
+
+	/**
+	 * Set of NFA nodes as key of a DFA state
+	 */
+	private static final class Key {
+		private final int[] nodes;
+		private final int hash;
+
+		private Key(final int[] nodes) {
+			this.nodes = nodes;
+			hash = Arrays.hashCode(nodes);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			return obj instanceof Key && Arrays.equals(nodes, ((Key) obj).nodes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * State of the DFA. The NFA nodes which are active at the start of every search are not stored in a state but are
+	 * implicitly part of it.
+	 */
+	private static final class State {
+
+		/**
+		 * Active NFA nodes (except the implicit ones)
+		 */
+		private final int[] nodes;
+
+		/**
+		 * Values of the expressions which have found a match when reaching this state
+		 */
+		private final int[] accepts;
+
+		/**
+		 * Values of the expressions which have found a match when the input ends in this state
+		 */
+		private final int[] endAccepts;
+
+		/**
+		 * Cached transitions for every equivalence class of ASCII characters
+		 */
+		private final AtomicReferenceArray<State> transitions;
+
+		private State(final int[] nodes, final int[] accepts, final int[] endAccepts, final int classCount) {
+			this.nodes = nodes;
+			this.accepts = accepts;
+			this.endAccepts = endAccepts;
+			transitions = new AtomicReferenceArray<State>(classCount);
+		}
+	}
+
+	/**
+	 * Maximum number of cached DFA states
+	 */
+	public static final int MAXIMUM_STATES = 16384;
+
+	/**
+	 * Number of characters whose transitions will be cached
+	 */
+	private static final int ASCII = 128;
+
+	private static boolean isLineTerminator(final char chr) {
+		return chr == '\n' || chr == '\r' || chr == '\u0085' || chr == '\u2028' || chr == '\u2029';
+	}
+
+	/**
+	 * Checks if {@code $} can match at the given position, which is the case at the end of the input or before a
+	 * final line terminator.
+	 */
+	private static boolean isEndPosition(final CharSequence text, final int position) {
+		final int length = text.length();
+		if (position == length) {
+			return true;
+		}
+		if (position == length - 1) {
+			final char chr = text.charAt(position);
+			return isLineTerminator(chr) && !(chr == '\n' && position > 0 && text.charAt(position - 1) == '\r');
+		}
+		return position == length - 2 && text.charAt(position) == '\r' && text.charAt(position + 1) == '\n';
+	}
+
+	private static void mark(final int[] values, final BitSet result) {
+		for (final int value : values) {
+			result.set(value);
+		}
+	}
+
+	private static int[] union(final int[] a, final int[] b) {
+		if (a.length == 0) {
+			return b;
+		}
+		if (b.length == 0) {
+			return a;
+		}
+		final int[] result = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+
+	/**
+	 * Removes all elements of the sorted array {@code b} from the sorted array {@code a}.
+	 */
+	private static int[] without(final int[] a, final int[] b) {
+		int[] result = new int[a.length];
+		int size = 0;
+		for (final int value : a) {
+			if (Arrays.binarySearch(b, value) < 0) {
+				result[size++] = value;
+			}
+		}
+		if (size < result.length) {
+			result = Arrays.copyOf(result, size);
+		}
+		return result;
+	}
+
+	private final PatternSetNfa nfa;
+
+	/**
+	 * Nodes which are active at every position of a search (sorted)
+	 */
+	private final int[] startNodes;
+
+	/**
+	 * Values of expressions which match the empty string at every position
+	 */
+	private final int[] startAccepts;
+
+	/**
+	 * Equivalence class of every ASCII character. Characters of the same class are accepted by exactly the same NFA
+	 * nodes and therefore lead always to the same DFA state.
+	 */
+	private final int[] asciiClasses = new int[ASCII];
+
+	/**
+	 * Targets of the start nodes for every equivalence class
+	 */
+	private final int[][] startMoves;
+
+	private volatile Cache cache = new Cache();
+
+	private PatternSetAutomaton(final PatternSetNfa nfa) {
+		this.nfa = nfa;
+		startNodes = nfa.closure(nfa.getEntries(), false, false);
+		startAccepts = acceptsOf(startNodes);
+
+		final Map<BitSet, Integer> signatures = new HashMap<BitSet, Integer>();
+		final List<int[]> moves = new ArrayList<int[]>();
+		for (char chr = 0; chr < ASCII; chr++) {
+			final BitSet signature = nfa.acceptingNodes(chr);
+			Integer classId = signatures.get(signature);
+			if (classId == null) {
+				classId = Integer.valueOf(signatures.size());
+				signatures.put(signature, classId);
+				moves.add(nfa.move(startNodes, chr));
+			}
+			asciiClasses[chr] = classId.intValue();
+		}
+		startMoves = moves.toArray(new int[moves.size()][]);
+	}
+
+	private int[] acceptsOf(final int[] nodes) {
+		int[] result = new int[0];
+		for (final int node : nodes) {
+			if (nfa.typeOf(node) == PatternSetNfa.ACCEPT) {
+				result = Arrays.copyOf(result, result.length + 1);
+				result[result.length - 1] = nfa.valueOf(node);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Creates or looks up the DFA state for the given set of NFA nodes.
+	 */
+	private State createState(final int[] closure) {
+		final int[] nodes = without(closure, startNodes);
+		final Key key = new Key(nodes);
+		Cache current = cache;
+		State state = current.states.get(key);
+		if (state == null) {
+			state = new State(nodes, acceptsOf(nodes), endAcceptsOf(nodes), startMoves.length);
+			if (current.states.size() >= MAXIMUM_STATES) {
+				current = new Cache();
+				cache = current;
+			}
+			final State existing = current.states.putIfAbsent(key, state);
+			if (existing != null) {
+				state = existing;
+			}
+		}
+		return state;
+	}
+
+	private int[] endAcceptsOf(final int[] nodes) {
+		final int[] all = union(nodes, startNodes);
+		int[] seeds = new int[0];
+		for (final int node : all) {
+			if (nfa.typeOf(node) == PatternSetNfa.END) {
+				seeds = Arrays.copyOf(seeds, seeds.length + 1);
+				seeds[seeds.length - 1] = nfa.targetOf(node);
+			}
+		}
+		return seeds.length == 0 ? seeds : acceptsOf(nfa.closure(seeds, false, true));
+	}
+
+	/**
+	 * Gets the number of equivalence classes of ASCII characters.
+	 * 
+	 * @return number of character classes
+	 */
+	public int getCharacterClassCount() {
+		return startMoves.length;
+	}
+
+	/**
+	 * Gets the number of currently cached DFA states.
+	 * 
+	 * @return number of cached states
+	 */
+	public int getCachedStateCount() {
+		return cache.states.size();
+	}
+
+	private State initialState() {
+		final Cache current = cache;
+		State initial = current.initial;
+		if (initial == null) {
+			initial = createState(nfa.closure(nfa.getEntries(), true, false));
+			current.initial = initial;
+		}
+		return initial;
+	}
+
+	/**
+	 * Scans the given text and sets the values of all expressions which find a match in the text in the passed
+	 * {@code BitSet}.
+	 * 
+	 * @param text
+	 *            text to scan
+	 * @param result
+	 *            set in which the values of matching expressions will be marked
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 */
+	public void scan(final CharSequence text, final BitSet result) {
+		if (text == null) {
+			throw new IllegalArgumentException("Argument 'text' must not be null.");
+		}
+		if (result == null) {
+			throw new IllegalArgumentException("Argument 'result' must not be null.");
+		}
+
+		mark(startAccepts, result);
+		State state = initialState();
+		final int length = text.length();
+		for (int i = 0; i < length; i++) {
+			mark(state.accepts, result);
+			if (i >= length - 2 && isEndPosition(text, i)) {
+				mark(state.endAccepts, result);
+			}
+			state = step(state, text.charAt(i));
+		}
+		mark(state.accepts, result);
+		mark(state.endAccepts, result);
+	}
+
+	private State step(final State state, final char chr) {
+		if (chr < ASCII) {
+			final int classId = asciiClasses[chr];
+			State next = state.transitions.get(classId);
+			if (next == null) {
+				next = createState(nfa.closure(union(nfa.move(state.nodes, chr), startMoves[classId]), false, false));
+				state.transitions.set(classId, next);
+			}
+			return next;
+		}
+		return createState(nfa.closure(union(nfa.move(state.nodes, chr), nfa.move(startNodes, chr)), false, false));
+	}
+
+}
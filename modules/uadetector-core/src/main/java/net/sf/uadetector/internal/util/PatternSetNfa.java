@@ -0,0 +1,830 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A Thompson NFA that represents a set of regular expressions. Every expression ends in an accepting node which
+ * carries the value the expression was added with.<br>
+ * <br>
+ * Only a subset of the syntax of {@link Pattern} is supported: literals, character classes (without nesting and
+ * intersection), the predefined classes {@code \d}, {@code \w} and {@code \s}, the dot, capturing and non-capturing
+ * groups, alternations, greedy and reluctant quantifiers as well as {@code ^} and {@code $}. Supported flags are
+ * {@link Pattern#CASE_INSENSITIVE} and {@link Pattern#DOTALL}. Expressions with other constructs are rejected, so that
+ * they can be evaluated in another way.<br>
+ * <br>
+ * An instance of this class is immutable after it has been built and can be shared between threads.
+ * 
+ * @author André Rouél
+ */
+final class PatternSetNfa {
+
+	/**
+	 * Factory that compiles regular expressions into one {@code PatternSetNfa}.<br>
+	 * <br>
+	 * This builder is not thread safe.
+	 */
+	static final class Builder {
+
+		private final List<Integer> types = new ArrayList<Integer>();
+		private final List<CharClass> classes = new ArrayList<CharClass>();
+		private final List<int[]> outs = new ArrayList<int[]>();
+		private final List<Integer> values = new ArrayList<Integer>();
+		private final List<Integer> entries = new ArrayList<Integer>();
+
+		/**
+		 * Compiles the given pattern and adds it to the set. If the pattern contains unsupported constructs it will
+		 * not be added.
+		 * 
+		 * @param pattern
+		 *            compiled regular expression
+		 * @param value
+		 *            value which will be reported when the pattern matches
+		 * @return {@code true} if the pattern could be added, otherwise {@code false}
+		 */
+		boolean add(final Pattern pattern, final int value) {
+			if (pattern == null) {
+				throw new IllegalArgumentException("Argument 'pattern' must not be null.");
+			}
+
+			return add(pattern.pattern(), pattern.flags(), value);
+		}
+
+		/**
+		 * Adds a regular expression, given by its source and flags, with the associated value. The expression will not
+		 * be compiled.
+		 * 
+		 * @param regex
+		 *            source of a regular expression
+		 * @param flags
+		 *            match flags as defined by {@link Pattern}
+		 * @param value
+		 *            value which will be reported when the expression matches
+		 * @return {@code true} if the expression could be added, otherwise {@code false}
+		 */
+		boolean add(final String regex, final int flags, final int value) {
+			if (regex == null) {
+				throw new IllegalArgumentException("Argument 'regex' must not be null.");
+			}
+			if (value < 0) {
+				throw new IllegalArgumentException("Argument 'value' must not be smaller than 0.");
+			}
+
+			if ((flags & ~(Pattern.CASE_INSENSITIVE | Pattern.DOTALL)) != 0) {
+				return false;
+			}
+
+			final int mark = types.size();
+			try {
+				final Parser parser = new Parser(regex, flags);
+				final Expression expression = parser.parse();
+				final int accept = addNode(ACCEPT, null);
+				values.set(accept, Integer.valueOf(value));
+				final int entry = expression.emit(this, accept);
+				checkEndAssertions(mark);
+				entries.add(Integer.valueOf(entry));
+				return true;
+			} catch (final UnsupportedExpressionException e) {
+				// discard all nodes of this expression
+				while (types.size() > mark) {
+					final int last = types.size() - 1;
+					types.remove(last);
+					classes.remove(last);
+					outs.remove(last);
+					values.remove(last);
+				}
+				return false;
+			}
+		}
+
+		private int addNode(final int type, final CharClass cls, final int... targets) {
+			types.add(Integer.valueOf(type));
+			classes.add(cls);
+			outs.add(targets);
+			values.add(Integer.valueOf(-1));
+			return types.size() - 1;
+		}
+
+		PatternSetNfa build() {
+			final int size = types.size();
+			final int[] t = new int[size];
+			final int[] v = new int[size];
+			for (int i = 0; i < size; i++) {
+				t[i] = types.get(i).intValue();
+				v[i] = values.get(i).intValue();
+			}
+			final int[] e = new int[entries.size()];
+			for (int i = 0; i < e.length; i++) {
+				e[i] = entries.get(i).intValue();
+			}
+			return new PatternSetNfa(t, classes.toArray(new CharClass[size]), outs.toArray(new int[size][]), v, e);
+		}
+
+		/**
+		 * Ensures that no character can be consumed after an end assertion, because {@code $} can also match before
+		 * a final line terminator which is not supported.
+		 */
+		private void checkEndAssertions(final int mark) throws UnsupportedExpressionException {
+			for (int node = mark; node < types.size(); node++) {
+				if (types.get(node).intValue() == END) {
+					final BitSet visited = new BitSet();
+					final List<Integer> stack = new ArrayList<Integer>();
+					stack.add(Integer.valueOf(outs.get(node)[0]));
+					while (!stack.isEmpty()) {
+						final int current = stack.remove(stack.size() - 1).intValue();
+						if (visited.get(current)) {
+							continue;
+						}
+						visited.set(current);
+						final int type = types.get(current).intValue();
+						if (type == CHAR || type == BEGIN) {
+							throw new UnsupportedExpressionException();
+						}
+						for (final int out : outs.get(current)) {
+							stack.add(Integer.valueOf(out));
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * Creates a split node whose targets will be set later.
+		 */
+		private int addSplit() {
+			return addNode(SPLIT, null);
+		}
+
+		private void setTargets(final int node, final int... targets) {
+			outs.set(node, targets);
+		}
+	}
+
+	/**
+	 * Immutable set of characters
+	 */
+	static final class CharClass {
+
+		static final CharClass ANY = new CharClass(new int[0], true, false);
+
+		/**
+		 * Line terminators which are not matched by the dot without {@link Pattern#DOTALL}
+		 */
+		static final CharClass DOT = new CharClass(new int[] { '\n', '\n', '\r', '\r', '\u0085', '\u0085', '\u2028',
+				'\u2029' }, true, false);
+
+		static CharClass of(final char chr, final boolean caseInsensitive) {
+			return new CharClass(new int[] { chr, chr }, false, caseInsensitive);
+		}
+
+		private static char swapAsciiCase(final char chr) {
+			if (chr >= 'a' && chr <= 'z') {
+				return (char) (chr - ('a' - 'A'));
+			}
+			if (chr >= 'A' && chr <= 'Z') {
+				return (char) (chr + ('a' - 'A'));
+			}
+			return chr;
+		}
+
+		/**
+		 * Sorted pairs of inclusive bounds
+		 */
+		private final int[] ranges;
+
+		private final boolean negated;
+
+		private final boolean caseInsensitive;
+
+		CharClass(final int[] ranges, final boolean negated, final boolean caseInsensitive) {
+			this.ranges = ranges;
+			this.negated = negated;
+			this.caseInsensitive = caseInsensitive;
+		}
+
+		private boolean inRanges(final char chr) {
+			for (int i = 0; i < ranges.length; i += 2) {
+				if (chr >= ranges[i] && chr <= ranges[i + 1]) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		boolean matches(final char chr) {
+			boolean result = inRanges(chr);
+			if (!result && caseInsensitive && chr < 128) {
+				final char swapped = swapAsciiCase(chr);
+				result = swapped != chr && inRanges(swapped);
+			}
+			return result != negated;
+		}
+
+		CharClass negate() {
+			return new CharClass(ranges, !negated, caseInsensitive);
+		}
+	}
+
+	/**
+	 * Node of the abstract syntax tree of a regular expression
+	 */
+	private abstract static class Expression {
+		/**
+		 * Emits the nodes of this expression and returns the entry node.
+		 * 
+		 * @param builder
+		 *            builder which receives the nodes
+		 * @param next
+		 *            node which follows this expression
+		 * @return entry node of this expression
+		 */
+		abstract int emit(Builder builder, int next) throws UnsupportedExpressionException;
+
+		/**
+		 * Returns whether this expression is an assertion which consumes no characters.
+		 */
+		boolean isAssertion() {
+			return false;
+		}
+	}
+
+	private static final class Alternation extends Expression {
+		private final List<Expression> branches;
+
+		private Alternation(final List<Expression> branches) {
+			this.branches = branches;
+		}
+
+		@Override
+		int emit(final Builder builder, final int next) throws UnsupportedExpressionException {
+			final int[] targets = new int[branches.size()];
+			for (int i = 0; i < targets.length; i++) {
+				targets[i] = branches.get(i).emit(builder, next);
+			}
+			return builder.addNode(SPLIT, null, targets);
+		}
+	}
+
+	private static final class Assertion extends Expression {
+		private final int type;
+
+		private Assertion(final int type) {
+			this.type = type;
+		}
+
+		@Override
+		int emit(final Builder builder, final int next) {
+			return builder.addNode(type, null, next);
+		}
+
+		@Override
+		boolean isAssertion() {
+			return true;
+		}
+	}
+
+	private static final class Characters extends Expression {
+		private final CharClass cls;
+
+		private Characters(final CharClass cls) {
+			this.cls = cls;
+		}
+
+		@Override
+		int emit(final Builder builder, final int next) {
+			return builder.addNode(CHAR, cls, next);
+		}
+	}
+
+	private static final class Repetition extends Expression {
+		private final Expression expression;
+		private final int min;
+		private final int max;
+
+		private Repetition(final Expression expression, final int min, final int max) {
+			this.expression = expression;
+			this.min = min;
+			this.max = max;
+		}
+
+		@Override
+		int emit(final Builder builder, final int next) throws UnsupportedExpressionException {
+			int entry = next;
+			if (max == UNBOUNDED) {
+				final int loop = builder.addSplit();
+				builder.setTargets(loop, expression.emit(builder, loop), next);
+				entry = loop;
+			} else {
+				for (int i = min; i < max; i++) {
+					entry = builder.addNode(SPLIT, null, expression.emit(builder, entry), next);
+				}
+			}
+			for (int i = 0; i < min; i++) {
+				entry = expression.emit(builder, entry);
+			}
+			return entry;
+		}
+	}
+
+	private static final class Sequence extends Expression {
+		private final List<Expression> expressions;
+
+		private Sequence(final List<Expression> expressions) {
+			this.expressions = expressions;
+		}
+
+		@Override
+		int emit(final Builder builder, final int next) throws UnsupportedExpressionException {
+			int entry = next;
+			for (int i = expressions.size() - 1; i >= 0; i--) {
+				entry = expressions.get(i).emit(builder, entry);
+			}
+			return entry;
+		}
+	}
+
+	/**
+	 * Recursive descent parser for the supported subset of regular expressions
+	 */
+	private static final class Parser {
+
+		private final String regex;
+		private final boolean caseInsensitive;
+		private final boolean dotAll;
+		private int pos;
+
+		private Parser(final String regex, final int flags) {
+			this.regex = regex;
+			caseInsensitive = (flags & Pattern.CASE_INSENSITIVE) != 0;
+			dotAll = (flags & Pattern.DOTALL) != 0;
+		}
+
+		private boolean isAtEnd() {
+			return pos >= regex.length();
+		}
+
+		Expression parse() throws UnsupportedExpressionException {
+			final Expression expression = parseAlternation();
+			if (!isAtEnd()) {
+				throw new UnsupportedExpressionException();
+			}
+			return expression;
+		}
+
+		private Expression parseAlternation() throws UnsupportedExpressionException {
+			final List<Expression> branches = new ArrayList<Expression>();
+			branches.add(parseSequence());
+			while (!isAtEnd() && regex.charAt(pos) == '|') {
+				pos++;
+				branches.add(parseSequence());
+			}
+			return branches.size() == 1 ? branches.get(0) : new Alternation(branches);
+		}
+
+		private Expression parseSequence() throws UnsupportedExpressionException {
+			final List<Expression> expressions = new ArrayList<Expression>();
+			while (!isAtEnd() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+				final Expression atom = parseAtom();
+				expressions.add(parseQuantifier(atom));
+			}
+			return new Sequence(expressions);
+		}
+
+		private Expression parseAtom() throws UnsupportedExpressionException {
+			final char chr = regex.charAt(pos++);
+			switch (chr) {
+			case '(':
+				if (!isAtEnd() && regex.charAt(pos) == '?') {
+					if (regex.startsWith("?:", pos)) {
+						pos += 2;
+					} else {
+						throw new UnsupportedExpressionException();
+					}
+				}
+				final Expression group = parseAlternation();
+				if (isAtEnd() || regex.charAt(pos) != ')') {
+					throw new UnsupportedExpressionException();
+				}
+				pos++;
+				return group;
+			case '[':
+				return new Characters(parseCharacterClass());
+			case '.':
+				return new Characters(dotAll ? CharClass.ANY : CharClass.DOT);
+			case '^':
+				return new Assertion(BEGIN);
+			case '$':
+				return new Assertion(END);
+			case '\\':
+				return new Characters(parseEscape(false));
+			case '*':
+			case '+':
+			case '?':
+			case '{':
+				throw new UnsupportedExpressionException();
+			default:
+				return new Characters(CharClass.of(chr, caseInsensitive));
+			}
+		}
+
+		/**
+		 * Parses a character class after the opening bracket.
+		 */
+		private CharClass parseCharacterClass() throws UnsupportedExpressionException {
+			boolean negated = false;
+			if (!isAtEnd() && regex.charAt(pos) == '^') {
+				negated = true;
+				pos++;
+			}
+			final List<Integer> ranges = new ArrayList<Integer>();
+			boolean first = true;
+			while (true) {
+				if (isAtEnd()) {
+					throw new UnsupportedExpressionException();
+				}
+				char chr = regex.charAt(pos);
+				if (chr == ']' && !first) {
+					pos++;
+					break;
+				}
+				if (chr == '[' || regex.startsWith("&&", pos)) {
+					throw new UnsupportedExpressionException();
+				}
+				first = false;
+				pos++;
+				int low;
+				if (chr == '\\') {
+					final CharClass escaped = parseEscape(true);
+					if (escaped.negated || escaped.ranges.length != 2 || escaped.ranges[0] != escaped.ranges[1]) {
+						// predefined class
+						if (escaped.negated) {
+							throw new UnsupportedExpressionException();
+						}
+						for (final int bound : escaped.ranges) {
+							ranges.add(Integer.valueOf(bound));
+						}
+						continue;
+					}
+					low = escaped.ranges[0];
+				} else {
+					low = chr;
+				}
+
+				int high = low;
+				if (pos + 1 < regex.length() && regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']') {
+					pos++;
+					chr = regex.charAt(pos++);
+					if (chr == '\\') {
+						final CharClass escaped = parseEscape(true);
+						if (escaped.negated || escaped.ranges.length != 2 || escaped.ranges[0] != escaped.ranges[1]) {
+							throw new UnsupportedExpressionException();
+						}
+						high = escaped.ranges[0];
+					} else if (chr == '[') {
+						throw new UnsupportedExpressionException();
+					} else {
+						high = chr;
+					}
+					if (high < low) {
+						throw new UnsupportedExpressionException();
+					}
+				}
+				ranges.add(Integer.valueOf(low));
+				ranges.add(Integer.valueOf(high));
+			}
+			final int[] bounds = new int[ranges.size()];
+			for (int i = 0; i < bounds.length; i++) {
+				bounds[i] = ranges.get(i).intValue();
+			}
+			return new CharClass(bounds, negated, caseInsensitive);
+		}
+
+		/**
+		 * Parses an escape sequence after the backslash.
+		 */
+		private CharClass parseEscape(final boolean inClass) throws UnsupportedExpressionException {
+			if (isAtEnd()) {
+				throw new UnsupportedExpressionException();
+			}
+			final char chr = regex.charAt(pos++);
+			if (!Character.isLetterOrDigit(chr)) {
+				return CharClass.of(chr, caseInsensitive);
+			}
+			switch (chr) {
+			case 'd':
+				return new CharClass(DIGITS, false, false);
+			case 'D':
+				return new CharClass(DIGITS, true, false);
+			case 'w':
+				return new CharClass(WORD, false, false);
+			case 'W':
+				return new CharClass(WORD, true, false);
+			case 's':
+				return new CharClass(SPACE, false, false);
+			case 'S':
+				return new CharClass(SPACE, true, false);
+			case 't':
+				return CharClass.of('\t', false);
+			case 'n':
+				return CharClass.of('\n', false);
+			case 'r':
+				return CharClass.of('\r', false);
+			case 'f':
+				return CharClass.of('\f', false);
+			case 'a':
+				return CharClass.of('\u0007', false);
+			case 'e':
+				return CharClass.of('\u001B', false);
+			case 'x':
+				return CharClass.of(parseHex(2), caseInsensitive);
+			case 'u':
+				return CharClass.of(parseHex(4), caseInsensitive);
+			default:
+				throw new UnsupportedExpressionException();
+			}
+		}
+
+		private char parseHex(final int digits) throws UnsupportedExpressionException {
+			if (pos + digits > regex.length()) {
+				throw new UnsupportedExpressionException();
+			}
+			try {
+				final int value = Integer.parseInt(regex.substring(pos, pos + digits), 16);
+				pos += digits;
+				return (char) value;
+			} catch (final NumberFormatException e) {
+				throw new UnsupportedExpressionException();
+			}
+		}
+
+		private Expression parseQuantifier(final Expression atom) throws UnsupportedExpressionException {
+			if (isAtEnd()) {
+				return atom;
+			}
+			final char chr = regex.charAt(pos);
+			int min;
+			int max;
+			if (chr == '?') {
+				min = 0;
+				max = 1;
+			} else if (chr == '*') {
+				min = 0;
+				max = UNBOUNDED;
+			} else if (chr == '+') {
+				min = 1;
+				max = UNBOUNDED;
+			} else if (chr == '{') {
+				final int end = regex.indexOf('}', pos);
+				if (end < 0) {
+					throw new UnsupportedExpressionException();
+				}
+				final String bounds = regex.substring(pos + 1, end);
+				final int comma = bounds.indexOf(',');
+				try {
+					min = Integer.parseInt(comma < 0 ? bounds : bounds.substring(0, comma));
+					max = comma < 0 ? min : comma == bounds.length() - 1 ? UNBOUNDED : Integer.parseInt(bounds
+							.substring(comma + 1));
+				} catch (final NumberFormatException e) {
+					throw new UnsupportedExpressionException();
+				}
+				if (min > MAXIMUM_REPETITIONS || max > MAXIMUM_REPETITIONS || max != UNBOUNDED && max < min) {
+					throw new UnsupportedExpressionException();
+				}
+				pos = end;
+			} else {
+				return atom;
+			}
+			pos++;
+
+			if (atom.isAssertion()) {
+				throw new UnsupportedExpressionException();
+			}
+			if (!isAtEnd() && regex.charAt(pos) == '+') {
+				// possessive quantifiers change the set of matching texts
+				throw new UnsupportedExpressionException();
+			}
+			if (!isAtEnd() && regex.charAt(pos) == '?') {
+				// reluctant quantifiers do not change whether a text matches
+				pos++;
+			}
+			return new Repetition(atom, min, max);
+		}
+	}
+
+	/**
+	 * Thrown if a regular expression contains constructs that are not supported
+	 */
+	static final class UnsupportedExpressionException extends Exception {
+		private static final long serialVersionUID = 4611227298640406651L;
+	}
+
+	/**
+	 * Node which consumes one character of a {@link CharClass}
+	 */
+	static final int CHAR = 0;
+
+	/**
+	 * Node with epsilon transitions to all of its targets
+	 */
+	static final int SPLIT = 1;
+
+	/**
+	 * Node which can only be passed at the beginning of the input
+	 */
+	static final int BEGIN = 2;
+
+	/**
+	 * Node which can only be passed at the end of the input
+	 */
+	static final int END = 3;
+
+	/**
+	 * Node which signals a match of an expression
+	 */
+	static final int ACCEPT = 4;
+
+	private static final int UNBOUNDED = -1;
+
+	/**
+	 * Maximum number of bounded repetitions, because each one is expanded into its own nodes
+	 */
+	private static final int MAXIMUM_REPETITIONS = 64;
+
+	private static final int[] DIGITS = { '0', '9' };
+
+	private static final int[] SPACE = { '\t', '\r', ' ', ' ' };
+
+	private static final int[] WORD = { '0', '9', 'A', 'Z', '_', '_', 'a', 'z' };
+
+	private final int[] types;
+
+	private final CharClass[] classes;
+
+	private final int[][] outs;
+
+	private final int[] values;
+
+	private final int[] entries;
+
+	private PatternSetNfa(final int[] types, final CharClass[] classes, final int[][] outs, final int[] values, final int[] entries) {
+		this.types = types;
+		this.classes = classes;
+		this.outs = outs;
+		this.values = values;
+		this.entries = entries;
+	}
+
+	/**
+	 * Determines all character consuming nodes which accept the given character.
+	 * 
+	 * @param chr
+	 *            character
+	 * @return set of nodes accepting the character
+	 */
+	BitSet acceptingNodes(final char chr) {
+		final BitSet result = new BitSet(types.length);
+		for (int node = 0; node < types.length; node++) {
+			if (types[node] == CHAR && classes[node].matches(chr)) {
+				result.set(node);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the nodes which are reachable via epsilon transitions from the given nodes. Only nodes which consume
+	 * characters, end assertions (if not passed) and accepting nodes are returned.
+	 * 
+	 * @param seeds
+	 *            nodes to start from
+	 * @param atBegin
+	 *            whether the current position is the beginning of the input
+	 * @param passEnd
+	 *            whether the current position is an end of the input
+	 * @return sorted array of reachable nodes
+	 */
+	int[] closure(final int[] seeds, final boolean atBegin, final boolean passEnd) {
+		final BitSet visited = new BitSet(types.length);
+		final BitSet result = new BitSet(types.length);
+		int[] stack = new int[Math.max(16, seeds.length)];
+		int top = 0;
+		for (final int seed : seeds) {
+			stack[top++] = seed;
+		}
+		while (top > 0) {
+			final int node = stack[--top];
+			if (visited.get(node)) {
+				continue;
+			}
+			visited.set(node);
+			if (top + outs[node].length > stack.length) {
+				stack = Arrays.copyOf(stack, (top + outs[node].length) * 2);
+			}
+			switch (types[node]) {
+			case CHAR:
+			case ACCEPT:
+				result.set(node);
+				break;
+			case BEGIN:
+				if (atBegin) {
+					stack[top++] = outs[node][0];
+				}
+				break;
+			case END:
+				if (passEnd) {
+					stack[top++] = outs[node][0];
+				} else {
+					result.set(node);
+				}
+				break;
+			default:
+				for (final int out : outs[node]) {
+					if (!visited.get(out)) {
+						stack[top++] = out;
+					}
+				}
+			}
+		}
+		return toArray(result);
+	}
+
+	/**
+	 * Gets the entry nodes of all expressions.
+	 */
+	int[] getEntries() {
+		return Arrays.copyOf(entries, entries.length);
+	}
+
+	/**
+	 * Collects the targets of all character consuming nodes that accept the given character.
+	 */
+	int[] move(final int[] nodes, final char chr) {
+		int[] targets = new int[nodes.length];
+		int size = 0;
+		for (final int node : nodes) {
+			if (types[node] == CHAR && classes[node].matches(chr)) {
+				targets[size++] = outs[node][0];
+			}
+		}
+		if (size < targets.length) {
+			targets = Arrays.copyOf(targets, size);
+		}
+		return targets;
+	}
+
+	/**
+	 * Gets the number of nodes.
+	 */
+	int size() {
+		return types.length;
+	}
+
+	/**
+	 * Gets the type of the given node.
+	 */
+	int typeOf(final int node) {
+		return types[node];
+	}
+
+	/**
+	 * Gets the value of an accepting node.
+	 */
+	int valueOf(final int node) {
+		return values[node];
+	}
+
+	/**
+	 * Gets the target of the given end assertion.
+	 */
+	int targetOf(final int node) {
+		return outs[node][0];
+	}
+
+	private static int[] toArray(final BitSet set) {
+		final int[] result = new int[set.cardinality()];
+		int i = 0;
+		for (int bit = set.nextSetBit(0); bit >= 0; bit = set.nextSetBit(bit + 1)) {
+			result[i++] = bit;
+		}
+		return result;
+	}
+
+}
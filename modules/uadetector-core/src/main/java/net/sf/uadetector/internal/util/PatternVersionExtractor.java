@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.sf.uadetector.VersionExtractor;
+import net.sf.uadetector.VersionNumber;
+
+/**
+ * A {@code VersionExtractor} which evaluates a list of precompiled regular expressions. The patterns are tried in the
+ * given order and the first group of the first pattern which finds a match is interpreted as version number.<br>
+ * <br>
+ * A {@code PatternVersionExtractor} object is immutable and safe when used concurrently by multiple threads.
+ * 
+ * @author André Rouél
+ */
+public final class PatternVersionExtractor implements VersionExtractor {
+
+	/**
+	 * Separator of the numeric groups which is expected by {@link VersionParser}
+	 */
+	private static final char DOT = '.';
+
+	/**
+	 * Patterns to evaluate in the given order
+	 */
+	private final List<Pattern> patterns;
+
+	/**
+	 * Separator between the numeric groups in the first group of a match
+	 */
+	private final char separator;
+
+	/**
+	 * Constructs a {@code PatternVersionExtractor} whose patterns capture version numbers separated by the given
+	 * character.
+	 * 
+	 * @param separator
+	 *            separator between the numeric groups of a captured version number
+	 * @param patterns
+	 *            regular expressions with at least one capturing group
+	 * @throws IllegalArgumentException
+	 *             if the given patterns are {@code null} or one of them is {@code null}
+	 */
+	public PatternVersionExtractor(final char separator, final Pattern... patterns) {
+		if (patterns == null) {
+			throw new IllegalArgumentException("Argument 'patterns' must not be null.");
+		}
+		for (final Pattern pattern : patterns) {
+			if (pattern == null) {
+				throw new IllegalArgumentException("Argument 'patterns' must not contain null.");
+			}
+		}
+
+		this.patterns = Collections.unmodifiableList(new ArrayList<Pattern>(Arrays.asList(patterns)));
+		this.separator = separator;
+	}
+
+	/**
+	 * Constructs a {@code PatternVersionExtractor} whose patterns capture version numbers separated by a dot.
+	 * 
+	 * @param patterns
+	 *            regular expressions with at least one capturing group
+	 * @throws IllegalArgumentException
+	 *             if the given patterns are {@code null} or one of them is {@code null}
+	 */
+	public PatternVersionExtractor(final Pattern... patterns) {
+		this(DOT, patterns);
+	}
+
+	@Override
+	public VersionNumber extract(final CharSequence userAgent) {
+		if (userAgent == null) {
+			throw new IllegalArgumentException("Argument 'userAgent' must not be null.");
+		}
+
+		for (final Pattern pattern : patterns) {
+			final Matcher m = pattern.matcher(userAgent);
+			if (m.find()) {
+				final String version = separator == DOT ? m.group(1) : m.group(1).replace(separator, DOT);
+				return VersionParser.parseFirstVersionNumber(version);
+			}
+		}
+		return VersionNumber.UNKNOWN;
+	}
+
+	/**
+	 * Gets the patterns of this extractor in the order of their evaluation.
+	 * 
+	 * @return unmodifiable list of patterns
+	 */
+	public List<Pattern> getPatterns() {
+		return patterns;
+	}
+
+}
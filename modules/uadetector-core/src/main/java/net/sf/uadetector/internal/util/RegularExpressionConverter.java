@@ -56,6 +56,36 @@ public final class RegularExpressionConverter {
 	 * @return Pattern
 	 */
 	public static Pattern convertPerlRegexToPattern(final String regex, final boolean faultTolerant) {
+		return convertPerlRegexToLazyPattern(regex, faultTolerant).compile().get();
+	}
+
+	/**
+	 * Converts a PERL style regular expression into Java style without compiling it.<br>
+	 * <br>
+	 * The leading and ending slash and the modifiers will be removed. The modifiers will be translated into equivalents
+	 * flags of <code>java.util.Pattern</code>. If there are modifiers that are not valid an exception will be thrown.
+	 * The expression will be compiled on first use of the returned {@code LazyPattern}.
+	 * 
+	 * @param regex
+	 *            A PERL style regular expression
+	 * @return LazyPattern
+	 */
+	public static LazyPattern convertPerlRegexToLazyPattern(final String regex) {
+		return convertPerlRegexToLazyPattern(regex, false);
+	}
+
+	/**
+	 * Converts a PERL style regular expression into Java style without compiling it.<br>
+	 * <br>
+	 * The leading and ending slash and the modifiers will be removed.
+	 * 
+	 * @param regex
+	 *            A PERL style regular expression
+	 * @param faultTolerant
+	 *            Fault-tolerant translating the flags
+	 * @return LazyPattern
+	 */
+	public static LazyPattern convertPerlRegexToLazyPattern(final String regex, final boolean faultTolerant) {
 		if (regex == null) {
 			throw new IllegalArgumentException("Argument 'regex' must not be null.");
 		}
@@ -72,7 +102,7 @@ public final class RegularExpressionConverter {
 		pattern = pattern.substring(0, lastIndex);
 
 		final int flags = translateModifiers(matcher.group(1));
-		return Pattern.compile(pattern, flags);
+		return new LazyPattern(pattern, flags);
 	}
 
 	/**
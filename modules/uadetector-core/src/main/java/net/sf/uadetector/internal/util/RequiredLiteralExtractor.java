@@ -0,0 +1,422 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts literal substrings from a regular expression of which at least one must occur in every text the expression
+ * can find.<br>
+ * <br>
+ * The analysis is conservative: constructs which are not understood (e.g. quoting with {@code \Q...\E} or the
+ * {@code COMMENTS} and {@code CANON_EQ} flags, also when enabled inline like {@code (?x)}) lead to an empty result,
+ * which means that no statement about required literals can be made and the expression must always be evaluated.
+ *
+ * @author André Rouél
+ */
+public final class RequiredLiteralExtractor {
+
+	/**
+	 * Thrown internally if the regular expression contains a construct that can not be analyzed
+	 */
+	private static final class UnsupportedConstructException extends Exception {
+		private static final long serialVersionUID = -1484297468622651047L;
+	}
+
+	/**
+	 * Marker for a quantifier that is not present
+	 */
+	private static final int NO_QUANTIFIER = -1;
+
+	/**
+	 * Returns the set of literals of which the shortest is longer.
+	 */
+	private static Set<String> better(final Set<String> current, final Set<String> candidate) {
+		if (current == null) {
+			return candidate;
+		}
+		if (candidate == null) {
+			return current;
+		}
+		return minLength(candidate) >= minLength(current) ? candidate : current;
+	}
+
+	/**
+	 * Extracts a set of literals of which at least one occurs in every text the given pattern can find. The literals
+	 * are returned as written in the expression, regardless of the case sensitivity of the pattern.
+	 *
+	 * @param pattern
+	 *            compiled regular expression
+	 * @return set of required literals or an empty set if none can be determined
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public static Set<String> extract(final Pattern pattern) {
+		if (pattern == null) {
+			throw new IllegalArgumentException("Argument 'pattern' must not be null.");
+		}
+
+		return extract(pattern.pattern(), pattern.flags());
+	}
+
+	/**
+	 * Extracts a set of literals of which at least one occurs in every text the given regular expression can find,
+	 * without compiling the expression. The literals are returned as written in the expression, regardless of the case
+	 * sensitivity of the flags.
+	 * 
+	 * @param regex
+	 *            source of a regular expression
+	 * @param flags
+	 *            match flags as defined by {@link Pattern}
+	 * @return set of required literals or an empty set if none can be determined
+	 * @throws IllegalArgumentException
+	 *             if the given regular expression is {@code null}
+	 */
+	public static Set<String> extract(final String regex, final int flags) {
+		if (regex == null) {
+			throw new IllegalArgumentException("Argument 'regex' must not be null.");
+		}
+
+		if ((flags & Pattern.LITERAL) != 0) {
+			return regex.length() == 0 ? Collections.<String> emptySet() : Collections.singleton(regex);
+		}
+		if ((flags & (Pattern.COMMENTS | Pattern.CANON_EQ)) != 0) {
+			return Collections.emptySet();
+		}
+
+		final RequiredLiteralExtractor extractor = new RequiredLiteralExtractor(regex);
+		Set<String> result = null;
+		try {
+			result = extractor.parseAlternation();
+			if (extractor.pos < extractor.regex.length()) {
+				result = null; // unbalanced closing parenthesis
+			}
+		} catch (final UnsupportedConstructException e) {
+			result = null;
+		}
+		return result == null ? Collections.<String> emptySet() : Collections.unmodifiableSet(result);
+	}
+
+	private static int minLength(final Set<String> literals) {
+		int min = Integer.MAX_VALUE;
+		for (final String literal : literals) {
+			min = Math.min(min, literal.length());
+		}
+		return min;
+	}
+
+	/**
+	 * Removes the current run of literal characters and returns it as singleton set, or {@code null} if empty.
+	 */
+	private static Set<String> takeRun(final StringBuilder run) {
+		if (run.length() == 0) {
+			return null;
+		}
+		final Set<String> result = new HashSet<String>(1);
+		result.add(run.toString());
+		run.setLength(0);
+		return result;
+	}
+
+	/**
+	 * Regular expression to analyze
+	 */
+	private final String regex;
+
+	/**
+	 * Current position within the regular expression
+	 */
+	private int pos;
+
+	private RequiredLiteralExtractor(final String regex) {
+		this.regex = regex;
+	}
+
+	private boolean isAtEnd() {
+		return pos >= regex.length();
+	}
+
+	/**
+	 * Parses alternatives until the end of the expression or a closing parenthesis and returns the union of the
+	 * required literals of all branches, or {@code null} if at least one branch has no required literal.
+	 */
+	private Set<String> parseAlternation() throws UnsupportedConstructException {
+		Set<String> result = new HashSet<String>();
+		boolean satisfiable = true;
+		while (true) {
+			final Set<String> branch = parseSequence();
+			if (branch == null) {
+				satisfiable = false;
+			} else if (satisfiable) {
+				result.addAll(branch);
+			}
+			if (!isAtEnd() && regex.charAt(pos) == '|') {
+				pos++;
+			} else {
+				break;
+			}
+		}
+		if (!satisfiable) {
+			result = null;
+		}
+		return result;
+	}
+
+	/**
+	 * Parses an optional quantifier and returns its minimum number of repetitions, or {@link #NO_QUANTIFIER}.
+	 */
+	private int parseQuantifier() throws UnsupportedConstructException {
+		if (isAtEnd()) {
+			return NO_QUANTIFIER;
+		}
+		final char chr = regex.charAt(pos);
+		int min;
+		if (chr == '?' || chr == '*') {
+			min = 0;
+			pos++;
+		} else if (chr == '+') {
+			min = 1;
+			pos++;
+		} else if (chr == '{') {
+			final int end = regex.indexOf('}', pos);
+			if (end < 0) {
+				throw new UnsupportedConstructException();
+			}
+			final String bounds = regex.substring(pos + 1, end);
+			final int comma = bounds.indexOf(',');
+			try {
+				min = Integer.parseInt((comma < 0 ? bounds : bounds.substring(0, comma)).trim());
+			} catch (final NumberFormatException e) {
+				throw new UnsupportedConstructException();
+			}
+			pos = end + 1;
+		} else {
+			return NO_QUANTIFIER;
+		}
+
+		// reluctant or possessive modifier
+		if (!isAtEnd() && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+')) {
+			pos++;
+		}
+		return min;
+	}
+
+	/**
+	 * Parses a sequence of atoms until the end of the expression, an alternation or a closing parenthesis and returns
+	 * the most selective set of required literals of this sequence or {@code null} if there is none.
+	 */
+	private Set<String> parseSequence() throws UnsupportedConstructException {
+		final StringBuilder run = new StringBuilder();
+		Set<String> best = null;
+		while (!isAtEnd()) {
+			final char chr = regex.charAt(pos);
+			if (chr == '|' || chr == ')') {
+				break;
+			}
+			if (chr == '(') {
+				best = better(best, takeRun(run));
+				best = better(best, parseGroup());
+			} else if (chr == '[') {
+				best = better(best, takeRun(run));
+				skipCharacterClass();
+				parseQuantifier();
+			} else if (chr == '\\') {
+				final int escaped = parseEscape();
+				if (escaped < 0) {
+					best = better(best, takeRun(run));
+					parseQuantifier();
+				} else {
+					best = better(best, parseLiteral(run, (char) escaped));
+				}
+			} else if (chr == '.' || chr == '^' || chr == '$') {
+				best = better(best, takeRun(run));
+				pos++;
+				parseQuantifier();
+			} else if (chr == '*' || chr == '+' || chr == '?' || chr == '{') {
+				throw new UnsupportedConstructException();
+			} else {
+				pos++;
+				best = better(best, parseLiteral(run, chr));
+			}
+		}
+		return better(best, takeRun(run));
+	}
+
+	/**
+	 * Parses a group starting at the current opening parenthesis and returns its required literals, if the group is
+	 * not optional.
+	 */
+	private Set<String> parseGroup() throws UnsupportedConstructException {
+		pos++; // opening parenthesis
+		boolean lookaround = false;
+		if (!isAtEnd() && regex.charAt(pos) == '?') {
+			pos++;
+			if (isAtEnd()) {
+				throw new UnsupportedConstructException();
+			}
+			final char kind = regex.charAt(pos);
+			if (kind == ':' || kind == '>') {
+				pos++;
+			} else if (kind == '=' || kind == '!') {
+				lookaround = true;
+				pos++;
+			} else if (kind == '<') {
+				pos++;
+				if (!isAtEnd() && (regex.charAt(pos) == '=' || regex.charAt(pos) == '!')) {
+					lookaround = true;
+					pos++;
+				} else {
+					// named group
+					final int end = regex.indexOf('>', pos);
+					if (end < 0) {
+						throw new UnsupportedConstructException();
+					}
+					pos = end + 1;
+				}
+			} else {
+				// inline flags like (?i) or (?i:X), whitespace and comments are not understood after (?x)
+				boolean enable = true;
+				while (!isAtEnd() && (Character.isLetter(regex.charAt(pos)) || regex.charAt(pos) == '-')) {
+					if (regex.charAt(pos) == '-') {
+						enable = false;
+					} else if (enable && regex.charAt(pos) == 'x') {
+						throw new UnsupportedConstructException();
+					}
+					pos++;
+				}
+				if (isAtEnd()) {
+					throw new UnsupportedConstructException();
+				}
+				if (regex.charAt(pos) == ')') {
+					pos++;
+					return null;
+				} else if (regex.charAt(pos) == ':') {
+					pos++;
+				} else {
+					throw new UnsupportedConstructException();
+				}
+			}
+		}
+
+		final Set<String> inner = parseAlternation();
+		if (isAtEnd() || regex.charAt(pos) != ')') {
+			throw new UnsupportedConstructException();
+		}
+		pos++; // closing parenthesis
+
+		final int min = parseQuantifier();
+		return lookaround || min == 0 ? null : inner;
+	}
+
+	/**
+	 * Parses an escape sequence at the current position. Returns the escaped character if it is a literal, otherwise
+	 * {@code -1}.
+	 */
+	private int parseEscape() throws UnsupportedConstructException {
+		pos++; // backslash
+		if (isAtEnd()) {
+			throw new UnsupportedConstructException();
+		}
+		final char chr = regex.charAt(pos);
+		pos++;
+		if (!Character.isLetterOrDigit(chr)) {
+			return chr;
+		}
+		if (chr == 'Q' || chr == 'E') {
+			throw new UnsupportedConstructException();
+		}
+		if ((chr == 'p' || chr == 'P' || chr == 'x' || chr == 'N') && !isAtEnd() && regex.charAt(pos) == '{') {
+			final int end = regex.indexOf('}', pos);
+			if (end < 0) {
+				throw new UnsupportedConstructException();
+			}
+			pos = end + 1;
+		} else if (chr == 'p' || chr == 'P' || chr == 'c') {
+			pos++;
+		} else if (chr == 'x') {
+			pos += 2;
+		} else if (chr == 'u') {
+			pos += 4;
+		} else if (chr == 'k') {
+			final int end = regex.indexOf('>', pos);
+			if (end < 0) {
+				throw new UnsupportedConstructException();
+			}
+			pos = end + 1;
+		} else if (Character.isDigit(chr)) {
+			// back reference or octal value
+			while (!isAtEnd() && Character.isDigit(regex.charAt(pos))) {
+				pos++;
+			}
+		}
+		if (pos > regex.length()) {
+			throw new UnsupportedConstructException();
+		}
+		return -1;
+	}
+
+	/**
+	 * Appends a literal character to the current run with respect to a following quantifier.
+	 */
+	private Set<String> parseLiteral(final StringBuilder run, final char chr) throws UnsupportedConstructException {
+		final int min = parseQuantifier();
+		Set<String> result = null;
+		if (min == NO_QUANTIFIER) {
+			run.append(chr);
+		} else if (min == 0) {
+			result = takeRun(run);
+		} else {
+			run.append(chr);
+			result = takeRun(run);
+		}
+		return result;
+	}
+
+	/**
+	 * Skips a character class starting at the current opening bracket.
+	 */
+	private void skipCharacterClass() throws UnsupportedConstructException {
+		pos++; // opening bracket
+		if (!isAtEnd() && regex.charAt(pos) == '^') {
+			pos++;
+		}
+		if (!isAtEnd() && regex.charAt(pos) == ']') {
+			pos++; // closing bracket as first character is a literal
+		}
+		int depth = 1;
+		while (!isAtEnd()) {
+			final char chr = regex.charAt(pos);
+			if (chr == '\\') {
+				pos += 2;
+				continue;
+			}
+			pos++;
+			if (chr == '[') {
+				depth++;
+			} else if (chr == ']') {
+				depth--;
+				if (depth == 0) {
+					return;
+				}
+			}
+		}
+		throw new UnsupportedConstructException();
+	}
+
+}
@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.sf.uadetector.VersionExtractor;
+import net.sf.uadetector.VersionNumber;
+
+/**
+ * A {@code VersionExtractor} which scans an user agent string by hand instead of evaluating regular expressions. It is
+ * used for the operating system families which are identified most frequently.<br>
+ * <br>
+ * The extractor consists of an ordered list of {@link Rule}s. Each rule describes a version number following a literal
+ * prefix and corresponds to the regular expression
+ * 
+ * <pre>
+ * prefix\s?((\d+)((\.\d+)+)?(\-\w+)?)terminator
+ * </pre>
+ * 
+ * where the optional whitespace, the separator of the numeric groups, the extension and the terminator are
+ * configurable. The first rule which finds a match anywhere in the user agent string determines the version number.<br>
+ * <br>
+ * A {@code ScanningVersionExtractor} object is immutable and safe when used concurrently by multiple threads.
+ * 
+ * @author André Rouél
+ */
+public final class ScanningVersionExtractor implements VersionExtractor {
+
+	/**
+	 * Describes a version number following a literal prefix.<br>
+	 * <br>
+	 * A {@code Rule} object is immutable, every modifying method returns a new instance.
+	 * 
+	 * @author André Rouél
+	 */
+	public static final class Rule {
+
+		/**
+		 * Creates a rule which finds a version number separated by dots directly after the given prefix.
+		 * 
+		 * @param prefix
+		 *            literal which precedes the version number
+		 * @return a new rule
+		 * @throws IllegalArgumentException
+		 *             if the given prefix is {@code null} or empty
+		 */
+		public static Rule prefix(final String prefix) {
+			if (prefix == null) {
+				throw new IllegalArgumentException("Argument 'prefix' must not be null.");
+			}
+			if (prefix.length() == 0) {
+				throw new IllegalArgumentException("Argument 'prefix' must not be empty.");
+			}
+			return new Rule(prefix, false, '.', false, "");
+		}
+
+		private final String prefix;
+
+		private final boolean optionalWhitespace;
+
+		private final char separator;
+
+		private final boolean extension;
+
+		private final String terminator;
+
+		private Rule(final String prefix, final boolean optionalWhitespace, final char separator, final boolean extension,
+				final String terminator) {
+			this.prefix = prefix;
+			this.optionalWhitespace = optionalWhitespace;
+			this.separator = separator;
+			this.extension = extension;
+			this.terminator = terminator;
+		}
+
+		/**
+		 * Allows a trailing extension which starts with a hyphen followed by word characters, like {@code -update1}.
+		 * 
+		 * @return a new rule with an optional extension
+		 */
+		public Rule withExtension() {
+			return new Rule(prefix, optionalWhitespace, separator, true, terminator);
+		}
+
+		/**
+		 * Allows one whitespace character between the prefix and the version number.
+		 * 
+		 * @return a new rule with an optional whitespace after the prefix
+		 */
+		public Rule withOptionalWhitespace() {
+			return new Rule(prefix, true, separator, extension, terminator);
+		}
+
+		/**
+		 * Sets the character which separates the numeric groups of the version number.
+		 * 
+		 * @param separator
+		 *            separator of numeric groups
+		 * @return a new rule with the given separator
+		 */
+		public Rule withSeparator(final char separator) {
+			return new Rule(prefix, optionalWhitespace, separator, extension, terminator);
+		}
+
+		/**
+		 * Sets a literal which must directly follow the version number.
+		 * 
+		 * @param terminator
+		 *            literal after the version number
+		 * @return a new rule with the given terminator
+		 * @throws IllegalArgumentException
+		 *             if the given terminator is {@code null}
+		 */
+		public Rule withTerminator(final String terminator) {
+			if (terminator == null) {
+				throw new IllegalArgumentException("Argument 'terminator' must not be null.");
+			}
+			return new Rule(prefix, optionalWhitespace, separator, extension, terminator);
+		}
+
+		/**
+		 * Searches the first occurrence of this rule in the given text.
+		 * 
+		 * @param text
+		 *            user agent string
+		 * @return found version number or {@code null} if the rule does not match
+		 */
+		VersionNumber find(final CharSequence text) {
+			final int length = text.length();
+			int start = CharSequenceUtil.indexOf(text, prefix, 0);
+			while (start >= 0) {
+				int pos = start + prefix.length();
+				if (optionalWhitespace && pos < length && isWhitespace(text.charAt(pos))) {
+					pos++;
+				}
+				if (pos < length && isDigit(text.charAt(pos))) {
+					final List<String> groups = new ArrayList<String>(4);
+					int groupStart = pos;
+					pos = skipDigits(text, pos);
+					groups.add(text.subSequence(groupStart, pos).toString());
+					while (pos + 1 < length && text.charAt(pos) == separator && isDigit(text.charAt(pos + 1))) {
+						groupStart = pos + 1;
+						pos = skipDigits(text, groupStart);
+						groups.add(text.subSequence(groupStart, pos).toString());
+					}
+					final int extensionStart = pos;
+					if (extension && pos + 1 < length && text.charAt(pos) == '-' && isWordCharacter(text.charAt(pos + 1))) {
+						pos += 2;
+						while (pos < length && isWordCharacter(text.charAt(pos))) {
+							pos++;
+						}
+					}
+					if (CharSequenceUtil.startsWith(text, terminator, pos)) {
+						return new VersionNumber(groups, text.subSequence(extensionStart, pos).toString());
+					}
+				}
+				start = CharSequenceUtil.indexOf(text, prefix, start + 1);
+			}
+			return null;
+		}
+
+	}
+
+	private static boolean isDigit(final char chr) {
+		return chr >= '0' && chr <= '9';
+	}
+
+	/**
+	 * Checks for a whitespace character like {@code \s} of a regular expression does it.
+	 */
+	private static boolean isWhitespace(final char chr) {
+		return chr == ' ' || chr == '\t' || chr == '\n' || chr == '\u000B' || chr == '\f' || chr == '\r';
+	}
+
+	/**
+	 * Checks for a word character like {@code \w} of a regular expression does it.
+	 */
+	private static boolean isWordCharacter(final char chr) {
+		return isDigit(chr) || chr >= 'a' && chr <= 'z' || chr >= 'A' && chr <= 'Z' || chr == '_';
+	}
+
+	private static int skipDigits(final CharSequence text, final int start) {
+		int pos = start;
+		while (pos < text.length() && isDigit(text.charAt(pos))) {
+			pos++;
+		}
+		return pos;
+	}
+
+	/**
+	 * Rules to evaluate in the given order
+	 */
+	private final List<Rule> rules;
+
+	/**
+	 * Constructs a {@code ScanningVersionExtractor} with the given rules.
+	 * 
+	 * @param rules
+	 *            rules which are evaluated in the given order
+	 * @throws IllegalArgumentException
+	 *             if the given rules are {@code null} or one of them is {@code null}
+	 */
+	public ScanningVersionExtractor(final Rule... rules) {
+		if (rules == null) {
+			throw new IllegalArgumentException("Argument 'rules' must not be null.");
+		}
+		for (final Rule rule : rules) {
+			if (rule == null) {
+				throw new IllegalArgumentException("Argument 'rules' must not contain null.");
+			}
+		}
+
+		this.rules = Collections.unmodifiableList(new ArrayList<Rule>(Arrays.asList(rules)));
+	}
+
+	@Override
+	public VersionNumber extract(final CharSequence userAgent) {
+		if (userAgent == null) {
+			throw new IllegalArgumentException("Argument 'userAgent' must not be null.");
+		}
+
+		for (final Rule rule : rules) {
+			final VersionNumber version = rule.find(userAgent);
+			if (version != null) {
+				return version;
+			}
+		}
+		return VersionNumber.UNKNOWN;
+	}
+
+}
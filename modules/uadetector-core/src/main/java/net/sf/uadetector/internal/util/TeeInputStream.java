@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * An {@code InputStream} which writes all bytes read from the underlying stream into a given {@code OutputStream}, so
+ * that a resource can be consumed and saved in one pass.<br>
+ * <br>
+ * Skipped bytes will be copied as well. Marking is not supported. Closing this stream closes both streams.
+ * 
+ * @author André Rouél
+ */
+public final class TeeInputStream extends FilterInputStream {
+
+	/**
+	 * Stream which receives a copy of all read bytes
+	 */
+	private final OutputStream branch;
+
+	/**
+	 * Creates a new {@code TeeInputStream}.
+	 * 
+	 * @param stream
+	 *            stream to be read
+	 * @param branch
+	 *            stream which receives a copy of all read bytes
+	 * @throws IllegalArgumentException
+	 *             if any of the given arguments is {@code null}
+	 */
+	public TeeInputStream(final InputStream stream, final OutputStream branch) {
+		super(stream);
+		if (stream == null) {
+			throw new IllegalArgumentException("Argument 'stream' must not be null.");
+		}
+		if (branch == null) {
+			throw new IllegalArgumentException("Argument 'branch' must not be null.");
+		}
+
+		this.branch = branch;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			super.close();
+		} finally {
+			branch.close();
+		}
+	}
+
+	/**
+	 * Reads the rest of the underlying stream, so that the branch receives all remaining bytes.
+	 * 
+	 * @return number of the remaining bytes
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public long drain() throws IOException {
+		final byte[] buffer = new byte[8 * 1024];
+		long count = 0;
+		int read;
+		while ((read = read(buffer)) != -1) {
+			count += read;
+		}
+		return count;
+	}
+
+	@Override
+	public synchronized void mark(final int readlimit) {
+		// marking is not supported
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public int read() throws IOException {
+		final int b = super.read();
+		if (b != -1) {
+			branch.write(b);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		final int read = super.read(b, off, len);
+		if (read > 0) {
+			branch.write(b, off, read);
+		}
+		return read;
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		throw new IOException("Marking is not supported.");
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		final byte[] buffer = new byte[(int) Math.min(Math.max(n, 0), 8 * 1024)];
+		long skipped = 0;
+		while (skipped < n) {
+			final int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+			if (read == -1) {
+				break;
+			}
+			skipped += read;
+		}
+		return skipped;
+	}
+
+}
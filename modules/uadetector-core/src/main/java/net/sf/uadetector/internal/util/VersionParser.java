@@ -17,11 +17,15 @@ package net.sf.uadetector.internal.util;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import net.sf.uadetector.OperatingSystemFamily;
+import net.sf.uadetector.VersionExtractor;
 import net.sf.uadetector.VersionNumber;
 
 /**
@@ -46,6 +50,119 @@ public final class VersionParser {
 	 */
 	private static final Pattern VERSIONSTRING = Pattern.compile("^" + VERSIONNUMBER_WITH_SUFFIX.pattern());
 
+	/**
+	 * Extractor for the version number of the operating system <i>Android</i>
+	 */
+	private static final VersionExtractor ANDROID_EXTRACTOR = new ScanningVersionExtractor(ScanningVersionExtractor.Rule
+			.prefix("Android").withOptionalWhitespace().withExtension().withTerminator(";"), ScanningVersionExtractor.Rule
+			.prefix("Android-").withExtension().withTerminator(";"));
+
+	/**
+	 * Extractor for the version number of the operating system <i>Bada</i>
+	 */
+	private static final VersionExtractor BADA_EXTRACTOR = new PatternVersionExtractor(Pattern.compile("Bada/((\\d+)((\\.\\d+)+)?)"));
+
+	/**
+	 * Extractor for the version number of an operating system of a <i>BSD</i> platform
+	 */
+	private static final VersionExtractor BSD_EXTRACTOR = new PatternVersionExtractor(Pattern.compile(
+			"\\w+bsd\\s?((\\d+)((\\.\\d+)+)?((\\-|_)[\\w\\d\\-]+)?)", Pattern.CASE_INSENSITIVE));
+
+	/**
+	 * Extractor for the version number of the operating system <i>iOS</i>
+	 */
+	private static final VersionExtractor IOS_EXTRACTOR = new ScanningVersionExtractor(ScanningVersionExtractor.Rule
+			.prefix("iPhone OS").withOptionalWhitespace().withSeparator('_').withTerminator(" like Mac OS X"),
+			ScanningVersionExtractor.Rule.prefix("CPU OS").withOptionalWhitespace().withSeparator('_').withTerminator(" like Mac OS X"),
+			ScanningVersionExtractor.Rule.prefix("iPhone OS").withOptionalWhitespace().withTerminator(";"));
+
+	/**
+	 * Extractor for the version number of the running <i>JVM</i>
+	 */
+	private static final VersionExtractor JVM_EXTRACTOR = new PatternVersionExtractor(
+			Pattern.compile("Java/((\\d+)((\\.\\d+)+)?((\\-|_)[\\w\\d\\-]+)?)"),
+			Pattern.compile("Java((\\d+)((\\.\\d+)+)?((\\-|_)[\\w\\d\\-]+)?)"));
+
+	/**
+	 * Extractor for the version number of the operating system <i>OS X</i>
+	 */
+	private static final VersionExtractor OS_X_EXTRACTOR = new ScanningVersionExtractor(ScanningVersionExtractor.Rule
+			.prefix("Mac OS X").withOptionalWhitespace().withTerminator(";"), ScanningVersionExtractor.Rule.prefix("Mac OS X")
+			.withOptionalWhitespace().withSeparator('_').withTerminator(";"), ScanningVersionExtractor.Rule.prefix("Mac OS X")
+			.withOptionalWhitespace().withSeparator('_').withTerminator(")"));
+
+	/**
+	 * Extractor for the version number of the operating system <i>Symbian</i>
+	 */
+	private static final VersionExtractor SYMBIAN_EXTRACTOR = new PatternVersionExtractor(
+			Pattern.compile("SymbianOS/((\\d+)((\\.\\d+)+)?s?)"));
+
+	/**
+	 * Extractor for the version number of the operating system <i>webOS</i>
+	 */
+	private static final VersionExtractor WEBOS_EXTRACTOR = new PatternVersionExtractor(Pattern.compile("hpwOS/((\\d+)((\\.\\d+)+)?);"),
+			Pattern.compile("webOS/((\\d+)((\\.\\d+)+)?);"));
+
+	/**
+	 * Extractor for the version number of the operating system <i>Windows</i>
+	 */
+	private static final VersionExtractor WINDOWS_EXTRACTOR = new ScanningVersionExtractor(ScanningVersionExtractor.Rule
+			.prefix("Windows NT").withOptionalWhitespace(), ScanningVersionExtractor.Rule.prefix("Windows Phone OS "),
+			ScanningVersionExtractor.Rule.prefix("Windows CE "), ScanningVersionExtractor.Rule.prefix("Windows 2000")
+					.withOptionalWhitespace(), ScanningVersionExtractor.Rule.prefix("Windows XP").withOptionalWhitespace(),
+			ScanningVersionExtractor.Rule.prefix("Windows 7").withOptionalWhitespace(), ScanningVersionExtractor.Rule.prefix("Win 9x "),
+			ScanningVersionExtractor.Rule.prefix("Windows "), ScanningVersionExtractor.Rule.prefix("WebTV/"));
+
+	/**
+	 * Unmodifiable map of the extractors for operating system versions per family which are supported out of the box
+	 */
+	private static final Map<OperatingSystemFamily, VersionExtractor> EXTRACTORS = Collections.unmodifiableMap(createDefaultExtractors());
+
+	/**
+	 * Creates the map of extractors for all operating system families which are supported out of the box.
+	 * 
+	 * @return map of extractors per family
+	 */
+	private static Map<OperatingSystemFamily, VersionExtractor> createDefaultExtractors() {
+		final Map<OperatingSystemFamily, VersionExtractor> map = new EnumMap<OperatingSystemFamily, VersionExtractor>(
+				OperatingSystemFamily.class);
+		map.put(OperatingSystemFamily.ANDROID, ANDROID_EXTRACTOR);
+		map.put(OperatingSystemFamily.BADA, BADA_EXTRACTOR);
+		map.put(OperatingSystemFamily.BSD, BSD_EXTRACTOR);
+		map.put(OperatingSystemFamily.IOS, IOS_EXTRACTOR);
+		map.put(OperatingSystemFamily.JVM, JVM_EXTRACTOR);
+		map.put(OperatingSystemFamily.OS_X, OS_X_EXTRACTOR);
+		map.put(OperatingSystemFamily.SYMBIAN, SYMBIAN_EXTRACTOR);
+		map.put(OperatingSystemFamily.WEBOS, WEBOS_EXTRACTOR);
+		map.put(OperatingSystemFamily.WINDOWS, WINDOWS_EXTRACTOR);
+		return map;
+	}
+
+	/**
+	 * Gets the extractor which is supported out of the box for the given operating system family.
+	 * 
+	 * @param family
+	 *            family of the operating system
+	 * @return built-in extractor or {@code null} if there is none
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public static VersionExtractor getOperatingSystemVersionExtractor(final OperatingSystemFamily family) {
+		if (family == null) {
+			throw new IllegalArgumentException("Argument 'family' must not be null.");
+		}
+		return EXTRACTORS.get(family);
+	}
+
+	/**
+	 * Gets the extractors for operating system versions per family which are supported out of the box.
+	 * 
+	 * @return unmodifiable map of the built-in extractors per family
+	 */
+	public static Map<OperatingSystemFamily, VersionExtractor> getOperatingSystemVersionExtractors() {
+		return EXTRACTORS;
+	}
+
 	/**
 	 * This method try to determine the version number of the operating system <i>Android</i> more accurately.
 	 * 
@@ -54,18 +171,7 @@ public final class VersionParser {
 	 * @return more accurately identified version number or {@code null}
 	 */
 	public static VersionNumber identifyAndroidVersion(final String userAgent) {
-		VersionNumber version = VersionNumber.UNKNOWN;
-		final List<Pattern> patterns = new ArrayList<Pattern>();
-		patterns.add(Pattern.compile("Android\\s?((\\d+)((\\.\\d+)+)?(\\-(\\w|\\d)+)?);"));
-		patterns.add(Pattern.compile("Android\\-((\\d+)((\\.\\d+)+)?(\\-(\\w|\\d)+)?);"));
-		for (final Pattern pattern : patterns) {
-			final Matcher m = pattern.matcher(userAgent);
-			if (m.find()) {
-				version = parseFirstVersionNumber(m.group(1));
-				break;
-			}
-		}
-		return version;
+		return ANDROID_EXTRACTOR.extract(userAgent);
 	}
 
 	/**
@@ -76,13 +182,7 @@ public final class VersionParser {
 	 * @return more accurately identified version number or {@code null}
 	 */
 	public static VersionNumber identifyBadaVersion(final String userAgent) {
-		VersionNumber version = VersionNumber.UNKNOWN;
-		final Pattern pattern = Pattern.compile("Bada/((\\d+)((\\.\\d+)+)?)");
-		final Matcher m = pattern.matcher(userAgent);
-		if (m.find()) {
-			version = parseFirstVersionNumber(m.group(1));
-		}
-		return version;
+		return BADA_EXTRACTOR.extract(userAgent);
 	}
 
 	/**
@@ -93,13 +193,7 @@ public final class VersionParser {
 	 * @return more accurately identified version number or {@code null}
 	 */
 	public static VersionNumber identifyBSDVersion(final String userAgent) {
-		VersionNumber version = VersionNumber.UNKNOWN;
-		final Pattern pattern = Pattern.compile("\\w+bsd\\s?((\\d+)((\\.\\d+)+)?((\\-|_)[\\w\\d\\-]+)?)", Pattern.CASE_INSENSITIVE);
-		final Matcher m = pattern.matcher(userAgent);
-		if (m.find()) {
-			version = parseFirstVersionNumber(m.group(1));
-		}
-		return version;
+		return BSD_EXTRACTOR.extract(userAgent);
 	}
 
 	/**
@@ -110,19 +204,7 @@ public final class VersionParser {
 	 * @return more accurately identified version number or {@code null}
 	 */
 	public static VersionNumber identifyIOSVersion(final String userAgent) {
-		VersionNumber version = VersionNumber.UNKNOWN;
-		final List<Pattern> patterns = new ArrayList<Pattern>();
-		patterns.add(Pattern.compile("iPhone OS\\s?((\\d+)((\\_\\d+)+)?) like Mac OS X"));
-		patterns.add(Pattern.compile("CPU OS\\s?((\\d+)((\\_\\d+)+)?) like Mac OS X"));
-		patterns.add(Pattern.compile("iPhone OS\\s?((\\d+)((\\.\\d+)+)?);"));
-		for (final Pattern pattern : patterns) {
-			final Matcher m = pattern.matcher(userAgent);
-			if (m.find()) {
-				version = parseFirstVersionNumber(m.group(1).replaceAll("_", "."));
-				break;
-			}
-		}
-		return version;
+		return IOS_EXTRACTOR.extract(userAgent);
 	}
 
 	/**
@@ -133,18 +215,7 @@ public final class VersionParser {
 	 * @return more accurately identified version number or {@code null}
 	 */
 	public static VersionNumber identifyJavaVersion(final String userAgent) {
-		VersionNumber version = VersionNumber.UNKNOWN;
-		final List<Pattern> patterns = new ArrayList<Pattern>();
-		patterns.add(Pattern.compile("Java/((\\d+)((\\.\\d+)+)?((\\-|_)[\\w\\d\\-]+)?)"));
-		patterns.add(Pattern.compile("Java((\\d+)((\\.\\d+)+)?((\\-|_)[\\w\\d\\-]+)?)"));
-		for (final Pattern pattern : patterns) {
-			final Matcher m = pattern.matcher(userAgent);
-			if (m.find()) {
-				version = parseFirstVersionNumber(m.group(1));
-				break;
-			}
-		}
-		return version;
+		return JVM_EXTRACTOR.extract(userAgent);
 	}
 
 	/**
@@ -155,19 +226,7 @@ public final class VersionParser {
 	 * @return more accurately identified version number or {@code null}
 	 */
 	public static VersionNumber identifyOSXVersion(final String userAgent) {
-		VersionNumber version = VersionNumber.UNKNOWN;
-		final List<Pattern> patterns = new ArrayList<Pattern>();
-		patterns.add(Pattern.compile("Mac OS X\\s?((\\d+)((\\.\\d+)+)?);"));
-		patterns.add(Pattern.compile("Mac OS X\\s?((\\d+)((\\_\\d+)+)?);"));
-		patterns.add(Pattern.compile("Mac OS X\\s?((\\d+)((\\_\\d+)+)?)\\)"));
-		for (final Pattern pattern : patterns) {
-			final Matcher m = pattern.matcher(userAgent);
-			if (m.find()) {
-				version = parseFirstVersionNumber(m.group(1).replaceAll("_", "."));
-				break;
-			}
-		}
-		return version;
+		return OS_X_EXTRACTOR.extract(userAgent);
 	}
 
 	/**
@@ -178,13 +237,7 @@ public final class VersionParser {
 	 * @return more accurately identified version number or {@code null}
 	 */
 	public static VersionNumber identifySymbianVersion(final String userAgent) {
-		VersionNumber version = VersionNumber.UNKNOWN;
-		final Pattern pattern = Pattern.compile("SymbianOS/((\\d+)((\\.\\d+)+)?s?)");
-		final Matcher m = pattern.matcher(userAgent);
-		if (m.find()) {
-			version = parseFirstVersionNumber(m.group(1));
-		}
-		return version;
+		return SYMBIAN_EXTRACTOR.extract(userAgent);
 	}
 
 	/**
@@ -195,18 +248,7 @@ public final class VersionParser {
 	 * @return more accurately identified version number or {@code null}
 	 */
 	public static VersionNumber identifyWebOSVersion(final String userAgent) {
-		VersionNumber version = VersionNumber.UNKNOWN;
-		final List<Pattern> patterns = new ArrayList<Pattern>();
-		patterns.add(Pattern.compile("hpwOS/((\\d+)((\\.\\d+)+)?);"));
-		patterns.add(Pattern.compile("webOS/((\\d+)((\\.\\d+)+)?);"));
-		for (final Pattern pattern : patterns) {
-			final Matcher m = pattern.matcher(userAgent);
-			if (m.find()) {
-				version = parseFirstVersionNumber(m.group(1));
-				break;
-			}
-		}
-		return version;
+		return WEBOS_EXTRACTOR.extract(userAgent);
 	}
 
 	/**
@@ -217,25 +259,7 @@ public final class VersionParser {
 	 * @return more accurately identified version number or {@code null}
 	 */
 	public static VersionNumber identifyWindowsVersion(final String userAgent) {
-		VersionNumber version = VersionNumber.UNKNOWN;
-		final List<Pattern> patterns = new ArrayList<Pattern>();
-		patterns.add(Pattern.compile("Windows NT\\s?((\\d+)((\\.\\d+)+)?)"));
-		patterns.add(Pattern.compile("Windows Phone OS ((\\d+)((\\.\\d+)+)?)"));
-		patterns.add(Pattern.compile("Windows CE ((\\d+)((\\.\\d+)+)?)"));
-		patterns.add(Pattern.compile("Windows 2000\\s?((\\d+)((\\.\\d+)+)?)"));
-		patterns.add(Pattern.compile("Windows XP\\s?((\\d+)((\\.\\d+)+)?)"));
-		patterns.add(Pattern.compile("Windows 7\\s?((\\d+)((\\.\\d+)+)?)"));
-		patterns.add(Pattern.compile("Win 9x ((\\d+)((\\.\\d+)+)?)"));
-		patterns.add(Pattern.compile("Windows ((\\d+)((\\.\\d+)+)?)"));
-		patterns.add(Pattern.compile("WebTV/((\\d+)((\\.\\d+)+)?)"));
-		for (final Pattern pattern : patterns) {
-			final Matcher m = pattern.matcher(userAgent);
-			if (m.find()) {
-				version = parseFirstVersionNumber(m.group(1));
-				break;
-			}
-		}
-		return version;
+		return WINDOWS_EXTRACTOR.extract(userAgent);
 	}
 
 	/**
@@ -300,7 +324,7 @@ public final class VersionParser {
 	 *            user agent string
 	 * @return extracted version number
 	 */
-	public static VersionNumber parseOperatingSystemVersion(final OperatingSystemFamily family, final String userAgent) {
+	public static VersionNumber parseOperatingSystemVersion(final OperatingSystemFamily family, final CharSequence userAgent) {
 		if (family == null) {
 			throw new IllegalArgumentException("Argument 'family' must not be null.");
 		}
@@ -308,29 +332,8 @@ public final class VersionParser {
 			throw new IllegalArgumentException("Argument 'userAgent' must not be null.");
 		}
 
-		final VersionNumber v;
-		if (OperatingSystemFamily.ANDROID == family) {
-			v = identifyAndroidVersion(userAgent);
-		} else if (OperatingSystemFamily.BADA == family) {
-			v = identifyBadaVersion(userAgent);
-		} else if (OperatingSystemFamily.BSD == family) {
-			v = identifyBSDVersion(userAgent);
-		} else if (OperatingSystemFamily.IOS == family) {
-			v = identifyIOSVersion(userAgent);
-		} else if (OperatingSystemFamily.JVM == family) {
-			v = identifyJavaVersion(userAgent);
-		} else if (OperatingSystemFamily.OS_X == family) {
-			v = identifyOSXVersion(userAgent);
-		} else if (OperatingSystemFamily.SYMBIAN == family) {
-			v = identifySymbianVersion(userAgent);
-		} else if (OperatingSystemFamily.WEBOS == family) {
-			v = identifyWebOSVersion(userAgent);
-		} else if (OperatingSystemFamily.WINDOWS == family) {
-			v = identifyWindowsVersion(userAgent);
-		} else {
-			v = VersionNumber.UNKNOWN;
-		}
-		return v;
+		final VersionExtractor extractor = EXTRACTORS.get(family);
+		return extractor == null ? VersionNumber.UNKNOWN : extractor.extract(userAgent);
 	}
 
 	/**
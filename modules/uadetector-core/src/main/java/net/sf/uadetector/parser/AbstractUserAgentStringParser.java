@@ -15,44 +15,77 @@
  ******************************************************************************/
 package net.sf.uadetector.parser;
 
-import java.util.Map.Entry;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.regex.Matcher;
 
+import net.sf.uadetector.MutableUserAgent;
+import net.sf.uadetector.OperatingSystemFamily;
 import net.sf.uadetector.UserAgent;
 import net.sf.uadetector.UserAgentStringParser;
+import net.sf.uadetector.VersionExtractor;
 import net.sf.uadetector.VersionNumber;
 import net.sf.uadetector.datastore.DataStore;
 import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.data.PatternIndex;
 import net.sf.uadetector.internal.data.domain.Browser;
 import net.sf.uadetector.internal.data.domain.BrowserPattern;
 import net.sf.uadetector.internal.data.domain.OperatingSystem;
 import net.sf.uadetector.internal.data.domain.OperatingSystemPattern;
 import net.sf.uadetector.internal.data.domain.Robot;
+import net.sf.uadetector.internal.util.MatcherCache;
 import net.sf.uadetector.internal.util.VersionParser;
 
 public abstract class AbstractUserAgentStringParser implements UserAgentStringParser {
 
 	/**
-	 * Examines the user agent string whether it is a browser.
-	 * 
-	 * @param userAgent
-	 *            String of an user agent
-	 * @param builder
-	 *            Builder for an user agent information
-	 */
-	private static void examineAsBrowser(final UserAgent.Builder builder, final Data data) {
-		Matcher matcher;
-		VersionNumber version;
-		for (final Entry<BrowserPattern, Browser> entry : data.getPatternBrowserMap().entrySet()) {
-			matcher = entry.getKey().getPattern().matcher(builder.getUserAgentString());
-			if (matcher.find()) {
-
-				entry.getValue().copyTo(builder);
-
-				// try to get the browser version from the first subgroup
-				version = VersionParser.parseVersion(matcher.groupCount() > 0 ? matcher.group(1) : "");
-				builder.setVersionNumber(version);
+	 * Copies the informations of the given browser into the user agent and takes the version from the first subgroup
+	 * of the matcher. The operating system of the browser, if any, is resolved through the given context.
+	 */
+	private static void applyBrowser(final MutableUserAgent agent, final Browser browser, final Matcher matcher,
+			final ParseContext context) {
+		browser.copyTo(agent);
+		agent.setVersionNumber(context.getVersionNumber(matcher, agent.getUserAgent()));
+		if (browser.getOperatingSystem() != null) {
+			agent.setOperatingSystem(context.getOperatingSystem(browser.getOperatingSystem(), agent.getUserAgent()));
+		}
+	}
 
+	/**
+	 * Examines the user agent string whether it is a browser by reusing the matchers of the given context. The
+	 * automaton only selects the position of a pattern, which will be verified with the regular expression. If it does
+	 * not match, the following candidates of the index will be evaluated one by one.
+	 */
+	private static void examineAsBrowser(final MutableUserAgent agent, final ParseContext context, final PatternMatchingEngine engine) {
+		final CharSequence userAgent = agent.getUserAgent();
+		final Data data = context.getData();
+		final MatcherCache matchers = context.getBrowserMatchers();
+		final PatternIndex<BrowserPattern, Browser> index = data.getBrowserPatternIndex();
+		int start = 0;
+		if (engine == PatternMatchingEngine.DFA) {
+			final int first = data.getBrowserPatternAutomaton().findFirst(userAgent, context.getCandidates(), matchers);
+			if (first < 0) {
+				return;
+			}
+			final Matcher matcher = matchers.matcher(first, index.getPattern(first).getPattern(), userAgent);
+			if (matcher.find()) {
+				applyBrowser(agent, index.getValue(first), matcher, context);
+				return;
+			}
+			start = first + 1;
+		}
+		final BitSet candidates = context.getCandidates();
+		index.findCandidates(userAgent, candidates);
+		for (int i = candidates.nextSetBit(start); i >= 0; i = candidates.nextSetBit(i + 1)) {
+			final Matcher matcher = matchers.matcher(i, index.getPattern(i).getPattern(), userAgent);
+			if (matcher.find()) {
+				applyBrowser(agent, index.getValue(i), matcher, context);
 				break;
 			}
 		}
@@ -60,49 +93,100 @@ public abstract class AbstractUserAgentStringParser implements UserAgentStringPa
 
 	/**
 	 * Examines the user agent string whether it is a robot.
-	 * 
-	 * @param userAgent
-	 *            String of an user agent
-	 * @param builder
-	 *            Builder for an user agent information
-	 * @return {@code true} if it is a robot, otherwise {@code false}
-	 */
-	private static boolean examineAsRobot(final UserAgent.Builder builder, final Data data) {
-		boolean isRobot = false;
-		VersionNumber version;
-		for (final Robot robot : data.getRobots()) {
-			if (robot.getUserAgentString().equals(builder.getUserAgentString())) {
-				isRobot = true;
-				robot.copyTo(builder);
-
-				// try to get the version from the last found group
-				version = VersionParser.parseLastVersionNumber(robot.getName());
-				builder.setVersionNumber(version);
+	 */
+	private static boolean examineAsRobot(final MutableUserAgent agent, final Data data) {
+		final Robot robot = data.findRobot(agent.getUserAgent());
+		if (robot != null) {
+			robot.copyTo(agent);
+			agent.setVersionNumber(robot.getVersionNumber());
+		}
+		return robot != null;
+	}
 
+	/**
+	 * Examines the operating system of the user agent string, if not available, by reusing the matchers of the given
+	 * context. The position selected by the automaton will be verified like in
+	 * {@link #examineAsBrowser(MutableUserAgent, ParseContext, PatternMatchingEngine)}.
+	 */
+	private static void examineOperatingSystem(final MutableUserAgent agent, final ParseContext context,
+			final PatternMatchingEngine engine) {
+		if (!net.sf.uadetector.OperatingSystem.EMPTY.equals(agent.getOperatingSystem())) {
+			return;
+		}
+		final CharSequence userAgent = agent.getUserAgent();
+		final Data data = context.getData();
+		final MatcherCache matchers = context.getOperatingSystemMatchers();
+		final PatternIndex<OperatingSystemPattern, OperatingSystem> index = data.getOperatingSystemPatternIndex();
+		int start = 0;
+		if (engine == PatternMatchingEngine.DFA) {
+			final int first = data.getOperatingSystemPatternAutomaton().findFirst(userAgent, context.getCandidates(), matchers);
+			if (first < 0) {
+				return;
+			}
+			if (matchers.matcher(first, index.getPattern(first).getPattern(), userAgent).find()) {
+				agent.setOperatingSystem(context.getOperatingSystem(index.getValue(first), userAgent));
+				return;
+			}
+			start = first + 1;
+		}
+		final BitSet candidates = context.getCandidates();
+		index.findCandidates(userAgent, candidates);
+		for (int i = candidates.nextSetBit(start); i >= 0; i = candidates.nextSetBit(i + 1)) {
+			if (matchers.matcher(i, index.getPattern(i).getPattern(), userAgent).find()) {
+				agent.setOperatingSystem(context.getOperatingSystem(index.getValue(i), userAgent));
 				break;
 			}
 		}
-		return isRobot;
 	}
 
 	/**
-	 * Examines the operating system of the user agent string, if not available.
-	 * 
-	 * @param userAgent
-	 *            String of an user agent
-	 * @param builder
-	 *            Builder for an user agent information
-	 */
-	private static void examineOperatingSystem(final UserAgent.Builder builder, final Data data) {
-		if (net.sf.uadetector.OperatingSystem.EMPTY.equals(builder.getOperatingSystem())) {
-			for (final Entry<OperatingSystemPattern, OperatingSystem> entry : data.getPatternOsMap().entrySet()) {
-				final Matcher matcher = entry.getKey().getPattern().matcher(builder.getUserAgentString());
-				if (matcher.find()) {
-					entry.getValue().copyTo(builder);
-					break;
-				}
+	 * Per-thread working memory for {@link #parse(CharSequence, MutableUserAgent)}. A thread refers to its context only
+	 * weakly, so that a thread which does not parse anymore does not keep previous data reachable.
+	 */
+	private final ThreadLocal<Reference<ParseContext>> contexts = new ThreadLocal<Reference<ParseContext>>();
+
+	/**
+	 * Keeps the contexts of all threads alive as long as they are built for the current data and extractors. The
+	 * threads are referred to weakly, so that the contexts of finished threads will be released too.
+	 */
+	private final Map<Thread, ParseContext> liveContexts = new WeakHashMap<Thread, ParseContext>();
+
+	/**
+	 * Extractors for version numbers of operating systems per family which are used by this parser. The map will be
+	 * replaced as a whole on every change, so it can be read without locking.
+	 */
+	private volatile Map<OperatingSystemFamily, VersionExtractor> extractors = VersionParser.getOperatingSystemVersionExtractors();
+
+	/**
+	 * Examines the user agent string of the given container, which has been reset before, against the given data and
+	 * stores the detected informations in it.
+	 */
+	private MutableUserAgent analyze(final MutableUserAgent result, final Data data) {
+		final ParseContext context = getParseContext(data, extractors);
+		if (!examineAsRobot(result, data)) {
+			final PatternMatchingEngine engine = getPatternMatchingEngine();
+			examineAsBrowser(result, context, engine);
+			examineOperatingSystem(result, context, engine);
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the context of the current thread for the given data and extractors. A context of previous data or
+	 * extractors will be replaced and the ones of the other threads will be released.
+	 */
+	private ParseContext getParseContext(final Data data, final Map<OperatingSystemFamily, VersionExtractor> currentExtractors) {
+		final Reference<ParseContext> reference = contexts.get();
+		ParseContext context = reference == null ? null : reference.get();
+		if (context == null || context.getData() != data || context.getExtractors() != currentExtractors) {
+			context = new ParseContext(data, currentExtractors);
+			synchronized (liveContexts) {
+				releaseParseContexts(data, currentExtractors);
+				liveContexts.put(Thread.currentThread(), context);
 			}
+			contexts.set(new WeakReference<ParseContext>(context));
 		}
+		return context;
 	}
 
 	/**
@@ -112,23 +196,218 @@ public abstract class AbstractUserAgentStringParser implements UserAgentStringPa
 	 */
 	protected abstract DataStore getDataStore();
 
+	/**
+	 * Gets the engine which is used to find the first matching browser and operating system pattern. By default
+	 * {@link PatternMatchingEngine#SEQUENTIAL} is used.
+	 * 
+	 * @return pattern matching engine of this parser
+	 */
+	protected PatternMatchingEngine getPatternMatchingEngine() {
+		return PatternMatchingEngine.SEQUENTIAL;
+	}
+
 	@Override
 	public String getDataVersion() {
 		return getDataStore().getData().getVersion();
 	}
 
+	/**
+	 * Gets the extractor which is used by this parser to determine the version number of operating systems of the
+	 * given family.
+	 * 
+	 * @param family
+	 *            family of the operating system
+	 * @return used extractor or {@code null} if there is none
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public VersionExtractor getOperatingSystemVersionExtractor(final OperatingSystemFamily family) {
+		if (family == null) {
+			throw new IllegalArgumentException("Argument 'family' must not be null.");
+		}
+		return extractors.get(family);
+	}
+
 	@Override
 	public UserAgent parse(final String userAgent) {
-		final UserAgent.Builder builder = new UserAgent.Builder(userAgent);
+		// work during the analysis always with the same reference of data
+		return parse(userAgent, getDataStore().getData());
+	}
 
+	/**
+	 * Detects informations about a network client based on a Latin-1 encoded user agent string and writes them into
+	 * the given {@link MutableUserAgent}. The bytes are examined through a view and will neither be copied nor decoded
+	 * into a {@code String}, see {@link #parse(CharSequence, MutableUserAgent)}.
+	 * 
+	 * @param bytes
+	 *            Latin-1 encoded user agent string
+	 * @param offset
+	 *            index of the first byte of the user agent string
+	 * @param length
+	 *            number of bytes of the user agent string
+	 * @param result
+	 *            reusable container in which the detected informations will be stored
+	 * @return the passed container, for chaining
+	 * @throws IllegalArgumentException
+	 *             if the given array or container is {@code null} or the slice is not within the array
+	 */
+	public MutableUserAgent parse(final byte[] bytes, final int offset, final int length, final MutableUserAgent result) {
+		if (result == null) {
+			throw new IllegalArgumentException("Argument 'result' must not be null.");
+		}
+		// work during the analysis always with the same reference of data
+		return analyze(result.reset(bytes, offset, length), getDataStore().getData());
+	}
+
+	/**
+	 * Detects informations about a network client based on the remaining Latin-1 encoded bytes of the given buffer and
+	 * writes them into the given {@link MutableUserAgent}. The bytes are examined through a view and will neither be
+	 * copied nor decoded into a {@code String}. The position of the buffer will not be changed.
+	 * 
+	 * @param buffer
+	 *            Latin-1 encoded user agent string
+	 * @param result
+	 *            reusable container in which the detected informations will be stored
+	 * @return the passed container, for chaining
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 */
+	public MutableUserAgent parse(final ByteBuffer buffer, final MutableUserAgent result) {
+		if (result == null) {
+			throw new IllegalArgumentException("Argument 'result' must not be null.");
+		}
+		// work during the analysis always with the same reference of data
+		return analyze(result.reset(buffer), getDataStore().getData());
+	}
+
+	/**
+	 * Detects informations about a network client based on a user agent string which is given as any
+	 * {@code CharSequence}, for example a {@link net.sf.uadetector.Latin1CharSequence} view on the bytes of a HTTP
+	 * header. The resulting {@code UserAgent} does not keep a reference to the given characters.
+	 * 
+	 * @param userAgent
+	 *            user agent string
+	 * @return the detected information of an user agent
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public UserAgent parse(final CharSequence userAgent) {
+		if (userAgent == null) {
+			throw new IllegalArgumentException("Argument 'userAgent' must not be null.");
+		}
+		if (userAgent instanceof String) {
+			return parse((String) userAgent);
+		}
+		return parse(userAgent, new MutableUserAgent()).toUserAgent();
+	}
+
+	/**
+	 * Detects informations about a network client based on a user agent string and writes them into the given
+	 * {@link MutableUserAgent}, which will be reset before.<br>
+	 * <br>
+	 * The matching runs directly on the given characters, a {@code String} is only created for new entries of the
+	 * caches described below. Every thread that calls this method keeps its own matchers for all patterns and small
+	 * caches of version numbers and operating system informations, so that analyzing a known user agent string does
+	 * not create new objects in steady state. The results are equal to the ones of {@link #parse(String)}.
+	 * 
+	 * @param userAgent
+	 *            user agent string
+	 * @param result
+	 *            reusable container in which the detected informations will be stored
+	 * @return the passed container, for chaining
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 */
+	public MutableUserAgent parse(final CharSequence userAgent, final MutableUserAgent result) {
+		if (userAgent == null) {
+			throw new IllegalArgumentException("Argument 'userAgent' must not be null.");
+		}
+		if (result == null) {
+			throw new IllegalArgumentException("Argument 'result' must not be null.");
+		}
 		// work during the analysis always with the same reference of data
+		return analyze(result.reset(userAgent), getDataStore().getData());
+	}
+
+	/**
+	 * Detects informations about a network client based on a user agent string against the given data. This allows
+	 * callers to analyze several user agent strings with one and the same snapshot of data.
+	 * 
+	 * @param userAgent
+	 *            user agent string
+	 * @param data
+	 *            data to analyze the user agent string with
+	 * @return the detected information of an user agent
+	 */
+	UserAgent parse(final String userAgent, final Data data) {
+		return analyze(new MutableUserAgent().reset(userAgent), data).toUserAgent();
+	}
+
+	/**
+	 * Releases the contexts of all threads which are not built for the given data and extractors. The caller must hold
+	 * the lock of {@link #liveContexts}.
+	 */
+	private void releaseParseContexts(final Data data, final Map<OperatingSystemFamily, VersionExtractor> currentExtractors) {
+		final Iterator<ParseContext> iterator = liveContexts.values().iterator();
+		while (iterator.hasNext()) {
+			final ParseContext context = iterator.next();
+			if (context.getData() != data || context.getExtractors() != currentExtractors) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Releases the per-thread working memory of {@link #parse(CharSequence, MutableUserAgent)} which has been built for
+	 * previous data or extractors. This should be called after new data have been published by the data store, so that
+	 * threads which do not parse anymore do not keep the previous data reachable.
+	 */
+	protected void releaseStaleParseContexts() {
 		final Data data = getDataStore().getData();
+		synchronized (liveContexts) {
+			releaseParseContexts(data, extractors);
+		}
+	}
+
+	/**
+	 * Sets the extractor which is used by this parser to determine the version number of operating systems of the
+	 * given family. An extractor which is already used for the family will be replaced. This makes it possible to
+	 * improve the version detection of the supported families or to add families which are not supported out of the
+	 * box without affecting other parsers.
+	 * 
+	 * @param family
+	 *            family of the operating system
+	 * @param extractor
+	 *            extractor for the version number
+	 * @return the previously used extractor or {@code null} if there was none
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 */
+	public synchronized VersionExtractor setOperatingSystemVersionExtractor(final OperatingSystemFamily family,
+			final VersionExtractor extractor) {
+		if (family == null) {
+			throw new IllegalArgumentException("Argument 'family' must not be null.");
+		}
+		if (extractor == null) {
+			throw new IllegalArgumentException("Argument 'extractor' must not be null.");
+		}
 
-		if (!examineAsRobot(builder, data)) {
-			examineAsBrowser(builder, data);
-			examineOperatingSystem(builder, data);
+		final Map<OperatingSystemFamily, VersionExtractor> map = new EnumMap<OperatingSystemFamily, VersionExtractor>(extractors);
+		final VersionExtractor previous = map.put(family, extractor);
+		extractors = map;
+		releaseStaleParseContexts();
+		return previous;
+	}
+
+	/**
+	 * Releases the per-thread working memory of this parser. The parser can still be used afterwards, but the working
+	 * memory must be built again.
+	 */
+	public void shutdown() {
+		synchronized (liveContexts) {
+			liveContexts.clear();
 		}
-		return builder.build();
+		contexts.remove();
 	}
 
 }
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.parser;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.uadetector.UserAgent;
+
+/**
+ * Result of parsing a batch of user agent strings with a {@link BatchUserAgentStringParser}. The detected user agents
+ * are aligned to the order of the given user agent strings. Additionally some statistics about the batch are
+ * available.<br>
+ * <br>
+ * A {@code BatchResult} object is immutable.
+ * 
+ * @author André Rouél
+ */
+public final class BatchResult {
+
+	/**
+	 * Version of the data the batch was analyzed with
+	 */
+	private final String dataVersion;
+
+	/**
+	 * Number of distinct user agent strings within the batch
+	 */
+	private final int distinctCount;
+
+	/**
+	 * Time spent to process the batch in nanoseconds
+	 */
+	private final long elapsedNanos;
+
+	/**
+	 * Detected user agents in the order of the given user agent strings
+	 */
+	private final List<UserAgent> userAgents;
+
+	BatchResult(final List<UserAgent> userAgents, final int distinctCount, final long elapsedNanos, final String dataVersion) {
+		this.userAgents = userAgents;
+		this.distinctCount = distinctCount;
+		this.elapsedNanos = elapsedNanos;
+		this.dataVersion = dataVersion;
+	}
+
+	/**
+	 * Gets the number of user agent strings whose result was taken over from an identical string within the same batch
+	 * instead of being parsed again.
+	 * 
+	 * @return number of cache hits within the batch
+	 */
+	public int getCacheHitCount() {
+		return userAgents.size() - distinctCount;
+	}
+
+	/**
+	 * Gets the version of the <em>UAS data</em> which was used to analyze all user agent strings of the batch.
+	 * 
+	 * @return version of the <em>UAS data</em>
+	 */
+	public String getDataVersion() {
+		return dataVersion;
+	}
+
+	/**
+	 * Gets the number of distinct user agent strings within the batch, which is the number of strings that were
+	 * actually parsed.
+	 * 
+	 * @return number of distinct user agent strings
+	 */
+	public int getDistinctCount() {
+		return distinctCount;
+	}
+
+	/**
+	 * Gets the time which was spent to process the batch.
+	 * 
+	 * @param unit
+	 *            unit of the returned time
+	 * @return elapsed time in the given unit
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public long getElapsedTime(final TimeUnit unit) {
+		if (unit == null) {
+			throw new IllegalArgumentException("Argument 'unit' must not be null.");
+		}
+		return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Gets the detected user agent at the given position of the batch.
+	 * 
+	 * @param index
+	 *            position of the user agent string within the batch
+	 * @return detected user agent
+	 */
+	public UserAgent getUserAgent(final int index) {
+		return userAgents.get(index);
+	}
+
+	/**
+	 * Gets the detected user agents in the order of the given user agent strings.
+	 * 
+	 * @return unmodifiable list of detected user agents
+	 */
+	public List<UserAgent> getUserAgents() {
+		return userAgents;
+	}
+
+	/**
+	 * Gets the number of user agent strings within the batch.
+	 * 
+	 * @return size of the batch
+	 */
+	public int size() {
+		return userAgents.size();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("BatchResult [size=");
+		builder.append(userAgents.size());
+		builder.append(", distinctCount=");
+		builder.append(distinctCount);
+		builder.append(", cacheHitCount=");
+		builder.append(getCacheHitCount());
+		builder.append(", elapsedMillis=");
+		builder.append(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+		builder.append(", dataVersion=");
+		builder.append(dataVersion);
+		builder.append("]");
+		return builder.toString();
+	}
+
+}
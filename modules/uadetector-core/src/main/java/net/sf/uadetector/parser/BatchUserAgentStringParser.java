@@ -0,0 +1,330 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sf.uadetector.UserAgent;
+import net.sf.uadetector.UserAgentStringParser;
+import net.sf.uadetector.internal.data.Data;
+
+/**
+ * This class parses batches of user agent strings, e.g. all lines of a log file, in parallel.<br>
+ * <br>
+ * Identical user agent strings within a batch are parsed only once. The distinct strings are divided into chunks which
+ * are processed by the threads of an {@link ExecutorService}. If the given parser is based on
+ * {@link AbstractUserAgentStringParser}, all strings of a batch are analyzed against one and the same snapshot of the
+ * <em>UAS data</em>, even if the data will be updated in the meantime. The results are returned in the order of the
+ * given user agent strings.<br>
+ * <br>
+ * A {@code BatchUserAgentStringParser} is safe when used concurrently by multiple threads. If it creates its own thread
+ * pool, the pool should be released with {@link #shutdown()} when the parser is no longer needed.
+ * 
+ * @author André Rouél
+ */
+public final class BatchUserAgentStringParser {
+
+	/**
+	 * Parses a range of distinct user agent strings and stores the results at the same positions
+	 */
+	private final class Chunk implements Callable<Void> {
+		private final String[] distinct;
+		private final UserAgent[] results;
+		private final Data data;
+		private final int from;
+		private final int to;
+
+		private Chunk(final String[] distinct, final UserAgent[] results, final Data data, final int from, final int to) {
+			this.distinct = distinct;
+			this.results = results;
+			this.data = data;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public Void call() {
+			parseRange(distinct, results, data, from, to);
+			return null;
+		}
+	}
+
+	/**
+	 * Minimum number of distinct user agent strings which will be parsed by one task
+	 */
+	private static final int MIN_CHUNK_SIZE = 256;
+
+	/**
+	 * Number of tasks per thread, so that threads which finish early can take over work from the others
+	 */
+	private static final int TASKS_PER_THREAD = 4;
+
+	/**
+	 * Thread pool to parse the chunks of a batch
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Indicates whether the thread pool was created by this parser and must be shut down by it
+	 */
+	private final boolean ownExecutor;
+
+	/**
+	 * Number of threads which can parse chunks concurrently
+	 */
+	private final int parallelism;
+
+	/**
+	 * Parser to analyze a single user agent string
+	 */
+	private final UserAgentStringParser parser;
+
+	/**
+	 * Constructs a {@code BatchUserAgentStringParser} with an own pool of daemon threads, one for each available
+	 * processor.
+	 * 
+	 * @param parser
+	 *            parser to analyze a single user agent string
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public BatchUserAgentStringParser(final UserAgentStringParser parser) {
+		this(parser, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs a {@code BatchUserAgentStringParser} which parses with the threads of the given executor. The
+	 * executor will not be shut down by this parser.
+	 * 
+	 * @param parser
+	 *            parser to analyze a single user agent string
+	 * @param executor
+	 *            executor to run the parsing tasks
+	 * @param parallelism
+	 *            number of threads of the executor which should be used to parse a batch
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 * @throws IllegalArgumentException
+	 *             if the given parallelism is smaller than {@code 1}
+	 */
+	public BatchUserAgentStringParser(final UserAgentStringParser parser, final ExecutorService executor, final int parallelism) {
+		this(parser, executor, parallelism, false);
+	}
+
+	private BatchUserAgentStringParser(final UserAgentStringParser parser, final ExecutorService executor, final int parallelism,
+			final boolean ownExecutor) {
+		if (parser == null) {
+			throw new IllegalArgumentException("Argument 'parser' must not be null.");
+		}
+		if (executor == null) {
+			throw new IllegalArgumentException("Argument 'executor' must not be null.");
+		}
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Argument 'parallelism' must not be smaller than 1.");
+		}
+
+		this.parser = parser;
+		this.executor = executor;
+		this.parallelism = parallelism;
+		this.ownExecutor = ownExecutor;
+	}
+
+	/**
+	 * Constructs a {@code BatchUserAgentStringParser} with an own pool of the given number of daemon threads.
+	 * 
+	 * @param parser
+	 *            parser to analyze a single user agent string
+	 * @param threads
+	 *            number of threads to parse a batch
+	 * @throws IllegalArgumentException
+	 *             if the given parser is {@code null}
+	 * @throws IllegalArgumentException
+	 *             if the given number of threads is smaller than {@code 1}
+	 */
+	public BatchUserAgentStringParser(final UserAgentStringParser parser, final int threads) {
+		this(parser, createExecutor(threads), threads, true);
+	}
+
+	private static ExecutorService createExecutor(final int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Argument 'threads' must not be smaller than 1.");
+		}
+		return Executors.newFixedThreadPool(threads, new DaemonThreadFactory());
+	}
+
+	/**
+	 * Gets the number of threads which are used to parse a batch.
+	 * 
+	 * @return number of threads
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Gets the parser which analyzes a single user agent string.
+	 * 
+	 * @return decorated parser
+	 */
+	public UserAgentStringParser getParser() {
+		return parser;
+	}
+
+	/**
+	 * Detects informations about all given user agent strings.
+	 * 
+	 * @param userAgents
+	 *            user agent strings
+	 * @return the detected informations in the order of the given user agent strings
+	 * @throws IllegalArgumentException
+	 *             if the given list is {@code null} or contains {@code null}
+	 * @throws IllegalStateException
+	 *             if the current thread was interrupted while waiting for the results
+	 */
+	public BatchResult parse(final List<String> userAgents) {
+		if (userAgents == null) {
+			throw new IllegalArgumentException("Argument 'userAgents' must not be null.");
+		}
+
+		final long start = System.nanoTime();
+
+		// deduplicate and remember for every position which distinct string belongs to it
+		final int size = userAgents.size();
+		final int[] positions = new int[size];
+		final Map<String, Integer> indexes = new HashMap<String, Integer>(Math.min(size, 1 << 16));
+		final List<String> distinct = new ArrayList<String>();
+		int i = 0;
+		for (final String userAgent : userAgents) {
+			if (userAgent == null) {
+				throw new IllegalArgumentException("Argument 'userAgents' must not contain null.");
+			}
+			Integer index = indexes.get(userAgent);
+			if (index == null) {
+				index = Integer.valueOf(distinct.size());
+				indexes.put(userAgent, index);
+				distinct.add(userAgent);
+			}
+			positions[i++] = index.intValue();
+		}
+
+		// work during the analysis of the batch always with the same reference of data
+		final Data data = parser instanceof AbstractUserAgentStringParser ? ((AbstractUserAgentStringParser) parser).getDataStore()
+				.getData() : null;
+		final String dataVersion = data != null ? data.getVersion() : parser.getDataVersion();
+
+		final String[] strings = distinct.toArray(new String[distinct.size()]);
+		final UserAgent[] results = new UserAgent[strings.length];
+		parseAll(strings, results, data);
+
+		final UserAgent[] aligned = new UserAgent[size];
+		for (int j = 0; j < size; j++) {
+			aligned[j] = results[positions[j]];
+		}
+		return new BatchResult(Collections.unmodifiableList(Arrays.asList(aligned)), strings.length, System.nanoTime() - start,
+				dataVersion);
+	}
+
+	/**
+	 * Detects informations about all given user agent strings.
+	 * 
+	 * @param userAgents
+	 *            user agent strings
+	 * @return the detected informations in the order of the given user agent strings
+	 * @throws IllegalArgumentException
+	 *             if the given array is {@code null} or contains {@code null}
+	 * @throws IllegalStateException
+	 *             if the current thread was interrupted while waiting for the results
+	 */
+	public BatchResult parse(final String[] userAgents) {
+		if (userAgents == null) {
+			throw new IllegalArgumentException("Argument 'userAgents' must not be null.");
+		}
+		return parse(Arrays.asList(userAgents));
+	}
+
+	/**
+	 * Parses all distinct strings, in parallel if there are enough of them.
+	 */
+	private void parseAll(final String[] distinct, final UserAgent[] results, final Data data) {
+		final int tasks = Math.min(parallelism * TASKS_PER_THREAD, distinct.length / MIN_CHUNK_SIZE);
+		if (parallelism == 1 || tasks < 2) {
+			parseRange(distinct, results, data, 0, distinct.length);
+			return;
+		}
+
+		final List<Future<Void>> futures = new ArrayList<Future<Void>>(tasks);
+		try {
+			for (int task = 0; task < tasks; task++) {
+				final int from = (int) ((long) distinct.length * task / tasks);
+				final int to = (int) ((long) distinct.length * (task + 1) / tasks);
+				futures.add(executor.submit(new Chunk(distinct, results, data, from, to)));
+			}
+			for (final Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the results of a batch.", e);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		} finally {
+			for (final Future<Void> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	private void parseRange(final String[] distinct, final UserAgent[] results, final Data data, final int from, final int to) {
+		if (data != null) {
+			final AbstractUserAgentStringParser pinned = (AbstractUserAgentStringParser) parser;
+			for (int i = from; i < to; i++) {
+				results[i] = pinned.parse(distinct[i], data);
+			}
+		} else {
+			for (int i = from; i < to; i++) {
+				results[i] = parser.parse(distinct[i]);
+			}
+		}
+	}
+
+	/**
+	 * Shuts down the thread pool of this parser, if it was created by it. Afterwards no more batches can be parsed in
+	 * parallel.
+	 */
+	public void shutdown() {
+		if (ownExecutor) {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,415 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.parser;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.sf.uadetector.UserAgent;
+import net.sf.uadetector.UserAgentStringParser;
+import net.sf.uadetector.internal.util.FrequencySketch;
+
+/**
+ * This parser decorates another {@code UserAgentStringParser} and remembers the detected informations of recently and
+ * frequently seen user agent strings, so that repeated strings must not be parsed again.<br>
+ * <br>
+ * The cache is bounded by a maximum number of entries. Its eviction policy follows <em>W-TinyLFU</em>: new entries
+ * arrive in a small LRU window and have to compete afterwards against the least recently used entry of the main
+ * area, whereby the entry with the higher estimated frequency wins. In this way a flood of one-off user agent strings
+ * (e.g. from robots) can not displace the hot set.<br>
+ * <br>
+ * Every entry is tagged with the version of the <em>UAS data</em> it was detected with. Once the decorated parser
+ * reports another data version, outdated entries will be parsed again.<br>
+ * <br>
+ * The cache is divided into independent segments. Lookups do not lock at all, accesses are recorded only if the lock
+ * of the segment is free and only insertions wait for it.
+ * 
+ * @author André Rouél
+ */
+public final class CachingUserAgentStringParser implements UserAgentStringParser {
+
+	/**
+	 * Immutable pair of a detected user agent and the version of the data it was detected with
+	 */
+	private static final class Result {
+		private final UserAgent userAgent;
+		private final String dataVersion;
+
+		private Result(final UserAgent userAgent, final String dataVersion) {
+			this.userAgent = userAgent;
+			this.dataVersion = dataVersion;
+		}
+	}
+
+	/**
+	 * Areas of a segment in which an entry can be placed
+	 */
+	private enum Area {
+		WINDOW, PROBATION, PROTECTED, REMOVED
+	}
+
+	/**
+	 * Cached entry which is also an element of a doubly linked access order list
+	 */
+	private static final class Node {
+		private final String key;
+		private volatile Result result;
+		private Area area;
+		private Node prev;
+		private Node next;
+
+		private Node(final String key, final Result result) {
+			this.key = key;
+			this.result = result;
+		}
+	}
+
+	/**
+	 * Doubly linked list of nodes in access order, the head is the least recently used node
+	 */
+	private static final class AccessOrderList {
+		private final Node sentinel = new Node(null, null);
+		private int size;
+
+		private AccessOrderList() {
+			sentinel.prev = sentinel;
+			sentinel.next = sentinel;
+		}
+
+		private void addLast(final Node node) {
+			node.prev = sentinel.prev;
+			node.next = sentinel;
+			sentinel.prev.next = node;
+			sentinel.prev = node;
+			size++;
+		}
+
+		private Node peekFirst() {
+			return sentinel.next == sentinel ? null : sentinel.next;
+		}
+
+		private void moveToLast(final Node node) {
+			remove(node);
+			addLast(node);
+		}
+
+		private void remove(final Node node) {
+			node.prev.next = node.next;
+			node.next.prev = node.prev;
+			node.prev = null;
+			node.next = null;
+			size--;
+		}
+	}
+
+	/**
+	 * Independent part of the cache with its own lock, eviction policy and frequency sketch
+	 */
+	private final class Segment {
+		private final ReentrantLock lock = new ReentrantLock();
+		private final FrequencySketch sketch;
+		private final AccessOrderList window = new AccessOrderList();
+		private final AccessOrderList probation = new AccessOrderList();
+		private final AccessOrderList protect = new AccessOrderList();
+		private final int windowCapacity;
+		private final int mainCapacity;
+		private final int protectedCapacity;
+
+		private Segment(final int capacity) {
+			sketch = new FrequencySketch(capacity);
+			windowCapacity = Math.max(1, capacity / 100);
+			mainCapacity = capacity - windowCapacity;
+			protectedCapacity = mainCapacity * 80 / 100;
+		}
+
+		/**
+		 * Moves the candidate from the window into the main area or evicts it, if the least recently used entry of
+		 * the main area is more valuable.
+		 */
+		private void admit(final Node candidate) {
+			if (probation.size + protect.size < mainCapacity) {
+				candidate.area = Area.PROBATION;
+				probation.addLast(candidate);
+				return;
+			}
+
+			Node victim = probation.peekFirst();
+			if (victim == null) {
+				victim = protect.peekFirst();
+			}
+			if (victim == null) {
+				evict(candidate);
+			} else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+				listOf(victim).remove(victim);
+				evict(victim);
+				candidate.area = Area.PROBATION;
+				probation.addLast(candidate);
+			} else {
+				evict(candidate);
+			}
+		}
+
+		private void evict(final Node node) {
+			node.area = Area.REMOVED;
+			entries.remove(node.key, node);
+		}
+
+		private AccessOrderList listOf(final Node node) {
+			switch (node.area) {
+			case WINDOW:
+				return window;
+			case PROBATION:
+				return probation;
+			default:
+				return protect;
+			}
+		}
+
+		/**
+		 * Updates the position of an accessed node within the eviction policy. Must be called with the lock held.
+		 */
+		private void onAccess(final Node node) {
+			sketch.increment(node.key);
+			if (node.area == Area.WINDOW) {
+				window.moveToLast(node);
+			} else if (node.area == Area.PROBATION) {
+				probation.remove(node);
+				node.area = Area.PROTECTED;
+				protect.addLast(node);
+				if (protect.size > protectedCapacity) {
+					final Node demoted = protect.peekFirst();
+					protect.remove(demoted);
+					demoted.area = Area.PROBATION;
+					probation.addLast(demoted);
+				}
+			} else if (node.area == Area.PROTECTED) {
+				protect.moveToLast(node);
+			}
+		}
+
+		/**
+		 * Records a cache hit, unless another thread currently holds the lock of this segment. Dropping some
+		 * accesses under contention only makes the policy slightly less accurate.
+		 */
+		private void recordHit(final Node node) {
+			if (lock.tryLock()) {
+				try {
+					onAccess(node);
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+
+		private void put(final String key, final Result result) {
+			lock.lock();
+			try {
+				final Node existing = entries.get(key);
+				if (existing != null) {
+					existing.result = result;
+					onAccess(existing);
+					return;
+				}
+
+				final Node node = new Node(key, result);
+				node.area = Area.WINDOW;
+				entries.put(key, node);
+				sketch.increment(key);
+				window.addLast(node);
+				if (window.size > windowCapacity) {
+					final Node candidate = window.peekFirst();
+					window.remove(candidate);
+					admit(candidate);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void clear() {
+			lock.lock();
+			try {
+				for (final AccessOrderList list : new AccessOrderList[] { window, probation, protect }) {
+					for (Node node = list.peekFirst(); node != null; node = list.peekFirst()) {
+						list.remove(node);
+						evict(node);
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Default maximum number of cached user agent strings
+	 */
+	public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+	/**
+	 * Maximum number of segments the cache will be divided into
+	 */
+	private static final int MAXIMUM_SEGMENTS = 16;
+
+	/**
+	 * Minimum number of entries per segment, so that small caches are not fragmented
+	 */
+	private static final int MINIMUM_SEGMENT_SIZE = 256;
+
+	private static boolean isSameVersion(final String a, final String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	private static int spread(final int hashCode) {
+		int h = hashCode;
+		h ^= h >>> 20 ^ h >>> 12;
+		return h ^ h >>> 7 ^ h >>> 4;
+	}
+
+	/**
+	 * Decorated parser
+	 */
+	private final UserAgentStringParser parser;
+
+	/**
+	 * Maximum number of entries
+	 */
+	private final int maximumSize;
+
+	/**
+	 * All cached entries of all segments
+	 */
+	private final ConcurrentMap<String, Node> entries;
+
+	private final Segment[] segments;
+
+	/**
+	 * Constructs a {@code CachingUserAgentStringParser} with a maximum size of {@link #DEFAULT_MAXIMUM_SIZE}.
+	 * 
+	 * @param parser
+	 *            parser to be decorated
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public CachingUserAgentStringParser(final UserAgentStringParser parser) {
+		this(parser, DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * Constructs a {@code CachingUserAgentStringParser} which holds at most the given number of entries.
+	 * 
+	 * @param parser
+	 *            parser to be decorated
+	 * @param maximumSize
+	 *            maximum number of cached user agent strings
+	 * @throws IllegalArgumentException
+	 *             if the given parser is {@code null}
+	 * @throws IllegalArgumentException
+	 *             if the given maximum size is smaller than {@code 1}
+	 */
+	public CachingUserAgentStringParser(final UserAgentStringParser parser, final int maximumSize) {
+		if (parser == null) {
+			throw new IllegalArgumentException("Argument 'parser' must not be null.");
+		}
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("Argument 'maximumSize' must not be smaller than 1.");
+		}
+
+		this.parser = parser;
+		this.maximumSize = maximumSize;
+
+		int segmentCount = 1;
+		while (segmentCount < MAXIMUM_SEGMENTS && maximumSize / (segmentCount * 2) >= MINIMUM_SEGMENT_SIZE) {
+			segmentCount *= 2;
+		}
+		entries = new ConcurrentHashMap<String, Node>(Math.min(maximumSize, 1 << 16), 0.75f, segmentCount);
+		segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			// distribute the remainder over the first segments
+			segments[i] = new Segment(maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0));
+		}
+	}
+
+	/**
+	 * Removes all cached entries.
+	 */
+	public void clear() {
+		for (final Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	@Override
+	public String getDataVersion() {
+		return parser.getDataVersion();
+	}
+
+	/**
+	 * Gets the maximum number of cached user agent strings.
+	 * 
+	 * @return maximum number of entries
+	 */
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Gets the decorated parser.
+	 * 
+	 * @return decorated parser
+	 */
+	public UserAgentStringParser getParser() {
+		return parser;
+	}
+
+	@Override
+	public UserAgent parse(final String userAgent) {
+		if (userAgent == null) {
+			return parser.parse(userAgent);
+		}
+
+		// read the version before parsing, so that a concurrent refresh leads at worst to a needless reparse
+		final String dataVersion = parser.getDataVersion();
+		final Segment segment = segmentFor(userAgent);
+		final Node node = entries.get(userAgent);
+		if (node != null) {
+			final Result result = node.result;
+			if (isSameVersion(result.dataVersion, dataVersion)) {
+				segment.recordHit(node);
+				return result.userAgent;
+			}
+		}
+
+		final UserAgent detected = parser.parse(userAgent);
+		segment.put(userAgent, new Result(detected, dataVersion));
+		return detected;
+	}
+
+	private Segment segmentFor(final String userAgent) {
+		return segments[spread(userAgent.hashCode()) & (segments.length - 1)];
+	}
+
+	/**
+	 * Gets the current number of cached user agent strings.
+	 * 
+	 * @return number of entries
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+}
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.parser;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Factory to create daemon threads that runs as a background process and do not blocks an application shutdown
+ * 
+ * @author André Rouél
+ */
+final class DaemonThreadFactory implements ThreadFactory {
+
+	@Override
+	public Thread newThread(final Runnable r) {
+		final Thread thread = new Thread(r);
+		thread.setDaemon(true);
+		return thread;
+	}
+
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.parser;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+import net.sf.uadetector.OperatingSystemFamily;
+import net.sf.uadetector.VersionExtractor;
+import net.sf.uadetector.VersionNumber;
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.data.domain.OperatingSystem;
+import net.sf.uadetector.internal.util.CharSequenceUtil;
+import net.sf.uadetector.internal.util.MatcherCache;
+import net.sf.uadetector.internal.util.VersionParser;
+
+/**
+ * Per-thread working memory to parse user agent strings without creating new objects in steady state. It holds the
+ * matchers of all browser and operating system patterns, a reusable set of candidates and two small direct-mapped
+ * caches for version numbers of browsers and for operating system informations, which both are immutable and can
+ * therefore be handed out again for equal input.<br>
+ * <br>
+ * A context is bound to one instance of {@link Data} and one map of extractors for operating system versions and must
+ * be replaced when one of them changes.<br>
+ * <br>
+ * A {@code ParseContext} is not thread safe and must be confined to one thread.
+ * 
+ * @author André Rouél
+ */
+final class ParseContext {
+
+	/**
+	 * Number of entries of each cache (must be a power of two)
+	 */
+	private static final int CACHE_SIZE = 256;
+
+	/**
+	 * Version number of browser patterns without a subgroup
+	 */
+	private static final VersionNumber NO_VERSION = VersionParser.parseVersion("");
+
+	/**
+	 * Spreads the higher bits of a hash code to the lower ones, which are used to select an entry of a cache.
+	 */
+	private static int slot(final int hash) {
+		return (hash ^ hash >>> 16) & CACHE_SIZE - 1;
+	}
+
+	private final MatcherCache browserMatchers;
+
+	private final BitSet candidates;
+
+	private final Data data;
+
+	private final Map<OperatingSystemFamily, VersionExtractor> extractors;
+
+	private final MatcherCache operatingSystemMatchers;
+
+	private final OperatingSystem[] operatingSystemEntries = new OperatingSystem[CACHE_SIZE];
+
+	private final String[] operatingSystemKeys = new String[CACHE_SIZE];
+
+	private final net.sf.uadetector.OperatingSystem[] operatingSystemValues = new net.sf.uadetector.OperatingSystem[CACHE_SIZE];
+
+	private final String[] versionKeys = new String[CACHE_SIZE];
+
+	private final VersionNumber[] versionValues = new VersionNumber[CACHE_SIZE];
+
+	ParseContext(final Data data, final Map<OperatingSystemFamily, VersionExtractor> extractors) {
+		this.data = data;
+		this.extractors = extractors;
+		// the index and the lazily built automaton are created from the same sorted maps and number patterns equally
+		final int browserPatterns = data.getBrowserPatternIndex().size();
+		final int operatingSystemPatterns = data.getOperatingSystemPatternIndex().size();
+		browserMatchers = new MatcherCache(browserPatterns);
+		operatingSystemMatchers = new MatcherCache(operatingSystemPatterns);
+		candidates = new BitSet(Math.max(browserPatterns, operatingSystemPatterns));
+	}
+
+	MatcherCache getBrowserMatchers() {
+		return browserMatchers;
+	}
+
+	BitSet getCandidates() {
+		return candidates;
+	}
+
+	Data getData() {
+		return data;
+	}
+
+	Map<OperatingSystemFamily, VersionExtractor> getExtractors() {
+		return extractors;
+	}
+
+	MatcherCache getOperatingSystemMatchers() {
+		return operatingSystemMatchers;
+	}
+
+	/**
+	 * Gets the operating system information of the given entry for the given user agent string. The result is taken
+	 * from the cache, if the same entry was resolved for an equal user agent string before. Only on a cache miss the
+	 * user agent string will be converted into a {@code String}.
+	 */
+	net.sf.uadetector.OperatingSystem getOperatingSystem(final OperatingSystem entry, final CharSequence userAgent) {
+		final int slot = slot(CharSequenceUtil.hashCode(userAgent));
+		final String key = operatingSystemKeys[slot];
+		if (operatingSystemEntries[slot] == entry && key != null && CharSequenceUtil.contentEquals(userAgent, key)) {
+			return operatingSystemValues[slot];
+		}
+		final net.sf.uadetector.OperatingSystem operatingSystem = entry.toOperatingSystem(userAgent, extractors);
+		operatingSystemEntries[slot] = entry;
+		operatingSystemKeys[slot] = userAgent.toString();
+		operatingSystemValues[slot] = operatingSystem;
+		return operatingSystem;
+	}
+
+	/**
+	 * Gets the version number of a browser from the first subgroup of the given matcher, which has found a match in the
+	 * given user agent string. The result is taken from the cache, if an equal version string was parsed before.
+	 */
+	VersionNumber getVersionNumber(final Matcher matcher, final CharSequence userAgent) {
+		if (matcher.groupCount() == 0) {
+			return NO_VERSION;
+		}
+		final int start = matcher.start(1);
+		if (start < 0) {
+			// the first subgroup did not participate in the match, behave like the parser without a context
+			return VersionParser.parseVersion(matcher.group(1));
+		}
+		final int end = matcher.end(1);
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + userAgent.charAt(i);
+		}
+		final int slot = slot(hash);
+		final String key = versionKeys[slot];
+		if (key != null && key.length() == end - start && CharSequenceUtil.regionMatches(userAgent, start, key, 0, key.length())) {
+			return versionValues[slot];
+		}
+		final String version = userAgent.subSequence(start, end).toString();
+		final VersionNumber versionNumber = VersionParser.parseVersion(version);
+		versionKeys[slot] = version;
+		versionValues[slot] = versionNumber;
+		return versionNumber;
+	}
+
+}
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.parser;
+
+/**
+ * This enum represents the engines a parser can use to find the first matching browser or operating system pattern.
+ * 
+ * @author André Rouél
+ */
+public enum PatternMatchingEngine {
+
+	/**
+	 * All patterns which contain the required literals of a user agent string are evaluated one after another with
+	 * {@code java.util.regex} until the first one matches.
+	 */
+	SEQUENTIAL,
+
+	/**
+	 * All patterns are compiled into one lazily built DFA, which finds the first matching pattern in one pass over a
+	 * user agent string. Only the matching pattern will be evaluated with {@code java.util.regex} to read the version.
+	 * Patterns with constructs the DFA can not handle are evaluated sequentially.
+	 */
+	DFA;
+
+}
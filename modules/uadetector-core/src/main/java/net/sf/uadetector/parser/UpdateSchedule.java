@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.parser;
+
+import java.util.Random;
+
+/**
+ * Policy which determines when an {@link UpdatingUserAgentStringParserImpl} checks for newer UAS data next time.<br>
+ * <br>
+ * Starting with the update interval of the parser the delay will be
+ * <ul>
+ * <li>stretched, if the remote version has not changed for a while: after every {@code stretchAfter} checks without a
+ * newer version the interval will be doubled, up to {@code maxStretch} times the update interval,</li>
+ * <li>shortened and increased exponentially, if the checks fail: the first retry will be performed after the
+ * {@code retryDelay}, every further retry after the double delay of the previous one, up to the update interval,</li>
+ * <li>randomized by a jitter, so that many nodes which have been deployed at the same time do not check the version
+ * URL in lockstep.</li>
+ * </ul>
+ * Instances of this class are immutable and therefore safe when used concurrently by multiple threads.
+ * 
+ * @author André Rouél
+ */
+public final class UpdateSchedule {
+
+	/**
+	 * Default schedule with a jitter of &plusmn;10%, a first retry after one minute and an interval, which will be
+	 * stretched up to the fourfold after every three checks without a newer version
+	 */
+	public static final UpdateSchedule DEFAULT = new UpdateSchedule(0.1d, 1000L * 60L, 3, 4);
+
+	/**
+	 * Schedule which always uses the update interval without any jitter, backoff or stretching
+	 */
+	public static final UpdateSchedule FIXED = new UpdateSchedule(0d, Long.MAX_VALUE, Integer.MAX_VALUE, 1);
+
+	/**
+	 * Maximum number of doublings, which prevents an overflow of the shifted delays
+	 */
+	private static final int MAX_DOUBLINGS = 30;
+
+	/**
+	 * Relative jitter of the delays, e.g. {@code 0.1} for &plusmn;10%
+	 */
+	private final double jitter;
+
+	/**
+	 * Maximum factor by which the update interval will be stretched
+	 */
+	private final int maxStretch;
+
+	/**
+	 * Delay in milliseconds of the first retry after a failed check
+	 */
+	private final long retryDelay;
+
+	/**
+	 * Number of checks without a newer version after which the interval will be doubled
+	 */
+	private final int stretchAfter;
+
+	/**
+	 * Constructs a new schedule.
+	 * 
+	 * @param jitter
+	 *            relative jitter of the delays between {@code 0} (none) and {@code 1}, e.g. {@code 0.1} for &plusmn;10%
+	 * @param retryDelay
+	 *            delay in milliseconds of the first retry after a failed check
+	 * @param stretchAfter
+	 *            number of checks without a newer version after which the interval will be doubled
+	 * @param maxStretch
+	 *            maximum factor by which the update interval will be stretched ({@code 1} for no stretching)
+	 * @throws IllegalArgumentException
+	 *             if the jitter is not between {@code 0} and {@code 1} or any other argument is not positive
+	 */
+	public UpdateSchedule(final double jitter, final long retryDelay, final int stretchAfter, final int maxStretch) {
+		if (jitter < 0d || jitter > 1d) {
+			throw new IllegalArgumentException("Argument 'jitter' must be between 0 and 1.");
+		}
+		if (retryDelay <= 0) {
+			throw new IllegalArgumentException("Argument 'retryDelay' must be greater than 0.");
+		}
+		if (stretchAfter <= 0) {
+			throw new IllegalArgumentException("Argument 'stretchAfter' must be greater than 0.");
+		}
+		if (maxStretch <= 0) {
+			throw new IllegalArgumentException("Argument 'maxStretch' must be greater than 0.");
+		}
+
+		this.jitter = jitter;
+		this.retryDelay = retryDelay;
+		this.stretchAfter = stretchAfter;
+		this.maxStretch = maxStretch;
+	}
+
+	/**
+	 * Gets the delay until the next check, which has not been randomized yet.
+	 * 
+	 * @param interval
+	 *            update interval in milliseconds
+	 * @param consecutiveFailures
+	 *            number of failed checks since the last successful one
+	 * @param unchangedChecks
+	 *            number of successful checks since the last newer version
+	 * @return delay in milliseconds
+	 */
+	long getBaseDelay(final long interval, final int consecutiveFailures, final int unchangedChecks) {
+		if (consecutiveFailures > 0) {
+			final int doublings = Math.min(consecutiveFailures - 1, MAX_DOUBLINGS);
+			return retryDelay > interval >> doublings ? interval : Math.min(interval, retryDelay << doublings);
+		}
+		final int doublings = Math.min(unchangedChecks / stretchAfter, MAX_DOUBLINGS);
+		final long stretched = interval > Long.MAX_VALUE >> doublings ? Long.MAX_VALUE : interval << doublings;
+		final long max = interval > Long.MAX_VALUE / maxStretch ? Long.MAX_VALUE : interval * maxStretch;
+		return Math.min(stretched, max);
+	}
+
+	/**
+	 * Gets the delay until the next check.
+	 * 
+	 * @param interval
+	 *            update interval in milliseconds
+	 * @param consecutiveFailures
+	 *            number of failed checks since the last successful one
+	 * @param unchangedChecks
+	 *            number of successful checks since the last newer version
+	 * @param random
+	 *            source of the jitter
+	 * @return delay in milliseconds, which is not less than 0
+	 * @throws IllegalArgumentException
+	 *             if the given random is {@code null} or any number is negative
+	 */
+	public long getDelay(final long interval, final int consecutiveFailures, final int unchangedChecks, final Random random) {
+		if (interval < 0) {
+			throw new IllegalArgumentException("Argument 'interval' must not be less than 0.");
+		}
+		if (consecutiveFailures < 0) {
+			throw new IllegalArgumentException("Argument 'consecutiveFailures' must not be less than 0.");
+		}
+		if (unchangedChecks < 0) {
+			throw new IllegalArgumentException("Argument 'unchangedChecks' must not be less than 0.");
+		}
+		if (random == null) {
+			throw new IllegalArgumentException("Argument 'random' must not be null.");
+		}
+
+		return randomize(getBaseDelay(interval, consecutiveFailures, unchangedChecks), random);
+	}
+
+	/**
+	 * Gets the relative jitter of the delays.
+	 * 
+	 * @return jitter between {@code 0} and {@code 1}
+	 */
+	public double getJitter() {
+		return jitter;
+	}
+
+	/**
+	 * Gets the maximum factor by which the update interval will be stretched.
+	 * 
+	 * @return maximum stretch factor
+	 */
+	public int getMaxStretch() {
+		return maxStretch;
+	}
+
+	/**
+	 * Gets the delay of the first retry after a failed check.
+	 * 
+	 * @return delay in milliseconds
+	 */
+	public long getRetryDelay() {
+		return retryDelay;
+	}
+
+	/**
+	 * Gets the number of checks without a newer version after which the interval will be doubled.
+	 * 
+	 * @return number of checks
+	 */
+	public int getStretchAfter() {
+		return stretchAfter;
+	}
+
+	/**
+	 * Randomizes the given delay by the jitter of this schedule.
+	 * 
+	 * @param delay
+	 *            delay in milliseconds
+	 * @param random
+	 *            source of the jitter
+	 * @return randomized delay in milliseconds, which is not less than 0
+	 */
+	long randomize(final long delay, final Random random) {
+		if (jitter == 0d || delay == 0) {
+			return delay;
+		}
+		final double randomized = delay * (1d + jitter * (2d * random.nextDouble() - 1d));
+		return randomized >= Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(0L, (long) randomized);
+	}
+
+}
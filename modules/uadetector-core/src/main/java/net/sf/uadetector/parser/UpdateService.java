@@ -24,6 +24,8 @@ import java.nio.charset.Charset;
 
 import net.sf.uadetector.datastore.DataStore;
 import net.sf.uadetector.datastore.RefreshableDataStore;
+import net.sf.uadetector.datastore.ReportingRefreshableDataStore;
+import net.sf.uadetector.internal.util.ConditionalFetcher;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,30 +56,51 @@ final class UpdateService implements Updater, Runnable {
 	private static final String MSG_NO_UPDATE_CHECK_POSSIBLE = "Can not check for an updated version. Are you sure you have an established internet connection?";
 
 	/**
-	 * Reads the current User-Agent data version from <a
-	 * href="http://user-agent-string.info">http://user-agent-string.info</a>.
-	 * 
-	 * @param url
-	 *            a URL which the version information can be loaded
-	 * @return a version string or {@code null}
-	 * @throws IOException
-	 *             if an I/O exception occurs
+	 * Refreshes the given store and reports whether the data are up to date. Stores which do not implement
+	 * {@link ReportingRefreshableDataStore} can only report a failure by throwing an exception.
 	 */
-	private static String retrieveRemoteVersion(final URL url, final Charset charset) throws IOException {
-		final InputStream stream = url.openStream();
-		final InputStreamReader reader = new InputStreamReader(stream, charset);
-		final LineNumberReader lnr = new LineNumberReader(reader);
-		final String line = lnr.readLine();
-		lnr.close();
-		reader.close();
-		stream.close();
-		return line;
+	private static boolean refresh(final RefreshableDataStore store) {
+		if (store instanceof ReportingRefreshableDataStore) {
+			return ((ReportingRefreshableDataStore) store).tryRefresh();
+		}
+		store.refresh();
+		return true;
 	}
 
+	/**
+	 * Fetcher which remembers the validators of the last retrieval of the version URL
+	 */
+	private final ConditionalFetcher fetcher = new ConditionalFetcher();
+
+	/**
+	 * Remote version of the last retrieval, which will be reused if the version URL responds with no changes
+	 */
+	private String remoteVersion = EMPTY_VERSION;
+
+	/**
+	 * Number of failed update checks since the last successful one
+	 */
+	private volatile int consecutiveFailures = 0;
+
+	/**
+	 * Total number of failed update checks
+	 */
+	private volatile long failureCount = 0;
+
 	/**
 	 * Time of last update check in milliseconds
 	 */
-	private long lastUpdateCheck = 0;
+	private volatile long lastUpdateCheck = 0;
+
+	/**
+	 * Time of the next scheduled update check in milliseconds
+	 */
+	private volatile long nextUpdateCheck = 0;
+
+	/**
+	 * Number of successful update checks since the last update of the UAS data
+	 */
+	private volatile int unchangedChecks = 0;
 
 	/**
 	 * The data store for instances that implements {@link net.sf.uadetector.internal.data.Data}
@@ -120,14 +143,60 @@ final class UpdateService implements Updater, Runnable {
 		this.store = store;
 	}
 
+	/**
+	 * Checks for newer UAS data and refreshes the store if necessary. The outcome will be counted for the scheduling of
+	 * the next check (see {@link UpdateSchedule}). A refresh which has been reported as failed by the store counts as
+	 * failure too.
+	 * 
+	 * @throws RuntimeException
+	 *             if the refresh of the store fails with an exception (which will be counted as failure)
+	 */
 	@Override
-	public void call() {
-		if (isUpdateAvailable()) {
+	public synchronized void call() {
+		final boolean available;
+		try {
+			available = isUpdateAvailable();
+		} catch (final IOException e) {
+			LOG.info(MSG_NO_UPDATE_CHECK_POSSIBLE);
+			if (LOG.isDebugEnabled()) {
+				LOG.debug(String.format(MSG_NO_UPDATE_CHECK_POSSIBLE__DEBUG, e.getClass().getName(), e.getLocalizedMessage()));
+			}
+			lastUpdateCheck = System.currentTimeMillis();
+			failed();
+			return;
+		}
+		if (available) {
 			LOG.debug("Reading remote data...");
-			store.refresh();
+			final boolean refreshed;
+			try {
+				refreshed = refresh(store);
+			} catch (final RuntimeException e) {
+				failed();
+				throw e;
+			}
+			if (!refreshed) {
+				LOG.info("Can not refresh the UAS data, the current data will be kept.");
+				failed();
+				return;
+			}
+			consecutiveFailures = 0;
+			unchangedChecks = 0;
+		} else {
+			consecutiveFailures = 0;
+			unchangedChecks++;
 		}
 	}
 
+	private void failed() {
+		consecutiveFailures++;
+		failureCount++;
+	}
+
+	@Override
+	public int getConsecutiveFailures() {
+		return consecutiveFailures;
+	}
+
 	/**
 	 * Shortcut to get the current version of the UAS data in the {@link DataStore}.
 	 * 
@@ -137,6 +206,38 @@ final class UpdateService implements Updater, Runnable {
 		return store.getData().getVersion();
 	}
 
+	/**
+	 * Reads the current User-Agent data version from <a
+	 * href="http://user-agent-string.info">http://user-agent-string.info</a>. The version will be requested
+	 * conditionally, so that the version of the last retrieval will be returned if it has not been modified.
+	 * 
+	 * @param url
+	 *            a URL which the version information can be loaded
+	 * @return a version string and never {@code null}
+	 * @throws IOException
+	 *             if an I/O exception occurs
+	 */
+	private String retrieveRemoteVersion(final URL url, final Charset charset) throws IOException {
+		final InputStream stream = fetcher.open(url);
+		if (stream == null) {
+			return remoteVersion;
+		}
+
+		String line = null;
+		try {
+			final LineNumberReader lnr = new LineNumberReader(new InputStreamReader(stream, charset));
+			line = lnr.readLine();
+			lnr.close();
+		} finally {
+			if (line == null) {
+				fetcher.forget(url);
+			}
+			stream.close();
+		}
+		remoteVersion = line != null ? line : EMPTY_VERSION;
+		return remoteVersion;
+	}
+
 	/**
 	 * Gets the time of the last update check in milliseconds.
 	 * 
@@ -147,23 +248,32 @@ final class UpdateService implements Updater, Runnable {
 		return lastUpdateCheck;
 	}
 
+	@Override
+	public long getFailureCount() {
+		return failureCount;
+	}
+
+	@Override
+	public long getNextUpdateCheck() {
+		return nextUpdateCheck;
+	}
+
+	@Override
+	public int getUnchangedChecks() {
+		return unchangedChecks;
+	}
+
 	/**
 	 * Fetches the current version information over HTTP and compares it with the last version of the most recently
 	 * imported data.
 	 * 
 	 * @return {@code true} if an update exists, otherwise {@code false}
+	 * @throws IOException
+	 *             if the version information can not be fetched
 	 */
-	private boolean isUpdateAvailable() {
+	private boolean isUpdateAvailable() throws IOException {
 		boolean result = false;
-		String version = EMPTY_VERSION;
-		try {
-			version = retrieveRemoteVersion(store.getVersionUrl(), store.getCharset());
-		} catch (final IOException e) {
-			LOG.info(MSG_NO_UPDATE_CHECK_POSSIBLE);
-			if (LOG.isDebugEnabled()) {
-				LOG.debug(String.format(MSG_NO_UPDATE_CHECK_POSSIBLE__DEBUG, e.getClass().getName(), e.getLocalizedMessage()));
-			}
-		}
+		final String version = retrieveRemoteVersion(store.getVersionUrl(), store.getCharset());
 		if (version.compareTo(getCurrentVersion()) > 0) {
 			if (LOG.isDebugEnabled()) {
 				LOG.debug(String.format(MSG_UPDATE_AVAILABLE, getCurrentVersion(), version));
@@ -181,4 +291,14 @@ final class UpdateService implements Updater, Runnable {
 		call();
 	}
 
+	/**
+	 * Sets the time of the next scheduled update check.
+	 * 
+	 * @param nextUpdateCheck
+	 *            time of the next update check in milliseconds or {@code 0} if no check is scheduled
+	 */
+	void setNextUpdateCheck(final long nextUpdateCheck) {
+		this.nextUpdateCheck = nextUpdateCheck;
+	}
+
 }
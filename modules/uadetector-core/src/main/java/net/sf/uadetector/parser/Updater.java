@@ -29,6 +29,20 @@ public interface Updater {
 	 */
 	void call();
 
+	/**
+	 * Gets the number of failed update checks since the last successful one.
+	 * 
+	 * @return number of consecutive failures
+	 */
+	int getConsecutiveFailures();
+
+	/**
+	 * Gets the total number of failed update checks.
+	 * 
+	 * @return number of failures
+	 */
+	long getFailureCount();
+
 	/**
 	 * Gets the time of the last update check in milliseconds.
 	 * 
@@ -36,4 +50,18 @@ public interface Updater {
 	 */
 	long getLastUpdateCheck();
 
+	/**
+	 * Gets the time of the next scheduled update check in milliseconds.
+	 * 
+	 * @return time of the next update check in milliseconds or {@code 0} if no check is scheduled
+	 */
+	long getNextUpdateCheck();
+
+	/**
+	 * Gets the number of successful update checks since the last update of the UAS data.
+	 * 
+	 * @return number of checks which have found no newer version
+	 */
+	int getUnchangedChecks();
+
 }
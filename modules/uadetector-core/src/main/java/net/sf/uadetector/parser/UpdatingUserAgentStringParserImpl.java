@@ -15,34 +15,64 @@
  ******************************************************************************/
 package net.sf.uadetector.parser;
 
+import java.util.Random;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import net.sf.uadetector.datastore.RefreshableDataStore;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * This parser checks once per day if newer data are available. When newer data are available, they will be loaded, read
- * and replaced by the current one.
+ * and replaced by the current one.<br>
+ * <br>
+ * By default the first check will be performed immediately in the background. If the store has been initialized with
+ * data which are known to be current (e.g. a recently cached file), the first check can be deferred with an initial
+ * delay, so that a restart does not cause any network I/O.<br>
+ * <br>
+ * After every check the next one will be scheduled by the {@link UpdateSchedule} of this parser, so that many nodes
+ * which have been deployed together do not check in lockstep, failed checks will be retried with an exponential
+ * backoff and the interval will be stretched while the remote version does not change. The time of the next check and
+ * the failure counters are available by {@link #getUpdater()}.
  * 
  * @author André Rouél
  */
 public final class UpdatingUserAgentStringParserImpl extends UserAgentStringParserImpl<RefreshableDataStore> {
 
 	/**
-	 * Factory to create daemon threads that runs as a background process and do not blocks an application shutdown
+	 * Task which checks for updates once and schedules the next check afterwards
 	 */
-	private static class DaemonThreadFactory implements ThreadFactory {
+	private final class UpdateTask implements Runnable {
+
+		private final UpdateService service;
+
+		public UpdateTask(final UpdateService service) {
+			this.service = service;
+		}
+
 		@Override
-		public Thread newThread(final Runnable r) {
-			final Thread thread = new Thread(r);
-			thread.setDaemon(true);
-			return thread;
+		public void run() {
+			try {
+				service.call();
+				releaseStaleParseContexts();
+			} catch (final RuntimeException e) {
+				LOG.warn("The update of the UAS data has failed: " + e.getLocalizedMessage(), e);
+			} finally {
+				scheduleNextCheck(service);
+			}
 		}
+
 	}
 
+	/**
+	 * Corresponding default logger for this class
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(UpdatingUserAgentStringParserImpl.class);
+
 	/**
 	 * Interval to check for updates in milliseconds
 	 */
@@ -53,6 +83,16 @@ public final class UpdatingUserAgentStringParserImpl extends UserAgentStringPars
 	 */
 	private ScheduledFuture<?> currentUpdateTask;
 
+	/**
+	 * Point in time in milliseconds before which no update check will be performed
+	 */
+	private final long firstUpdateCheck;
+
+	/**
+	 * Source of the jitter of the update schedule
+	 */
+	private final Random random = new Random();
+
 	/**
 	 * {@link ScheduledExecutorService} to schedule commands to update the UAS data in defined intervals
 	 */
@@ -63,6 +103,11 @@ public final class UpdatingUserAgentStringParserImpl extends UserAgentStringPars
 	 */
 	private UpdateService updateService;
 
+	/**
+	 * Policy to determine the delays between the update checks
+	 */
+	private UpdateSchedule updateSchedule = UpdateSchedule.DEFAULT;
+
 	/**
 	 * Constructs an instance of {@code OnlineUserAgentStringParser}. During construction new UAS data will be queried
 	 * online by the given {@code URL}s.
@@ -73,7 +118,45 @@ public final class UpdatingUserAgentStringParserImpl extends UserAgentStringPars
 	 *             if one of the given arguments is {@code null}
 	 */
 	public UpdatingUserAgentStringParserImpl(final RefreshableDataStore store) {
-		super(store);
+		this(store, PatternMatchingEngine.SEQUENTIAL);
+	}
+
+	/**
+	 * Constructs an instance of {@code OnlineUserAgentStringParser} which uses the given engine to match the browser
+	 * and operating system patterns. During construction new UAS data will be queried online.
+	 * 
+	 * @param store
+	 *            {@code DataStore} with reference UAS data used in fallback case
+	 * @param engine
+	 *            engine to match patterns
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 */
+	public UpdatingUserAgentStringParserImpl(final RefreshableDataStore store, final PatternMatchingEngine engine) {
+		this(store, engine, 0l);
+	}
+
+	/**
+	 * Constructs an instance of {@code OnlineUserAgentStringParser} which uses the given engine to match the browser
+	 * and operating system patterns. The first check for newer UAS data will be performed after the given delay.
+	 * 
+	 * @param store
+	 *            {@code DataStore} with reference UAS data used in fallback case
+	 * @param engine
+	 *            engine to match patterns
+	 * @param initialDelay
+	 *            delay in milliseconds before the first check for newer UAS data
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 * @throws IllegalArgumentException
+	 *             if the given delay is less than 0
+	 */
+	public UpdatingUserAgentStringParserImpl(final RefreshableDataStore store, final PatternMatchingEngine engine, final long initialDelay) {
+		super(store, engine);
+		if (initialDelay < 0l) {
+			throw new IllegalArgumentException("Initial delay must be not less than 0.");
+		}
+		firstUpdateCheck = System.currentTimeMillis() + initialDelay;
 
 		// set up update service
 		setUpUpdateService();
@@ -88,15 +171,61 @@ public final class UpdatingUserAgentStringParserImpl extends UserAgentStringPars
 		return updateInterval;
 	}
 
+	/**
+	 * Gets the current policy to determine the delays between the update checks.
+	 * 
+	 * @return current update schedule
+	 */
+	public synchronized UpdateSchedule getUpdateSchedule() {
+		return updateSchedule;
+	}
+
 	/**
 	 * Gets the current {@link UpdateService} of this parser.
 	 * 
 	 * @return current update service of this parser
 	 */
-	public Updater getUpdater() {
+	public synchronized Updater getUpdater() {
 		return updateService;
 	}
 
+	/**
+	 * Schedules a check of the given service after the passed delay.
+	 */
+	private void schedule(final UpdateService service, final long delay) {
+		final long now = System.currentTimeMillis();
+		service.setNextUpdateCheck(delay > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + delay);
+		currentUpdateTask = scheduler.schedule(new UpdateTask(service), delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Schedules the next check of the given service according to the update schedule, unless the service has been
+	 * replaced or the parser has been shut down in the meantime.
+	 */
+	private synchronized void scheduleNextCheck(final UpdateService service) {
+		if (service != updateService || scheduler.isShutdown()) {
+			return;
+		}
+		final long delay = updateSchedule.getDelay(updateInterval, service.getConsecutiveFailures(), service.getUnchangedChecks(),
+				random);
+		schedule(service, delay);
+	}
+
+	/**
+	 * Stops the checks for newer UAS data and releases the per-thread working memory of this parser. The parser can
+	 * still be used afterwards, but its data will not be updated anymore.
+	 */
+	@Override
+	public void shutdown() {
+		synchronized (this) {
+			if (currentUpdateTask != null) {
+				currentUpdateTask.cancel(false);
+			}
+			scheduler.shutdown();
+		}
+		super.shutdown();
+	}
+
 	/**
 	 * Sets a new update interval in milliseconds.<br>
 	 * <br>
@@ -105,25 +234,46 @@ public final class UpdatingUserAgentStringParserImpl extends UserAgentStringPars
 	 * @param updateInterval
 	 *            update interval in milliseconds
 	 * @throws IllegalArgumentException
-	 *             if the given value is less than 0
+	 *             if the given value is less than 1, because the update checks would follow each other without any
+	 *             delay
 	 */
-	public void setUpdateInterval(final long updateInterval) {
-		if (updateInterval < 0l) {
-			throw new IllegalArgumentException("Update interval must be not less than 0.");
+	public synchronized void setUpdateInterval(final long updateInterval) {
+		if (updateInterval < 1l) {
+			throw new IllegalArgumentException("Update interval must be greater than 0.");
 		}
 		this.updateInterval = updateInterval;
 		setUpUpdateService();
 	}
 
 	/**
-	 * Set up a new update service to get newer UAS data
+	 * Sets a new policy to determine the delays between the update checks. It will be used from the next check on.
+	 * 
+	 * @param updateSchedule
+	 *            policy to determine the delays between the update checks
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public synchronized void setUpdateSchedule(final UpdateSchedule updateSchedule) {
+		if (updateSchedule == null) {
+			throw new IllegalArgumentException("Argument 'updateSchedule' must not be null.");
+		}
+		this.updateSchedule = updateSchedule;
+	}
+
+	/**
+	 * Set up a new update service to get newer UAS data. The first check will not be performed before the initial delay
+	 * has elapsed, which will be randomized by the jitter of the update schedule.
 	 */
-	private void setUpUpdateService() {
+	private synchronized void setUpUpdateService() {
+		if (scheduler.isShutdown()) {
+			return;
+		}
 		if (currentUpdateTask != null) {
 			currentUpdateTask.cancel(false);
 		}
 		updateService = new UpdateService(getDataStore());
-		currentUpdateTask = scheduler.scheduleWithFixedDelay(updateService, 0, updateInterval, TimeUnit.MILLISECONDS);
+		final long delay = Math.max(0l, firstUpdateCheck - System.currentTimeMillis());
+		schedule(updateService, updateSchedule.randomize(delay, random));
 	}
 
 }
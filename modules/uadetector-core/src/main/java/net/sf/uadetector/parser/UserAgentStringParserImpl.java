@@ -31,6 +31,11 @@ public class UserAgentStringParserImpl<T extends DataStore> extends AbstractUser
 	 */
 	private final T store;
 
+	/**
+	 * Engine to find the first matching browser and operating system pattern
+	 */
+	private final PatternMatchingEngine engine;
+
 	/**
 	 * Constructs an {@code UserAgentStringParser} using the given UAS data as detection source.
 	 * 
@@ -40,13 +45,32 @@ public class UserAgentStringParserImpl<T extends DataStore> extends AbstractUser
 	 *             if the given argument is {@code null}
 	 */
 	public UserAgentStringParserImpl(final T store) {
+		this(store, PatternMatchingEngine.SEQUENTIAL);
+	}
+
+	/**
+	 * Constructs an {@code UserAgentStringParser} using the given UAS data as detection source and the given engine to
+	 * match the browser and operating system patterns.
+	 * 
+	 * @param store
+	 *            store for UAS data
+	 * @param engine
+	 *            engine to match patterns
+	 * @throws IllegalArgumentException
+	 *             if one of the given arguments is {@code null}
+	 */
+	public UserAgentStringParserImpl(final T store, final PatternMatchingEngine engine) {
 		super();
 
 		if (store == null) {
 			throw new IllegalArgumentException("Argument 'store' must not be null.");
 		}
+		if (engine == null) {
+			throw new IllegalArgumentException("Argument 'engine' must not be null.");
+		}
 
 		this.store = store;
+		this.engine = engine;
 	}
 
 	@Override
@@ -54,4 +78,9 @@ public class UserAgentStringParserImpl<T extends DataStore> extends AbstractUser
 		return store;
 	}
 
+	@Override
+	protected PatternMatchingEngine getPatternMatchingEngine() {
+		return engine;
+	}
+
 }
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class Latin1CharSequenceTest {
+
+	private static byte[] latin1(final String text) throws Exception {
+		return text.getBytes("ISO-8859-1");
+	}
+
+	@Test
+	public void charAt_latin1() throws Exception {
+		final Latin1CharSequence view = new Latin1CharSequence(latin1("Grüße ÿ"));
+		Assert.assertEquals(7, view.length());
+		Assert.assertEquals('ü', view.charAt(2));
+		Assert.assertEquals('ÿ', view.charAt(6));
+		Assert.assertEquals("Grüße ÿ", view.toString());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void charAt_outOfRange() throws Exception {
+		new Latin1CharSequence(latin1("abc"), 1, 1).charAt(1);
+	}
+
+	@Test
+	public void construct_empty() {
+		final Latin1CharSequence view = new Latin1CharSequence();
+		Assert.assertEquals(0, view.length());
+		Assert.assertEquals("", view.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_bytes_null() {
+		new Latin1CharSequence((byte[]) null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_buffer_null() {
+		new Latin1CharSequence((ByteBuffer) null);
+	}
+
+	@Test
+	public void construct_slice() throws Exception {
+		final Latin1CharSequence view = new Latin1CharSequence(latin1("User-Agent: Opera/9.80\r\n"), 12, 11);
+		Assert.assertEquals("Opera/9.80", view.subSequence(0, 10).toString());
+		Assert.assertEquals("Opera/9.80\r", view.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_slice_outOfRange() throws Exception {
+		new Latin1CharSequence(latin1("abc"), 2, 2);
+	}
+
+	@Test
+	public void subSequence() throws Exception {
+		final CharSequence sub = new Latin1CharSequence(latin1("Mozilla/5.0 (Windows NT 6.1)")).subSequence(13, 23);
+		Assert.assertEquals(10, sub.length());
+		Assert.assertEquals('W', sub.charAt(0));
+		Assert.assertEquals("Windows NT", sub.toString());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void subSequence_outOfRange() throws Exception {
+		new Latin1CharSequence(latin1("abc")).subSequence(2, 4);
+	}
+
+	@Test
+	public void wrap_directBuffer() throws Exception {
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(32);
+		buffer.put(latin1("xxMozilla/5.0é"));
+		buffer.flip();
+		buffer.position(2);
+		final Latin1CharSequence view = new Latin1CharSequence().wrap(buffer);
+		Assert.assertEquals(2, buffer.position());
+		Assert.assertEquals(12, view.length());
+		Assert.assertEquals('é', view.charAt(11));
+		Assert.assertEquals("Mozilla/5.0é", view.toString());
+		Assert.assertEquals("5.0", view.subSequence(8, 11).toString());
+	}
+
+	@Test
+	public void wrap_heapBuffer() throws Exception {
+		final ByteBuffer buffer = ByteBuffer.wrap(latin1("--Opera--"), 2, 5).slice();
+		final Latin1CharSequence view = new Latin1CharSequence(buffer);
+		Assert.assertEquals("Opera", view.toString());
+	}
+
+	@Test
+	public void wrap_reuse() throws Exception {
+		final Latin1CharSequence view = new Latin1CharSequence(latin1("first"));
+		Assert.assertSame(view, view.wrap(latin1("second"), 0, 6));
+		Assert.assertEquals("second", view.toString());
+	}
+
+}
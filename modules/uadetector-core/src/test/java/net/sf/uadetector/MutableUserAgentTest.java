@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector;
+
+import java.nio.ByteBuffer;
+
+import net.sf.uadetector.internal.util.VersionParser;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MutableUserAgentTest {
+
+	private static MutableUserAgent filled() {
+		final OperatingSystem os = new OperatingSystem(OperatingSystemFamily.WINDOWS, "Windows", "Windows 7", "Microsoft Corporation.",
+				"http://www.microsoft.com/", "http://en.wikipedia.org/wiki/Windows_7", VersionParser.parseVersion("6.1"));
+		return new MutableUserAgent().reset("Mozilla/5.0").setFamily(UserAgentFamily.FIREFOX).setName("Firefox")
+				.setOperatingSystem(os).setProducer("Mozilla Foundation").setProducerUrl("http://www.mozilla.org/")
+				.setType(UserAgentType.BROWSER).setUrl("http://en.wikipedia.org/wiki/Firefox")
+				.setVersionNumber(VersionParser.parseVersion("15.0.1"));
+	}
+
+	@Test
+	public void construct() {
+		final MutableUserAgent agent = new MutableUserAgent();
+		Assert.assertEquals("", agent.getUserAgentString());
+		Assert.assertEquals(UserAgent.EMPTY, agent.toUserAgent());
+	}
+
+	@Test
+	public void reset() {
+		final MutableUserAgent agent = filled();
+		Assert.assertSame(agent, agent.reset("other"));
+		Assert.assertEquals("other", agent.getUserAgentString());
+		Assert.assertEquals(UserAgent.EMPTY, agent.toUserAgent());
+	}
+
+	@Test
+	public void reset_bytes() throws Exception {
+		final byte[] bytes = "xxOpera/9.80xx".getBytes("ISO-8859-1");
+		final MutableUserAgent agent = filled().reset(bytes, 2, 10);
+		Assert.assertEquals(UserAgent.EMPTY, agent.toUserAgent());
+		Assert.assertTrue(agent.getUserAgent() instanceof Latin1CharSequence);
+		Assert.assertEquals("Opera/9.80", agent.getUserAgentString());
+
+		// the view is reused
+		final CharSequence view = agent.getUserAgent();
+		agent.reset(ByteBuffer.wrap(bytes, 0, 7));
+		Assert.assertSame(view, agent.getUserAgent());
+		Assert.assertEquals("xxOpera", agent.getUserAgentString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void reset_bytes_null() {
+		new MutableUserAgent().reset((byte[]) null, 0, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void reset_buffer_null() {
+		new MutableUserAgent().reset((ByteBuffer) null);
+	}
+
+	@Test
+	public void reset_charSequence() {
+		final StringBuilder userAgent = new StringBuilder("Mozilla/5.0");
+		final MutableUserAgent agent = new MutableUserAgent().reset(userAgent);
+		Assert.assertSame(userAgent, agent.getUserAgent());
+		Assert.assertEquals("Mozilla/5.0", agent.getUserAgentString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void reset_userAgentString_null() {
+		new MutableUserAgent().reset((CharSequence) null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setFamily_null() {
+		new MutableUserAgent().setFamily(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setName_null() {
+		new MutableUserAgent().setName(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setOperatingSystem_null() {
+		new MutableUserAgent().setOperatingSystem(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setProducer_null() {
+		new MutableUserAgent().setProducer(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setProducerUrl_null() {
+		new MutableUserAgent().setProducerUrl(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setType_null() {
+		new MutableUserAgent().setType(null);
+	}
+
+	@Test
+	public void setTypeName() {
+		final MutableUserAgent agent = new MutableUserAgent().setTypeName("Robot");
+		Assert.assertEquals(UserAgentType.ROBOT, agent.getType());
+		Assert.assertEquals("Robot", agent.getTypeName());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setTypeName_null() {
+		new MutableUserAgent().setTypeName(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setUrl_null() {
+		new MutableUserAgent().setUrl(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setVersionNumber_null() {
+		new MutableUserAgent().setVersionNumber(null);
+	}
+
+	@Test
+	public void toUserAgent() {
+		final MutableUserAgent agent = filled();
+		final UserAgent expected = new UserAgent(agent.getFamily(), agent.getName(), agent.getOperatingSystem(), agent.getProducer(),
+				agent.getProducerUrl(), agent.getType(), agent.getTypeName(), agent.getUrl(), agent.getVersionNumber());
+		Assert.assertEquals(expected, agent.toUserAgent());
+		Assert.assertEquals("Browser", agent.toUserAgent().getTypeName());
+		Assert.assertEquals("15.0.1", agent.toUserAgent().getVersionNumber().toVersionString());
+	}
+
+	@Test
+	public void testToString() {
+		Assert.assertTrue(filled().toString().startsWith("MutableUserAgent [family=FIREFOX, name=Firefox, "));
+		Assert.assertTrue(filled().toString().contains("userAgent=Mozilla/5.0"));
+	}
+
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datareader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import net.sf.uadetector.datastore.DataStore;
+import net.sf.uadetector.datastore.TestXmlDataStore;
+import net.sf.uadetector.datawriter.BinaryDeltaWriter;
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.data.DataDelta;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinaryDeltaReaderTest {
+
+	private static DataDelta read(final byte[] bytes) throws IOException {
+		return new BinaryDeltaReader().read(new ByteArrayInputStream(bytes));
+	}
+
+	private static byte[] write(final DataDelta delta) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new BinaryDeltaWriter().write(delta, out);
+		return out.toByteArray();
+	}
+
+	@Test
+	public void read_addedEntries() throws IOException {
+		final Data data = new XmlDataReader().read(TestXmlDataStore.DATA_URL, DataStore.DEFAULT_CHARSET);
+		final DataDelta delta = DataDelta.between(Data.EMPTY, data);
+		final DataDelta read = read(write(delta));
+		Assert.assertEquals(delta, read);
+
+		final Data patched = read.applyTo(Data.EMPTY);
+		Assert.assertEquals(data.getBrowsers(), patched.getBrowsers());
+		Assert.assertEquals(data.getOperatingSystems(), patched.getOperatingSystems());
+		Assert.assertEquals(data.getRobots(), patched.getRobots());
+		Assert.assertEquals(data.toStats(), patched.toStats());
+	}
+
+	@Test
+	public void read_removedEntries() throws IOException {
+		final Data data = new XmlDataReader().read(TestXmlDataStore.DATA_URL, DataStore.DEFAULT_CHARSET);
+		final DataDelta delta = DataDelta.between(data, Data.EMPTY);
+		final DataDelta read = read(write(delta));
+		Assert.assertEquals(delta, read);
+		Assert.assertEquals(0, read.applyTo(data).getBrowsers().size());
+	}
+
+	@Test(expected = IOException.class)
+	public void read_incomplete() throws IOException {
+		final byte[] bytes = write(DataDelta.between(Data.EMPTY, new XmlDataReader().read(TestXmlDataStore.DATA_URL,
+				DataStore.DEFAULT_CHARSET)));
+		read(Arrays.copyOf(bytes, bytes.length / 2));
+	}
+
+	@Test(expected = IOException.class)
+	public void read_noDelta() throws IOException {
+		read("<?xml version=\"1.0\"?>".getBytes("UTF-8"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void read_null() throws IOException {
+		new BinaryDeltaReader().read((InputStream) null);
+	}
+
+	@Test(expected = IOException.class)
+	public void read_otherFormatVersion() throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(BinaryDeltaReader.MAGIC_NUMBER);
+		out.writeInt(BinaryDeltaReader.FORMAT_VERSION + 1);
+		out.flush();
+		read(bytes.toByteArray());
+	}
+
+}
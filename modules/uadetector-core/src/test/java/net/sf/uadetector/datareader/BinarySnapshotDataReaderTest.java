@@ -0,0 +1,290 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datareader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.uadetector.datastore.DataStore;
+import net.sf.uadetector.datastore.TestXmlDataStore;
+import net.sf.uadetector.datawriter.BinarySnapshotDataWriter;
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.data.domain.Browser;
+import net.sf.uadetector.internal.data.domain.BrowserPattern;
+import net.sf.uadetector.internal.data.domain.OperatingSystem;
+import net.sf.uadetector.internal.data.domain.OperatingSystemPattern;
+import net.sf.uadetector.parser.UserAgentStringParserImpl;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BinarySnapshotDataReaderTest {
+
+	/**
+	 * The character set to read UAS data
+	 */
+	private static final Charset CHARSET = DataStore.DEFAULT_CHARSET;
+
+	private static Data xml;
+
+	private static byte[] snapshot;
+
+	private static List<String> toList(final Map<?, ?> map) {
+		final List<String> entries = new ArrayList<String>(map.size());
+		for (final Map.Entry<?, ?> entry : map.entrySet()) {
+			entries.add(entry.getKey() + "=" + entry.getValue());
+		}
+		return entries;
+	}
+
+	@BeforeClass
+	public static void setUp_class() throws IOException {
+		xml = new XmlDataReader().read(TestXmlDataStore.DATA_URL, CHARSET);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new BinarySnapshotDataWriter().write(xml, out);
+		snapshot = out.toByteArray();
+	}
+
+	private static File write(final byte[] content) throws IOException {
+		final File temp = File.createTempFile("uas_snapshot", ".tmp");
+		temp.deleteOnExit();
+		final FileOutputStream out = new FileOutputStream(temp);
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+		return temp;
+	}
+
+	@Test
+	public void isSnapshotOf() throws IOException {
+		final File source = File.createTempFile("uas_source", ".xml");
+		source.deleteOnExit();
+		final File other = File.createTempFile("uas_source", ".xml");
+		other.deleteOnExit();
+		final FileOutputStream sourceOut = new FileOutputStream(source);
+		final FileOutputStream otherOut = new FileOutputStream(other);
+		try {
+			sourceOut.write("source".getBytes(CHARSET));
+			otherOut.write("Source".getBytes(CHARSET));
+		} finally {
+			sourceOut.close();
+			otherOut.close();
+		}
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new BinarySnapshotDataWriter().write(xml, source, out);
+		final File file = write(out.toByteArray());
+		Assert.assertTrue(BinarySnapshotDataReader.isSnapshotOf(file, source));
+
+		// same length, but another checksum
+		Assert.assertFalse(BinarySnapshotDataReader.isSnapshotOf(file, other));
+
+		// a snapshot without a source or no snapshot at all belongs to no file
+		Assert.assertFalse(BinarySnapshotDataReader.isSnapshotOf(write(snapshot), source));
+		Assert.assertFalse(BinarySnapshotDataReader.isSnapshotOf(source, source));
+		Assert.assertFalse(BinarySnapshotDataReader.isSnapshotOf(new File(file.getPath() + ".missing"), source));
+
+		source.delete();
+		other.delete();
+		file.delete();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void isSnapshotOf_snapshot_null() {
+		BinarySnapshotDataReader.isSnapshotOf(null, new File("test"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void isSnapshotOf_source_null() {
+		BinarySnapshotDataReader.isSnapshotOf(new File("test"), null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void read_charset_null() throws MalformedURLException {
+		new BinarySnapshotDataReader().read(new URL("http://localhost/"), null);
+	}
+
+	@Test
+	public void read_corrupted() throws IOException {
+		final File temp = File.createTempFile("uas_snapshot", ".tmp");
+		temp.deleteOnExit();
+		final FileOutputStream out = new FileOutputStream(temp);
+		out.write(snapshot, 0, snapshot.length / 2);
+		out.close();
+		Assert.assertSame(Data.EMPTY, new BinarySnapshotDataReader().read(temp.toURI().toURL(), CHARSET));
+		temp.delete();
+	}
+
+	@Test
+	public void read_file() throws IOException {
+		final File temp = File.createTempFile("uas_snapshot", ".tmp");
+		temp.deleteOnExit();
+		final FileOutputStream out = new FileOutputStream(temp);
+		out.write(snapshot);
+		out.close();
+		final Data data = new BinarySnapshotDataReader().read(temp.toURI().toURL(), CHARSET);
+		Assert.assertEquals(xml.getVersion(), data.getVersion());
+		Assert.assertEquals(xml.getRobots(), data.getRobots());
+		temp.delete();
+	}
+
+	@Test
+	public void read_stream() {
+		final Data data = new BinarySnapshotDataReader().read(new ByteArrayInputStream(snapshot), CHARSET);
+		Assert.assertEquals(xml.getVersion(), data.getVersion());
+		Assert.assertEquals(xml.getBrowsers(), data.getBrowsers());
+	}
+
+	@Test
+	public void read_stream_corrupted() {
+		final InputStream stream = new ByteArrayInputStream(snapshot, 0, snapshot.length / 2);
+		Assert.assertSame(Data.EMPTY, new BinarySnapshotDataReader().read(stream, CHARSET));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void read_stream_null() {
+		new BinarySnapshotDataReader().read((InputStream) null, CHARSET);
+	}
+
+	@Test
+	public void read_xml() {
+		Assert.assertSame(Data.EMPTY, new BinarySnapshotDataReader().read(TestXmlDataStore.DATA_URL, CHARSET));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void read_url_null() {
+		new BinarySnapshotDataReader().read((URL) null, CHARSET);
+	}
+
+	@Test
+	public void readSnapshot_equalToXml() throws IOException {
+		final Data data = BinarySnapshotDataReader.readSnapshot(snapshot);
+		Assert.assertEquals(xml.getVersion(), data.getVersion());
+		Assert.assertEquals(xml.getBrowsers(), data.getBrowsers());
+		Assert.assertEquals(xml.getOperatingSystems(), data.getOperatingSystems());
+		Assert.assertEquals(xml.getRobots(), data.getRobots());
+		Assert.assertEquals(toList(xml.getPatternBrowserMap()), toList(data.getPatternBrowserMap()));
+		Assert.assertEquals(toList(xml.getPatternOsMap()), toList(data.getPatternOsMap()));
+		Assert.assertEquals(xml.toStats(), data.toStats());
+
+		// shared records are restored as shared objects
+		for (final Map.Entry<BrowserPattern, Browser> entry : data.getPatternBrowserMap().entrySet()) {
+			Assert.assertTrue(entry.getValue().getPatternSet().contains(entry.getKey()));
+		}
+		for (final Map.Entry<OperatingSystemPattern, OperatingSystem> entry : data.getPatternOsMap().entrySet()) {
+			Assert.assertTrue(entry.getValue().getPatternSet().contains(entry.getKey()));
+		}
+	}
+
+	@Test
+	public void readSnapshot_parseEqual() throws IOException {
+		final UserAgentStringParserImpl<DataStore> fromXml = new UserAgentStringParserImpl<DataStore>(new TestXmlDataStore());
+		final UserAgentStringParserImpl<DataStore> fromSnapshot = new UserAgentStringParserImpl<DataStore>(new TestXmlDataStore() {
+			@Override
+			public Data getData() {
+				return snapshotData;
+			}
+
+			private final Data snapshotData = BinarySnapshotDataReader.readSnapshot(snapshot);
+		});
+		final String[] userAgents = { "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_6_8) AppleWebKit/535.1 (KHTML, like Gecko) Chrome/13.0.782.112 Safari/535.1",
+				"Mozilla/5.0 (compatible; MSIE 9.0; Windows NT 6.1; Trident/5.0)", "Googlebot/2.1 (+http://www.google.com/bot.html)",
+				"Opera/9.80 (J2ME/MIDP; Opera Mini/9.80 (S60; SymbOS; Opera Mobi/23.348; U; en) Presto/2.5.25 Version/10.54", "",
+				"not a known user agent" };
+		for (final String userAgent : userAgents) {
+			Assert.assertEquals(fromXml.parse(userAgent), fromSnapshot.parse(userAgent));
+		}
+	}
+
+	@Test
+	public void readSnapshot_corruptedCounts() {
+		// every corrupted number must be reported as IOException and must never allocate an oversized array
+		final int[] values = { -1, Integer.MIN_VALUE, Integer.MAX_VALUE, snapshot.length };
+		for (int position = 24; position < snapshot.length - 4; position += snapshot.length / 97 & ~3) {
+			for (final int value : values) {
+				final byte[] copy = snapshot.clone();
+				copy[position] = (byte) (value >>> 24);
+				copy[position + 1] = (byte) (value >>> 16);
+				copy[position + 2] = (byte) (value >>> 8);
+				copy[position + 3] = (byte) value;
+				try {
+					BinarySnapshotDataReader.readSnapshot(copy);
+				} catch (final IOException e) {
+					// expected for most positions
+				}
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void readSnapshot_formatVersion() throws IOException {
+		final byte[] copy = snapshot.clone();
+		copy[7] = (byte) (BinarySnapshotDataReader.FORMAT_VERSION + 1);
+		BinarySnapshotDataReader.readSnapshot(copy);
+	}
+
+	@Test(expected = IOException.class)
+	public void readSnapshot_magicNumber() throws IOException {
+		final byte[] copy = snapshot.clone();
+		copy[0] = 0;
+		BinarySnapshotDataReader.readSnapshot(copy);
+	}
+
+	@Test(expected = IOException.class)
+	public void readSnapshot_negativeCount() throws IOException {
+		final byte[] copy = snapshot.clone();
+		Arrays.fill(copy, 24, 28, (byte) 0xFF); // number of strings
+		BinarySnapshotDataReader.readSnapshot(copy);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void readSnapshot_null() throws IOException {
+		BinarySnapshotDataReader.readSnapshot(null);
+	}
+
+	@Test(expected = IOException.class)
+	public void readSnapshot_oversizedCount() throws IOException {
+		final byte[] copy = snapshot.clone();
+		copy[24] = 0x7F; // number of strings
+		BinarySnapshotDataReader.readSnapshot(copy);
+	}
+
+	@Test(expected = IOException.class)
+	public void readSnapshot_trailer() throws IOException {
+		final byte[] copy = snapshot.clone();
+		copy[copy.length - 1] = 0;
+		BinarySnapshotDataReader.readSnapshot(copy);
+	}
+
+	@Test(expected = IOException.class)
+	public void readSnapshot_truncated() throws IOException {
+		BinarySnapshotDataReader.readSnapshot(Arrays.copyOf(snapshot, snapshot.length - 5));
+	}
+
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datareader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+
+import net.sf.uadetector.datastore.DataStore;
+import net.sf.uadetector.datastore.TestXmlDataStore;
+import net.sf.uadetector.datawriter.MappedDataWriter;
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.data.MappedData;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MappedDataReaderTest {
+
+	/**
+	 * The character set to read UAS data
+	 */
+	private static final Charset CHARSET = DataStore.DEFAULT_CHARSET;
+
+	@Test(expected = IllegalArgumentException.class)
+	public void map_null() throws IOException {
+		MappedDataReader.map(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void read_charset_null() throws MalformedURLException {
+		new MappedDataReader().read(new URL("http://localhost/"), null);
+	}
+
+	@Test
+	public void read_file() throws IOException {
+		final Data xml = new XmlDataReader().read(TestXmlDataStore.DATA_URL, CHARSET);
+		final File temp = File.createTempFile("uas_mapped", ".tmp");
+		temp.deleteOnExit();
+		final FileOutputStream out = new FileOutputStream(temp);
+		new MappedDataWriter().write(xml, out);
+		out.close();
+
+		final Data data = new MappedDataReader().read(temp.toURI().toURL(), CHARSET);
+		Assert.assertTrue(data instanceof MappedData);
+		Assert.assertEquals(xml.getVersion(), data.getVersion());
+		Assert.assertEquals(xml.getBrowsers(), data.getBrowsers());
+		temp.delete();
+	}
+
+	@Test
+	public void read_notMappable() {
+		Assert.assertSame(Data.EMPTY, new MappedDataReader().read(TestXmlDataStore.DATA_URL, CHARSET));
+	}
+
+	@Test
+	public void read_stream() throws IOException {
+		final Data xml = new XmlDataReader().read(TestXmlDataStore.DATA_URL, CHARSET);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new MappedDataWriter().write(xml, out);
+
+		final Data data = new MappedDataReader().read(new ByteArrayInputStream(out.toByteArray()), CHARSET);
+		Assert.assertTrue(data instanceof MappedData);
+		Assert.assertEquals(xml.getVersion(), data.getVersion());
+		Assert.assertEquals(xml.getBrowsers(), data.getBrowsers());
+	}
+
+	@Test
+	public void read_stream_notMappable() {
+		Assert.assertSame(Data.EMPTY, new MappedDataReader().read(new ByteArrayInputStream(new byte[16]), CHARSET));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void read_stream_null() {
+		new MappedDataReader().read((InputStream) null, CHARSET);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void read_url_null() {
+		new MappedDataReader().read((URL) null, CHARSET);
+	}
+
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datareader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+
+import net.sf.uadetector.datastore.DataStore;
+import net.sf.uadetector.datawriter.BinarySnapshotDataWriter;
+import net.sf.uadetector.exception.CanNotOpenStreamException;
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.util.CompressionUtil;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StreamingXmlDataReaderTest {
+
+	/**
+	 * URL to retrieve the UAS data as XML
+	 */
+	private static final URL DATA_URL = StreamingXmlDataReaderTest.class.getClassLoader().getResource("uas_older.xml");
+
+	/**
+	 * The character set to read UAS data
+	 */
+	private static final Charset CHARSET = DataStore.DEFAULT_CHARSET;
+
+	private static void assertSameData(final Data expected, final Data actual) throws IOException {
+		Assert.assertEquals(expected.getVersion(), actual.getVersion());
+		Assert.assertEquals(expected.toStats(), actual.toStats());
+		Assert.assertEquals(expected.getBrowsers(), actual.getBrowsers());
+		Assert.assertEquals(expected.getOperatingSystems(), actual.getOperatingSystems());
+		Assert.assertEquals(expected.getRobots(), actual.getRobots());
+		Assert.assertEquals(expected.getPatternBrowserMap(), actual.getPatternBrowserMap());
+		Assert.assertEquals(expected.getPatternOsMap(), actual.getPatternOsMap());
+		Assert.assertArrayEquals(toSnapshot(expected), toSnapshot(actual));
+	}
+
+	private static byte[] toSnapshot(final Data data) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new BinarySnapshotDataWriter().write(data, out);
+		return out.toByteArray();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void read_charset_null() throws MalformedURLException {
+		new StreamingXmlDataReader().read(new URL("http://localhost/"), null);
+	}
+
+	@Test
+	public void read_invalidXml() {
+		final InputStream stream = new ByteArrayInputStream("<uasdata><description><version>20120817-01</version></description><data><browsers><browser>".getBytes());
+		final Data data = new StreamingXmlDataReader().read(stream, CHARSET);
+		Assert.assertTrue(data.getBrowsers().isEmpty());
+		Assert.assertTrue(data.getOperatingSystems().isEmpty());
+	}
+
+	@Test
+	public void read_stream() throws IOException {
+		final InputStream stream = DATA_URL.openStream();
+		try {
+			assertSameData(new XmlDataReader().read(DATA_URL, CHARSET), new StreamingXmlDataReader().read(stream, CHARSET));
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Test
+	public void read_stream_compressed() throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final OutputStream out = CompressionUtil.compress(bytes);
+		final InputStream in = DATA_URL.openStream();
+		try {
+			int read;
+			while ((read = in.read()) != -1) {
+				out.write(read);
+			}
+		} finally {
+			in.close();
+		}
+		out.close();
+
+		final Data data = new StreamingXmlDataReader().read(new ByteArrayInputStream(bytes.toByteArray()), CHARSET);
+		assertSameData(new XmlDataReader().read(DATA_URL, CHARSET), data);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void read_stream_charset_null() {
+		new StreamingXmlDataReader().read(new ByteArrayInputStream(new byte[0]), null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void read_stream_null() {
+		new StreamingXmlDataReader().read((InputStream) null, CHARSET);
+	}
+
+	@Test
+	public void read_url() throws IOException {
+		assertSameData(new XmlDataReader().read(DATA_URL, CHARSET), new StreamingXmlDataReader().read(DATA_URL, CHARSET));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void read_url_null() {
+		new StreamingXmlDataReader().read((URL) null, CHARSET);
+	}
+
+	@Test(expected = CanNotOpenStreamException.class)
+	public void read_url_unreachable() throws MalformedURLException {
+		new StreamingXmlDataReader().read(new URL("http://unreachable.local/"), CHARSET);
+	}
+
+	@Test
+	public void testVersionParsing() {
+		final Data data = new StreamingXmlDataReader().read(DATA_URL, CHARSET);
+		Assert.assertEquals("20120817-01", data.getVersion());
+	}
+
+}
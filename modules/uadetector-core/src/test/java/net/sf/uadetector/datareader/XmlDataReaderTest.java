@@ -15,16 +15,24 @@
  ******************************************************************************/
 package net.sf.uadetector.datareader;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Constructor;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import net.sf.uadetector.datareader.XmlDataReader.XmlParser;
 import net.sf.uadetector.datastore.DataStore;
+import net.sf.uadetector.datawriter.BinarySnapshotDataWriter;
 import net.sf.uadetector.exception.CanNotOpenStreamException;
 import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.util.CompressionUtil;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -41,6 +49,17 @@ public class XmlDataReaderTest {
 	 */
 	private static final Charset CHARSET = DataStore.DEFAULT_CHARSET;
 
+	private static byte[] toSnapshot(final Data data) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new BinarySnapshotDataWriter().write(data, out);
+		return out.toByteArray();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_executor_null() {
+		new XmlDataReader(null);
+	}
+
 	@Test
 	public void giveMeCoverageForMyPrivateConstructor() throws Exception {
 		// reduces only some noise in coverage report
@@ -54,6 +73,93 @@ public class XmlDataReaderTest {
 		new XmlDataReader().read(new URL("http://localhost/"), null);
 	}
 
+	@Test
+	public void read_parallel() throws IOException {
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final Data parallel = new XmlDataReader(executor).read(DATA_URL, CHARSET);
+			final Data sequential = new XmlDataReader().read(DATA_URL, CHARSET);
+			Assert.assertEquals(sequential.toStats(), parallel.toStats());
+			Assert.assertEquals(sequential.getBrowsers(), parallel.getBrowsers());
+			Assert.assertEquals(sequential.getOperatingSystems(), parallel.getOperatingSystems());
+			Assert.assertArrayEquals(toSnapshot(sequential), toSnapshot(parallel));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void read_stream() throws IOException {
+		final InputStream stream = DATA_URL.openStream();
+		try {
+			final Data data = new XmlDataReader().read(stream, CHARSET);
+			Assert.assertArrayEquals(toSnapshot(new XmlDataReader().read(DATA_URL, CHARSET)), toSnapshot(data));
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Test
+	public void read_stream_compressed() throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final OutputStream out = CompressionUtil.compress(bytes);
+		final InputStream in = DATA_URL.openStream();
+		try {
+			int read;
+			while ((read = in.read()) != -1) {
+				out.write(read);
+			}
+		} finally {
+			in.close();
+		}
+		out.close();
+
+		final Data data = new XmlDataReader().readStrictly(new ByteArrayInputStream(bytes.toByteArray()), CHARSET);
+		Assert.assertArrayEquals(toSnapshot(new XmlDataReader().read(DATA_URL, CHARSET)), toSnapshot(data));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void read_stream_charset_null() throws IOException {
+		final InputStream stream = DATA_URL.openStream();
+		try {
+			new XmlDataReader().read(stream, null);
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void read_stream_null() {
+		new XmlDataReader().read((InputStream) null, CHARSET);
+	}
+
+	@Test
+	public void readStrictly() throws IOException {
+		final InputStream stream = DATA_URL.openStream();
+		try {
+			final Data data = new XmlDataReader().readStrictly(stream, CHARSET);
+			Assert.assertArrayEquals(toSnapshot(new XmlDataReader().read(DATA_URL, CHARSET)), toSnapshot(data));
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void readStrictly_charset_null() throws IOException {
+		new XmlDataReader().readStrictly(new ByteArrayInputStream(new byte[0]), null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void readStrictly_stream_null() throws IOException {
+		new XmlDataReader().readStrictly(null, CHARSET);
+	}
+
+	@Test(expected = IOException.class)
+	public void readStrictly_truncated() throws IOException {
+		final byte[] xml = "<uasdata><description><version>20120817-01</version></description><data><browsers>".getBytes(CHARSET);
+		new XmlDataReader().readStrictly(new ByteArrayInputStream(xml), CHARSET);
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void read_url_null() {
 		new XmlDataReader().read((URL) null, CHARSET);
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datastore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+
+import net.sf.uadetector.datareader.BinarySnapshotDataReader;
+import net.sf.uadetector.datareader.DataReader;
+import net.sf.uadetector.datareader.XmlDataReader;
+import net.sf.uadetector.exception.CanNotOpenStreamException;
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.util.LocalHttpServer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AbstractDataStoreTest_readDataIfModified {
+
+	private static class TestDataStore extends AbstractDataStore {
+
+		protected TestDataStore(final DataReader reader, final URL dataUrl) {
+			super(Data.EMPTY, reader, dataUrl, VERSION_URL, CHARSET);
+		}
+
+	}
+
+	/**
+	 * The character set to read UAS data
+	 */
+	private static final Charset CHARSET = DataStore.DEFAULT_CHARSET;
+
+	/**
+	 * URL to retrieve the UAS data as XML
+	 */
+	private static final URL DATA_URL = AbstractDataStoreTest_readDataIfModified.class.getClassLoader().getResource("uas_newer.xml");
+
+	/**
+	 * URL to retrieve the version of the UAS data
+	 */
+	private static final URL VERSION_URL = AbstractDataStoreTest_readDataIfModified.class.getClassLoader().getResource(
+			"uas_newer.version");
+
+	private static byte[] readAll(final URL url) throws IOException {
+		final InputStream stream = url.openStream();
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] chunk = new byte[8192];
+			int read;
+			while ((read = stream.read(chunk)) != -1) {
+				out.write(chunk, 0, read);
+			}
+			return out.toByteArray();
+		} finally {
+			stream.close();
+		}
+	}
+
+	private LocalHttpServer server;
+
+	@Before
+	public void setUp() throws IOException {
+		server = new LocalHttpServer();
+		server.setContent(readAll(DATA_URL));
+		server.setEntityTag("\"20120822-01\"");
+		server.setGzip(true);
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Test
+	public void readDataIfModified() throws IOException {
+		final TestDataStore store = new TestDataStore(new XmlDataReader(), server.getUrl("/uas.xml"));
+		final Data data = store.readDataIfModified();
+		Assert.assertEquals("20120822-01", data.getVersion());
+		Assert.assertEquals(new XmlDataReader().read(DATA_URL, CHARSET).toStats(), data.toStats());
+		Assert.assertNull(store.readDataIfModified());
+		Assert.assertEquals(2, server.getRequestCount());
+		Assert.assertEquals(1, server.getNotModifiedCount());
+	}
+
+	@Test
+	public void readDataIfModified_file() {
+		final TestDataStore store = new TestDataStore(new XmlDataReader(), DATA_URL);
+		Assert.assertEquals("20120822-01", store.readDataIfModified().getVersion());
+		Assert.assertEquals("20120822-01", store.readDataIfModified().getVersion());
+	}
+
+	@Test
+	public void readDataIfModified_notReadable() throws IOException {
+		// the XML document is not a binary snapshot, so the read data are empty
+		final TestDataStore store = new TestDataStore(new BinarySnapshotDataReader(), server.getUrl("/uas.xml"));
+		Assert.assertSame(Data.EMPTY, store.readDataIfModified());
+		Assert.assertSame(Data.EMPTY, store.readDataIfModified());
+		Assert.assertEquals(0, server.getNotModifiedCount());
+	}
+
+	@Test
+	public void readDataIfModified_readerWithoutStreamSupport() throws IOException {
+		// a reader which implements only the methods of DataReader reads the data URL again
+		final DataReader reader = new DataReader() {
+			@Override
+			public Data read(final URL url, final Charset charset) {
+				return new XmlDataReader().read(url, charset);
+			}
+		};
+		final TestDataStore store = new TestDataStore(reader, server.getUrl("/uas.xml"));
+		Assert.assertEquals("20120822-01", store.readDataIfModified().getVersion());
+		Assert.assertNull(store.readDataIfModified());
+		Assert.assertEquals(3, server.getRequestCount());
+		Assert.assertEquals(1, server.getNotModifiedCount());
+	}
+
+	@Test(expected = CanNotOpenStreamException.class)
+	public void readDataIfModified_serverError() throws IOException {
+		server.setStatus(503);
+		new TestDataStore(new XmlDataReader(), server.getUrl("/uas.xml")).readDataIfModified();
+	}
+
+}
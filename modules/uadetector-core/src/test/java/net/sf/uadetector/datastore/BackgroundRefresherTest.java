@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datastore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.uadetector.datareader.XmlDataReader;
+import net.sf.uadetector.internal.data.Data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BackgroundRefresherTest {
+
+	/**
+	 * Store which reads the newer UAS data on refresh, optionally after waiting for a latch
+	 */
+	private static class BlockingDataStore extends AbstractDataStore implements ReportingRefreshableDataStore {
+
+		private final CountDownLatch entered = new CountDownLatch(1);
+
+		private final CountDownLatch release;
+
+		private int refreshes = 0;
+
+		private RuntimeException failure;
+
+		private boolean failing = false;
+
+		public BlockingDataStore(final CountDownLatch release) {
+			super(new XmlDataReader(), TestXmlDataStore.DATA_URL, TestXmlDataStore.VERSION_URL, DataStore.DEFAULT_CHARSET);
+			this.release = release;
+		}
+
+		@Override
+		public void refresh() {
+			tryRefresh();
+		}
+
+		@Override
+		public synchronized boolean tryRefresh() {
+			refreshes++;
+			entered.countDown();
+			try {
+				release.await();
+			} catch (final InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			if (failing) {
+				return false;
+			}
+			setData(getDataReader().read(TestXmlDataStore.DATA_URL_NEWER, getCharset()));
+			return true;
+		}
+
+	}
+
+	private static class RecordingListener implements RefreshListener {
+
+		private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+		@Override
+		public void onFailure(final RefreshableDataStore store, final RuntimeException exception) {
+			events.add("failure:" + exception.getMessage());
+		}
+
+		@Override
+		public void onRefresh(final RefreshableDataStore store, final Data previous, final Data current) {
+			events.add(previous.getVersion() + "->" + current.getVersion());
+		}
+
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void addListener_null() {
+		new BackgroundRefresher(new TestXmlDataStore()).addListener(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_executor_null() {
+		new BackgroundRefresher(new TestXmlDataStore(), null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_store_null() {
+		new BackgroundRefresher(null);
+	}
+
+	@Test
+	public void refresh() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final BlockingDataStore store = new BlockingDataStore(release);
+		final BackgroundRefresher refresher = new BackgroundRefresher(store);
+		final RecordingListener listener = new RecordingListener();
+		refresher.addListener(listener);
+		Assert.assertSame(store, refresher.getStore());
+		try {
+			final Data previous = store.getData();
+			final Future<Data> future = refresher.refresh();
+			Assert.assertTrue(store.entered.await(10, TimeUnit.SECONDS));
+
+			// the previous data are still available while the refresh is running
+			Assert.assertSame(previous, store.getData());
+			Assert.assertFalse(future.isDone());
+
+			release.countDown();
+			final Data current = future.get(10, TimeUnit.SECONDS);
+			Assert.assertEquals("20120822-01", current.getVersion());
+			Assert.assertSame(current, store.getData());
+			Assert.assertEquals(Collections.singletonList("20120817-01->20120822-01"), listener.events);
+		} finally {
+			refresher.shutdown();
+		}
+	}
+
+	@Test
+	public void refresh_failure() throws Exception {
+		final BlockingDataStore store = new BlockingDataStore(new CountDownLatch(0));
+		store.failure = new IllegalStateException("broken");
+		final BackgroundRefresher refresher = new BackgroundRefresher(store);
+		final RecordingListener listener = new RecordingListener();
+		refresher.addListener(listener);
+		try {
+			refresher.refresh().get(10, TimeUnit.SECONDS);
+			Assert.fail("ExecutionException expected");
+		} catch (final ExecutionException e) {
+			Assert.assertSame(store.failure, e.getCause());
+			Assert.assertEquals("20120817-01", store.getData().getVersion());
+			Assert.assertEquals(Collections.singletonList("failure:broken"), listener.events);
+		} finally {
+			refresher.shutdown();
+		}
+	}
+
+	@Test
+	public void refresh_failureReportedByStore() throws Exception {
+		final BlockingDataStore store = new BlockingDataStore(new CountDownLatch(0));
+		store.failing = true;
+		final BackgroundRefresher refresher = new BackgroundRefresher(store);
+		final RecordingListener listener = new RecordingListener();
+		refresher.addListener(listener);
+		try {
+			refresher.refresh().get(10, TimeUnit.SECONDS);
+			Assert.fail("ExecutionException expected");
+		} catch (final ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+			Assert.assertEquals("20120817-01", store.getData().getVersion());
+			Assert.assertEquals(1, listener.events.size());
+			Assert.assertTrue(listener.events.get(0).startsWith("failure:"));
+		} finally {
+			refresher.shutdown();
+		}
+	}
+
+	@Test
+	public void refresh_listenerFailure() throws Exception {
+		final BlockingDataStore store = new BlockingDataStore(new CountDownLatch(0));
+		final BackgroundRefresher refresher = new BackgroundRefresher(store);
+		refresher.addListener(new RecordingListener() {
+			@Override
+			public void onRefresh(final RefreshableDataStore store, final Data previous, final Data current) {
+				throw new IllegalStateException("listener");
+			}
+		});
+		final RecordingListener listener = new RecordingListener();
+		refresher.addListener(listener);
+		try {
+			Assert.assertEquals("20120822-01", refresher.refresh().get(10, TimeUnit.SECONDS).getVersion());
+			Assert.assertEquals(1, listener.events.size());
+			Assert.assertTrue(refresher.removeListener(listener));
+			Assert.assertFalse(refresher.removeListener(listener));
+		} finally {
+			refresher.shutdown();
+		}
+	}
+
+	@Test
+	public void refresh_mergesPendingRequests() throws Exception {
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		final Executor executor = new Executor() {
+			@Override
+			public void execute(final Runnable command) {
+				tasks.add(command);
+			}
+		};
+		final BlockingDataStore store = new BlockingDataStore(new CountDownLatch(0));
+		final BackgroundRefresher refresher = new BackgroundRefresher(store, executor);
+		final Future<Data> first = refresher.refresh();
+		Assert.assertSame(first, refresher.refresh());
+		Assert.assertEquals(1, tasks.size());
+
+		tasks.get(0).run();
+		Assert.assertTrue(first.isDone());
+		Assert.assertEquals(1, store.refreshes);
+
+		// a completed refresh will not be reused
+		final Future<Data> second = refresher.refresh();
+		Assert.assertNotSame(first, second);
+		Assert.assertEquals(2, tasks.size());
+		tasks.get(1).run();
+		Assert.assertEquals(2, store.refreshes);
+		refresher.shutdown(); // does not affect the passed executor
+	}
+
+	@Test
+	public void refresh_whileRunning() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final BlockingDataStore store = new BlockingDataStore(release);
+		final BackgroundRefresher refresher = new BackgroundRefresher(store);
+		try {
+			final Future<Data> running = refresher.refresh();
+			Assert.assertTrue(store.entered.await(10, TimeUnit.SECONDS));
+
+			// a running refresh may have missed newer data, so another one will be scheduled
+			final Future<Data> next = refresher.refresh();
+			Assert.assertNotSame(running, next);
+			release.countDown();
+			next.get(10, TimeUnit.SECONDS);
+			Assert.assertTrue(running.isDone());
+			Assert.assertEquals(2, store.refreshes);
+		} finally {
+			refresher.shutdown();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void refresh_rejected() {
+		final BackgroundRefresher refresher = new BackgroundRefresher(new TestXmlDataStore(), new Executor() {
+			@Override
+			public void execute(final Runnable command) {
+				throw new RejectedExecutionException();
+			}
+		});
+		refresher.refresh();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void refresh_shutdown() {
+		final BackgroundRefresher refresher = new BackgroundRefresher(new TestXmlDataStore());
+		refresher.shutdown();
+		refresher.refresh();
+	}
+
+}
@@ -2,19 +2,26 @@ package net.sf.uadetector.datastore;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
-import java.util.Random;
 
+import net.sf.uadetector.datareader.BinarySnapshotDataReader;
+import net.sf.uadetector.datareader.XmlDataReader;
+import net.sf.uadetector.internal.data.Data;
 import net.sf.uadetector.internal.util.FileUtil;
 import net.sf.uadetector.parser.UpdatingUserAgentStringParserImpl;
 
+import org.junit.After;
 import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +47,15 @@ public class CachingXmlDataStoreTest {
 	 */
 	private static final URL VERSION_URL = CachingXmlDataStoreTest.class.getClassLoader().getResource("uas_older.version");
 
+	/**
+	 * Deletes the default cache file and its snapshot, so that no test depends on the files of another one
+	 */
+	private static void deleteDefaultCacheFile() {
+		final File cacheFile = CachingXmlDataStore.findOrCreateCacheFile();
+		cacheFile.delete();
+		CachingXmlDataStore.getSnapshotFile(cacheFile).delete();
+	}
+
 	private static String readFile(final File file) throws IOException {
 		final FileInputStream stream = new FileInputStream(file);
 		try {
@@ -52,6 +68,22 @@ public class CachingXmlDataStoreTest {
 		}
 	}
 
+	/**
+	 * Folder for cache files, which will be deleted together with the snapshots written next to them
+	 */
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void setUp() {
+		deleteDefaultCacheFile();
+	}
+
+	@After
+	public void tearDown() {
+		deleteDefaultCacheFile();
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void createCachingXmlDataStore_charset_null() throws IOException {
 		CachingXmlDataStore.createCachingXmlDataStore(new File("test"), DATA_URL, VERSION_URL, null);
@@ -78,8 +110,7 @@ public class CachingXmlDataStoreTest {
 	@Test
 	public void createCachingXmlDataStore_successful() throws IOException, InterruptedException {
 		// create temp file
-		final File temp = File.createTempFile("uas_temp_" + new Random().nextLong(), ".data");
-		temp.deleteOnExit();
+		final File temp = folder.newFile("uas_temp.data");
 		Assert.assertEquals("", readFile(temp));
 
 		// create caching data store
@@ -104,7 +135,59 @@ public class CachingXmlDataStoreTest {
 		Assert.assertTrue(firstLastUpdateCheck < currentLastUpdateCheck);
 
 		parser.setUpdateInterval(originalInterval);
-		temp.delete();
+	}
+
+	@Test
+	public void createCachingXmlDataStore_withSnapshot() throws IOException {
+		final File temp = folder.newFile("uas_temp.data");
+		final File snapshot = CachingXmlDataStore.getSnapshotFile(temp);
+
+		// the first start saves the data and a snapshot of it
+		CachingXmlDataStore.createCachingXmlDataStore(temp, DATA_URL, VERSION_URL, CHARSET);
+		Assert.assertTrue(snapshot.length() > 0);
+		Assert.assertTrue(BinarySnapshotDataReader.isSnapshotOf(snapshot, temp));
+
+		// replace the snapshot by a recognizable one, a warm start must not read the unchanged XML again
+		final Data newer = new XmlDataReader().read(TestXmlDataStore.DATA_URL_NEWER, CHARSET);
+		CachingXmlDataStore.writeSnapshot(newer, temp, snapshot);
+		final CachingXmlDataStore store = CachingXmlDataStore.createCachingXmlDataStore(temp, DATA_URL, VERSION_URL, CHARSET);
+		Assert.assertEquals(newer.getVersion(), store.getData().getVersion());
+
+		// a snapshot of another content will be ignored, even if it is newer than the cache file
+		final FileOutputStream out = new FileOutputStream(temp, true);
+		out.write('\n');
+		out.close();
+		snapshot.setLastModified(temp.lastModified() + 60000l);
+		final CachingXmlDataStore store2 = CachingXmlDataStore.createCachingXmlDataStore(temp, DATA_URL, VERSION_URL, CHARSET);
+		Assert.assertEquals("20120817-01", store2.getData().getVersion());
+		Assert.assertTrue(BinarySnapshotDataReader.isSnapshotOf(snapshot, temp));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void getSnapshotFile_null() {
+		CachingXmlDataStore.getSnapshotFile(null);
+	}
+
+	@Test
+	public void readAndSave_sameContent() throws IOException {
+		final File temp = folder.newFile("uas_temp.data");
+		Assert.assertTrue(CachingXmlDataStore.readAndSave(DATA_URL, temp, CHARSET));
+		Assert.assertFalse(CachingXmlDataStore.readAndSave(DATA_URL, temp, CHARSET));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void writeSnapshot_data_null() throws IOException {
+		CachingXmlDataStore.writeSnapshot(null, new File("source"), new File("test"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void writeSnapshot_file_null() throws IOException {
+		CachingXmlDataStore.writeSnapshot(Data.EMPTY, new File("source"), null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void writeSnapshot_source_null() throws IOException {
+		CachingXmlDataStore.writeSnapshot(Data.EMPTY, null, new File("test"));
 	}
 
 	@Test(expected = IllegalArgumentException.class)
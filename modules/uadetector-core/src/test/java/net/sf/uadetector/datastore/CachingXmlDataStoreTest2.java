@@ -87,8 +87,9 @@ public class CachingXmlDataStoreTest2 {
 
 	@AfterClass
 	public static void tearDown_class() throws IOException {
-		// delete temp file
+		// delete temp file and its snapshot
 		temp.delete();
+		CachingXmlDataStore.getSnapshotFile(temp).delete();
 	}
 
 	@Test
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datastore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import net.sf.uadetector.datareader.XmlDataReader;
+import net.sf.uadetector.internal.util.CompressionUtil;
+import net.sf.uadetector.internal.util.FileUtil;
+import net.sf.uadetector.internal.util.LocalHttpServer;
+import net.sf.uadetector.internal.util.UrlUtil;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CachingXmlDataStoreTest_refresh {
+
+	/**
+	 * The character set to read UAS data
+	 */
+	private static final Charset CHARSET = DataStore.DEFAULT_CHARSET;
+
+	/**
+	 * Reads the decompressed content of the given resource
+	 */
+	private static byte[] readAll(final URL url) throws IOException {
+		final InputStream stream = CompressionUtil.decompress(url.openStream());
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] chunk = new byte[8192];
+			int read;
+			while ((read = stream.read(chunk)) != -1) {
+				out.write(chunk, 0, read);
+			}
+			return out.toByteArray();
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Folder for cache files, which will be deleted together with the snapshots written next to them
+	 */
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private File writeFile(final byte[] content) throws IOException {
+		final File file = folder.newFile();
+		final FileOutputStream out = new FileOutputStream(file);
+		out.write(content);
+		out.close();
+		return file;
+	}
+
+	private byte[] older;
+
+	private byte[] newer;
+
+	private LocalHttpServer server;
+
+	private File temp;
+
+	@Before
+	public void setUp() throws IOException {
+		older = readAll(TestXmlDataStore.DATA_URL);
+		newer = readAll(TestXmlDataStore.DATA_URL_NEWER);
+		server = new LocalHttpServer();
+		server.setContent(older);
+		server.setEntityTag("\"20120817-01\"");
+		temp = folder.newFile("uas_temp.data");
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Test
+	public void refresh() throws IOException {
+		final CachingXmlDataStore store = CachingXmlDataStore.createCachingXmlDataStore(temp, server.getUrl("/uas.xml"),
+				TestXmlDataStore.VERSION_URL, CHARSET);
+
+		// an empty cache will be filled with one download
+		Assert.assertEquals(1, server.getRequestCount());
+		Assert.assertEquals("20120817-01", store.getData().getVersion());
+		Assert.assertTrue(FileUtil.hasSameContent(temp, writeFile(older)));
+
+		// unchanged data will not be transferred again
+		store.refresh();
+		Assert.assertEquals(1, server.getNotModifiedCount());
+
+		server.setContent(newer);
+		server.setEntityTag("\"20120822-01\"");
+		store.refresh();
+		Assert.assertEquals("20120822-01", store.getData().getVersion());
+		Assert.assertTrue(FileUtil.hasSameContent(temp, writeFile(newer)));
+		Assert.assertTrue(CachingXmlDataStore.getSnapshotFile(temp).lastModified() >= temp.lastModified());
+		Assert.assertFalse(new File(temp.getPath() + ".temp").exists());
+	}
+
+	@Test
+	public void refresh_compressedCacheFile() throws IOException {
+		final File cache = folder.newFile("uas_temp.xml.gz");
+		// a compressed source without content encoding will be recognized by its magic number
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		final OutputStream out = CompressionUtil.compress(compressed);
+		out.write(older);
+		out.close();
+		server.setContent(compressed.toByteArray());
+		final CachingXmlDataStore store = CachingXmlDataStore.createCachingXmlDataStore(cache, server.getUrl("/uas.xml.gz"),
+				TestXmlDataStore.VERSION_URL, CHARSET);
+		Assert.assertEquals("20120817-01", store.getData().getVersion());
+		Assert.assertTrue(cache.length() < older.length / 4);
+		Assert.assertArrayEquals(older, readAll(UrlUtil.toUrl(cache)));
+
+		// a download with content encoding will be compressed again for the cache file
+		server.setContent(newer);
+		server.setEntityTag("\"20120822-01\"");
+		server.setGzip(true);
+		store.refresh();
+		Assert.assertEquals("20120822-01", store.getData().getVersion());
+		Assert.assertArrayEquals(newer, readAll(UrlUtil.toUrl(cache)));
+
+		// the compressed cache file can be read like an uncompressed one
+		Assert.assertEquals("20120822-01", new XmlDataReader().read(UrlUtil.toUrl(cache), CHARSET).getVersion());
+	}
+
+	@Test
+	public void refresh_truncatedData() throws IOException {
+		final CachingXmlDataStore store = CachingXmlDataStore.createCachingXmlDataStore(temp, server.getUrl("/uas.xml"),
+				TestXmlDataStore.VERSION_URL, CHARSET);
+		final File expected = writeFile(older);
+
+		// a broken download must neither replace the data nor the cache file
+		server.setContent(Arrays.copyOf(newer, newer.length / 2));
+		server.setEntityTag("\"20120822-01\"");
+		store.refresh();
+		Assert.assertEquals("20120817-01", store.getData().getVersion());
+		Assert.assertTrue(FileUtil.hasSameContent(expected, temp));
+		Assert.assertFalse(new File(temp.getPath() + ".temp").exists());
+
+		// the next refresh must not be answered with "not modified"
+		server.setContent(newer);
+		store.refresh();
+		Assert.assertEquals(0, server.getNotModifiedCount());
+		Assert.assertEquals("20120822-01", store.getData().getVersion());
+	}
+
+}
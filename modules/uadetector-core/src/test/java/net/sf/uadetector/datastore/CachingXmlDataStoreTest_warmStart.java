@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datastore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+
+import net.sf.uadetector.internal.util.LocalHttpServer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CachingXmlDataStoreTest_warmStart {
+
+	/**
+	 * The character set to read UAS data
+	 */
+	private static final Charset CHARSET = DataStore.DEFAULT_CHARSET;
+
+	/**
+	 * Maximum age of the cache file in the tests
+	 */
+	private static final long MAX_AGE = 60L * 60L * 1000L;
+
+	private static byte[] readAll(final URL url) throws IOException {
+		final InputStream stream = url.openStream();
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] chunk = new byte[8192];
+			int read;
+			while ((read = stream.read(chunk)) != -1) {
+				out.write(chunk, 0, read);
+			}
+			return out.toByteArray();
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Folder for cache files, which will be deleted together with the snapshots written next to them
+	 */
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private File cache;
+
+	private LocalHttpServer dataServer;
+
+	private LocalHttpServer versionServer;
+
+	private CachingXmlDataStore create() throws IOException {
+		return CachingXmlDataStore.createCachingXmlDataStore(cache, dataServer.getUrl("/uas.xml"), versionServer.getUrl("/uas.version"),
+				CHARSET, MAX_AGE);
+	}
+
+	@Test
+	public void createCachingXmlDataStore_cacheFileCurrentVersion() throws IOException {
+		create();
+		cache.setLastModified(System.currentTimeMillis() - 2 * MAX_AGE);
+		dataServer.setContent(readAll(TestXmlDataStore.DATA_URL_NEWER));
+
+		// only the version will be checked
+		final CachingXmlDataStore store = create();
+		Assert.assertEquals("20120817-01", store.getData().getVersion());
+		Assert.assertEquals(1, dataServer.getRequestCount());
+		Assert.assertEquals(1, versionServer.getRequestCount());
+	}
+
+	@Test
+	public void createCachingXmlDataStore_cacheFileEmpty() throws IOException {
+		final CachingXmlDataStore store = create();
+		Assert.assertEquals("20120817-01", store.getData().getVersion());
+		Assert.assertEquals(1, dataServer.getRequestCount());
+		Assert.assertEquals(0, versionServer.getRequestCount());
+	}
+
+	@Test
+	public void createCachingXmlDataStore_cacheFileOutdated() throws IOException {
+		create();
+		cache.setLastModified(System.currentTimeMillis() - 2 * MAX_AGE);
+		dataServer.setContent(readAll(TestXmlDataStore.DATA_URL_NEWER));
+		versionServer.setContent(readAll(TestXmlDataStore.VERSION_URL_NEWER));
+
+		final CachingXmlDataStore store = create();
+		Assert.assertEquals("20120822-01", store.getData().getVersion());
+		Assert.assertEquals(2, dataServer.getRequestCount());
+		Assert.assertEquals(1, versionServer.getRequestCount());
+	}
+
+	@Test
+	public void createCachingXmlDataStore_cacheFileYoung() throws IOException {
+		create();
+		dataServer.setContent(readAll(TestXmlDataStore.DATA_URL_NEWER));
+		versionServer.setContent(readAll(TestXmlDataStore.VERSION_URL_NEWER));
+
+		// a warm restart does not cause any network I/O
+		final CachingXmlDataStore store = create();
+		Assert.assertEquals("20120817-01", store.getData().getVersion());
+		Assert.assertEquals(1, dataServer.getRequestCount());
+		Assert.assertEquals(0, versionServer.getRequestCount());
+
+		// a refresh still updates the data
+		store.refresh();
+		Assert.assertEquals("20120822-01", store.getData().getVersion());
+	}
+
+	@Test
+	public void createCachingXmlDataStore_cacheFileYoung_withoutMaxAge() throws IOException {
+		create();
+		final CachingXmlDataStore store = CachingXmlDataStore.createCachingXmlDataStore(cache, dataServer.getUrl("/uas.xml"),
+				versionServer.getUrl("/uas.version"), CHARSET);
+		Assert.assertEquals("20120817-01", store.getData().getVersion());
+		Assert.assertEquals(2, dataServer.getRequestCount());
+	}
+
+	@Test
+	public void createCachingXmlDataStore_versionNotAvailable() throws IOException {
+		create();
+		cache.setLastModified(System.currentTimeMillis() - 2 * MAX_AGE);
+		versionServer.setStatus(500);
+
+		// the cache file is trusted, because a download would probably fail as well
+		final CachingXmlDataStore store = create();
+		Assert.assertEquals("20120817-01", store.getData().getVersion());
+		Assert.assertEquals(1, dataServer.getRequestCount());
+		Assert.assertEquals(1, versionServer.getRequestCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void createCachingXmlDataStore_maxAge_negative() throws IOException {
+		CachingXmlDataStore.createCachingXmlDataStore(cache, dataServer.getUrl("/uas.xml"), versionServer.getUrl("/uas.version"),
+				CHARSET, -1L);
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		dataServer = new LocalHttpServer();
+		dataServer.setContent(readAll(TestXmlDataStore.DATA_URL));
+		versionServer = new LocalHttpServer();
+		versionServer.setContent(readAll(TestXmlDataStore.VERSION_URL));
+		cache = folder.newFile("uas_warm.data");
+	}
+
+	@After
+	public void tearDown() {
+		dataServer.stop();
+		versionServer.stop();
+	}
+
+}
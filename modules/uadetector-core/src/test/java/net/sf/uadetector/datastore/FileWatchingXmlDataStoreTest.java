@@ -0,0 +1,332 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datastore;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import net.sf.uadetector.datareader.XmlDataReader;
+import net.sf.uadetector.exception.CanNotOpenStreamException;
+import net.sf.uadetector.internal.data.Data;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileWatchingXmlDataStoreTest {
+
+	/**
+	 * Listener which records the versions of all refreshes
+	 */
+	private static final class RecordingListener implements RefreshListener {
+
+		private final List<RuntimeException> failures = new CopyOnWriteArrayList<RuntimeException>();
+
+		private final List<String> versions = new CopyOnWriteArrayList<String>();
+
+		@Override
+		public void onFailure(final RefreshableDataStore store, final RuntimeException exception) {
+			failures.add(exception);
+		}
+
+		@Override
+		public void onRefresh(final RefreshableDataStore store, final Data previous, final Data current) {
+			versions.add(current.getVersion());
+		}
+
+	}
+
+	/**
+	 * The character set to read UAS data
+	 */
+	private static final Charset CHARSET = DataStore.DEFAULT_CHARSET;
+
+	/**
+	 * URL to retrieve the older UAS data as XML
+	 */
+	private static final URL DATA_URL_OLDER = FileWatchingXmlDataStoreTest.class.getClassLoader().getResource("uas_older.xml");
+
+	/**
+	 * URL to retrieve the newer UAS data as XML
+	 */
+	private static final URL DATA_URL_NEWER = FileWatchingXmlDataStoreTest.class.getClassLoader().getResource("uas_newer.xml");
+
+	/**
+	 * Copies the content of the given URL into the file and sets the passed modification time, because the resolution
+	 * of modification times of some file systems is too coarse for this test.
+	 */
+	private static void copy(final URL url, final File file, final long lastModified) throws IOException {
+		final InputStream in = url.openStream();
+		try {
+			write(in, file, -1);
+		} finally {
+			in.close();
+		}
+		file.setLastModified(lastModified);
+	}
+
+	private static void write(final InputStream in, final File file, final int limit) throws IOException {
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			final byte[] buffer = new byte[8 * 1024];
+			int remaining = limit < 0 ? Integer.MAX_VALUE : limit;
+			int read;
+			while (remaining > 0 && (read = in.read(buffer, 0, Math.min(buffer.length, remaining))) != -1) {
+				out.write(buffer, 0, read);
+				remaining -= read;
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void waitFor(final List<?> list, final int size) throws InterruptedException {
+		final long timeout = System.currentTimeMillis() + 10000L;
+		while (list.size() < size && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10L);
+		}
+	}
+
+	private File dir;
+
+	private ScheduledExecutorService executor;
+
+	private File file;
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_charset_null() throws IOException {
+		new FileWatchingXmlDataStore(new XmlDataReader(), file, null);
+	}
+
+	@Test
+	public void construct_directory() throws IOException {
+		final FileWatchingXmlDataStore store = new FileWatchingXmlDataStore(dir);
+		Assert.assertEquals("20120817-01", store.getData().getVersion());
+		Assert.assertEquals(file.toURI().toURL(), store.getDataUrl());
+		Assert.assertSame(dir, store.getFile());
+	}
+
+	@Test
+	public void construct_file() {
+		final FileWatchingXmlDataStore store = new FileWatchingXmlDataStore(file);
+		Assert.assertEquals("20120817-01", store.getData().getVersion());
+		Assert.assertFalse(store.isWatching());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_file_null() {
+		new FileWatchingXmlDataStore(null);
+	}
+
+	@Test(expected = CanNotOpenStreamException.class)
+	public void construct_fileMissing() {
+		new FileWatchingXmlDataStore(new File(dir, "missing.xml"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_reader_null() {
+		new FileWatchingXmlDataStore(null, file, CHARSET);
+	}
+
+	@Test
+	public void refresh_changed() throws IOException {
+		final FileWatchingXmlDataStore store = new FileWatchingXmlDataStore(file);
+		final RecordingListener listener = new RecordingListener();
+		store.addListener(listener);
+		copy(DATA_URL_NEWER, file, file.lastModified() + 2000L);
+		store.refresh();
+		Assert.assertEquals("20120822-01", store.getData().getVersion());
+		Assert.assertEquals(1, listener.versions.size());
+	}
+
+	@Test
+	public void refresh_incomplete() throws IOException {
+		final FileWatchingXmlDataStore store = new FileWatchingXmlDataStore(file);
+		final Data data = store.getData();
+		final InputStream in = DATA_URL_NEWER.openStream();
+		try {
+			write(in, file, 100);
+		} finally {
+			in.close();
+		}
+		store.refresh();
+		Assert.assertSame(data, store.getData());
+
+		// the completed file will be read
+		copy(DATA_URL_NEWER, file, file.lastModified() + 2000L);
+		store.refresh();
+		Assert.assertEquals("20120822-01", store.getData().getVersion());
+	}
+
+	@Test
+	public void refresh_incomplete_midDocument() throws IOException {
+		final FileWatchingXmlDataStore store = new FileWatchingXmlDataStore(file);
+		final RecordingListener listener = new RecordingListener();
+		store.addListener(listener);
+		final Data data = store.getData();
+
+		// the version and many records are complete, but the document is not
+		final InputStream in = DATA_URL_NEWER.openStream();
+		try {
+			write(in, file, 400 * 1024);
+		} finally {
+			in.close();
+		}
+		Assert.assertEquals(400 * 1024, file.length());
+		file.setLastModified(file.lastModified() + 2000L);
+		store.refresh();
+		Assert.assertSame(data, store.getData());
+		Assert.assertTrue(listener.versions.isEmpty());
+		Assert.assertEquals(1, listener.failures.size());
+
+		// the completed file will be read, although the incomplete one has been seen before
+		copy(DATA_URL_NEWER, file, file.lastModified() + 2000L);
+		store.refresh();
+		Assert.assertEquals("20120822-01", store.getData().getVersion());
+		Assert.assertEquals(store.getData().getRobots().size(), new XmlDataReader().read(DATA_URL_NEWER, CHARSET).getRobots().size());
+	}
+
+	@Test(expected = CanNotOpenStreamException.class)
+	public void construct_fileIncomplete() throws IOException {
+		final InputStream in = DATA_URL_OLDER.openStream();
+		try {
+			write(in, file, 400 * 1024);
+		} finally {
+			in.close();
+		}
+		new FileWatchingXmlDataStore(file);
+	}
+
+	@Test
+	public void refresh_unchanged() throws IOException {
+		final FileWatchingXmlDataStore store = new FileWatchingXmlDataStore(file);
+		final RecordingListener listener = new RecordingListener();
+		store.addListener(listener);
+		final Data data = store.getData();
+
+		// touching the file does not change the content
+		copy(DATA_URL_OLDER, file, file.lastModified() + 2000L);
+		store.refresh();
+		Assert.assertSame(data, store.getData());
+		Assert.assertTrue(listener.versions.isEmpty());
+	}
+
+	@Test
+	public void removeListener() throws IOException {
+		final FileWatchingXmlDataStore store = new FileWatchingXmlDataStore(file);
+		final RecordingListener listener = new RecordingListener();
+		store.addListener(listener);
+		Assert.assertTrue(store.removeListener(listener));
+		copy(DATA_URL_NEWER, file, file.lastModified() + 2000L);
+		store.refresh();
+		Assert.assertTrue(listener.versions.isEmpty());
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		dir = new File(System.getProperty("java.io.tmpdir"), "uas_watch_" + new Random().nextLong());
+		Assert.assertTrue(dir.mkdir());
+		file = new File(dir, "uas.xml");
+		copy(DATA_URL_OLDER, file, System.currentTimeMillis() - 60000L);
+		executor = Executors.newSingleThreadScheduledExecutor();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void startWatching_checkInterval_zero() {
+		new FileWatchingXmlDataStore(file).startWatching(executor, 0, 0);
+	}
+
+	@Test
+	public void startWatching_debounced() throws IOException, InterruptedException {
+		final FileWatchingXmlDataStore store = new FileWatchingXmlDataStore(file);
+		final RecordingListener listener = new RecordingListener();
+		store.addListener(listener);
+		store.startWatching(executor, 10L, 500L);
+		Assert.assertTrue(store.isWatching());
+
+		// a burst of writes, which leaves an incomplete file in between
+		final long lastModified = file.lastModified();
+		final InputStream in = DATA_URL_NEWER.openStream();
+		try {
+			write(in, file, 100);
+		} finally {
+			in.close();
+		}
+		file.setLastModified(lastModified + 2000L);
+		Thread.sleep(50L);
+		copy(DATA_URL_NEWER, file, lastModified + 4000L);
+
+		waitFor(listener.versions, 1);
+		Thread.sleep(600L);
+		Assert.assertEquals(1, listener.versions.size());
+		Assert.assertEquals("20120822-01", listener.versions.get(0));
+		Assert.assertTrue(listener.failures.isEmpty());
+		Assert.assertEquals("20120822-01", store.getData().getVersion());
+		store.stopWatching();
+		Assert.assertFalse(store.isWatching());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void startWatching_executor_null() {
+		new FileWatchingXmlDataStore(file).startWatching(null, 10L, 0);
+	}
+
+	@Test
+	public void startWatching_ownThread() throws IOException, InterruptedException {
+		final FileWatchingXmlDataStore store = new FileWatchingXmlDataStore(dir);
+		final RecordingListener listener = new RecordingListener();
+		store.addListener(listener);
+		store.startWatching();
+		store.startWatching();
+		Assert.assertTrue(store.isWatching());
+
+		// replacing the file by renaming is recognized as well
+		final File temp = new File(dir, "uas.xml.part");
+		copy(DATA_URL_NEWER, temp, file.lastModified() + 2000L);
+		Assert.assertTrue(file.delete() && temp.renameTo(file));
+
+		waitFor(listener.versions, 1);
+		Assert.assertEquals("20120822-01", store.getData().getVersion());
+		store.stopWatching();
+		Assert.assertFalse(store.isWatching());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void startWatching_quietPeriod_negative() {
+		new FileWatchingXmlDataStore(file).startWatching(executor, 10L, -1L);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+		for (final File child : dir.listFiles()) {
+			child.delete();
+		}
+		dir.delete();
+	}
+
+}
@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datastore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.data.MappedData;
+import net.sf.uadetector.internal.util.LocalHttpServer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MappedDataStoreTest {
+
+	private static byte[] readAll(final URL url) throws IOException {
+		final InputStream stream = url.openStream();
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] chunk = new byte[8192];
+			int read;
+			while ((read = stream.read(chunk)) != -1) {
+				out.write(chunk, 0, read);
+			}
+			return out.toByteArray();
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * The character set to read UAS data
+	 */
+	private static final Charset CHARSET = DataStore.DEFAULT_CHARSET;
+
+	/**
+	 * URL to retrieve the UAS data as XML
+	 */
+	private static final URL DATA_URL = MappedDataStoreTest.class.getClassLoader().getResource("uas_older.xml");
+
+	/**
+	 * URL to retrieve the version of the UAS data
+	 */
+	private static final URL VERSION_URL = MappedDataStoreTest.class.getClassLoader().getResource("uas_older.version");
+
+	@Test
+	public void createMappedDataStore() throws IOException {
+		final File temp = File.createTempFile("uas_mapped_" + new Random().nextLong(), ".data");
+		temp.deleteOnExit();
+
+		// the empty file will be filled from the XML data
+		final MappedDataStore store = MappedDataStore.createMappedDataStore(temp, DATA_URL, VERSION_URL, CHARSET);
+		Assert.assertTrue(store.getData() instanceof MappedData);
+		Assert.assertEquals("20120817-01", store.getData().getVersion());
+		Assert.assertTrue(temp.length() > 0);
+
+		// the filled file will be mapped without reading the (here newer) XML data
+		final MappedDataStore store2 = MappedDataStore.createMappedDataStore(temp, TestXmlDataStore.DATA_URL_NEWER,
+				TestXmlDataStore.VERSION_URL_NEWER, CHARSET);
+		Assert.assertEquals("20120817-01", store2.getData().getVersion());
+
+		// refreshing replaces the file, the data of the first store are still readable
+		store2.refresh();
+		Assert.assertEquals("20120822-01", store2.getData().getVersion());
+		Assert.assertEquals("20120817-01", store.getData().getVersion());
+		Assert.assertNotNull(store.getData().findRobot(store.getData().getRobots().iterator().next().getUserAgentString()));
+		Assert.assertEquals("20120822-01", MappedDataStore.createMappedDataStore(temp, DATA_URL, VERSION_URL, CHARSET).getData()
+				.getVersion());
+
+		temp.delete();
+	}
+
+	@Test
+	public void createMappedDataStore_fileNotUsable() throws IOException {
+		final File temp = File.createTempFile("uas_mapped_" + new Random().nextLong(), ".data");
+		temp.deleteOnExit();
+		// a file in another format will be replaced
+		final FileOutputStream out = new FileOutputStream(temp);
+		out.write("no mapped data".getBytes());
+		out.close();
+		final MappedDataStore store = MappedDataStore.createMappedDataStore(temp, DATA_URL, VERSION_URL, CHARSET);
+		Assert.assertTrue(store.getData() instanceof MappedData);
+		Assert.assertEquals("20120817-01", store.getData().getVersion());
+
+		temp.delete();
+	}
+
+	@Test
+	public void createMappedDataStore_incompleteData() throws IOException {
+		final File temp = File.createTempFile("uas_mapped_" + new Random().nextLong(), ".data");
+		temp.deleteOnExit();
+		final LocalHttpServer server = new LocalHttpServer();
+		try {
+			server.setContent(Arrays.copyOf(readAll(DATA_URL), 400 * 1024));
+			final MappedDataStore store = MappedDataStore.createMappedDataStore(temp, server.getUrl("/uas.xml"), VERSION_URL, CHARSET);
+
+			// incomplete data must neither be used nor be written into the shared file
+			Assert.assertSame(Data.EMPTY, store.getData());
+			Assert.assertEquals(0, temp.length());
+		} finally {
+			server.stop();
+			temp.delete();
+		}
+	}
+
+	@Test
+	public void refresh_incompleteData() throws IOException {
+		final File temp = File.createTempFile("uas_mapped_" + new Random().nextLong(), ".data");
+		temp.deleteOnExit();
+		final LocalHttpServer server = new LocalHttpServer();
+		try {
+			server.setContent(readAll(DATA_URL));
+			final MappedDataStore store = MappedDataStore.createMappedDataStore(temp, server.getUrl("/uas.xml"), VERSION_URL, CHARSET);
+			final Data data = store.getData();
+			final long length = temp.length();
+
+			server.setContent(Arrays.copyOf(readAll(TestXmlDataStore.DATA_URL_NEWER), 400 * 1024));
+			store.refresh();
+			Assert.assertSame(data, store.getData());
+			Assert.assertEquals(length, temp.length());
+			Assert.assertEquals("20120817-01", MappedDataStore.createMappedDataStore(temp, DATA_URL, VERSION_URL, CHARSET).getData()
+					.getVersion());
+			final File[] tempFiles = temp.getAbsoluteFile().getParentFile().listFiles();
+			for (final File file : tempFiles) {
+				Assert.assertFalse(file.getName().startsWith(temp.getName() + ".part"));
+			}
+		} finally {
+			server.stop();
+			temp.delete();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void createMappedDataStore_charset_null() {
+		MappedDataStore.createMappedDataStore(new File("test"), DATA_URL, VERSION_URL, null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void createMappedDataStore_dataUrl_null() {
+		MappedDataStore.createMappedDataStore(new File("test"), null, VERSION_URL, CHARSET);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void createMappedDataStore_file_null() {
+		MappedDataStore.createMappedDataStore(null, DATA_URL, VERSION_URL, CHARSET);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void createMappedDataStore_versionUrl_null() {
+		MappedDataStore.createMappedDataStore(new File("test"), DATA_URL, null, CHARSET);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void write_data_null() throws IOException {
+		MappedDataStore.write(null, new File("test"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void write_file_null() throws IOException {
+		MappedDataStore.write(new TestXmlDataStore().getData(), null);
+	}
+
+}
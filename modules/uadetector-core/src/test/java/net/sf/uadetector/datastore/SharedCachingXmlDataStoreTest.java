@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datastore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sf.uadetector.datareader.BinarySnapshotDataReader;
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.util.LocalHttpServer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SharedCachingXmlDataStoreTest {
+
+	/**
+	 * The character set to read UAS data
+	 */
+	private static final Charset CHARSET = DataStore.DEFAULT_CHARSET;
+
+	private static byte[] readAll(final URL url) throws IOException {
+		final InputStream stream = url.openStream();
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] chunk = new byte[8192];
+			int read;
+			while ((read = stream.read(chunk)) != -1) {
+				out.write(chunk, 0, read);
+			}
+			return out.toByteArray();
+		} finally {
+			stream.close();
+		}
+	}
+
+	private static void write(final File file, final byte[] content) throws IOException {
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+	}
+
+	private File directory;
+
+	private byte[] newer;
+
+	private byte[] older;
+
+	private LocalHttpServer server;
+
+	private SharedCachingXmlDataStore create() throws IOException {
+		return SharedCachingXmlDataStore.createSharedCachingXmlDataStore(directory, server.getUrl("/uas.xml"),
+				TestXmlDataStore.VERSION_URL, CHARSET);
+	}
+
+	@Test
+	public void createSharedCachingXmlDataStore() throws IOException {
+		final SharedCachingXmlDataStore store = create();
+		Assert.assertEquals(1, server.getRequestCount());
+		Assert.assertEquals("20120817-01", store.getData().getVersion());
+		Assert.assertSame(directory, store.getDirectory());
+
+		final File file = SharedCachingXmlDataStore.getVersionedFile(directory, "20120817-01");
+		Assert.assertTrue(file.isFile());
+		Assert.assertTrue(CachingXmlDataStore.getSnapshotFile(file).isFile());
+		Assert.assertEquals(Arrays.asList("uas-20120817-01.xml", "uas-20120817-01.xml.snapshot", "uas.lock"), listNames());
+
+		// another process finds the cached version without downloading it
+		final SharedCachingXmlDataStore other = create();
+		Assert.assertEquals(1, server.getRequestCount());
+		Assert.assertEquals("20120817-01", other.getData().getVersion());
+	}
+
+	@Test
+	public void createSharedCachingXmlDataStore_concurrently() throws InterruptedException, ExecutionException {
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<SharedCachingXmlDataStore>> futures = new ArrayList<Future<SharedCachingXmlDataStore>>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(new Callable<SharedCachingXmlDataStore>() {
+					@Override
+					public SharedCachingXmlDataStore call() throws IOException {
+						return create();
+					}
+				}));
+			}
+			for (final Future<SharedCachingXmlDataStore> future : futures) {
+				Assert.assertEquals("20120817-01", future.get().getData().getVersion());
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		// all stores wait for the first download instead of downloading the data themselves
+		Assert.assertEquals(1, server.getRequestCount());
+	}
+
+	@Test
+	public void createSharedCachingXmlDataStore_brokenFile() throws IOException {
+		Assert.assertTrue(directory.mkdirs());
+		write(SharedCachingXmlDataStore.getVersionedFile(directory, "20120817-01"), Arrays.copyOf(older, older.length / 2));
+
+		// the broken file will be replaced by the downloaded one
+		final SharedCachingXmlDataStore store = create();
+		Assert.assertEquals(1, server.getRequestCount());
+		Assert.assertEquals("20120817-01", store.getData().getVersion());
+		final File file = SharedCachingXmlDataStore.getVersionedFile(directory, "20120817-01");
+		Assert.assertEquals(older.length, file.length());
+		Assert.assertTrue(BinarySnapshotDataReader.isSnapshotOf(CachingXmlDataStore.getSnapshotFile(file), file));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void createSharedCachingXmlDataStore_directory_null() throws IOException {
+		SharedCachingXmlDataStore.createSharedCachingXmlDataStore(null, server.getUrl("/uas.xml"), TestXmlDataStore.VERSION_URL,
+				CHARSET);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void createSharedCachingXmlDataStore_dataUrl_null() {
+		SharedCachingXmlDataStore.createSharedCachingXmlDataStore(directory, null, TestXmlDataStore.VERSION_URL, CHARSET);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void createSharedCachingXmlDataStore_directoryNotCreatable() throws IOException {
+		final File file = new File(directory, "file");
+		Assert.assertTrue(directory.mkdirs() && file.createNewFile());
+		SharedCachingXmlDataStore.createSharedCachingXmlDataStore(new File(file, "cache"), server.getUrl("/uas.xml"),
+				TestXmlDataStore.VERSION_URL, CHARSET);
+	}
+
+	@Test
+	public void getDefaultCacheDirectory() {
+		Assert.assertEquals(new File(System.getProperty("java.io.tmpdir"), "uadetector"), SharedCachingXmlDataStore.getDefaultCacheDirectory());
+	}
+
+	@Test
+	public void getVersionedFile() {
+		Assert.assertEquals(new File(directory, "uas-20120817-01.xml"), SharedCachingXmlDataStore.getVersionedFile(directory, "20120817-01"));
+		Assert.assertEquals(new File(directory, "uas-.._a_b.xml"), SharedCachingXmlDataStore.getVersionedFile(directory, "../a/b"));
+	}
+
+	private List<String> listNames() {
+		final List<String> names = new ArrayList<String>(Arrays.asList(directory.list()));
+		Collections.sort(names);
+		return names;
+	}
+
+	@Test
+	public void refresh_brokenDownload() throws IOException {
+		final SharedCachingXmlDataStore store = create();
+		server.setContent(Arrays.copyOf(newer, newer.length / 2));
+		server.setEntityTag("\"20120822-01\"");
+		store.refresh();
+		Assert.assertEquals("20120817-01", store.getData().getVersion());
+		Assert.assertEquals(Arrays.asList("uas-20120817-01.xml", "uas-20120817-01.xml.snapshot", "uas.lock"), listNames());
+	}
+
+	@Test
+	public void refresh_brokenNewerFile() throws IOException {
+		final SharedCachingXmlDataStore store = create();
+		final File file = SharedCachingXmlDataStore.getVersionedFile(directory, "20120822-01");
+		write(file, Arrays.copyOf(newer, 400 * 1024));
+		server.setContent(newer);
+		server.setEntityTag("\"20120822-01\"");
+
+		// the broken file must not replace the current data, the data will be downloaded instead
+		Assert.assertTrue(store.tryRefresh());
+		Assert.assertEquals(2, server.getRequestCount());
+		Assert.assertEquals("20120822-01", store.getData().getVersion());
+		Assert.assertEquals(newer.length, file.length());
+		Assert.assertTrue(BinarySnapshotDataReader.isSnapshotOf(CachingXmlDataStore.getSnapshotFile(file), file));
+	}
+
+	@Test
+	public void refresh_downloadedByAnotherStore() throws IOException {
+		final SharedCachingXmlDataStore store = create();
+		final SharedCachingXmlDataStore other = create();
+		server.setContent(newer);
+		server.setEntityTag("\"20120822-01\"");
+
+		store.refresh();
+		Assert.assertEquals(2, server.getRequestCount());
+		Assert.assertEquals("20120822-01", store.getData().getVersion());
+
+		// the other store loads the version which has been downloaded by the first one
+		other.refresh();
+		Assert.assertEquals(2, server.getRequestCount());
+		Assert.assertEquals("20120822-01", other.getData().getVersion());
+		Assert.assertNotSame(store.getData(), other.getData());
+	}
+
+	@Test
+	public void refresh_removeOldVersions() throws IOException {
+		final SharedCachingXmlDataStore store = create();
+		server.setContent(newer);
+		server.setEntityTag("\"20120822-01\"");
+		store.refresh();
+		server.setContent(new String(newer, "UTF-8").replace("20120822-01", "20120901-01").getBytes("UTF-8"));
+		server.setEntityTag("\"20120901-01\"");
+		store.refresh();
+
+		Assert.assertEquals("20120901-01", store.getData().getVersion());
+		Assert.assertEquals(Arrays.asList("uas-20120822-01.xml", "uas-20120822-01.xml.snapshot", "uas-20120901-01.xml",
+				"uas-20120901-01.xml.snapshot", "uas.lock"), listNames());
+	}
+
+	@Test
+	public void refresh_strayFile() throws IOException {
+		final SharedCachingXmlDataStore store = create();
+		final Data data = store.getData();
+		write(new File(directory, "uas-stray.xml"), "<uasdata></uasdata>".getBytes(CHARSET));
+
+		Assert.assertTrue(store.tryRefresh());
+		Assert.assertSame(data, store.getData());
+		Assert.assertEquals(1, server.getNotModifiedCount());
+	}
+
+	@Test
+	public void refresh_unchanged() throws IOException {
+		final SharedCachingXmlDataStore store = create();
+		store.refresh();
+		Assert.assertEquals(1, server.getNotModifiedCount());
+		Assert.assertEquals("20120817-01", store.getData().getVersion());
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		older = readAll(TestXmlDataStore.DATA_URL);
+		newer = readAll(TestXmlDataStore.DATA_URL_NEWER);
+		server = new LocalHttpServer();
+		server.setContent(older);
+		server.setEntityTag("\"20120817-01\"");
+		directory = new File(System.getProperty("java.io.tmpdir"), "uas_shared_" + new Random().nextLong());
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+		final File[] children = directory.listFiles();
+		if (children != null) {
+			for (final File child : children) {
+				child.delete();
+			}
+		}
+		directory.delete();
+	}
+
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datawriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+import net.sf.uadetector.datareader.BinaryDeltaReader;
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.data.DataDelta;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinaryDeltaWriterTest {
+
+	@Test
+	public void write_empty() throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new BinaryDeltaWriter().write(DataDelta.between(Data.EMPTY, Data.EMPTY), bytes);
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		Assert.assertEquals(BinaryDeltaReader.MAGIC_NUMBER, in.readInt());
+		Assert.assertEquals(BinaryDeltaReader.FORMAT_VERSION, in.readInt());
+		Assert.assertEquals(0, in.readInt()); // base version
+		Assert.assertEquals(0, in.readInt()); // version
+		for (int i = 0; i < 6 * 3; i++) {
+			Assert.assertEquals(0, in.readInt()); // no added, changed or removed entries
+		}
+		Assert.assertEquals(BinaryDeltaReader.MAGIC_NUMBER, in.readInt());
+		Assert.assertEquals(-1, in.read());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void write_delta_null() throws IOException {
+		new BinaryDeltaWriter().write(null, new ByteArrayOutputStream());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void write_stream_null() throws IOException {
+		new BinaryDeltaWriter().write(DataDelta.between(Data.EMPTY, Data.EMPTY), null);
+	}
+
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datawriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import net.sf.uadetector.datareader.BinarySnapshotDataReader;
+import net.sf.uadetector.datareader.XmlDataReader;
+import net.sf.uadetector.datastore.DataStore;
+import net.sf.uadetector.datastore.TestXmlDataStore;
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.util.FileUtil;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinarySnapshotDataWriterTest {
+
+	/**
+	 * The character set to read UAS data
+	 */
+	private static final Charset CHARSET = DataStore.DEFAULT_CHARSET;
+
+	private static byte[] write(final Data data) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new BinarySnapshotDataWriter().write(data, out);
+		return out.toByteArray();
+	}
+
+	@Test
+	public void write_empty() throws IOException {
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(write(Data.EMPTY)));
+		Assert.assertEquals(BinarySnapshotDataReader.MAGIC_NUMBER, in.readInt());
+		Assert.assertEquals(BinarySnapshotDataReader.FORMAT_VERSION, in.readInt());
+		Assert.assertEquals(BinarySnapshotDataReader.NO_SOURCE, in.readLong());
+		Assert.assertEquals(0l, in.readLong());
+		Assert.assertEquals(1, in.readInt()); // string table with the empty version
+		Assert.assertEquals(0, in.readInt());
+		Assert.assertEquals(0, in.readInt()); // version
+		for (int i = 0; i < 8; i++) {
+			Assert.assertEquals(0, in.readInt()); // no records
+		}
+		Assert.assertEquals(BinarySnapshotDataReader.MAGIC_NUMBER, in.readInt());
+		Assert.assertEquals(-1, in.read());
+	}
+
+	@Test
+	public void write_smallerThanXml() throws IOException {
+		final Data data = new XmlDataReader().read(TestXmlDataStore.DATA_URL, CHARSET);
+		final byte[] snapshot = write(data);
+		Assert.assertTrue(snapshot.length < 721915);
+
+		// the same data results in the same snapshot
+		Assert.assertTrue(Arrays.equals(snapshot, write(data)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void write_data_null() throws IOException {
+		new BinarySnapshotDataWriter().write(null, new ByteArrayOutputStream());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void write_source_null() throws IOException {
+		new BinarySnapshotDataWriter().write(Data.EMPTY, null, new ByteArrayOutputStream());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void write_stream_null() throws IOException {
+		new BinarySnapshotDataWriter().write(Data.EMPTY, null);
+	}
+
+	@Test
+	public void write_withSource() throws Exception {
+		final File source = new File(TestXmlDataStore.DATA_URL.toURI());
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new BinarySnapshotDataWriter().write(Data.EMPTY, source, out);
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+		Assert.assertEquals(BinarySnapshotDataReader.MAGIC_NUMBER, in.readInt());
+		Assert.assertEquals(BinarySnapshotDataReader.FORMAT_VERSION, in.readInt());
+		Assert.assertEquals(source.length(), in.readLong());
+		Assert.assertEquals(FileUtil.checksum(source), in.readLong());
+	}
+
+}
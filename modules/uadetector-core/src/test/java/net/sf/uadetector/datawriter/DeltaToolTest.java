@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datawriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import net.sf.uadetector.datareader.BinarySnapshotDataReader;
+import net.sf.uadetector.datastore.DataStore;
+import net.sf.uadetector.datastore.TestXmlDataStore;
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.data.DataDelta;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DeltaToolTest {
+
+	private static File createTempFile(final String suffix) throws IOException {
+		final File file = File.createTempFile("uas_delta", suffix);
+		file.deleteOnExit();
+		return file;
+	}
+
+	@Test
+	public void diffAndPatch() throws IOException, URISyntaxException {
+		final File older = new File(TestXmlDataStore.DATA_URL.toURI());
+		final File newer = new File(TestXmlDataStore.DATA_URL_NEWER.toURI());
+		final File deltaFile = createTempFile(".delta");
+		final File snapshotFile = createTempFile(".snapshot");
+
+		final DataDelta delta = DeltaTool.diff(older, newer, deltaFile);
+		Assert.assertEquals("20120822-01", delta.getVersion());
+		Assert.assertTrue(deltaFile.length() < 200);
+
+		final Data data = DeltaTool.patch(older, deltaFile, snapshotFile);
+		Assert.assertEquals("20120822-01", data.getVersion());
+		final Data snapshot = new BinarySnapshotDataReader().read(snapshotFile.toURI().toURL(), DataStore.DEFAULT_CHARSET);
+		Assert.assertEquals(data.toStats(), snapshot.toStats());
+	}
+
+	@Test(expected = IOException.class)
+	public void diff_missingFile() throws IOException {
+		DeltaTool.diff(new File("missing_uas.xml"), new File("missing_uas.xml"), createTempFile(".delta"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void diff_null() throws IOException {
+		DeltaTool.diff(null, new File("uas.xml"), new File("uas.delta"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void patch_otherVersion() throws IOException, URISyntaxException {
+		final File older = new File(TestXmlDataStore.DATA_URL.toURI());
+		final File newer = new File(TestXmlDataStore.DATA_URL_NEWER.toURI());
+		final File deltaFile = createTempFile(".delta");
+		DeltaTool.diff(older, newer, deltaFile);
+		DeltaTool.patch(newer, deltaFile, createTempFile(".snapshot"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void patch_null() throws IOException {
+		DeltaTool.patch(new File("uas.xml"), null, new File("uas.snapshot"));
+	}
+
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.datawriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.data.MappedData;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MappedDataWriterTest {
+
+	@Test
+	public void write_empty() throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new MappedDataWriter().write(Data.EMPTY, out);
+		final ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+		Assert.assertEquals(MappedData.MAGIC_NUMBER, buffer.getInt(MappedData.HEADER_MAGIC_NUMBER));
+		Assert.assertEquals(MappedData.FORMAT_VERSION, buffer.getInt(MappedData.HEADER_FORMAT_VERSION));
+		Assert.assertEquals(buffer.capacity(), buffer.getInt(MappedData.HEADER_LENGTH));
+		Assert.assertEquals(MappedData.HEADER_SIZE, buffer.getInt(MappedData.HEADER_STRING_POOL));
+		Assert.assertEquals(MappedData.HEADER_SIZE + 4, buffer.capacity()); // only the empty version string
+
+		final Data data = MappedData.map(buffer);
+		Assert.assertEquals("", data.getVersion());
+		Assert.assertTrue(data.getBrowsers().isEmpty());
+		Assert.assertTrue(data.getRobots().isEmpty());
+		Assert.assertNull(data.findRobot(""));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void write_data_null() throws IOException {
+		new MappedDataWriter().write(null, new ByteArrayOutputStream());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void write_stream_null() throws IOException {
+		new MappedDataWriter().write(Data.EMPTY, null);
+	}
+
+}
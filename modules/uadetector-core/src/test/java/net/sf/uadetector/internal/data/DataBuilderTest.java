@@ -17,6 +17,7 @@ package net.sf.uadetector.internal.data;
 
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Executor;
 import java.util.regex.Pattern;
 
 import net.sf.uadetector.UserAgentFamily;
@@ -306,6 +307,69 @@ public class DataBuilderTest {
 		b.appendRobot(robot); // testing to add same one more time
 	}
 
+	private static Data buildWithPatterns(final boolean eagerPatternCompilation) {
+		final Data.Builder d = new Data.Builder().setVersion("test version").setEagerPatternCompilation(eagerPatternCompilation);
+		d.appendBrowserPattern(new BrowserPattern(1, "Firefox/([0-9.]+)", Pattern.CASE_INSENSITIVE, 1));
+		d.appendOperatingSystemPattern(new OperatingSystemPattern(303, "MyOS", 0, 1));
+		final Browser.Builder browserBuilder = new Browser.Builder();
+		browserBuilder.setId(1);
+		browserBuilder.setFamily(UserAgentFamily.FIREFOX);
+		browserBuilder.setType(new BrowserType(1, "Browser"));
+		d.appendBrowserBuilder(browserBuilder);
+		final OperatingSystem.Builder builder = new OperatingSystem.Builder();
+		builder.setId(303);
+		builder.setName("MyOS");
+		d.appendOperatingSystemBuilder(builder);
+		return d.build();
+	}
+
+	@Test
+	public void build_executor() {
+		final Data.Builder d = new Data.Builder().setVersion("test version").setEagerPatternCompilation(true);
+		d.appendBrowserPattern(new BrowserPattern(1, "Firefox/([0-9.]+)", Pattern.CASE_INSENSITIVE, 1));
+		final Browser.Builder browserBuilder = new Browser.Builder();
+		browserBuilder.setId(1);
+		browserBuilder.setFamily(UserAgentFamily.FIREFOX);
+		browserBuilder.setType(new BrowserType(1, "Browser"));
+		d.appendBrowserBuilder(browserBuilder);
+
+		// an executor which never runs the tasks, the building thread must run them by itself
+		final Data data = d.build(new Executor() {
+			@Override
+			public void execute(final Runnable command) {
+				// discard
+			}
+		});
+		Assert.assertEquals(1, data.getBrowsers().size());
+		Assert.assertEquals(1, data.getBrowserPatternIndex().size());
+		Assert.assertTrue(data.getPatternBrowserMap().firstKey().isCompiled());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void build_executor_null() {
+		new Data.Builder().setVersion("test version").build(null);
+	}
+
+	@Test
+	public void build_eagerPatternCompilation() {
+		final Data data = buildWithPatterns(true);
+		Assert.assertEquals(1, data.getPatternBrowserMap().size());
+		Assert.assertTrue(data.getPatternBrowserMap().firstKey().isCompiled());
+		Assert.assertEquals(1, data.getPatternOsMap().size());
+		Assert.assertTrue(data.getPatternOsMap().firstKey().isCompiled());
+	}
+
+	@Test
+	public void build_lazyPatternCompilation() {
+		final Data data = buildWithPatterns(false);
+		Assert.assertFalse(data.getPatternBrowserMap().firstKey().isCompiled());
+		Assert.assertFalse(data.getPatternOsMap().firstKey().isCompiled());
+
+		Assert.assertSame(data, data.compilePatterns());
+		Assert.assertTrue(data.getPatternBrowserMap().firstKey().isCompiled());
+		Assert.assertTrue(data.getPatternOsMap().firstKey().isCompiled());
+	}
+
 	@Test
 	public void build_successful_onlyWithVersionInfo() {
 		new Data.Builder().setVersion("empty test version").build();
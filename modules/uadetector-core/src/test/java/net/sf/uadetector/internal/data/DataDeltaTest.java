@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.data;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import net.sf.uadetector.UserAgentFamily;
+import net.sf.uadetector.datareader.XmlDataReader;
+import net.sf.uadetector.datastore.DataStore;
+import net.sf.uadetector.datastore.TestXmlDataStore;
+import net.sf.uadetector.internal.data.domain.Browser;
+import net.sf.uadetector.internal.data.domain.BrowserOperatingSystemMapping;
+import net.sf.uadetector.internal.data.domain.BrowserPattern;
+import net.sf.uadetector.internal.data.domain.BrowserType;
+import net.sf.uadetector.internal.data.domain.OperatingSystem;
+import net.sf.uadetector.internal.data.domain.OperatingSystemPattern;
+import net.sf.uadetector.internal.data.domain.Robot;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DataDeltaTest {
+
+	private static Data build(final String version, final String firefoxPattern, final int chromeOsId) {
+		final Data.Builder builder = new Data.Builder().setVersion(version);
+		builder.appendBrowserType(new BrowserType(1, "Browser"));
+		builder.appendBrowserBuilder(new Browser.Builder().setId(1).setFamily(UserAgentFamily.FIREFOX).setTypeId(1));
+		builder.appendBrowserBuilder(new Browser.Builder().setId(2).setFamily(UserAgentFamily.CHROME).setTypeId(1));
+		builder.appendBrowserPattern(new BrowserPattern(1, Pattern.compile(firefoxPattern), 1));
+		builder.appendBrowserPattern(new BrowserPattern(2, Pattern.compile("Chrome"), 2));
+		builder.appendOperatingSystemBuilder(new OperatingSystem.Builder().setId(1).setName("Linux").setFamily("Linux"));
+		builder.appendOperatingSystemBuilder(new OperatingSystem.Builder().setId(2).setName("Windows").setFamily("Windows"));
+		builder.appendOperatingSystemPattern(new OperatingSystemPattern(1, Pattern.compile("Linux"), 1));
+		builder.appendOperatingSystemPattern(new OperatingSystemPattern(2, Pattern.compile("Windows"), 2));
+		builder.appendBrowserOperatingSystemMapping(new BrowserOperatingSystemMapping(2, chromeOsId));
+		builder.appendRobot(new Robot(UserAgentFamily.GOOGLEBOT, "", 1, "", "Googlebot/2.1", "", "", "", "Googlebot/2.1"));
+		return builder.build();
+	}
+
+	private static Map<Integer, Browser> browsersById(final Data data) {
+		final Map<Integer, Browser> browsers = new HashMap<Integer, Browser>();
+		for (final Browser browser : data.getBrowsers()) {
+			browsers.put(browser.getId(), browser);
+		}
+		return browsers;
+	}
+
+	private static void assertSameContent(final Data expected, final Data actual) {
+		Assert.assertEquals(expected.getVersion(), actual.getVersion());
+		Assert.assertEquals(expected.getBrowsers(), actual.getBrowsers());
+		Assert.assertEquals(expected.getOperatingSystems(), actual.getOperatingSystems());
+		Assert.assertEquals(expected.getRobots(), actual.getRobots());
+		Assert.assertEquals(expected.getPatternBrowserMap(), actual.getPatternBrowserMap());
+		Assert.assertEquals(expected.getPatternOsMap(), actual.getPatternOsMap());
+		Assert.assertEquals(expected.toStats(), actual.toStats());
+	}
+
+	@Test
+	public void applyTo_changedPattern() {
+		final Data older = build("1", "Firefox", 1);
+		final Data newer = build("2", "Firefox|Iceweasel", 1);
+		final DataDelta delta = DataDelta.between(older, newer);
+		Assert.assertEquals(1, delta.size());
+		Assert.assertEquals(Collections.singleton(1), delta.getBrowserPatterns().getChanged().keySet());
+
+		final Data patched = delta.applyTo(older);
+		assertSameContent(newer, patched);
+
+		// only the browser with the changed pattern was rebuilt
+		Assert.assertNotSame(browsersById(older).get(1), browsersById(patched).get(1));
+		Assert.assertSame(browsersById(older).get(2), browsersById(patched).get(2));
+		Assert.assertSame(older.getPatternBrowserMap().lastKey(), patched.getPatternBrowserMap().lastKey());
+		Assert.assertNotSame(older.getBrowserPatternIndex(), patched.getBrowserPatternIndex());
+
+		// operating systems and robots were not touched
+		Assert.assertSame(older.getOperatingSystemPatternIndex(), patched.getOperatingSystemPatternIndex());
+		Assert.assertSame(older.getRobots().iterator().next(), patched.getRobots().iterator().next());
+	}
+
+	@Test
+	public void applyTo_changedMapping() {
+		final Data older = build("1", "Firefox", 1);
+		final Data newer = build("2", "Firefox", 2);
+		final DataDelta delta = DataDelta.between(older, newer);
+		Assert.assertEquals(1, delta.size());
+		Assert.assertEquals(new BrowserOperatingSystemMapping(2, 2), delta.getBrowserOperatingSystemMappings().getChanged().get(2));
+
+		final Data patched = delta.applyTo(older);
+		assertSameContent(newer, patched);
+		Assert.assertEquals("Windows", browsersById(patched).get(2).getOperatingSystem().getName());
+		Assert.assertSame(browsersById(older).get(1), browsersById(patched).get(1));
+		Assert.assertSame(older.getBrowserPatternIndex().getPattern(0), patched.getBrowserPatternIndex().getPattern(0));
+	}
+
+	@Test
+	public void applyTo_keepsCompiledPatterns() {
+		final Data older = new XmlDataReader().read(TestXmlDataStore.DATA_URL, DataStore.DEFAULT_CHARSET);
+		final Data newer = new XmlDataReader().read(TestXmlDataStore.DATA_URL_NEWER, DataStore.DEFAULT_CHARSET);
+		final DataDelta delta = DataDelta.between(older, newer);
+		final BrowserPattern unchanged = older.getPatternBrowserMap().firstKey();
+		Assert.assertFalse(delta.getBrowserPatterns().getChanged().containsKey(unchanged.getPosition()));
+		unchanged.getPattern();
+
+		final Data patched = delta.applyTo(older);
+		Assert.assertSame(unchanged, patched.getPatternBrowserMap().firstKey());
+		Assert.assertTrue(patched.getPatternBrowserMap().firstKey().isCompiled());
+	}
+
+	@Test
+	public void applyTo_newerUasData() {
+		final Data older = new XmlDataReader().read(TestXmlDataStore.DATA_URL, DataStore.DEFAULT_CHARSET);
+		final Data newer = new XmlDataReader().read(TestXmlDataStore.DATA_URL_NEWER, DataStore.DEFAULT_CHARSET);
+		final DataDelta delta = DataDelta.between(older, newer);
+		Assert.assertEquals("20120817-01", delta.getBaseVersion());
+		Assert.assertEquals("20120822-01", delta.getVersion());
+
+		// both test documents differ only in their version
+		Assert.assertTrue(delta.isEmpty());
+
+		final Data patched = delta.applyTo(older);
+		assertSameContent(newer, patched);
+		final Map<Integer, Browser> olderBrowsers = browsersById(older);
+		for (final Browser browser : patched.getBrowsers()) {
+			Assert.assertSame(olderBrowsers.get(browser.getId()), browser);
+		}
+		Assert.assertSame(older.getBrowserPatternIndex(), patched.getBrowserPatternIndex());
+		Assert.assertSame(older.getOperatingSystemPatternIndex(), patched.getOperatingSystemPatternIndex());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void applyTo_null() {
+		DataDelta.between(Data.EMPTY, Data.EMPTY).applyTo(null);
+	}
+
+	@Test
+	public void applyTo_unchanged() {
+		final Data older = build("1", "Firefox", 1);
+		final DataDelta delta = DataDelta.between(older, build("2", "Firefox", 1));
+		Assert.assertTrue(delta.isEmpty());
+		Assert.assertEquals(0, delta.size());
+
+		final Data patched = delta.applyTo(older);
+		Assert.assertEquals("2", patched.getVersion());
+		Assert.assertEquals(older.getBrowsers(), patched.getBrowsers());
+		Assert.assertSame(older.getBrowserPatternIndex(), patched.getBrowserPatternIndex());
+		Assert.assertSame(older.getOperatingSystemPatternIndex(), patched.getOperatingSystemPatternIndex());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void applyTo_wrongVersion() {
+		final DataDelta delta = DataDelta.between(build("1", "Firefox", 1), build("2", "Firefox", 2));
+		delta.applyTo(build("3", "Firefox", 1));
+	}
+
+	@Test
+	public void between_addedAndRemoved() {
+		final Data older = build("1", "Firefox", 1);
+		final DataDelta delta = DataDelta.between(older, Data.EMPTY);
+		Assert.assertEquals(2, delta.getBrowsers().getRemoved().size());
+		Assert.assertEquals(2, delta.getOperatingSystems().getRemoved().size());
+		Assert.assertEquals(1, delta.getRobots().getRemoved().size());
+		Assert.assertEquals(2, delta.getBrowserPatterns().getRemoved().size());
+		Assert.assertEquals(2, delta.getOperatingSystemPatterns().getRemoved().size());
+		Assert.assertEquals(Collections.singleton(2), delta.getBrowserOperatingSystemMappings().getRemoved());
+		Assert.assertEquals(0, delta.applyTo(older).getBrowsers().size());
+
+		final DataDelta reverse = DataDelta.between(Data.EMPTY, older);
+		Assert.assertEquals(2, reverse.getBrowsers().getAdded().size());
+		Assert.assertEquals(10, reverse.size());
+		assertSameContent(older, reverse.applyTo(Data.EMPTY));
+	}
+
+	@Test
+	public void between_browsersWithoutRelations() {
+		final DataDelta delta = DataDelta.between(Data.EMPTY, build("1", "Firefox", 1));
+		final Browser chrome = delta.getBrowsers().getAdded().get(2);
+		Assert.assertEquals(UserAgentFamily.CHROME, chrome.getFamily());
+		Assert.assertNull(chrome.getOperatingSystem());
+		Assert.assertTrue(chrome.getPatternSet().isEmpty());
+		Assert.assertTrue(delta.getOperatingSystems().getAdded().get(1).getPatternSet().isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void between_newer_null() {
+		DataDelta.between(Data.EMPTY, null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void between_older_null() {
+		DataDelta.between(null, Data.EMPTY);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_changes_null() {
+		new DataDelta.Changes<Robot>(new HashMap<Integer, Robot>(), null, new HashSet<Integer>());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_version_null() {
+		final DataDelta.Changes<Browser> browsers = new DataDelta.Changes<Browser>(new HashMap<Integer, Browser>(),
+				new HashMap<Integer, Browser>(), new HashSet<Integer>());
+		new DataDelta("1", null, browsers, null, null, null, null, null);
+	}
+
+	@Test
+	public void equalsAndHashCode() {
+		final DataDelta d1 = DataDelta.between(build("1", "Firefox", 1), build("2", "Firefox|Iceweasel", 2));
+		final DataDelta d2 = DataDelta.between(build("1", "Firefox", 1), build("2", "Firefox|Iceweasel", 2));
+		Assert.assertEquals(d1, d2);
+		Assert.assertEquals(d1.hashCode(), d2.hashCode());
+		Assert.assertFalse(d1.equals(DataDelta.between(build("1", "Firefox", 1), build("2", "Firefox", 2))));
+	}
+
+	@Test
+	public void toStats() {
+		final DataDelta delta = DataDelta.between(build("1", "Firefox", 1), build("2", "Firefox|Iceweasel", 2));
+		final String stats = delta.toStats();
+		Assert.assertTrue(stats.startsWith("UAS data delta from '1' to '2'\n"));
+		Assert.assertTrue(stats.contains("browser patterns: 0 added, 1 changed, 0 removed\n"));
+		Assert.assertTrue(stats.contains("browser to operating system mappings: 0 added, 1 changed, 0 removed\n"));
+	}
+
+	@Test
+	public void testToString() {
+		final DataDelta delta = DataDelta.between(build("1", "Firefox", 1), build("2", "Firefox|Iceweasel", 1));
+		Assert.assertEquals("DataDelta [baseVersion=1, version=2, browsers=Changes [added=[], changed=[], removed=[]], "
+				+ "operatingSystems=Changes [added=[], changed=[], removed=[]], robots=Changes [added=[], changed=[], removed=[]], "
+				+ "browserPatterns=Changes [added=[], changed=[1], removed=[]], "
+				+ "operatingSystemPatterns=Changes [added=[], changed=[], removed=[]], "
+				+ "browserOperatingSystemMappings=Changes [added=[], changed=[], removed=[]]]", delta.toString());
+	}
+
+}
@@ -21,16 +21,38 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 
 import junit.framework.Assert;
+import net.sf.uadetector.Latin1CharSequence;
+import net.sf.uadetector.UserAgentFamily;
+import net.sf.uadetector.datareader.XmlDataReader;
+import net.sf.uadetector.datastore.DataStore;
+import net.sf.uadetector.datastore.TestXmlDataStore;
 import net.sf.uadetector.internal.data.domain.Browser;
 import net.sf.uadetector.internal.data.domain.BrowserPattern;
 import net.sf.uadetector.internal.data.domain.OperatingSystem;
 import net.sf.uadetector.internal.data.domain.OperatingSystemPattern;
 import net.sf.uadetector.internal.data.domain.Robot;
+import net.sf.uadetector.parser.UserAgentStringParserImpl;
 
 import org.junit.Test;
 
 public class DataTest {
 
+	private static int countCompiled(final Set<? extends OrderedPattern<?>> patterns) {
+		int count = 0;
+		for (final OrderedPattern<?> pattern : patterns) {
+			final boolean compiled;
+			if (pattern instanceof BrowserPattern) {
+				compiled = ((BrowserPattern) pattern).isCompiled();
+			} else {
+				compiled = ((OperatingSystemPattern) pattern).isCompiled();
+			}
+			if (compiled) {
+				count++;
+			}
+		}
+		return count;
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void construct_browsers_null() {
 		final Set<Browser> browsers = null;
@@ -114,6 +136,81 @@ public class DataTest {
 		Assert.assertEquals(patternOsMap, data.getPatternOsMap());
 	}
 
+	@Test
+	public void compilePatterns_onFirstUse() {
+		final Data data = new XmlDataReader().read(TestXmlDataStore.DATA_URL, DataStore.DEFAULT_CHARSET);
+		Assert.assertEquals(0, countCompiled(data.getPatternBrowserMap().keySet()));
+		Assert.assertEquals(0, countCompiled(data.getPatternOsMap().keySet()));
+
+		// parsing compiles only the patterns which must be evaluated
+		final TestXmlDataStore store = new TestXmlDataStore();
+		new UserAgentStringParserImpl<DataStore>(store).parse("Mozilla/5.0 (Windows NT 6.1; rv:15.0) Gecko/20100101 Firefox/15.0");
+		final int compiled = countCompiled(store.getData().getPatternBrowserMap().keySet());
+		Assert.assertTrue(compiled > 0);
+		Assert.assertTrue(compiled < store.getData().getPatternBrowserMap().size());
+
+		data.compilePatterns();
+		Assert.assertEquals(data.getPatternBrowserMap().size(), countCompiled(data.getPatternBrowserMap().keySet()));
+		Assert.assertEquals(data.getPatternOsMap().size(), countCompiled(data.getPatternOsMap().keySet()));
+	}
+
+	@Test
+	public void findRobot() {
+		final Robot googlebot = new Robot(UserAgentFamily.GOOGLEBOT, "i1", 2, "iu1", "Googlebot/2.1", "p1", "pu1", "u1",
+				"Googlebot/2.1 (+http://www.google.com/bot.html)");
+		final Robot duplicate = new Robot(UserAgentFamily.GOOGLEBOT, "i2", 1, "iu2", "Googlebot/2.0", "p2", "pu2", "u2",
+				"Googlebot/2.1 (+http://www.google.com/bot.html)");
+		final Robot other = new Robot(UserAgentFamily.UNKNOWN, "i3", 3, "iu3", "Other", "p3", "pu3", "u3", "other");
+		final Set<Robot> robots = new HashSet<Robot>();
+		robots.add(googlebot);
+		robots.add(duplicate);
+		robots.add(other);
+		final Data data = new Data(new HashSet<Browser>(), new HashSet<OperatingSystem>(), robots, new TreeMap<BrowserPattern, Browser>(),
+				new TreeMap<OperatingSystemPattern, OperatingSystem>(), "test");
+		Assert.assertSame(duplicate, data.findRobot("Googlebot/2.1 (+http://www.google.com/bot.html)"));
+		Assert.assertSame(other, data.findRobot("other"));
+		Assert.assertNull(data.findRobot("Other"));
+		Assert.assertNull(data.findRobot(null));
+	}
+
+	@Test
+	public void findRobot_charSequence() throws Exception {
+		final Robot googlebot = new Robot(UserAgentFamily.GOOGLEBOT, "i1", 2, "iu1", "Googlebot/2.1", "p1", "pu1", "u1",
+				"Googlebot/2.1 (+http://www.google.com/bot.html)");
+		final Robot duplicate = new Robot(UserAgentFamily.GOOGLEBOT, "i2", 1, "iu2", "Googlebot/2.0", "p2", "pu2", "u2",
+				"Googlebot/2.1 (+http://www.google.com/bot.html)");
+		final Robot other = new Robot(UserAgentFamily.UNKNOWN, "i3", 3, "iu3", "Other", "p3", "pu3", "u3", "other");
+		final Set<Robot> robots = new HashSet<Robot>();
+		robots.add(googlebot);
+		robots.add(duplicate);
+		robots.add(other);
+		final Data data = new Data(new HashSet<Browser>(), new HashSet<OperatingSystem>(), robots, new TreeMap<BrowserPattern, Browser>(),
+				new TreeMap<OperatingSystemPattern, OperatingSystem>(), "test");
+		Assert.assertSame(duplicate, data.findRobot(new StringBuilder("Googlebot/2.1 (+http://www.google.com/bot.html)")));
+		Assert.assertSame(duplicate, data.findRobot(new Latin1CharSequence("Googlebot/2.1 (+http://www.google.com/bot.html)".getBytes("ISO-8859-1"))));
+		Assert.assertSame(other, data.findRobot((CharSequence) "other"));
+		Assert.assertNull(data.findRobot(new StringBuilder("Other")));
+		Assert.assertNull(data.findRobot(new StringBuilder()));
+
+		// "Aa" and "BB" have the same hash code
+		Assert.assertNull(Data.EMPTY.findRobot(new StringBuilder("Aa")));
+	}
+
+	@Test
+	public void findRobot_charSequence_sameHashCode() {
+		final Robot first = new Robot(UserAgentFamily.UNKNOWN, "i1", 1, "iu1", "n1", "p1", "pu1", "u1", "Aa");
+		final Robot second = new Robot(UserAgentFamily.UNKNOWN, "i2", 2, "iu2", "n2", "p2", "pu2", "u2", "BB");
+		final Set<Robot> robots = new HashSet<Robot>();
+		robots.add(first);
+		robots.add(second);
+		final Data data = new Data(new HashSet<Browser>(), new HashSet<OperatingSystem>(), robots, new TreeMap<BrowserPattern, Browser>(),
+				new TreeMap<OperatingSystemPattern, OperatingSystem>(), "test");
+		Assert.assertEquals("Aa".hashCode(), "BB".hashCode());
+		Assert.assertSame(first, data.findRobot(new StringBuilder("Aa")));
+		Assert.assertSame(second, data.findRobot(new StringBuilder("BB")));
+		Assert.assertNull(data.findRobot(new StringBuilder("C#")));
+	}
+
 	@Test
 	public void testToString() {
 		// reduces only some noise in coverage report
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.uadetector.Latin1CharSequence;
+import net.sf.uadetector.datareader.XmlDataReader;
+import net.sf.uadetector.datastore.DataStore;
+import net.sf.uadetector.datastore.TestXmlDataStore;
+import net.sf.uadetector.datawriter.MappedDataWriter;
+import net.sf.uadetector.internal.data.domain.Robot;
+import net.sf.uadetector.parser.UserAgentStringParserImpl;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class MappedDataTest {
+
+	private static Data xml;
+
+	private static byte[] bytes;
+
+	private static List<String> toList(final Map<?, ?> map) {
+		final List<String> entries = new ArrayList<String>(map.size());
+		for (final Map.Entry<?, ?> entry : map.entrySet()) {
+			entries.add(entry.getKey() + "=" + entry.getValue());
+		}
+		return entries;
+	}
+
+	private static MappedData map(final byte[] content) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+		buffer.put(content).flip();
+		return MappedData.map(buffer);
+	}
+
+	@BeforeClass
+	public static void setUp_class() throws IOException {
+		xml = new XmlDataReader().read(TestXmlDataStore.DATA_URL, DataStore.DEFAULT_CHARSET);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new MappedDataWriter().write(xml, out);
+		bytes = out.toByteArray();
+	}
+
+	@Test
+	public void findRobot() throws IOException {
+		final MappedData data = map(bytes);
+		for (final Robot robot : xml.getRobots()) {
+			final String userAgent = robot.getUserAgentString();
+			final Robot expected = xml.findRobot(userAgent);
+			Assert.assertEquals(expected, data.findRobot(userAgent));
+			Assert.assertEquals(expected, data.findRobot(new StringBuilder(userAgent)));
+			Assert.assertEquals(expected, data.findRobot(new Latin1CharSequence(userAgent.getBytes("ISO-8859-1"))));
+		}
+		Assert.assertNull(data.findRobot("Mozilla/5.0 (compatible; MSIE 9.0; Windows NT 6.1; Trident/5.0)"));
+		Assert.assertNull(data.findRobot(""));
+
+		// robots are created once on first access
+		final String userAgent = xml.getRobots().iterator().next().getUserAgentString();
+		Assert.assertSame(data.findRobot(userAgent), data.findRobot(userAgent));
+	}
+
+	@Test(expected = IOException.class)
+	public void map_formatVersion() throws IOException {
+		final byte[] copy = bytes.clone();
+		copy[MappedData.HEADER_FORMAT_VERSION + 3]++;
+		map(copy);
+	}
+
+	@Test(expected = IOException.class)
+	public void map_magicNumber() throws IOException {
+		final byte[] copy = bytes.clone();
+		copy[MappedData.HEADER_MAGIC_NUMBER] = 0;
+		map(copy);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void map_null() throws IOException {
+		MappedData.map(null);
+	}
+
+	@Test(expected = IOException.class)
+	public void map_robotIndexCorrupted() throws IOException {
+		final ByteBuffer copy = ByteBuffer.wrap(bytes.clone());
+		copy.putInt(copy.getInt(MappedData.HEADER_ROBOT_INDEX + 8), -1);
+		MappedData.map(copy);
+	}
+
+	@Test(expected = IOException.class)
+	public void map_truncated() throws IOException {
+		final byte[] copy = new byte[bytes.length - 1];
+		System.arraycopy(bytes, 0, copy, 0, copy.length);
+		map(copy);
+	}
+
+	@Test(expected = IOException.class)
+	public void map_tooShort() throws IOException {
+		map(new byte[12]);
+	}
+
+	@Test
+	public void map_equalToXml() throws IOException {
+		final MappedData data = map(bytes);
+		Assert.assertEquals(xml.getVersion(), data.getVersion());
+		Assert.assertEquals(xml.getBrowsers(), data.getBrowsers());
+		Assert.assertEquals(xml.getOperatingSystems(), data.getOperatingSystems());
+		Assert.assertEquals(xml.getRobots(), data.getRobots());
+		Assert.assertSame(data.getRobots(), data.getRobots());
+		Assert.assertEquals(toList(xml.getPatternBrowserMap()), toList(data.getPatternBrowserMap()));
+		Assert.assertEquals(toList(xml.getPatternOsMap()), toList(data.getPatternOsMap()));
+		Assert.assertEquals(xml.toStats(), data.toStats());
+	}
+
+	@Test
+	public void parse_equalToXml() throws IOException {
+		final Data mapped = map(bytes);
+		final UserAgentStringParserImpl<DataStore> fromXml = new UserAgentStringParserImpl<DataStore>(new TestXmlDataStore());
+		final UserAgentStringParserImpl<DataStore> fromMapped = new UserAgentStringParserImpl<DataStore>(new TestXmlDataStore() {
+			@Override
+			public Data getData() {
+				return mapped;
+			}
+		});
+		final List<String> userAgents = new ArrayList<String>();
+		for (final Robot robot : xml.getRobots()) {
+			userAgents.add(robot.getUserAgentString());
+		}
+		userAgents.add("Mozilla/5.0 (Macintosh; Intel Mac OS X 10_6_8) AppleWebKit/535.1 (KHTML, like Gecko) Chrome/13.0.782.112 Safari/535.1");
+		userAgents.add("Mozilla/5.0 (compatible; MSIE 9.0; Windows NT 6.1; Trident/5.0)");
+		userAgents.add("not a known user agent");
+		for (final String userAgent : userAgents) {
+			Assert.assertEquals(fromXml.parse(userAgent), fromMapped.parse(userAgent));
+		}
+	}
+
+}
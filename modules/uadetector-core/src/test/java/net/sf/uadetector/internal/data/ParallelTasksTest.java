@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.data;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParallelTasksTest {
+
+	private static final Callable<String> TASK = new Callable<String>() {
+		@Override
+		public String call() {
+			return Thread.currentThread().getName();
+		}
+	};
+
+	@Test
+	public void fork_executor() {
+		final List<Runnable> commands = new ArrayList<Runnable>();
+		final FutureTask<String> task = ParallelTasks.fork(new Executor() {
+			@Override
+			public void execute(final Runnable command) {
+				commands.add(command);
+			}
+		}, TASK);
+		Assert.assertEquals(1, commands.size());
+		Assert.assertFalse(task.isDone());
+	}
+
+	@Test
+	public void fork_executorRejects() {
+		final FutureTask<String> task = ParallelTasks.fork(new Executor() {
+			@Override
+			public void execute(final Runnable command) {
+				throw new RejectedExecutionException();
+			}
+		}, TASK);
+		Assert.assertTrue(task.isDone());
+		Assert.assertEquals(Thread.currentThread().getName(), ParallelTasks.join(task));
+	}
+
+	@Test
+	public void fork_withoutExecutor() {
+		final FutureTask<String> task = ParallelTasks.fork(null, TASK);
+		Assert.assertTrue(task.isDone());
+		Assert.assertEquals(Thread.currentThread().getName(), ParallelTasks.join(task));
+	}
+
+	@Test
+	public void giveMeCoverageForMyPrivateConstructor() throws Exception {
+		// reduces only some noise in coverage report
+		final Constructor<ParallelTasks> constructor = ParallelTasks.class.getDeclaredConstructor();
+		constructor.setAccessible(true);
+		constructor.newInstance();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void join_checkedException() {
+		ParallelTasks.join(ParallelTasks.fork(null, new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				throw new Exception("checked");
+			}
+		}));
+	}
+
+	@Test
+	public void join_notStarted() {
+		// the joining thread runs a task which the executor did not start
+		final FutureTask<String> task = ParallelTasks.fork(new Executor() {
+			@Override
+			public void execute(final Runnable command) {
+				// discard
+			}
+		}, TASK);
+		Assert.assertEquals(Thread.currentThread().getName(), ParallelTasks.join(task));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void join_runtimeException() {
+		ParallelTasks.join(ParallelTasks.fork(null, new Callable<String>() {
+			@Override
+			public String call() {
+				throw new UnsupportedOperationException();
+			}
+		}));
+	}
+
+	@Test
+	public void partition() {
+		final List<Integer> elements = new ArrayList<Integer>();
+		for (int i = 0; i < ParallelTasks.CHUNK_SIZE * 2 + 1; i++) {
+			elements.add(Integer.valueOf(i));
+		}
+		final List<List<Integer>> chunks = ParallelTasks.partition(elements);
+		Assert.assertEquals(3, chunks.size());
+		Assert.assertEquals(elements.subList(0, ParallelTasks.CHUNK_SIZE), chunks.get(0));
+		Assert.assertEquals(elements.subList(ParallelTasks.CHUNK_SIZE, ParallelTasks.CHUNK_SIZE * 2), chunks.get(1));
+		Assert.assertEquals(Arrays.asList(Integer.valueOf(ParallelTasks.CHUNK_SIZE * 2)), chunks.get(2));
+	}
+
+	@Test
+	public void partition_empty() {
+		Assert.assertTrue(ParallelTasks.partition(Collections.<Integer> emptyList()).isEmpty());
+	}
+
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.data;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import net.sf.uadetector.datastore.TestXmlDataStore;
+import net.sf.uadetector.internal.data.domain.BrowserPattern;
+import net.sf.uadetector.internal.data.domain.Robot;
+import net.sf.uadetector.internal.util.MatcherCache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PatternAutomatonTest {
+
+	private static final Data DATA = new TestXmlDataStore().getData();
+
+	private static <P extends OrderedPattern<P>, V> int firstMatch(final SortedMap<P, V> map, final String text) {
+		int index = 0;
+		for (final Entry<P, V> entry : map.entrySet()) {
+			if (entry.getKey().getPattern().matcher(text).find()) {
+				return index;
+			}
+			index++;
+		}
+		return -1;
+	}
+
+	private static List<String> samples() {
+		final List<String> samples = new ArrayList<String>();
+		for (final Robot robot : DATA.getRobots()) {
+			samples.add(robot.getUserAgentString());
+		}
+		samples.add("Mozilla/5.0 (Windows NT 6.1; WOW64; rv:15.0) Gecko/20120716 Firefox/15.0a2");
+		samples.add("Mozilla/5.0 (compatible; MSIE 10.0; Windows NT 6.1; Trident/6.0)");
+		samples.add("Mozilla/5.0 (Linux; U; Android 4.0.3; de-de; Galaxy S II Build/GRJ22) AppleWebKit/534.30 (KHTML, like Gecko) Version/4.0 Mobile Safari/534.30");
+		samples.add("Mozilla/5.0 (iPad; CPU OS 6_0 like Mac OS X) AppleWebKit/536.26 (KHTML, like Gecko) Version/6.0 Mobile/10A5355d Safari/8536.25");
+		samples.add("Opera/9.80 (X11; Linux x86_64; U; en) Presto/2.10.289 Version/12.02");
+		samples.add("elinks");
+		samples.add("");
+		return samples;
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_nullMap() {
+		new PatternAutomaton<BrowserPattern, String>(null);
+	}
+
+	@Test
+	public void findFirst_equalsSequentialEvaluation() {
+		final PatternAutomaton<?, ?> browsers = DATA.getBrowserPatternAutomaton();
+		final PatternAutomaton<?, ?> operatingSystems = DATA.getOperatingSystemPatternAutomaton();
+		Assert.assertSame(browsers, DATA.getBrowserPatternAutomaton());
+		Assert.assertEquals(DATA.getPatternBrowserMap().size(), browsers.size());
+		Assert.assertEquals(DATA.getPatternOsMap().size(), operatingSystems.size());
+
+		for (final String sample : samples()) {
+			Assert.assertEquals(sample, firstMatch(DATA.getPatternBrowserMap(), sample), browsers.findFirst(sample));
+			Assert.assertEquals(sample, firstMatch(DATA.getPatternOsMap(), sample), operatingSystems.findFirst(sample));
+		}
+	}
+
+	@Test
+	public void findFirst_withFallbackPatterns() {
+		final SortedMap<BrowserPattern, String> map = new TreeMap<BrowserPattern, String>(new OrderedPatternComparator<BrowserPattern>());
+		map.put(new BrowserPattern(1, Pattern.compile("Chrome"), 1), "chrome");
+		map.put(new BrowserPattern(2, Pattern.compile("\\bSafari"), 2), "safari");
+		map.put(new BrowserPattern(3, Pattern.compile("AppleWebKit"), 3), "webkit");
+		final PatternAutomaton<BrowserPattern, String> automaton = new PatternAutomaton<BrowserPattern, String>(map);
+
+		Assert.assertEquals(1, automaton.getFallbackCount());
+		Assert.assertEquals(0, automaton.findFirst("AppleWebKit Chrome Safari"));
+		Assert.assertEquals(1, automaton.findFirst("AppleWebKit Safari"));
+		Assert.assertEquals(2, automaton.findFirst("AppleWebKit MobileSafari"));
+		Assert.assertEquals(-1, automaton.findFirst("Opera"));
+		Assert.assertEquals("safari", automaton.getValue(1));
+		Assert.assertEquals(2, automaton.getPattern(1).getId());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void findFirst_null() {
+		DATA.getBrowserPatternAutomaton().findFirst(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void findFirst_reused_matchers_null() {
+		DATA.getBrowserPatternAutomaton().findFirst("text", new BitSet(), null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void findFirst_reused_matches_null() {
+		DATA.getBrowserPatternAutomaton().findFirst("text", null, new MatcherCache(0));
+	}
+
+	@Test
+	public void findFirst_reused_sameAsWithoutReuse() {
+		final PatternAutomaton<?, ?> browsers = DATA.getBrowserPatternAutomaton();
+		final PatternAutomaton<?, ?> operatingSystems = DATA.getOperatingSystemPatternAutomaton();
+		final BitSet matches = new BitSet();
+		final MatcherCache browserMatchers = new MatcherCache(browsers.size());
+		final MatcherCache operatingSystemMatchers = new MatcherCache(operatingSystems.size());
+
+		// twice, so that the second pass works with cached matchers and a used set
+		for (int i = 0; i < 2; i++) {
+			for (final String sample : samples()) {
+				Assert.assertEquals(sample, browsers.findFirst(sample), browsers.findFirst(sample, matches, browserMatchers));
+				Assert.assertEquals(sample, operatingSystems.findFirst(sample),
+						operatingSystems.findFirst(sample, matches, operatingSystemMatchers));
+			}
+		}
+	}
+
+}
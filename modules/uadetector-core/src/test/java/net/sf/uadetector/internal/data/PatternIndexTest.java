@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.data;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import net.sf.uadetector.datastore.TestXmlDataStore;
+import net.sf.uadetector.internal.data.domain.Browser;
+import net.sf.uadetector.internal.data.domain.BrowserPattern;
+import net.sf.uadetector.internal.data.domain.OperatingSystem;
+import net.sf.uadetector.internal.data.domain.OperatingSystemPattern;
+import net.sf.uadetector.internal.data.domain.Robot;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PatternIndexTest {
+
+	private static final Data DATA = new TestXmlDataStore().getData();
+
+	private static <P extends OrderedPattern<P>, V> V firstMatch(final PatternIndex<P, V> index, final String text) {
+		final BitSet candidates = index.findCandidates(text);
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+			if (index.getPattern(i).getPattern().matcher(text).find()) {
+				return index.getValue(i);
+			}
+		}
+		return null;
+	}
+
+	private static <P extends OrderedPattern<P>, V> V firstMatch(final SortedMap<P, V> map, final String text) {
+		for (final Entry<P, V> entry : map.entrySet()) {
+			if (entry.getKey().getPattern().matcher(text).find()) {
+				return entry.getValue();
+			}
+		}
+		return null;
+	}
+
+	private static List<String> samples() {
+		final List<String> samples = new ArrayList<String>();
+		for (final Robot robot : DATA.getRobots()) {
+			samples.add(robot.getUserAgentString());
+		}
+		samples.add("Mozilla/5.0 (Windows NT 6.1; WOW64; rv:15.0) Gecko/20120716 Firefox/15.0a2");
+		samples.add("Mozilla/5.0 (compatible; MSIE 10.0; Windows NT 6.1; Trident/6.0)");
+		samples.add("Mozilla/5.0 (Linux; U; Android 4.0.3; de-de; Galaxy S II Build/GRJ22) AppleWebKit/534.30 (KHTML, like Gecko) Version/4.0 Mobile Safari/534.30");
+		samples.add("Mozilla/5.0 (iPad; CPU OS 6_0 like Mac OS X) AppleWebKit/536.26 (KHTML, like Gecko) Version/6.0 Mobile/10A5355d Safari/8536.25");
+		samples.add("Opera/9.80 (X11; Linux x86_64; U; en) Presto/2.10.289 Version/12.02");
+		samples.add("");
+		return samples;
+	}
+
+	@Test
+	public void construct_emptyMap() {
+		final PatternIndex<BrowserPattern, Browser> index = PatternIndex.empty();
+		Assert.assertEquals(0, index.size());
+		Assert.assertTrue(index.findCandidates("Mozilla/5.0").isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_nullMap() {
+		new PatternIndex<BrowserPattern, Browser>(null);
+	}
+
+	@Test
+	public void findCandidates_keepsOrderOfMap() {
+		final SortedMap<BrowserPattern, String> map = new TreeMap<BrowserPattern, String>(new OrderedPatternComparator<BrowserPattern>());
+		map.put(new BrowserPattern(1, Pattern.compile("Chrome"), 3), "third");
+		map.put(new BrowserPattern(2, Pattern.compile("[0-9]+"), 2), "second");
+		map.put(new BrowserPattern(3, Pattern.compile("Safari", Pattern.CASE_INSENSITIVE), 1), "first");
+		final PatternIndex<BrowserPattern, String> index = new PatternIndex<BrowserPattern, String>(map);
+
+		Assert.assertEquals(3, index.size());
+		Assert.assertEquals(1, index.getAlwaysCandidateCount());
+		Assert.assertEquals("first", index.getValue(0));
+		Assert.assertEquals("second", index.getValue(1));
+		Assert.assertEquals("third", index.getValue(2));
+
+		final BitSet candidates = index.findCandidates("SAFARI chrome");
+		Assert.assertTrue(candidates.get(0));
+		Assert.assertTrue(candidates.get(1));
+		Assert.assertTrue(candidates.get(2));
+		Assert.assertEquals("first", firstMatch(index, "SAFARI chrome"));
+		Assert.assertEquals("third", firstMatch(index, "Chrome"));
+		Assert.assertEquals(1, index.findCandidates("Opera").cardinality());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void findCandidates_null() {
+		PatternIndex.<BrowserPattern, Browser> empty().findCandidates(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void findCandidates_reusedSet_null() {
+		PatternIndex.<BrowserPattern, Browser> empty().findCandidates("text", null);
+	}
+
+	@Test
+	public void findCandidates_reusedSet_sameAsNewSet() {
+		final PatternIndex<BrowserPattern, Browser> index = DATA.getBrowserPatternIndex();
+		final BitSet candidates = new BitSet();
+		index.findCandidates("Mozilla/5.0 (compatible; MSIE 9.0; Windows NT 6.1; Trident/5.0)", candidates);
+		Assert.assertEquals(index.findCandidates("Mozilla/5.0 (compatible; MSIE 9.0; Windows NT 6.1; Trident/5.0)"), candidates);
+
+		// bits of the previous text must be cleared
+		index.findCandidates("Opera/9.80 (X11; Linux x86_64; U; en) Presto/2.10.289 Version/12.02", candidates);
+		Assert.assertEquals(index.findCandidates("Opera/9.80 (X11; Linux x86_64; U; en) Presto/2.10.289 Version/12.02"), candidates);
+	}
+
+	@Test
+	public void firstMatch_equalsSequentialEvaluation() {
+		final PatternIndex<BrowserPattern, Browser> browserIndex = DATA.getBrowserPatternIndex();
+		final PatternIndex<OperatingSystemPattern, OperatingSystem> osIndex = DATA.getOperatingSystemPatternIndex();
+		Assert.assertEquals(DATA.getPatternBrowserMap().size(), browserIndex.size());
+		Assert.assertEquals(DATA.getPatternOsMap().size(), osIndex.size());
+
+		for (final String sample : samples()) {
+			Assert.assertSame(sample, firstMatch(DATA.getPatternBrowserMap(), sample), firstMatch(browserIndex, sample));
+			Assert.assertSame(sample, firstMatch(DATA.getPatternOsMap(), sample), firstMatch(osIndex, sample));
+		}
+	}
+
+}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.data;
+
+import net.sf.uadetector.UserAgentFamily;
+import net.sf.uadetector.internal.data.domain.Browser;
+import net.sf.uadetector.internal.data.domain.BrowserPattern;
+import net.sf.uadetector.internal.data.domain.BrowserType;
+import net.sf.uadetector.internal.data.domain.OperatingSystem;
+import net.sf.uadetector.internal.data.domain.OperatingSystemPattern;
+import net.sf.uadetector.internal.data.domain.Robot;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StreamingDataBuilderTest {
+
+	private static Browser.Builder newBrowserBuilder(final int id, final int typeId) {
+		final Browser.Builder builder = new Browser.Builder();
+		builder.setId(id);
+		builder.setTypeId(typeId);
+		builder.setFamily(UserAgentFamily.FIREFOX);
+		builder.setProducer("Mozilla Foundation");
+		return builder;
+	}
+
+	private static OperatingSystem.Builder newOperatingSystemBuilder(final int id, final String name) {
+		final OperatingSystem.Builder builder = new OperatingSystem.Builder();
+		builder.setId(id);
+		builder.setFamily("Linux");
+		builder.setName(name);
+		return builder;
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void appendBrowserBuilder_addSameOneMoreTime() {
+		final StreamingDataBuilder b = new StreamingDataBuilder();
+		b.appendBrowserBuilder(newBrowserBuilder(1, 1));
+		b.appendBrowserBuilder(newBrowserBuilder(1, 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void appendBrowserBuilder_id_toSmall() {
+		new StreamingDataBuilder().appendBrowserBuilder(new Browser.Builder());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void appendBrowserBuilder_null() {
+		new StreamingDataBuilder().appendBrowserBuilder(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void appendBrowserBuilder_typeId_toSmall() {
+		final Browser.Builder builder = new Browser.Builder();
+		builder.setId(1);
+		new StreamingDataBuilder().appendBrowserBuilder(builder);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void appendBrowserPattern_null() {
+		new StreamingDataBuilder().appendBrowserPattern(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void appendBrowserType_null() {
+		new StreamingDataBuilder().appendBrowserType(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void appendOperatingSystemBuilder_id_toSmall() {
+		new StreamingDataBuilder().appendOperatingSystemBuilder(new OperatingSystem.Builder());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void appendOperatingSystemBuilder_null() {
+		new StreamingDataBuilder().appendOperatingSystemBuilder(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void appendOperatingSystemPattern_null() {
+		new StreamingDataBuilder().appendOperatingSystemPattern(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void appendRobot_null() {
+		new StreamingDataBuilder().appendRobot(null);
+	}
+
+	@Test
+	public void build_linksRecords() {
+		final StreamingDataBuilder b = new StreamingDataBuilder().setVersion("test version");
+		b.appendBrowserType(new BrowserType(2, "Browser"));
+		b.appendBrowserBuilder(newBrowserBuilder(1, 2));
+		b.appendBrowserPattern(new BrowserPattern(1, "firefox", 0, 2));
+		b.appendBrowserPattern(new BrowserPattern(1, "iceweasel", 0, 1));
+		b.appendOperatingSystemBuilder(newOperatingSystemBuilder(3, "Linux 2.6"));
+		b.appendOperatingSystemBuilder(newOperatingSystemBuilder(4, "Linux 3.0"));
+		b.appendOperatingSystemPattern(new OperatingSystemPattern(4, "linux", 0, 1));
+		b.appendBrowserOperatingSystemMapping(1, 3);
+		b.appendBrowserOperatingSystemMapping(1, 4); // last one wins
+		b.appendRobot(new Robot(UserAgentFamily.GOOGLEBOT, "", 5, "", "Googlebot", "Google", "", "", "Googlebot/2.1"));
+
+		final Data data = b.build();
+		Assert.assertEquals("test version", data.getVersion());
+		Assert.assertEquals(1, data.getBrowsers().size());
+		Assert.assertEquals(2, data.getOperatingSystems().size());
+		Assert.assertEquals(1, data.getRobots().size());
+
+		final Browser browser = data.getBrowsers().iterator().next();
+		Assert.assertEquals("Browser", browser.getType().getName());
+		Assert.assertEquals("Linux 3.0", browser.getOperatingSystem().getName());
+		Assert.assertEquals(2, browser.getPatternSet().size());
+		Assert.assertEquals("iceweasel", browser.getPatternSet().first().getRegularExpression());
+		Assert.assertEquals(2, data.getPatternBrowserMap().size());
+		Assert.assertEquals(1, data.getPatternOsMap().size());
+	}
+
+	@Test
+	public void build_unknownReferences() {
+		final StreamingDataBuilder b = new StreamingDataBuilder().setVersion("test version");
+		b.appendBrowserBuilder(newBrowserBuilder(1, 2)); // type 2 is missing
+		b.appendBrowserOperatingSystemMapping(1, 3); // operating system 3 is missing
+		b.appendBrowserOperatingSystemMapping(7, 3); // browser 7 is missing
+		final Data data = b.build();
+		Assert.assertTrue(data.getBrowsers().isEmpty());
+		Assert.assertTrue(data.getOperatingSystems().isEmpty());
+	}
+
+	@Test
+	public void build_manyMappings() {
+		final StreamingDataBuilder b = new StreamingDataBuilder().setVersion("test version");
+		b.appendBrowserType(new BrowserType(1, "Browser"));
+		for (int i = 0; i < 100; i++) {
+			b.appendBrowserBuilder(newBrowserBuilder(i, 1));
+			b.appendBrowserPattern(new BrowserPattern(i, "browser" + i, 0, i));
+			b.appendOperatingSystemBuilder(newOperatingSystemBuilder(i, "os" + i));
+			b.appendBrowserOperatingSystemMapping(i, i);
+		}
+		final Data data = b.build();
+		Assert.assertEquals(100, data.getBrowsers().size());
+		for (final Browser browser : data.getBrowsers()) {
+			Assert.assertEquals("os" + browser.getId(), browser.getOperatingSystem().getName());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void build_withoutVersion() {
+		new StreamingDataBuilder().build();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setVersion_null() {
+		new StreamingDataBuilder().setVersion(null);
+	}
+
+}
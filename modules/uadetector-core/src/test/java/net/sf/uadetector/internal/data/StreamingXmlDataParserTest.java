@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.data;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+
+import javax.xml.stream.XMLStreamException;
+
+import net.sf.uadetector.internal.data.XmlDataHandler.Tag;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StreamingXmlDataParserTest {
+
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	private static int parseInt(final String text) {
+		return StreamingXmlDataParser.parseInt(text.toCharArray(), text.length());
+	}
+
+	@Test
+	public void findTag() {
+		for (final Tag tag : Tag.values()) {
+			Assert.assertSame(tag, StreamingXmlDataParser.findTag(tag.getTagName()));
+			Assert.assertSame(tag, StreamingXmlDataParser.findTag(tag.getTagName().toUpperCase()));
+		}
+	}
+
+	@Test
+	public void findTag_unknown() {
+		Assert.assertNull(StreamingXmlDataParser.findTag(""));
+		Assert.assertNull(StreamingXmlDataParser.findTag("unknown"));
+		Assert.assertNull(StreamingXmlDataParser.findTag("browsers2"));
+		Assert.assertNull(StreamingXmlDataParser.findTag("browse"));
+	}
+
+	@Test
+	public void parse() throws XMLStreamException {
+		final String xml = "<uasdata><description><version>20120817-01</version></description><data>"
+				+ "<browser_types><browser_type><id>1</id><type>Browser</type></browser_type></browser_types>"
+				+ "<browsers><browser><id>2</id><type>1</type><company>Mozilla</company><name>Firefox</name></browser></browsers>"
+				+ "<browsers_reg><browser_reg><order>1</order><browser_id>2</browser_id><regstring>/firefox/si</regstring>"
+				+ "</browser_reg></browsers_reg></data></uasdata>";
+		final StreamingDataBuilder builder = new StreamingDataBuilder();
+		new StreamingXmlDataParser().parse(new ByteArrayInputStream(xml.getBytes(CHARSET)), CHARSET, builder);
+		final Data data = builder.build();
+		Assert.assertEquals("20120817-01", data.getVersion());
+		Assert.assertEquals(1, data.getBrowsers().size());
+		Assert.assertEquals("Firefox", data.getBrowsers().iterator().next().getFamily().getName());
+		Assert.assertEquals(1, data.getPatternBrowserMap().size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parse_builder_null() throws XMLStreamException {
+		new StreamingXmlDataParser().parse(new ByteArrayInputStream(new byte[0]), CHARSET, null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parse_charset_null() throws XMLStreamException {
+		new StreamingXmlDataParser().parse(new ByteArrayInputStream(new byte[0]), null, new StreamingDataBuilder());
+	}
+
+	@Test(expected = XMLStreamException.class)
+	public void parse_doctype_external() throws XMLStreamException {
+		final String xml = "<!DOCTYPE uasdata SYSTEM \"http://unreachable.local/uasxmldata.dtd\"><uasdata>&ent;</uasdata>";
+		new StreamingXmlDataParser().parse(new ByteArrayInputStream(xml.getBytes(CHARSET)), CHARSET,
+				new StreamingDataBuilder());
+	}
+
+	@Test(expected = XMLStreamException.class)
+	public void parse_doctype_internalSubset() throws XMLStreamException {
+		final String xml = "<!DOCTYPE uasdata [<!ENTITY ent \"x\">]><uasdata><description><version>&ent;</version></description></uasdata>";
+		new StreamingXmlDataParser().parse(new ByteArrayInputStream(xml.getBytes(CHARSET)), CHARSET,
+				new StreamingDataBuilder());
+	}
+
+	@Test
+	public void parse_doctype_notLoaded() throws XMLStreamException {
+		final String xml = "<!DOCTYPE uasdata SYSTEM \"http://unreachable.local/uasxmldata.dtd\"><uasdata><description>"
+				+ "<version>20120817-01</version></description></uasdata>";
+		final StreamingDataBuilder builder = new StreamingDataBuilder();
+		new StreamingXmlDataParser().parse(new ByteArrayInputStream(xml.getBytes(CHARSET)), CHARSET, builder);
+		Assert.assertEquals("20120817-01", builder.build().getVersion());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parse_stream_null() throws XMLStreamException {
+		new StreamingXmlDataParser().parse(null, CHARSET, new StreamingDataBuilder());
+	}
+
+	@Test
+	public void parseInt_invalid() {
+		Assert.assertEquals(-1, parseInt(""));
+		Assert.assertEquals(-1, parseInt("   "));
+		Assert.assertEquals(-1, parseInt("-1"));
+		Assert.assertEquals(-1, parseInt("1 2"));
+		Assert.assertEquals(-1, parseInt("abc"));
+		Assert.assertEquals(-1, parseInt("1234567890"));
+	}
+
+	@Test
+	public void parseInt_valid() {
+		Assert.assertEquals(0, parseInt("0"));
+		Assert.assertEquals(42, parseInt("42"));
+		Assert.assertEquals(42, parseInt(" \t42\n "));
+		Assert.assertEquals(123456789, parseInt("123456789"));
+		Assert.assertEquals(7, StreamingXmlDataParser.parseInt("789".toCharArray(), 1));
+	}
+
+}
@@ -113,6 +113,16 @@ public class BrowserPatternBuilderTest {
 		new BrowserPattern.Builder().setPerlRegularExpression((String) null);
 	}
 
+	@Test
+	public void setPerlRegularExpression_compiledOnFirstUse() {
+		final BrowserPattern pattern = new BrowserPattern.Builder().setId(1).setPosition(1).setPerlRegularExpression("/abc/si").build();
+		Assert.assertFalse(pattern.isCompiled());
+		Assert.assertEquals("abc", pattern.getRegularExpression());
+		Assert.assertEquals(Pattern.DOTALL | Pattern.CASE_INSENSITIVE, pattern.getFlags());
+		Assert.assertEquals(Pattern.DOTALL | Pattern.CASE_INSENSITIVE, pattern.getPattern().flags());
+		Assert.assertTrue(pattern.isCompiled());
+	}
+
 	@Test
 	public void setPerlRegularExpression_validPerlStyleExpression() {
 		new BrowserPattern.Builder().setPerlRegularExpression("/abc/");
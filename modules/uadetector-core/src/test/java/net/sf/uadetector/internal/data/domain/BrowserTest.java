@@ -19,9 +19,11 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.regex.Pattern;
 
+import net.sf.uadetector.MutableUserAgent;
 import net.sf.uadetector.UserAgent;
 import net.sf.uadetector.UserAgent.Builder;
 import net.sf.uadetector.UserAgentFamily;
+import net.sf.uadetector.UserAgentType;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -187,6 +189,35 @@ public class BrowserTest {
 		new Browser(id, type, family, url, producer, producerUrl, icon, infoUrl, patternSet, operatingSystem);
 	}
 
+	@Test
+	public void copyTo_mutableUserAgent_withoutOperatingSystem() {
+		final SortedSet<OperatingSystemPattern> patternSet = new TreeSet<OperatingSystemPattern>();
+		final OperatingSystem os = new OperatingSystem("f1", "i1", 1, "iu1", "n1", patternSet, "p1", "pu1", "u1");
+		final Browser b = new Browser(1, new BrowserType(1, "Mobile Browser"), UserAgentFamily.CHROME, "u", "p", "pu", "i", "iu",
+				new TreeSet<BrowserPattern>(), os);
+		final MutableUserAgent agent = new MutableUserAgent();
+		b.copyTo(agent);
+		Assert.assertEquals(b.getFamily(), agent.getFamily());
+		Assert.assertEquals(b.getFamily().getName(), agent.getName());
+		Assert.assertEquals(b.getProducer(), agent.getProducer());
+		Assert.assertEquals(b.getProducerUrl(), agent.getProducerUrl());
+		Assert.assertEquals(UserAgentType.MOBILE_BROWSER, agent.getType());
+		Assert.assertEquals(b.getUrl(), agent.getUrl());
+
+		// the operating system depends on the user agent string and will be resolved by the parser
+		Assert.assertSame(net.sf.uadetector.OperatingSystem.EMPTY, agent.getOperatingSystem());
+	}
+
+	@Test
+	public void copyTo_mutableUserAgent_unknownTypeName() {
+		final Browser b = new Browser(1, new BrowserType(1, "Brand-new type"), UserAgentFamily.CHROME, "u", "p", "pu", "i", "iu",
+				new TreeSet<BrowserPattern>(), null);
+		final MutableUserAgent agent = new MutableUserAgent();
+		b.copyTo(agent);
+		Assert.assertEquals(UserAgentType.UNKNOWN, agent.getType());
+		Assert.assertEquals("Brand-new type", agent.getTypeName());
+	}
+
 	@Test
 	public void copyTo_successful_withOperatingSystem() {
 		final SortedSet<OperatingSystemPattern> patternSet = new TreeSet<OperatingSystemPattern>();
@@ -217,6 +248,26 @@ public class BrowserTest {
 		Assert.assertSame(net.sf.uadetector.OperatingSystem.EMPTY, builder.getOperatingSystem());
 	}
 
+	@Test
+	public void copyTo_unknownTypeName() {
+		final Browser b = new Browser(1, new BrowserType(1, "Brand-new type"), UserAgentFamily.CHROME, "u", "p", "pu", "i", "iu",
+				new TreeSet<BrowserPattern>(), null);
+		final Builder builder = new UserAgent.Builder();
+		b.copyTo(builder);
+		Assert.assertEquals(UserAgentType.UNKNOWN, builder.getType());
+		Assert.assertEquals("Brand-new type", builder.getTypeName());
+	}
+
+	@Test
+	public void copyTo_typeResolved() {
+		final Browser b = new Browser(1, new BrowserType(1, "Mobile Browser"), UserAgentFamily.CHROME, "u", "p", "pu", "i", "iu",
+				new TreeSet<BrowserPattern>(), null);
+		final Builder builder = new UserAgent.Builder();
+		b.copyTo(builder);
+		Assert.assertEquals(UserAgentType.MOBILE_BROWSER, builder.getType());
+		Assert.assertEquals("Mobile Browser", builder.getTypeName());
+	}
+
 	@Test
 	public void equals_differentFamily() {
 		final SortedSet<OperatingSystemPattern> osPatternSet = new TreeSet<OperatingSystemPattern>();
@@ -116,6 +116,16 @@ public class OperatingSystemPatternBuilderTest {
 		new OperatingSystemPattern.Builder().setPerlRegularExpression((String) null);
 	}
 
+	@Test
+	public void setPerlRegularExpression_compiledOnFirstUse() {
+		final OperatingSystemPattern pattern = new OperatingSystemPattern.Builder().setId(1).setPosition(1).setPerlRegularExpression("/abc/si").build();
+		Assert.assertFalse(pattern.isCompiled());
+		Assert.assertEquals("abc", pattern.getRegularExpression());
+		Assert.assertEquals(Pattern.DOTALL | Pattern.CASE_INSENSITIVE, pattern.getFlags());
+		Assert.assertEquals(Pattern.DOTALL | Pattern.CASE_INSENSITIVE, pattern.getPattern().flags());
+		Assert.assertTrue(pattern.isCompiled());
+	}
+
 	@Test
 	public void setPerlRegularExpression_validPerlStyleExpression() {
 		new OperatingSystemPattern.Builder().setPerlRegularExpression("/abc/");
@@ -120,6 +120,26 @@ public class OperatingSystemPatternTest {
 		Assert.assertTrue(pattern.equals(pattern));
 	}
 
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_regex_null() {
+		new OperatingSystemPattern(1, (String) null, 0, 1);
+	}
+
+	@Test
+	public void constructor_regex_compiledOnFirstUse() {
+		final OperatingSystemPattern pattern = new OperatingSystemPattern(1, "[0-9]+", Pattern.CASE_INSENSITIVE, 1);
+		Assert.assertFalse(pattern.isCompiled());
+		Assert.assertEquals("[0-9]+", pattern.getRegularExpression());
+		Assert.assertEquals(Pattern.CASE_INSENSITIVE, pattern.getFlags());
+		Assert.assertEquals(new OperatingSystemPattern(1, Pattern.compile("[0-9]+", Pattern.CASE_INSENSITIVE), 1), pattern);
+		Assert.assertEquals(new OperatingSystemPattern(1, Pattern.compile("[0-9]+", Pattern.CASE_INSENSITIVE), 1).hashCode(), pattern.hashCode());
+		Assert.assertFalse(pattern.isCompiled());
+
+		final Pattern compiled = pattern.getPattern();
+		Assert.assertTrue(pattern.isCompiled());
+		Assert.assertSame(compiled, pattern.getPattern());
+	}
+
 	@Test
 	public void testGetters() {
 		final Pattern p = Pattern.compile("[0-9]+");
@@ -21,6 +21,7 @@ import java.util.regex.Pattern;
 
 import net.sf.uadetector.OperatingSystemFamily;
 import net.sf.uadetector.UserAgent;
+import net.sf.uadetector.VersionNumber;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -181,6 +182,53 @@ public class OperatingSystemTest {
 		Assert.assertEquals(os.getUrl(), builder.getOperatingSystem().getUrl());
 	}
 
+	@Test
+	public void copyTo_withoutVersion_reusesResult() {
+		final SortedSet<OperatingSystemPattern> osPatternSet = new TreeSet<OperatingSystemPattern>();
+		final OperatingSystem os = new OperatingSystem("Windows", "i1", 1, "iu1", "n1", osPatternSet, "p1", "pu1", "u1");
+		final UserAgent.Builder first = new UserAgent.Builder("Mozilla/4.0 (compatible; Windows)");
+		os.copyTo(first);
+		final UserAgent.Builder second = new UserAgent.Builder("Mozilla/4.0 (compatible; Windows)");
+		os.copyTo(second);
+		Assert.assertEquals(OperatingSystemFamily.WINDOWS, first.getOperatingSystem().getFamily());
+		Assert.assertEquals(VersionNumber.UNKNOWN, first.getOperatingSystem().getVersionNumber());
+		Assert.assertSame(first.getOperatingSystem(), second.getOperatingSystem());
+	}
+
+	@Test
+	public void copyTo_withVersion() {
+		final SortedSet<OperatingSystemPattern> osPatternSet = new TreeSet<OperatingSystemPattern>();
+		final OperatingSystem os = new OperatingSystem("Windows", "i1", 1, "iu1", "n1", osPatternSet, "p1", "pu1", "u1");
+		final UserAgent.Builder first = new UserAgent.Builder("Mozilla/5.0 (Windows NT 6.1; rv:15.0)");
+		os.copyTo(first);
+		final UserAgent.Builder second = new UserAgent.Builder("Mozilla/5.0 (Windows NT 6.2; rv:15.0)");
+		os.copyTo(second);
+		Assert.assertEquals("6.1", first.getOperatingSystem().getVersionNumber().toVersionString());
+		Assert.assertEquals("6.2", second.getOperatingSystem().getVersionNumber().toVersionString());
+		Assert.assertEquals(OperatingSystemFamily.WINDOWS, second.getOperatingSystem().getFamily());
+		Assert.assertEquals(os.getFamily(), second.getOperatingSystem().getFamilyName());
+	}
+
+	@Test
+	public void toOperatingSystem_withoutVersion() {
+		final SortedSet<OperatingSystemPattern> osPatternSet = new TreeSet<OperatingSystemPattern>();
+		final OperatingSystem os = new OperatingSystem("Windows", "i1", 1, "iu1", "n1", osPatternSet, "p1", "pu1", "u1");
+		final net.sf.uadetector.OperatingSystem result = os.toOperatingSystem("Mozilla/4.0 (compatible; Windows)");
+		Assert.assertEquals(OperatingSystemFamily.WINDOWS, result.getFamily());
+		Assert.assertEquals(VersionNumber.UNKNOWN, result.getVersionNumber());
+		Assert.assertSame(result, os.toOperatingSystem("Mozilla/4.0 (compatible; Windows)"));
+	}
+
+	@Test
+	public void toOperatingSystem_withVersion() {
+		final SortedSet<OperatingSystemPattern> osPatternSet = new TreeSet<OperatingSystemPattern>();
+		final OperatingSystem os = new OperatingSystem("Windows", "i1", 1, "iu1", "n1", osPatternSet, "p1", "pu1", "u1");
+		final net.sf.uadetector.OperatingSystem result = os.toOperatingSystem("Mozilla/5.0 (Windows NT 6.1; rv:15.0)");
+		Assert.assertEquals("6.1", result.getVersionNumber().toVersionString());
+		Assert.assertEquals(os.getName(), result.getName());
+		Assert.assertEquals(os.getProducer(), result.getProducer());
+	}
+
 	@Test
 	public void equals_differentFamily() {
 		final SortedSet<OperatingSystemPattern> osPatternSet = new TreeSet<OperatingSystemPattern>();
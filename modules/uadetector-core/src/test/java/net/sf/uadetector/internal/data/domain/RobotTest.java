@@ -15,8 +15,11 @@
  ******************************************************************************/
 package net.sf.uadetector.internal.data.domain;
 
+import net.sf.uadetector.MutableUserAgent;
 import net.sf.uadetector.UserAgent;
 import net.sf.uadetector.UserAgentFamily;
+import net.sf.uadetector.UserAgentType;
+import net.sf.uadetector.VersionNumber;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -163,6 +166,20 @@ public class RobotTest {
 		new Robot(family, icon, id, infoUrl, name, producer, producerUrl, url, userAgentString);
 	}
 
+	@Test
+	public void copyTo_mutableUserAgent() {
+		final Robot robot = new Robot(UserAgentFamily.GOOGLEBOT, "i1", 1, "iu1", "n1", "p1", "pu1", "u1", "uas1");
+		final MutableUserAgent agent = new MutableUserAgent();
+		robot.copyTo(agent);
+		Assert.assertEquals(robot.getFamily(), agent.getFamily());
+		Assert.assertEquals(robot.getName(), agent.getName());
+		Assert.assertEquals(robot.getProducer(), agent.getProducer());
+		Assert.assertEquals(robot.getProducerUrl(), agent.getProducerUrl());
+		Assert.assertEquals(robot.getUrl(), agent.getUrl());
+		Assert.assertEquals(UserAgentType.ROBOT, agent.getType());
+		Assert.assertSame(net.sf.uadetector.OperatingSystem.EMPTY, agent.getOperatingSystem());
+	}
+
 	@Test
 	public void copyTo_successful() {
 		final Robot robot = new Robot(UserAgentFamily.GOOGLEBOT, "i1", 1, "iu1", "n1", "p1", "pu1", "u1", "uas1");
@@ -300,6 +317,15 @@ public class RobotTest {
 		Assert.assertEquals("I'm a robot", b.getUserAgentString());
 	}
 
+	@Test
+	public void getVersionNumber() {
+		final Robot robot = new Robot(UserAgentFamily.GOOGLEBOT, "i1", 1, "iu1", "Googlebot/2.1", "p1", "pu1", "u1", "uas1");
+		Assert.assertEquals("2.1", robot.getVersionNumber().toVersionString());
+
+		final Robot withoutVersion = new Robot(UserAgentFamily.GOOGLEBOT, "i1", 1, "iu1", "Googlebot", "p1", "pu1", "u1", "uas1");
+		Assert.assertEquals(VersionNumber.UNKNOWN, withoutVersion.getVersionNumber());
+	}
+
 	@Test
 	public void testToString() {
 		// reduces only some noise in coverage report
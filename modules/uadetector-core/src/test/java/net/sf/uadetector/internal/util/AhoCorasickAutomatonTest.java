@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.util.BitSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AhoCorasickAutomatonTest {
+
+	private static BitSet scan(final AhoCorasickAutomaton automaton, final String text) {
+		final BitSet result = new BitSet();
+		automaton.scan(text, result);
+		return result;
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void add_emptyKeyword() {
+		new AhoCorasickAutomaton.Builder().add("", 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void add_negativeValue() {
+		new AhoCorasickAutomaton.Builder().add("abc", -1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void add_nullKeyword() {
+		new AhoCorasickAutomaton.Builder().add(null, 0);
+	}
+
+	@Test
+	public void scan_caseInsensitive() {
+		final AhoCorasickAutomaton automaton = new AhoCorasickAutomaton.Builder().add("Firefox", 0).add("MSIE", 1).build();
+		final BitSet result = scan(automaton, "Mozilla/5.0 (Windows NT 6.1; rv:15.0) Gecko/20120716 FIREFOX/15.0a2");
+		Assert.assertTrue(result.get(0));
+		Assert.assertFalse(result.get(1));
+	}
+
+	@Test
+	public void scan_emptyAutomaton() {
+		final AhoCorasickAutomaton automaton = new AhoCorasickAutomaton.Builder().build();
+		Assert.assertEquals(1, automaton.getStateCount());
+		Assert.assertTrue(scan(automaton, "any text").isEmpty());
+	}
+
+	@Test
+	public void scan_nonAsciiCharacters() {
+		final AhoCorasickAutomaton automaton = new AhoCorasickAutomaton.Builder().add("Öffi", 0).add("ſkip", 1).build();
+		final BitSet result = scan(automaton, "Browser öFFI/1.0 SKIP");
+		Assert.assertTrue(result.get(0));
+		Assert.assertTrue(result.get(1));
+	}
+
+	@Test
+	public void scan_overlappingKeywords() {
+		final AhoCorasickAutomaton automaton = new AhoCorasickAutomaton.Builder().add("he", 0).add("she", 1).add("his", 2)
+				.add("hers", 3).build();
+		final BitSet result = scan(automaton, "ushers");
+		Assert.assertTrue(result.get(0));
+		Assert.assertTrue(result.get(1));
+		Assert.assertFalse(result.get(2));
+		Assert.assertTrue(result.get(3));
+	}
+
+	@Test
+	public void scan_sameValueForMultipleKeywords() {
+		final AhoCorasickAutomaton automaton = new AhoCorasickAutomaton.Builder().add("Opera", 7).add("OPR/", 7).build();
+		Assert.assertTrue(scan(automaton, "Chrome/28.0 OPR/15.0").get(7));
+		Assert.assertTrue(scan(automaton, "Opera/9.80").get(7));
+		Assert.assertTrue(scan(automaton, "Chrome/28.0").isEmpty());
+	}
+
+	@Test
+	public void scan_failureLinkToPartialMatch() {
+		final AhoCorasickAutomaton automaton = new AhoCorasickAutomaton.Builder().add("abcd", 0).add("bce", 1).build();
+		final BitSet result = scan(automaton, "xabcex");
+		Assert.assertFalse(result.get(0));
+		Assert.assertTrue(result.get(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void scan_nullResult() {
+		new AhoCorasickAutomaton.Builder().build().scan("", null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void scan_nullText() {
+		new AhoCorasickAutomaton.Builder().build().scan(null, new BitSet());
+	}
+
+}
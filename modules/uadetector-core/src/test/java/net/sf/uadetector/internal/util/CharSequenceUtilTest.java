@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CharSequenceUtilTest {
+
+	@Test
+	public void contentEquals() {
+		Assert.assertTrue(CharSequenceUtil.contentEquals(new StringBuilder("abc"), "abc"));
+		Assert.assertFalse(CharSequenceUtil.contentEquals(new StringBuilder("abc"), "abd"));
+		Assert.assertFalse(CharSequenceUtil.contentEquals(new StringBuilder("ab"), "abc"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void contentEquals_string_null() {
+		CharSequenceUtil.contentEquals("", null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void contentEquals_text_null() {
+		CharSequenceUtil.contentEquals(null, "");
+	}
+
+	@Test
+	public void hashCode_sameAsString() {
+		final String[] texts = { "", "a", "Mozilla/5.0 (Windows NT 6.1; WOW64; rv:15.0) Gecko/20100101 Firefox/15.0.1", "éÿ" };
+		for (final String text : texts) {
+			Assert.assertEquals(text.hashCode(), CharSequenceUtil.hashCode(new StringBuilder(text)));
+			Assert.assertEquals(text.hashCode(), CharSequenceUtil.hashCode(text));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void hashCode_null() {
+		CharSequenceUtil.hashCode(null);
+	}
+
+	@Test
+	public void indexOf_sameAsString() {
+		final String text = "Mac OS X; Intel Mac OS X 10_7_3)";
+		final String[] searches = { "Mac OS X", "Intel", ")", "", "Windows", text, text + "x" };
+		for (final String search : searches) {
+			for (int from = -1; from <= text.length() + 1; from++) {
+				Assert.assertEquals(search + " from " + from, text.indexOf(search, from),
+						CharSequenceUtil.indexOf(new StringBuilder(text), search, from));
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void indexOf_string_null() {
+		CharSequenceUtil.indexOf("", null, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void indexOf_text_null() {
+		CharSequenceUtil.indexOf(null, "", 0);
+	}
+
+	@Test
+	public void regionMatches() {
+		final StringBuilder text = new StringBuilder("Firefox/15.0.1");
+		Assert.assertTrue(CharSequenceUtil.regionMatches(text, 8, "15.0", 0, 4));
+		Assert.assertTrue(CharSequenceUtil.regionMatches(text, 8, "x15.0", 1, 4));
+		Assert.assertFalse(CharSequenceUtil.regionMatches(text, 8, "15.1", 0, 4));
+		Assert.assertFalse(CharSequenceUtil.regionMatches(text, 12, "15.0", 0, 4));
+		Assert.assertFalse(CharSequenceUtil.regionMatches(text, -1, "F", 0, 1));
+		Assert.assertTrue(CharSequenceUtil.regionMatches("Firefox/15.0.1", 8, "15.0", 0, 4));
+	}
+
+	@Test
+	public void startsWith() {
+		Assert.assertTrue(CharSequenceUtil.startsWith(new StringBuilder("Mac OS X 10_7_3)"), ")", 15));
+		Assert.assertTrue(CharSequenceUtil.startsWith(new StringBuilder("Mac OS X"), "", 8));
+		Assert.assertFalse(CharSequenceUtil.startsWith(new StringBuilder("Mac OS X"), "X", 8));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void startsWith_string_null() {
+		CharSequenceUtil.startsWith("", null, 0);
+	}
+
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompressionUtilTest {
+
+	private static byte[] compress(final byte[] content) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final OutputStream out = CompressionUtil.compress(bytes);
+		out.write(content);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static byte[] readAll(final InputStream stream) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int read;
+		while ((read = stream.read()) != -1) {
+			out.write(read);
+		}
+		return out.toByteArray();
+	}
+
+	@Test
+	public void compress() throws IOException {
+		final byte[] content = "<?xml version=\"1.0\"?><uasdata></uasdata>".getBytes("UTF-8");
+		final byte[] compressed = compress(content);
+		Assert.assertEquals(0x1f, compressed[0] & 0xff);
+		Assert.assertEquals(0x8b, compressed[1] & 0xff);
+		Assert.assertArrayEquals(content, readAll(CompressionUtil.decompress(new ByteArrayInputStream(compressed))));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void compress_null() throws IOException {
+		CompressionUtil.compress(null);
+	}
+
+	@Test
+	public void decompress_empty() throws IOException {
+		Assert.assertEquals(-1, CompressionUtil.decompress(new ByteArrayInputStream(new byte[0])).read());
+	}
+
+	@Test
+	public void decompress_markNotSupported() throws IOException {
+		final byte[] content = "uncompressed".getBytes("UTF-8");
+		final InputStream stream = new ByteArrayInputStream(compress(content)) {
+			@Override
+			public boolean markSupported() {
+				return false;
+			}
+		};
+		Assert.assertArrayEquals(content, readAll(CompressionUtil.decompress(stream)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void decompress_null() throws IOException {
+		CompressionUtil.decompress(null);
+	}
+
+	@Test
+	public void decompress_singleByte() throws IOException {
+		Assert.assertArrayEquals(new byte[] { 0x1f }, readAll(CompressionUtil.decompress(new ByteArrayInputStream(new byte[] { 0x1f }))));
+	}
+
+	@Test
+	public void decompress_uncompressed() throws IOException {
+		final byte[] content = "<?xml version=\"1.0\"?>".getBytes("UTF-8");
+		Assert.assertArrayEquals(content, readAll(CompressionUtil.decompress(new ByteArrayInputStream(content))));
+	}
+
+	@Test
+	public void isCompressed() {
+		Assert.assertTrue(CompressionUtil.isCompressed(new File("uas.xml.gz")));
+		Assert.assertFalse(CompressionUtil.isCompressed(new File("uas.xml")));
+		Assert.assertFalse(CompressionUtil.isCompressed(new File("uas.gz.xml")));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void isCompressed_null() {
+		CompressionUtil.isCompressed(null);
+	}
+
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConditionalFetcherTest {
+
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	private static String readAndClose(final InputStream stream) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] chunk = new byte[1024];
+		int read;
+		while ((read = stream.read(chunk)) != -1) {
+			out.write(chunk, 0, read);
+		}
+		stream.close();
+		return new String(out.toByteArray(), CHARSET);
+	}
+
+	private LocalHttpServer server;
+
+	@Before
+	public void setUp() throws IOException {
+		server = new LocalHttpServer();
+		server.setContent("20120817-01".getBytes(CHARSET));
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void forget_url_null() {
+		new ConditionalFetcher().forget(null);
+	}
+
+	@Test
+	public void forget_sendsUnconditionalRequest() throws IOException {
+		server.setEntityTag("\"v1\"");
+		final ConditionalFetcher fetcher = new ConditionalFetcher();
+		final URL url = server.getUrl("/version");
+		readAndClose(fetcher.open(url));
+		fetcher.forget(url);
+		Assert.assertFalse(fetcher.isRemembered(url));
+		Assert.assertEquals("20120817-01", readAndClose(fetcher.open(url)));
+		Assert.assertEquals(0, server.getNotModifiedCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void isRemembered_url_null() {
+		new ConditionalFetcher().isRemembered(null);
+	}
+
+	@Test
+	public void open_entityTag() throws IOException {
+		server.setEntityTag("\"v1\"");
+		final ConditionalFetcher fetcher = new ConditionalFetcher();
+		final URL url = server.getUrl("/version");
+		Assert.assertEquals("20120817-01", readAndClose(fetcher.open(url)));
+		Assert.assertTrue(fetcher.isRemembered(url));
+		Assert.assertNull(fetcher.open(url));
+		Assert.assertEquals(2, server.getRequestCount());
+		Assert.assertEquals(1, server.getNotModifiedCount());
+
+		// the resource has been changed
+		server.setEntityTag("\"v2\"");
+		server.setContent("20120818-01".getBytes(CHARSET));
+		Assert.assertEquals("20120818-01", readAndClose(fetcher.open(url)));
+		Assert.assertNull(fetcher.open(url));
+		Assert.assertEquals(2, server.getNotModifiedCount());
+	}
+
+	@Test
+	public void open_file() throws IOException {
+		final ConditionalFetcher fetcher = new ConditionalFetcher();
+		final URL url = ConditionalFetcherTest.class.getClassLoader().getResource("uas_older.version");
+		Assert.assertEquals(readAndClose(url.openStream()), readAndClose(fetcher.open(url)));
+		Assert.assertFalse(fetcher.isRemembered(url));
+		Assert.assertNotNull(fetcher.open(url));
+	}
+
+	@Test
+	public void open_gzip() throws IOException {
+		server.setGzip(true);
+		Assert.assertEquals("20120817-01", readAndClose(new ConditionalFetcher().open(server.getUrl("/version"))));
+	}
+
+	@Test
+	public void open_lastModified() throws IOException {
+		server.setLastModified("Fri, 17 Aug 2012 10:00:00 GMT");
+		final ConditionalFetcher fetcher = new ConditionalFetcher();
+		final URL url = server.getUrl("/version");
+		Assert.assertEquals("20120817-01", readAndClose(fetcher.open(url)));
+		Assert.assertNull(fetcher.open(url));
+		Assert.assertEquals(1, server.getNotModifiedCount());
+	}
+
+	@Test
+	public void open_notRemembered() throws IOException {
+		final ConditionalFetcher fetcher = new ConditionalFetcher();
+		final URL url = server.getUrl("/version");
+		Assert.assertEquals("20120817-01", readAndClose(fetcher.open(url)));
+		Assert.assertFalse(fetcher.isRemembered(url));
+		Assert.assertEquals("20120817-01", readAndClose(fetcher.open(url)));
+		Assert.assertEquals(0, server.getNotModifiedCount());
+	}
+
+	@Test
+	public void open_serverError() throws IOException {
+		server.setEntityTag("\"v1\"");
+		server.setStatus(500);
+		final ConditionalFetcher fetcher = new ConditionalFetcher();
+		final URL url = server.getUrl("/version");
+		try {
+			fetcher.open(url);
+			Assert.fail("IOException expected");
+		} catch (final IOException e) {
+			Assert.assertFalse(fetcher.isRemembered(url));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void open_url_null() throws IOException {
+		new ConditionalFetcher().open(null);
+	}
+
+}
@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.io.Reader;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.zip.CRC32;
 
 import junit.framework.Assert;
 import net.sf.uadetector.datastore.DataStore;
@@ -32,6 +33,25 @@ public class FileUtilTest {
 	 */
 	private static final URL VERSION_URL = FileUtilTest.class.getClassLoader().getResource("uas_newer.version");
 
+	@Test
+	public void checksum() throws Exception {
+		final File temp = File.createTempFile("testfile", ".tmp");
+		temp.deleteOnExit();
+		Assert.assertEquals(0l, FileUtil.checksum(temp));
+		final FileOutputStream writer = new FileOutputStream(temp);
+		writer.write("test".getBytes());
+		writer.close();
+		final CRC32 expected = new CRC32();
+		expected.update("test".getBytes());
+		Assert.assertEquals(expected.getValue(), FileUtil.checksum(temp));
+		temp.delete();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void checksum_null() throws Exception {
+		FileUtil.checksum(null);
+	}
+
 	@Test
 	public void isEmpty_withEmptyFile() throws Exception {
 		final File tempEmptyFile = File.createTempFile("testfile", ".tmp");
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FileUtilTest_files {
+
+	private static File createFile(final String content) throws IOException {
+		final File file = File.createTempFile("testfile", ".tmp");
+		file.deleteOnExit();
+		final FileOutputStream out = new FileOutputStream(file);
+		out.write(content.getBytes());
+		out.close();
+		return file;
+	}
+
+	@Test
+	public void hasSameContent() throws IOException {
+		final File file = createFile("test");
+		final File same = createFile("test");
+		final File other = createFile("tesT");
+		final File longer = createFile("test ");
+		Assert.assertTrue(FileUtil.hasSameContent(file, same));
+		Assert.assertTrue(FileUtil.hasSameContent(file, file));
+		Assert.assertFalse(FileUtil.hasSameContent(file, other));
+		Assert.assertFalse(FileUtil.hasSameContent(file, longer));
+		other.delete();
+		Assert.assertFalse(FileUtil.hasSameContent(file, other));
+		file.delete();
+		same.delete();
+		longer.delete();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void hasSameContent_file_null() throws IOException {
+		FileUtil.hasSameContent(null, new File("test"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void hasSameContent_other_null() throws IOException {
+		FileUtil.hasSameContent(new File("test"), null);
+	}
+
+	@Test
+	public void replace() throws IOException {
+		final File source = createFile("new");
+		final File target = createFile("old");
+		Assert.assertTrue(FileUtil.replace(source, target));
+		Assert.assertFalse(source.exists());
+		Assert.assertTrue(FileUtil.hasSameContent(target, createFile("new")));
+		target.delete();
+	}
+
+	@Test
+	public void replace_sourceMissing() throws IOException {
+		final File source = createFile("new");
+		source.delete();
+		final File target = createFile("old");
+		Assert.assertFalse(FileUtil.replace(source, target));
+		target.delete();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void replace_source_null() {
+		FileUtil.replace(null, new File("test"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void replace_target_null() {
+		FileUtil.replace(new File("test"), null);
+	}
+
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FrequencySketchTest {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_capacity_toSmall() {
+		new FrequencySketch(0);
+	}
+
+	@Test
+	public void frequency_increasesUpToMaximum() {
+		final FrequencySketch sketch = new FrequencySketch(512);
+		Assert.assertEquals(0, sketch.frequency("Googlebot"));
+		sketch.increment("Googlebot");
+		Assert.assertEquals(1, sketch.frequency("Googlebot"));
+		for (int i = 0; i < 100; i++) {
+			sketch.increment("Googlebot");
+		}
+		Assert.assertEquals(FrequencySketch.MAXIMUM_FREQUENCY, sketch.frequency("Googlebot"));
+	}
+
+	@Test
+	public void frequency_distinguishesHotFromCold() {
+		final FrequencySketch sketch = new FrequencySketch(512);
+		for (int i = 0; i < 8; i++) {
+			sketch.increment("hot");
+		}
+		for (int i = 0; i < 500; i++) {
+			sketch.increment("cold" + i);
+		}
+		Assert.assertTrue(sketch.frequency("hot") > sketch.frequency("cold1"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void frequency_null() {
+		new FrequencySketch(1).frequency(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void increment_null() {
+		new FrequencySketch(1).increment(null);
+	}
+
+	@Test
+	public void increment_resetAfterSample() {
+		final FrequencySketch sketch = new FrequencySketch(1);
+		for (int i = 0; i < 9; i++) {
+			sketch.increment("a");
+		}
+		Assert.assertEquals(9, sketch.getSize());
+		Assert.assertEquals(9, sketch.frequency("a"));
+
+		// the tenth occurrence reaches the sample size of ten times the capacity
+		sketch.increment("a");
+		Assert.assertEquals(5, sketch.getSize());
+		Assert.assertEquals(5, sketch.frequency("a"));
+	}
+
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IntObjectMapTest {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_capacity_negative() {
+		new IntObjectMap<String>(-1);
+	}
+
+	@Test
+	public void construct_capacity_zero() {
+		final IntObjectMap<String> map = new IntObjectMap<String>(0);
+		Assert.assertEquals(0, map.size());
+		map.put(1, "a");
+		map.put(2, "b");
+		Assert.assertEquals("a", map.get(1));
+		Assert.assertEquals("b", map.get(2));
+	}
+
+	@Test
+	public void get_unknownKey() {
+		final IntObjectMap<String> map = new IntObjectMap<String>();
+		Assert.assertNull(map.get(7));
+		Assert.assertFalse(map.containsKey(7));
+	}
+
+	@Test
+	public void grow_keepsInsertionOrder() {
+		final IntObjectMap<Integer> map = new IntObjectMap<Integer>(2);
+		for (int i = 0; i < 10000; i++) {
+			map.put(i * 31 - 5000, Integer.valueOf(i));
+		}
+		Assert.assertEquals(10000, map.size());
+		for (int i = 0; i < 10000; i++) {
+			final int key = i * 31 - 5000;
+			Assert.assertTrue(map.containsKey(key));
+			Assert.assertEquals(Integer.valueOf(i), map.get(key));
+			Assert.assertEquals(key, map.keyAt(i));
+			Assert.assertEquals(Integer.valueOf(i), map.valueAt(i));
+		}
+		Assert.assertFalse(map.containsKey(10000 * 31));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void keyAt_negative() {
+		final IntObjectMap<String> map = new IntObjectMap<String>();
+		map.put(1, "a");
+		map.keyAt(-1);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void keyAt_tooLarge() {
+		final IntObjectMap<String> map = new IntObjectMap<String>();
+		map.put(1, "a");
+		map.keyAt(1);
+	}
+
+	@Test
+	public void put_extremeKeys() {
+		final IntObjectMap<String> map = new IntObjectMap<String>();
+		map.put(Integer.MIN_VALUE, "min");
+		map.put(0, "zero");
+		map.put(-1, "minus one");
+		map.put(Integer.MAX_VALUE, "max");
+		Assert.assertEquals("min", map.get(Integer.MIN_VALUE));
+		Assert.assertEquals("zero", map.get(0));
+		Assert.assertEquals("minus one", map.get(-1));
+		Assert.assertEquals("max", map.get(Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void put_nullValue() {
+		final IntObjectMap<String> map = new IntObjectMap<String>();
+		Assert.assertNull(map.put(3, null));
+		Assert.assertTrue(map.containsKey(3));
+		Assert.assertNull(map.get(3));
+		Assert.assertEquals(1, map.size());
+	}
+
+	@Test
+	public void put_replace() {
+		final IntObjectMap<String> map = new IntObjectMap<String>();
+		Assert.assertNull(map.put(5, "a"));
+		Assert.assertNull(map.put(9, "b"));
+		Assert.assertEquals("a", map.put(5, "c"));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals(5, map.keyAt(0));
+		Assert.assertEquals("c", map.valueAt(0));
+		Assert.assertEquals(9, map.keyAt(1));
+		Assert.assertEquals("b", map.valueAt(1));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void valueAt_empty() {
+		new IntObjectMap<String>().valueAt(0);
+	}
+
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LazyPatternTest {
+
+	@Test
+	public void compile() {
+		final LazyPattern pattern = new LazyPattern("[0-9]+", Pattern.CASE_INSENSITIVE);
+		Assert.assertFalse(pattern.isCompiled());
+		Assert.assertSame(pattern, pattern.compile());
+		Assert.assertTrue(pattern.isCompiled());
+	}
+
+	@Test(expected = PatternSyntaxException.class)
+	public void compile_invalidSyntax() {
+		new LazyPattern("([0-9]+", 0).compile();
+	}
+
+	@Test(expected = PatternSyntaxException.class)
+	public void compile_invalidSyntax_afterGet() {
+		final LazyPattern pattern = new LazyPattern("Foo(bar", 0);
+		pattern.get();
+		pattern.compile();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_pattern_null() {
+		new LazyPattern(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_regex_null() {
+		new LazyPattern(null, 0);
+	}
+
+	@Test
+	public void constructor_withPattern() {
+		final Pattern compiled = Pattern.compile("[0-9]+", Pattern.DOTALL);
+		final LazyPattern pattern = new LazyPattern(compiled);
+		Assert.assertTrue(pattern.isCompiled());
+		Assert.assertSame(compiled, pattern.get());
+		Assert.assertEquals("[0-9]+", pattern.getRegularExpression());
+		Assert.assertEquals(Pattern.DOTALL, pattern.getFlags());
+	}
+
+	@Test
+	public void equals_different() {
+		final LazyPattern pattern = new LazyPattern("[0-9]+", 0);
+		Assert.assertFalse(pattern.equals(null));
+		Assert.assertFalse(pattern.equals("[0-9]+"));
+		Assert.assertFalse(pattern.equals(new LazyPattern("[0-9]*", 0)));
+		Assert.assertFalse(pattern.equals(new LazyPattern("[0-9]+", Pattern.CASE_INSENSITIVE)));
+	}
+
+	@Test
+	public void equals_identical() {
+		final LazyPattern pattern1 = new LazyPattern("[0-9]+", Pattern.CASE_INSENSITIVE);
+		final LazyPattern pattern2 = new LazyPattern(Pattern.compile("[0-9]+", Pattern.CASE_INSENSITIVE));
+		Assert.assertTrue(pattern1.equals(pattern2));
+		Assert.assertTrue(pattern2.equals(pattern1));
+		Assert.assertEquals(pattern1.hashCode(), pattern2.hashCode());
+
+		// compiling does not change equality
+		pattern1.compile();
+		Assert.assertTrue(pattern1.equals(pattern2));
+		Assert.assertEquals(pattern1.hashCode(), pattern2.hashCode());
+	}
+
+	@Test
+	public void get() {
+		final LazyPattern pattern = new LazyPattern("[0-9]+", Pattern.CASE_INSENSITIVE);
+		final Pattern compiled = pattern.get();
+		Assert.assertEquals("[0-9]+", compiled.pattern());
+		Assert.assertEquals(Pattern.CASE_INSENSITIVE, compiled.flags());
+		Assert.assertSame(compiled, pattern.get());
+	}
+
+	@Test
+	public void get_concurrently() throws InterruptedException {
+		final LazyPattern pattern = new LazyPattern("Mozilla/([0-9.]+)", 0);
+		final Thread[] threads = new Thread[4];
+		final Pattern[] results = new Pattern[threads.length];
+		for (int i = 0; i < threads.length; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					results[index] = pattern.get();
+				}
+			};
+			threads[i].start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		// all threads receive an equivalent pattern, but only one will be kept
+		for (final Pattern result : results) {
+			Assert.assertEquals("Mozilla/([0-9.]+)", result.pattern());
+		}
+		Assert.assertSame(pattern.get(), pattern.get());
+	}
+
+	@Test
+	public void get_invalidSyntax() {
+		final LazyPattern pattern = new LazyPattern("Foo(bar", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+		Assert.assertFalse(pattern.get().matcher("Foo(bar").find());
+		Assert.assertFalse(pattern.get().matcher("").find());
+		Assert.assertTrue(pattern.isCompiled());
+		Assert.assertSame(pattern.get(), pattern.get());
+	}
+
+	@Test
+	public void toString_regex() {
+		Assert.assertEquals("[0-9]+", new LazyPattern("[0-9]+", Pattern.CASE_INSENSITIVE).toString());
+	}
+
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A very simple HTTP server on the loopback interface for test cases, which serves one resource under every path and
+ * supports conditional requests and <em>gzip</em> compression.
+ * 
+ * @author André Rouél
+ */
+public class LocalHttpServer {
+
+	private final class Handler implements HttpHandler {
+
+		@Override
+		public void handle(final HttpExchange exchange) throws IOException {
+			requests.incrementAndGet();
+			try {
+				if (status != 200) {
+					exchange.sendResponseHeaders(status, -1);
+					return;
+				}
+
+				final String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+				final String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+				if ((entityTag != null && entityTag.equals(ifNoneMatch))
+						|| (entityTag == null && lastModified != null && lastModified.equals(ifModifiedSince))) {
+					notModified.incrementAndGet();
+					exchange.sendResponseHeaders(304, -1);
+					return;
+				}
+
+				if (entityTag != null) {
+					exchange.getResponseHeaders().set("ETag", entityTag);
+				}
+				if (lastModified != null) {
+					exchange.getResponseHeaders().set("Last-Modified", lastModified);
+				}
+				byte[] body = content;
+				final String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+				if (gzip && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+					body = compress(content);
+					exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+				}
+				exchange.sendResponseHeaders(200, body.length);
+				final OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+			} finally {
+				exchange.close();
+			}
+		}
+
+	}
+
+	private static byte[] compress(final byte[] content) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final GZIPOutputStream gzipStream = new GZIPOutputStream(out);
+		gzipStream.write(content);
+		gzipStream.close();
+		return out.toByteArray();
+	}
+
+	private final HttpServer server;
+
+	private final AtomicInteger requests = new AtomicInteger();
+
+	private final AtomicInteger notModified = new AtomicInteger();
+
+	private volatile byte[] content = new byte[0];
+
+	private volatile String entityTag;
+
+	private volatile String lastModified;
+
+	private volatile boolean gzip;
+
+	private volatile int status = 200;
+
+	public LocalHttpServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new Handler());
+		server.start();
+	}
+
+	public int getNotModifiedCount() {
+		return notModified.get();
+	}
+
+	public int getRequestCount() {
+		return requests.get();
+	}
+
+	public URL getUrl(final String path) throws MalformedURLException {
+		return new URL("http", "127.0.0.1", server.getAddress().getPort(), path);
+	}
+
+	public void setContent(final byte[] content) {
+		this.content = content;
+	}
+
+	public void setEntityTag(final String entityTag) {
+		this.entityTag = entityTag;
+	}
+
+	public void setGzip(final boolean gzip) {
+		this.gzip = gzip;
+	}
+
+	public void setLastModified(final String lastModified) {
+		this.lastModified = lastModified;
+	}
+
+	public void setStatus(final int status) {
+		this.status = status;
+	}
+
+	public void stop() {
+		server.stop(0);
+	}
+
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MatcherCacheTest {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_negativeSize() {
+		new MatcherCache(-1);
+	}
+
+	@Test
+	public void matcher_createdOnceAndReset() {
+		final Pattern pattern = Pattern.compile("Firefox/([0-9.]+)");
+		final MatcherCache cache = new MatcherCache(2);
+		Assert.assertEquals(2, cache.size());
+
+		final Matcher first = cache.matcher(0, pattern, "Mozilla/5.0 Firefox/15.0");
+		Assert.assertTrue(first.find());
+		Assert.assertEquals("15.0", first.group(1));
+
+		final Matcher second = cache.matcher(0, pattern, "Mozilla/5.0 Firefox/3.6.28");
+		Assert.assertSame(first, second);
+		Assert.assertTrue(second.find());
+		Assert.assertEquals("3.6.28", second.group(1));
+
+		Assert.assertFalse(cache.matcher(0, pattern, "Opera/9.80").find());
+	}
+
+	@Test
+	public void matcher_otherPatternAtSamePosition() {
+		final MatcherCache cache = new MatcherCache(1);
+		final Matcher first = cache.matcher(0, Pattern.compile("Chrome"), "Chrome");
+		final Matcher second = cache.matcher(0, Pattern.compile("Safari"), "Safari");
+		Assert.assertNotSame(first, second);
+		Assert.assertTrue(second.find());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void matcher_pattern_null() {
+		new MatcherCache(1).matcher(0, null, "text");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void matcher_text_null() {
+		new MatcherCache(1).matcher(0, Pattern.compile("text"), null);
+	}
+
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.util.BitSet;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PatternSetAutomatonTest {
+
+	private static final String[] REGEXES = { "^Mozilla.*Android .*Ninesky\\-android\\-mobile\\/([0-9\\.]+)",
+			"mozilla.*rv:[0-9\\.]+.*gecko\\/[0-9]+.*firefox\\/([0-9a-z\\+\\-\\.]+).*swiftfox", "^elinks$", "Python\\-urllib$",
+			"^foobar2000\\/([0-9a-z\\._]+$)", "(MSIE|Trident)[ /]([0-9.]+)", "Opera(?: Mini)?\\/\\d{1,2}\\.\\d+?", "^$",
+			"a(bc)*d", "x{2,3}y", "[^a-z]+Z", "\\w+@\\s\\D", "colou?r", "[]a]", "a.b", "ab+c|ab?d", "\\x41\\u0042",
+			"Windows NT ([0-9]+\\.[0-9]+)", "Version\\/[0-9\\.]+ Mobile" };
+
+	private static final String[] TEXTS = { "Mozilla/5.0 (Linux; U; Android 2.2; ) Ninesky-android-mobile/3.0",
+			"Mozilla/5.0 (X11; U; Linux i686; rv:1.8.1) Gecko/20061024 Firefox/2.0 (Swiftfox)", "elinks", "ELinks\n",
+			"elinks\r\n", "elinks\n\n", "Python-urllib", "Python-urllib/2.6", "foobar2000/1.0", "foobar2000/1.0\n",
+			"Mozilla/4.0 (compatible; MSIE 8.0; Windows NT 6.1; Trident/4.0)", "Opera/9.80 Presto", "Opera Mini/4.2",
+			"", "\n", "ad", "abcbcd", "abd", "xxy", "xy", "XXXy", "123Z", "abcZ", "a@ b", "a@ 1", "color", "COLOUR",
+			"]", "a\nb", "a b", "axb", "abbbc", "ac", "ABD", "AB", "Windows NT 6.1", "Version/4.0 Mobile",
+			"Mözilla Version/4.0 MOBILE" };
+
+	private static void assertSameMatches(final int flags) {
+		final PatternSetAutomaton.Builder builder = new PatternSetAutomaton.Builder();
+		final Pattern[] patterns = new Pattern[REGEXES.length];
+		for (int i = 0; i < REGEXES.length; i++) {
+			patterns[i] = Pattern.compile(REGEXES[i], flags);
+			Assert.assertTrue(REGEXES[i], builder.add(patterns[i], i));
+		}
+		final PatternSetAutomaton automaton = builder.build();
+
+		// scan twice to use cached states
+		for (int round = 0; round < 2; round++) {
+			for (final String text : TEXTS) {
+				final BitSet expected = new BitSet();
+				for (int i = 0; i < patterns.length; i++) {
+					if (patterns[i].matcher(text).find()) {
+						expected.set(i);
+					}
+				}
+				final BitSet actual = new BitSet();
+				automaton.scan(text, actual);
+				Assert.assertEquals("'" + text + "'", expected, actual);
+			}
+		}
+		Assert.assertTrue(automaton.getCachedStateCount() > 0);
+	}
+
+	@Test
+	public void add_unsupportedConstructs() {
+		final PatternSetAutomaton.Builder builder = new PatternSetAutomaton.Builder();
+		Assert.assertFalse(builder.add(Pattern.compile("\\bword"), 0));
+		Assert.assertFalse(builder.add(Pattern.compile("(a)\\1"), 1));
+		Assert.assertFalse(builder.add(Pattern.compile("(?=a)b"), 2));
+		Assert.assertFalse(builder.add(Pattern.compile("a++"), 3));
+		Assert.assertFalse(builder.add(Pattern.compile("[a-z&&[^b]]"), 4));
+		Assert.assertFalse(builder.add(Pattern.compile("\\p{Alpha}"), 5));
+		Assert.assertFalse(builder.add(Pattern.compile("a$\\n"), 6));
+		Assert.assertFalse(builder.add(Pattern.compile("a", Pattern.MULTILINE), 7));
+		Assert.assertFalse(builder.add(Pattern.compile("a", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE), 8));
+		Assert.assertTrue(builder.add(Pattern.compile("a"), 9));
+
+		// rejected expressions must not leave any nodes behind
+		final BitSet result = new BitSet();
+		builder.build().scan("word aa b", result);
+		Assert.assertEquals(1, result.cardinality());
+		Assert.assertTrue(result.get(9));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void add_null() {
+		new PatternSetAutomaton.Builder().add(null, 0);
+	}
+
+	@Test
+	public void scan_caseInsensitiveAndDotAll() {
+		assertSameMatches(Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+	}
+
+	@Test
+	public void scan_caseSensitive() {
+		assertSameMatches(0);
+	}
+
+	@Test
+	public void scan_empty() {
+		final BitSet result = new BitSet();
+		new PatternSetAutomaton.Builder().build().scan("Mozilla/5.0", result);
+		Assert.assertTrue(result.isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void scan_nullResult() {
+		new PatternSetAutomaton.Builder().build().scan("", null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void scan_nullText() {
+		new PatternSetAutomaton.Builder().build().scan(null, new BitSet());
+	}
+
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.util.regex.Pattern;
+
+import net.sf.uadetector.VersionNumber;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PatternVersionExtractorTest {
+
+	@Test
+	public void construct_patterns_containsNull() {
+		try {
+			new PatternVersionExtractor(Pattern.compile("a"), null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_patterns_null() {
+		new PatternVersionExtractor((Pattern[]) null);
+	}
+
+	@Test
+	public void extract_firstMatchingPatternWins() {
+		final PatternVersionExtractor extractor = new PatternVersionExtractor(Pattern.compile("hpwOS/((\\d+)((\\.\\d+)+)?);"),
+				Pattern.compile("webOS/((\\d+)((\\.\\d+)+)?);"));
+		Assert.assertEquals("3.0.5", extractor.extract("webOS/1.4; hpwOS/3.0.5;").toVersionString());
+		Assert.assertEquals("1.4", extractor.extract("webOS/1.4; hpwOS/3.0.5").toVersionString());
+		Assert.assertSame(VersionNumber.UNKNOWN, extractor.extract("webOS"));
+	}
+
+	@Test
+	public void extract_separator() {
+		final PatternVersionExtractor extractor = new PatternVersionExtractor('_', Pattern.compile("CPU OS ((\\d+)((\\_\\d+)+)?)"));
+		Assert.assertEquals("5.1.1", extractor.extract("CPU OS 5_1_1 like Mac OS X").toVersionString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void extract_userAgent_null() {
+		new PatternVersionExtractor().extract(null);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void getPatterns_unmodifiable() {
+		new PatternVersionExtractor(Pattern.compile("a")).getPatterns().clear();
+	}
+
+}
@@ -23,6 +23,30 @@ import org.junit.Test;
 
 public class RegularExpressionConverterTest {
 
+	@Test
+	public void convertPerlRegexToLazyPattern() {
+		final LazyPattern pattern = RegularExpressionConverter.convertPerlRegexToLazyPattern("/test/([0-9a-zA-Z.\\-+]+)/si");
+		Assert.assertFalse(pattern.isCompiled());
+		Assert.assertEquals("test/([0-9a-zA-Z.\\-+]+)", pattern.getRegularExpression());
+		Assert.assertEquals(Pattern.DOTALL | Pattern.CASE_INSENSITIVE, pattern.getFlags());
+	}
+
+	@Test
+	public void convertPerlRegexToLazyPattern_invalidSyntaxIsNotDetected() {
+		final LazyPattern pattern = RegularExpressionConverter.convertPerlRegexToLazyPattern("/test/([0-9]+/i");
+		Assert.assertFalse(pattern.isCompiled());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void convertPerlRegexToLazyPattern_notPerlStyle() {
+		RegularExpressionConverter.convertPerlRegexToLazyPattern("test");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void convertPerlRegexToLazyPattern_null() {
+		RegularExpressionConverter.convertPerlRegexToLazyPattern(null);
+	}
+
 	@Test
 	public void convertPerlRegexToPattern_faultTolerantModifierRegexConverting_NintendoDS() {
 		final String perlStyleRegex = "/Nintendo DS/Si";
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RequiredLiteralExtractorTest {
+
+	private static Set<String> extract(final String regex) {
+		return RequiredLiteralExtractor.extract(Pattern.compile(regex));
+	}
+
+	private static Set<String> set(final String... literals) {
+		return new HashSet<String>(Arrays.asList(literals));
+	}
+
+	@Test
+	public void extract_alternation() {
+		Assert.assertEquals(set("MSIE", "Trident"), extract("(MSIE|Trident)[ /]([0-9.]+)"));
+		Assert.assertEquals(set("Opera Mini", "OperaMini"), extract("Opera Mini|OperaMini"));
+	}
+
+	@Test
+	public void extract_alternationWithoutLiteral() {
+		Assert.assertEquals(set(), extract("abc|[0-9]+"));
+		Assert.assertEquals(set("Mozilla"), extract("Mozilla.*(abc|.*)"));
+	}
+
+	@Test
+	public void extract_characterClasses() {
+		Assert.assertEquals(set(" Version/"), extract("[a-z]+ Version/[\\d.\\]]+"));
+		Assert.assertEquals(set("bada"), extract("[^]a]bada"));
+	}
+
+	@Test
+	public void extract_escapes() {
+		Assert.assertEquals(set("Nokia"), extract("\\bNokia\\w+\\s"));
+		Assert.assertEquals(set("(KHTML"), extract("\\(KHTML\\w"));
+		Assert.assertEquals(set("Safari"), extract("\\p{L}Safari\\x41\\u0041"));
+		Assert.assertEquals(set("Konqueror/"), extract("Konqueror\\/"));
+	}
+
+	@Test
+	public void extract_groups() {
+		Assert.assertEquals(set("Firefox/"), extract("(?:Firefox/)([0-9.]+)"));
+		Assert.assertEquals(set("Chrome"), extract("(?i)Chrome"));
+		Assert.assertEquals(set("Linux"), extract("(?<name>Linux) x86"));
+		Assert.assertEquals(set("Linux"), extract("(?i:Linux)"));
+	}
+
+	@Test
+	public void extract_lookaroundsAreIgnored() {
+		Assert.assertEquals(set("Mobile"), extract("(?!Android)Mobile"));
+		Assert.assertEquals(set(), extract("(?<=Android)"));
+	}
+
+	@Test
+	public void extract_optionalParts() {
+		Assert.assertEquals(set("Gecko"), extract("(Firefox)?Gecko"));
+		Assert.assertEquals(set("Chrom"), extract("Chrome?"));
+		Assert.assertEquals(set("Chrome"), extract("Chrome+"));
+		Assert.assertEquals(set("Chrome"), extract("Chrome{1,3}"));
+		Assert.assertEquals(set("Chrom"), extract("Chrome{0,3}"));
+		Assert.assertEquals(set("Iceweasel"), extract("(Iceweasel)+"));
+		Assert.assertEquals(set(), extract("(Iceweasel)*"));
+	}
+
+	@Test
+	public void extract_selectsLongestLiteral() {
+		Assert.assertEquals(set("Windows NT"), extract("Mac.*Windows NT"));
+		Assert.assertEquals(set("Mozilla/5.0 "), extract("^Mozilla/5\\.0 .*(X|Y)"));
+	}
+
+	@Test
+	public void extract_unsupportedConstructs() {
+		Assert.assertEquals(set(), extract("\\QFirefox\\E"));
+		Assert.assertEquals(set(), RequiredLiteralExtractor.extract(Pattern.compile("Firefox", Pattern.COMMENTS)));
+		Assert.assertEquals(set(), RequiredLiteralExtractor.extract(Pattern.compile("Firefox", Pattern.CANON_EQ)));
+		Assert.assertEquals(set(), extract(".*"));
+		Assert.assertEquals(set(), extract(""));
+	}
+
+	@Test
+	public void extract_inlineCommentsFlag() {
+		// whitespace would be ignored and '#' would start a comment
+		Assert.assertEquals(set(), extract("(?x)Opera Mini"));
+		Assert.assertEquals(set(), extract("(?ix)Firefox#comment"));
+		Assert.assertEquals(set(), extract("Mobile(?x: Safari)"));
+		Assert.assertEquals(set(), extract("(?i-s)(?x-i)Chrome"));
+		Assert.assertEquals(set("Opera Mini"), extract("(?i-x)Opera Mini"));
+	}
+
+	@Test
+	public void extract_literalFlag() {
+		Assert.assertEquals(set("a.b"), RequiredLiteralExtractor.extract(Pattern.compile("a.b", Pattern.LITERAL)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void extract_null() {
+		RequiredLiteralExtractor.extract(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void extract_regex_null() {
+		RequiredLiteralExtractor.extract(null, 0);
+	}
+
+	@Test
+	public void extract_withoutCompiling() {
+		Assert.assertEquals(RequiredLiteralExtractor.extract(Pattern.compile("Opera/([0-9.]+)", Pattern.CASE_INSENSITIVE)),
+				RequiredLiteralExtractor.extract("Opera/([0-9.]+)", Pattern.CASE_INSENSITIVE));
+		Assert.assertTrue(RequiredLiteralExtractor.extract("Opera/([0-9.]+)", Pattern.COMMENTS).isEmpty());
+	}
+
+	@Test
+	public void giveMeCoverageForMyPrivateConstructor() throws Exception {
+		// reduces only some noise in coverage report
+		final Constructor<RequiredLiteralExtractor> constructor = RequiredLiteralExtractor.class.getDeclaredConstructor(String.class);
+		constructor.setAccessible(true);
+		constructor.newInstance("");
+	}
+
+}
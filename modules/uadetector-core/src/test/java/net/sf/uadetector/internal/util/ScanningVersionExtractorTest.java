@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import net.sf.uadetector.Latin1CharSequence;
+import net.sf.uadetector.OperatingSystemFamily;
+import net.sf.uadetector.VersionExtractor;
+import net.sf.uadetector.VersionNumber;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ScanningVersionExtractorTest {
+
+	/**
+	 * Regular expressions which were evaluated for the hand-scanned families before
+	 */
+	private static final PatternVersionExtractor ANDROID = new PatternVersionExtractor(
+			Pattern.compile("Android\\s?((\\d+)((\\.\\d+)+)?(\\-(\\w|\\d)+)?);"),
+			Pattern.compile("Android\\-((\\d+)((\\.\\d+)+)?(\\-(\\w|\\d)+)?);"));
+
+	private static final PatternVersionExtractor IOS_WITH_UNDERLINE = new PatternVersionExtractor('_',
+			Pattern.compile("iPhone OS\\s?((\\d+)((\\_\\d+)+)?) like Mac OS X"),
+			Pattern.compile("CPU OS\\s?((\\d+)((\\_\\d+)+)?) like Mac OS X"));
+
+	private static final PatternVersionExtractor IOS_WITH_DOTS = new PatternVersionExtractor(
+			Pattern.compile("iPhone OS\\s?((\\d+)((\\.\\d+)+)?);"));
+
+	private static final PatternVersionExtractor OS_X_WITH_DOTS = new PatternVersionExtractor(
+			Pattern.compile("Mac OS X\\s?((\\d+)((\\.\\d+)+)?);"));
+
+	private static final PatternVersionExtractor OS_X_WITH_UNDERLINE = new PatternVersionExtractor('_',
+			Pattern.compile("Mac OS X\\s?((\\d+)((\\_\\d+)+)?);"), Pattern.compile("Mac OS X\\s?((\\d+)((\\_\\d+)+)?)\\)"));
+
+	private static final PatternVersionExtractor WINDOWS = new PatternVersionExtractor(
+			Pattern.compile("Windows NT\\s?((\\d+)((\\.\\d+)+)?)"), Pattern.compile("Windows Phone OS ((\\d+)((\\.\\d+)+)?)"),
+			Pattern.compile("Windows CE ((\\d+)((\\.\\d+)+)?)"), Pattern.compile("Windows 2000\\s?((\\d+)((\\.\\d+)+)?)"),
+			Pattern.compile("Windows XP\\s?((\\d+)((\\.\\d+)+)?)"), Pattern.compile("Windows 7\\s?((\\d+)((\\.\\d+)+)?)"),
+			Pattern.compile("Win 9x ((\\d+)((\\.\\d+)+)?)"), Pattern.compile("Windows ((\\d+)((\\.\\d+)+)?)"),
+			Pattern.compile("WebTV/((\\d+)((\\.\\d+)+)?)"));
+
+	private static final String[] TOKENS = { "Android", "Android-", "iPhone OS", "CPU OS", " like Mac OS X", "Mac OS X", "Windows NT",
+			"Windows ", "Windows Phone OS ", "Windows CE ", "Windows 7", "Win 9x ", "WebTV/", " ", "\t", "0", "1", "42", ".", "_", "-",
+			";", ")", "a", "Z", "(" };
+
+	private static VersionNumber extractWithDotsFirst(final VersionExtractor dots, final VersionExtractor underline, final String text) {
+		final VersionNumber version = dots.extract(text);
+		return VersionNumber.UNKNOWN.equals(version) ? underline.extract(text) : version;
+	}
+
+	private static VersionNumber extractWithUnderlineFirst(final VersionExtractor underline, final VersionExtractor dots,
+			final String text) {
+		final VersionNumber version = underline.extract(text);
+		return VersionNumber.UNKNOWN.equals(version) ? dots.extract(text) : version;
+	}
+
+	private static String randomText(final Random random) {
+		final StringBuilder builder = new StringBuilder();
+		final int count = random.nextInt(12);
+		for (int i = 0; i < count; i++) {
+			builder.append(TOKENS[random.nextInt(TOKENS.length)]);
+		}
+		return builder.toString();
+	}
+
+	@Test
+	public void construct_rules_containsNull() {
+		try {
+			new ScanningVersionExtractor(ScanningVersionExtractor.Rule.prefix("a"), null);
+			Assert.fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_rules_null() {
+		new ScanningVersionExtractor((ScanningVersionExtractor.Rule[]) null);
+	}
+
+	@Test
+	public void extract_behavesLikeRegularExpressions() {
+		final VersionExtractor android = VersionParser.getOperatingSystemVersionExtractor(OperatingSystemFamily.ANDROID);
+		final VersionExtractor ios = VersionParser.getOperatingSystemVersionExtractor(OperatingSystemFamily.IOS);
+		final VersionExtractor osx = VersionParser.getOperatingSystemVersionExtractor(OperatingSystemFamily.OS_X);
+		final VersionExtractor windows = VersionParser.getOperatingSystemVersionExtractor(OperatingSystemFamily.WINDOWS);
+
+		final Random random = new Random(4711);
+		for (int i = 0; i < 50000; i++) {
+			final String text = randomText(random);
+			Assert.assertEquals(text, ANDROID.extract(text), android.extract(text));
+			Assert.assertEquals(text, extractWithUnderlineFirst(IOS_WITH_UNDERLINE, IOS_WITH_DOTS, text), ios.extract(text));
+			Assert.assertEquals(text, extractWithDotsFirst(OS_X_WITH_DOTS, OS_X_WITH_UNDERLINE, text), osx.extract(text));
+			Assert.assertEquals(text, WINDOWS.extract(text), windows.extract(text));
+		}
+	}
+
+	@Test
+	public void extract_fromView_sameAsFromString() throws Exception {
+		final VersionExtractor android = VersionParser.getOperatingSystemVersionExtractor(OperatingSystemFamily.ANDROID);
+		final VersionExtractor windows = VersionParser.getOperatingSystemVersionExtractor(OperatingSystemFamily.WINDOWS);
+
+		final Random random = new Random(4712);
+		for (int i = 0; i < 10000; i++) {
+			final String text = randomText(random);
+			final Latin1CharSequence view = new Latin1CharSequence(text.getBytes("ISO-8859-1"));
+			Assert.assertEquals(text, android.extract(text), android.extract(view));
+			Assert.assertEquals(text, windows.extract(text), windows.extract(view));
+		}
+	}
+
+	@Test
+	public void extract_extension() {
+		final ScanningVersionExtractor extractor = new ScanningVersionExtractor(ScanningVersionExtractor.Rule.prefix("Android")
+				.withOptionalWhitespace().withExtension().withTerminator(";"));
+		final VersionNumber version = extractor.extract("Mozilla/5.0 (Linux; U; Android 2.3.4-update1; en-us)");
+		Assert.assertEquals("2.3.4-update1", version.toVersionString());
+		Assert.assertEquals("-update1", version.getExtension());
+	}
+
+	@Test
+	public void extract_noMatch() {
+		final ScanningVersionExtractor extractor = new ScanningVersionExtractor(ScanningVersionExtractor.Rule.prefix("Windows NT"));
+		Assert.assertSame(VersionNumber.UNKNOWN, extractor.extract("Windows NT"));
+		Assert.assertSame(VersionNumber.UNKNOWN, extractor.extract("Windows NT x"));
+		Assert.assertSame(VersionNumber.UNKNOWN, new ScanningVersionExtractor().extract("Windows NT 6.1"));
+	}
+
+	@Test
+	public void extract_secondOccurrence() {
+		final ScanningVersionExtractor extractor = new ScanningVersionExtractor(ScanningVersionExtractor.Rule.prefix("Mac OS X")
+				.withOptionalWhitespace().withSeparator('_').withTerminator(")"));
+		Assert.assertEquals("10.7.3", extractor.extract("Mac OS X; Intel Mac OS X 10_7_3)").toVersionString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void extract_userAgent_null() {
+		new ScanningVersionExtractor().extract(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rule_prefix_empty() {
+		ScanningVersionExtractor.Rule.prefix("");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rule_prefix_null() {
+		ScanningVersionExtractor.Rule.prefix(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rule_terminator_null() {
+		ScanningVersionExtractor.Rule.prefix("a").withTerminator(null);
+	}
+
+}
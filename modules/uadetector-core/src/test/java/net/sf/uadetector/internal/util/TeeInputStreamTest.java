@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.internal.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TeeInputStreamTest {
+
+	private static final byte[] CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz".getBytes();
+
+	@Test
+	public void close_closesBoth() throws IOException {
+		final boolean[] closed = new boolean[2];
+		final InputStream stream = new ByteArrayInputStream(CONTENT) {
+			@Override
+			public void close() {
+				closed[0] = true;
+			}
+		};
+		final OutputStream branch = new ByteArrayOutputStream() {
+			@Override
+			public void close() {
+				closed[1] = true;
+			}
+		};
+		new TeeInputStream(stream, branch).close();
+		Assert.assertTrue(closed[0]);
+		Assert.assertTrue(closed[1]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_branch_null() {
+		new TeeInputStream(new ByteArrayInputStream(CONTENT), null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_stream_null() {
+		new TeeInputStream(null, new ByteArrayOutputStream());
+	}
+
+	@Test
+	public void drain() throws IOException {
+		final ByteArrayOutputStream branch = new ByteArrayOutputStream();
+		final TeeInputStream tee = new TeeInputStream(new ByteArrayInputStream(CONTENT), branch);
+		Assert.assertEquals('0', tee.read());
+		Assert.assertEquals(CONTENT.length - 1, tee.drain());
+		Assert.assertEquals(0, tee.drain());
+		Assert.assertArrayEquals(CONTENT, branch.toByteArray());
+	}
+
+	@Test
+	public void mark_notSupported() {
+		final TeeInputStream tee = new TeeInputStream(new ByteArrayInputStream(CONTENT), new ByteArrayOutputStream());
+		Assert.assertFalse(tee.markSupported());
+		tee.mark(10);
+		try {
+			tee.reset();
+			Assert.fail("IOException expected");
+		} catch (final IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void read() throws IOException {
+		final ByteArrayOutputStream branch = new ByteArrayOutputStream();
+		final TeeInputStream tee = new TeeInputStream(new ByteArrayInputStream(CONTENT), branch);
+		final byte[] buffer = new byte[10];
+		Assert.assertEquals('0', tee.read());
+		Assert.assertEquals(5, tee.read(buffer, 2, 5));
+		Assert.assertEquals('1', buffer[2]);
+		Assert.assertEquals("012345", new String(branch.toByteArray()));
+	}
+
+	@Test
+	public void read_end() throws IOException {
+		final ByteArrayOutputStream branch = new ByteArrayOutputStream();
+		final TeeInputStream tee = new TeeInputStream(new ByteArrayInputStream(new byte[0]), branch);
+		Assert.assertEquals(-1, tee.read());
+		Assert.assertEquals(-1, tee.read(new byte[4]));
+		Assert.assertEquals(0, branch.size());
+	}
+
+	@Test
+	public void skip_copiesSkippedBytes() throws IOException {
+		final ByteArrayOutputStream branch = new ByteArrayOutputStream();
+		final TeeInputStream tee = new TeeInputStream(new ByteArrayInputStream(CONTENT), branch);
+		Assert.assertEquals(10, tee.skip(10));
+		Assert.assertEquals('a', tee.read());
+		Assert.assertEquals(CONTENT.length - 11, tee.skip(100));
+		Assert.assertEquals(0, tee.skip(-1));
+		Assert.assertArrayEquals(CONTENT, branch.toByteArray());
+	}
+
+}
@@ -276,6 +276,29 @@ public class VersionParserTest {
 		Assert.assertEquals("6.2", VersionParser.parseOperatingSystemVersion(OperatingSystemFamily.WINDOWS, windows8).toVersionString());
 	}
 
+	@Test
+	public void getOperatingSystemVersionExtractor() {
+		Assert.assertNotNull(VersionParser.getOperatingSystemVersionExtractor(OperatingSystemFamily.WINDOWS));
+		Assert.assertNull(VersionParser.getOperatingSystemVersionExtractor(OperatingSystemFamily.UNKNOWN));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void getOperatingSystemVersionExtractor_family_null() {
+		VersionParser.getOperatingSystemVersionExtractor(null);
+	}
+
+	@Test
+	public void getOperatingSystemVersionExtractors() {
+		Assert.assertSame(VersionParser.getOperatingSystemVersionExtractor(OperatingSystemFamily.WINDOWS), VersionParser
+				.getOperatingSystemVersionExtractors().get(OperatingSystemFamily.WINDOWS));
+		Assert.assertFalse(VersionParser.getOperatingSystemVersionExtractors().containsKey(OperatingSystemFamily.UNKNOWN));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void getOperatingSystemVersionExtractors_unmodifiable() {
+		VersionParser.getOperatingSystemVersionExtractors().put(OperatingSystemFamily.SOLARIS, new ScanningVersionExtractor());
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void parseOperatingSystemVersion_family_null() {
 		VersionParser.parseOperatingSystemVersion(null, "a user agent string");
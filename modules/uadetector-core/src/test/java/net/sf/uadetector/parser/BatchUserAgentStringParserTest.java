@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.uadetector.UserAgent;
+import net.sf.uadetector.UserAgentStringParser;
+import net.sf.uadetector.datastore.DataStore;
+import net.sf.uadetector.datastore.TestXmlDataStore;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchUserAgentStringParserTest {
+
+	/**
+	 * Parser which counts the calls of {@link #parse(String)}
+	 */
+	private static final class CountingParser implements UserAgentStringParser {
+		private final AtomicInteger calls = new AtomicInteger();
+
+		@Override
+		public String getDataVersion() {
+			return "1";
+		}
+
+		@Override
+		public UserAgent parse(final String userAgent) {
+			calls.incrementAndGet();
+			return new UserAgent.Builder(userAgent).setName(userAgent).build();
+		}
+	}
+
+	/**
+	 * Parser which fails for every user agent string
+	 */
+	private static final class FailingParser implements UserAgentStringParser {
+		@Override
+		public String getDataVersion() {
+			return "1";
+		}
+
+		@Override
+		public UserAgent parse(final String userAgent) {
+			throw new IllegalStateException("failure");
+		}
+	}
+
+	private static final UserAgentStringParserImpl<DataStore> PARSER = new UserAgentStringParserImpl<DataStore>(new TestXmlDataStore());
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_executor_null() {
+		new BatchUserAgentStringParser(new CountingParser(), null, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_parallelism_toSmall() {
+		new BatchUserAgentStringParser(new CountingParser(), Executors.newSingleThreadExecutor(), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_parser_null() {
+		new BatchUserAgentStringParser(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_threads_toSmall() {
+		new BatchUserAgentStringParser(new CountingParser(), 0);
+	}
+
+	@Test
+	public void parse_array() {
+		final BatchUserAgentStringParser parser = new BatchUserAgentStringParser(new CountingParser(), 1);
+		final BatchResult result = parser.parse(new String[] { "a", "b", "a" });
+		Assert.assertEquals(3, result.size());
+		Assert.assertEquals("a", result.getUserAgent(2).getName());
+		parser.shutdown();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parse_array_null() {
+		new BatchUserAgentStringParser(new CountingParser(), 1).parse((String[]) null);
+	}
+
+	@Test
+	public void parse_deduplicatesAndKeepsOrder() {
+		final List<String> userAgents = new ArrayList<String>();
+		for (int i = 0; i < 20000; i++) {
+			userAgents.add("ua-" + i % 3000);
+		}
+
+		final CountingParser delegate = new CountingParser();
+		final BatchUserAgentStringParser parser = new BatchUserAgentStringParser(delegate, 4);
+		final BatchResult result = parser.parse(userAgents);
+		parser.shutdown();
+
+		Assert.assertEquals(20000, result.size());
+		Assert.assertEquals(3000, result.getDistinctCount());
+		Assert.assertEquals(17000, result.getCacheHitCount());
+		Assert.assertEquals(3000, delegate.calls.get());
+		Assert.assertEquals("1", result.getDataVersion());
+		Assert.assertTrue(result.getElapsedTime(TimeUnit.NANOSECONDS) > 0);
+		for (int i = 0; i < userAgents.size(); i++) {
+			Assert.assertEquals(userAgents.get(i), result.getUserAgent(i).getName());
+		}
+		Assert.assertSame(result.getUserAgent(0), result.getUserAgent(3000));
+	}
+
+	@Test
+	public void parse_empty() {
+		final BatchResult result = new BatchUserAgentStringParser(new CountingParser(), 1).parse(new ArrayList<String>());
+		Assert.assertEquals(0, result.size());
+		Assert.assertEquals(0, result.getDistinctCount());
+		Assert.assertEquals(0, result.getCacheHitCount());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void parse_failure() {
+		final List<String> userAgents = new ArrayList<String>();
+		for (int i = 0; i < 2000; i++) {
+			userAgents.add("ua-" + i);
+		}
+		new BatchUserAgentStringParser(new FailingParser(), 2).parse(userAgents);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parse_list_containsNull() {
+		new BatchUserAgentStringParser(new CountingParser(), 1).parse(Arrays.asList("a", null));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parse_list_null() {
+		new BatchUserAgentStringParser(new CountingParser(), 1).parse((List<String>) null);
+	}
+
+	@Test
+	public void parse_sameResultsAsSingleParse() {
+		final List<String> userAgents = new ArrayList<String>();
+		for (int i = 0; i < 300; i++) {
+			userAgents.add("Mozilla/5.0 (Windows NT 6.1; WOW64; rv:15.0) Gecko/20120427 Firefox/15.0a1");
+			userAgents.add("Mozilla/5.0 (iPad; U; CPU OS 5_1 like Mac OS X; en_us) AppleWebKit/534.46 Version/5.1 Safari/7534.48.3");
+			userAgents.add("Googlebot/2.1 (+http://www.googlebot.com/bot.html)");
+			userAgents.add("Opera/9.80 (X11; FreeBSD 8.2-STABLE amd64; U; en) Presto/2.9.168 Version/11.52 #" + i);
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			final BatchResult result = new BatchUserAgentStringParser(PARSER, executor, 2).parse(userAgents);
+			Assert.assertEquals(PARSER.getDataVersion(), result.getDataVersion());
+			Assert.assertEquals(303, result.getDistinctCount());
+			for (int i = 0; i < userAgents.size(); i++) {
+				Assert.assertEquals(PARSER.parse(userAgents.get(i)), result.getUserAgent(i));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void result_unmodifiable() {
+		new BatchUserAgentStringParser(new CountingParser(), 1).parse(Arrays.asList("a")).getUserAgents().clear();
+	}
+
+}
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.uadetector.UserAgent;
+import net.sf.uadetector.UserAgentStringParser;
+import net.sf.uadetector.datastore.DataStore;
+import net.sf.uadetector.datastore.TestXmlDataStore;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CachingUserAgentStringParserTest {
+
+	/**
+	 * Parser which counts the calls of {@link #parse(String)} and reports a modifiable data version
+	 */
+	private static final class CountingParser implements UserAgentStringParser {
+		private final AtomicInteger calls = new AtomicInteger();
+		private volatile String version = "1";
+
+		@Override
+		public String getDataVersion() {
+			return version;
+		}
+
+		@Override
+		public UserAgent parse(final String userAgent) {
+			calls.incrementAndGet();
+			return userAgent == null ? UserAgent.EMPTY : new UserAgent.Builder(userAgent).setName(userAgent + "#" + version).build();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_maximumSize_toSmall() {
+		new CachingUserAgentStringParser(new CountingParser(), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_parser_null() {
+		new CachingUserAgentStringParser(null);
+	}
+
+	@Test
+	public void construct_successful() {
+		final CountingParser delegate = new CountingParser();
+		final CachingUserAgentStringParser parser = new CachingUserAgentStringParser(delegate);
+		Assert.assertSame(delegate, parser.getParser());
+		Assert.assertEquals(CachingUserAgentStringParser.DEFAULT_MAXIMUM_SIZE, parser.getMaximumSize());
+		Assert.assertEquals("1", parser.getDataVersion());
+		Assert.assertEquals(0, parser.size());
+	}
+
+	@Test
+	public void clear() {
+		final CountingParser delegate = new CountingParser();
+		final CachingUserAgentStringParser parser = new CachingUserAgentStringParser(delegate, 10);
+		parser.parse("a");
+		parser.parse("b");
+		Assert.assertEquals(2, parser.size());
+		parser.clear();
+		Assert.assertEquals(0, parser.size());
+		parser.parse("a");
+		Assert.assertEquals(3, delegate.calls.get());
+	}
+
+	@Test
+	public void parse_concurrently() throws Exception {
+		final CountingParser delegate = new CountingParser();
+		final CachingUserAgentStringParser parser = new CachingUserAgentStringParser(delegate, 1000);
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+			for (int t = 0; t < 8; t++) {
+				final int seed = t;
+				futures.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						boolean correct = true;
+						for (int i = 0; i < 20000; i++) {
+							final String ua = "ua" + (i * (seed + 1)) % 3000;
+							correct &= (ua + "#1").equals(parser.parse(ua).getName());
+						}
+						return correct;
+					}
+				}));
+			}
+			for (final Future<Boolean> future : futures) {
+				Assert.assertTrue(future.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		Assert.assertTrue(parser.size() <= 1000);
+	}
+
+	@Test
+	public void parse_dataVersionChanged() {
+		final CountingParser delegate = new CountingParser();
+		final CachingUserAgentStringParser parser = new CachingUserAgentStringParser(delegate, 10);
+		Assert.assertEquals("a#1", parser.parse("a").getName());
+		delegate.version = "2";
+		Assert.assertEquals("a#2", parser.parse("a").getName());
+		Assert.assertEquals("a#2", parser.parse("a").getName());
+		Assert.assertEquals(2, delegate.calls.get());
+		Assert.assertEquals(1, parser.size());
+	}
+
+	@Test
+	public void parse_hotSetSurvivesScan() {
+		final CountingParser delegate = new CountingParser();
+		final CachingUserAgentStringParser parser = new CachingUserAgentStringParser(delegate, 100);
+
+		// make some entries hot
+		for (int round = 0; round < 5; round++) {
+			for (int i = 0; i < 50; i++) {
+				parser.parse("hot" + i);
+			}
+		}
+		Assert.assertEquals(50, delegate.calls.get());
+
+		// flood the cache with one-off user agent strings while the hot entries are still requested now and then
+		int hotMisses = 0;
+		for (int i = 0; i < 10000; i++) {
+			parser.parse("once" + i);
+			if (i % 4 == 0) {
+				final int calls = delegate.calls.get();
+				parser.parse("hot" + i / 4 % 50);
+				hotMisses += delegate.calls.get() - calls;
+			}
+		}
+		Assert.assertTrue(parser.size() <= 100);
+		Assert.assertEquals(0, hotMisses);
+	}
+
+	@Test
+	public void parse_maximumSizeOfOne() {
+		final CountingParser delegate = new CountingParser();
+		final CachingUserAgentStringParser parser = new CachingUserAgentStringParser(delegate, 1);
+		parser.parse("a");
+		parser.parse("b");
+		parser.parse("c");
+		Assert.assertEquals(1, parser.size());
+	}
+
+	@Test
+	public void parse_null() {
+		final CountingParser delegate = new CountingParser();
+		final CachingUserAgentStringParser parser = new CachingUserAgentStringParser(delegate);
+		parser.parse(null);
+		parser.parse(null);
+		Assert.assertEquals(2, delegate.calls.get());
+		Assert.assertEquals(0, parser.size());
+	}
+
+	@Test
+	public void parse_repeatedUserAgentString() {
+		final CountingParser delegate = new CountingParser();
+		final CachingUserAgentStringParser parser = new CachingUserAgentStringParser(delegate);
+		final UserAgent first = parser.parse("Mozilla/5.0");
+		Assert.assertSame(first, parser.parse("Mozilla/5.0"));
+		Assert.assertEquals(1, delegate.calls.get());
+	}
+
+	@Test
+	public void parse_sameResultAsDecoratedParser() {
+		final UserAgentStringParserImpl<DataStore> delegate = new UserAgentStringParserImpl<DataStore>(new TestXmlDataStore());
+		final CachingUserAgentStringParser parser = new CachingUserAgentStringParser(delegate);
+		final String userAgent = "Mozilla/5.0 (Windows NT 6.1; WOW64; rv:15.0) Gecko/20120716 Firefox/15.0a2";
+		Assert.assertEquals(delegate.parse(userAgent), parser.parse(userAgent));
+		Assert.assertEquals(delegate.parse(userAgent), parser.parse(userAgent));
+	}
+
+}
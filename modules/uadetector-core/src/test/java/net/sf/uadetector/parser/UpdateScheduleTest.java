@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.parser;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UpdateScheduleTest {
+
+	private static final long INTERVAL = 1000L * 60L * 60L * 24L;
+
+	private static final long MINUTE = 1000L * 60L;
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_jitter_toLarge() {
+		new UpdateSchedule(1.1d, MINUTE, 3, 4);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_jitter_negative() {
+		new UpdateSchedule(-0.1d, MINUTE, 3, 4);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_maxStretch_zero() {
+		new UpdateSchedule(0.1d, MINUTE, 3, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_retryDelay_zero() {
+		new UpdateSchedule(0.1d, 0L, 3, 4);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_stretchAfter_zero() {
+		new UpdateSchedule(0.1d, MINUTE, 0, 4);
+	}
+
+	@Test
+	public void getBaseDelay_backoff() {
+		final UpdateSchedule schedule = UpdateSchedule.DEFAULT;
+		Assert.assertEquals(MINUTE, schedule.getBaseDelay(INTERVAL, 1, 0));
+		Assert.assertEquals(2 * MINUTE, schedule.getBaseDelay(INTERVAL, 2, 0));
+		Assert.assertEquals(4 * MINUTE, schedule.getBaseDelay(INTERVAL, 3, 0));
+		Assert.assertEquals(512 * MINUTE, schedule.getBaseDelay(INTERVAL, 10, 0));
+
+		// the retries are never less frequent than the regular checks
+		Assert.assertEquals(INTERVAL, schedule.getBaseDelay(INTERVAL, 12, 0));
+		Assert.assertEquals(INTERVAL, schedule.getBaseDelay(INTERVAL, Integer.MAX_VALUE, 0));
+		Assert.assertEquals(100L, schedule.getBaseDelay(100L, 1, 0));
+
+		// failures take precedence over stretching
+		Assert.assertEquals(MINUTE, schedule.getBaseDelay(INTERVAL, 1, 100));
+	}
+
+	@Test
+	public void getBaseDelay_fixed() {
+		final UpdateSchedule schedule = UpdateSchedule.FIXED;
+		Assert.assertEquals(INTERVAL, schedule.getBaseDelay(INTERVAL, 0, 0));
+		Assert.assertEquals(INTERVAL, schedule.getBaseDelay(INTERVAL, 5, 0));
+		Assert.assertEquals(INTERVAL, schedule.getBaseDelay(INTERVAL, 0, Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void getBaseDelay_stretched() {
+		final UpdateSchedule schedule = UpdateSchedule.DEFAULT;
+		Assert.assertEquals(INTERVAL, schedule.getBaseDelay(INTERVAL, 0, 0));
+		Assert.assertEquals(INTERVAL, schedule.getBaseDelay(INTERVAL, 0, 2));
+		Assert.assertEquals(2 * INTERVAL, schedule.getBaseDelay(INTERVAL, 0, 3));
+		Assert.assertEquals(4 * INTERVAL, schedule.getBaseDelay(INTERVAL, 0, 6));
+		Assert.assertEquals(4 * INTERVAL, schedule.getBaseDelay(INTERVAL, 0, Integer.MAX_VALUE));
+		Assert.assertEquals(Long.MAX_VALUE, schedule.getBaseDelay(Long.MAX_VALUE, 0, Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void getDelay_jitter() {
+		final UpdateSchedule schedule = new UpdateSchedule(0.1d, MINUTE, 3, 4);
+		final Random random = new Random(42L);
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		for (int i = 0; i < 1000; i++) {
+			final long delay = schedule.getDelay(INTERVAL, 0, 0, random);
+			min = Math.min(min, delay);
+			max = Math.max(max, delay);
+		}
+		Assert.assertTrue(min >= INTERVAL * 9 / 10);
+		Assert.assertTrue(max <= INTERVAL * 11 / 10);
+
+		// the delays are spread over the whole range
+		Assert.assertTrue(min < INTERVAL * 92 / 100);
+		Assert.assertTrue(max > INTERVAL * 108 / 100);
+	}
+
+	@Test
+	public void getDelay_withoutJitter() {
+		Assert.assertEquals(INTERVAL, UpdateSchedule.FIXED.getDelay(INTERVAL, 0, 0, new Random()));
+		Assert.assertEquals(0L, UpdateSchedule.DEFAULT.getDelay(0L, 0, 0, new Random()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void getDelay_consecutiveFailures_negative() {
+		UpdateSchedule.DEFAULT.getDelay(INTERVAL, -1, 0, new Random());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void getDelay_interval_negative() {
+		UpdateSchedule.DEFAULT.getDelay(-1L, 0, 0, new Random());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void getDelay_random_null() {
+		UpdateSchedule.DEFAULT.getDelay(INTERVAL, 0, 0, null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void getDelay_unchangedChecks_negative() {
+		UpdateSchedule.DEFAULT.getDelay(INTERVAL, 0, -1, new Random());
+	}
+
+	@Test
+	public void getters() {
+		final UpdateSchedule schedule = new UpdateSchedule(0.2d, MINUTE, 5, 8);
+		Assert.assertEquals(0.2d, schedule.getJitter(), 0d);
+		Assert.assertEquals(MINUTE, schedule.getRetryDelay());
+		Assert.assertEquals(5, schedule.getStretchAfter());
+		Assert.assertEquals(8, schedule.getMaxStretch());
+	}
+
+}
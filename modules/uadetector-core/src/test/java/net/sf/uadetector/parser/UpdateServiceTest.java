@@ -15,6 +15,7 @@
  ******************************************************************************/
 package net.sf.uadetector.parser;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
@@ -24,8 +25,10 @@ import net.sf.uadetector.datastore.AbstractDataStore;
 import net.sf.uadetector.datastore.DataStore;
 import net.sf.uadetector.datastore.NotUpdateableXmlDataStore;
 import net.sf.uadetector.datastore.RefreshableDataStore;
+import net.sf.uadetector.datastore.ReportingRefreshableDataStore;
 import net.sf.uadetector.datastore.TestXmlDataStore;
 import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.util.LocalHttpServer;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -43,6 +46,32 @@ public class UpdateServiceTest {
 		}
 	}
 
+	private static class TestHttpDataStore extends AbstractDataStore implements ReportingRefreshableDataStore {
+
+		private boolean failing = false;
+
+		private int refreshes = 0;
+
+		protected TestHttpDataStore(final URL versionUrl) {
+			super(new XmlDataReader(), TestXmlDataStore.DATA_URL, versionUrl, CHARSET);
+		}
+
+		@Override
+		public void refresh() {
+			tryRefresh();
+		}
+
+		@Override
+		public boolean tryRefresh() {
+			refreshes++;
+			if (failing) {
+				return false;
+			}
+			setData(getDataReader().read(DATA_URL, getCharset()));
+			return true;
+		}
+	}
+
 	/**
 	 * The character set to read UAS data
 	 */
@@ -64,10 +93,92 @@ public class UpdateServiceTest {
 		service.call();
 	}
 
+	@Test
+	public void call_conditionalVersionRequest() throws IOException {
+		final LocalHttpServer server = new LocalHttpServer();
+		try {
+			server.setContent("20120822-01".getBytes(CHARSET));
+			server.setEntityTag("\"20120822-01\"");
+			final TestHttpDataStore store = new TestHttpDataStore(server.getUrl("/uas.version"));
+			final UpdateService service = new UpdateService(store);
+			service.call();
+			Assert.assertEquals(1, store.refreshes);
+			Assert.assertEquals("20120822-01", store.getData().getVersion());
+
+			// the version has not been modified, so the version of the last request will be reused
+			service.call();
+			Assert.assertEquals(1, store.refreshes);
+			Assert.assertEquals(2, server.getRequestCount());
+			Assert.assertEquals(1, server.getNotModifiedCount());
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void call_countFailures() throws IOException {
+		final LocalHttpServer server = new LocalHttpServer();
+		try {
+			server.setContent("20120822-01".getBytes(CHARSET));
+			server.setStatus(500);
+			final TestHttpDataStore store = new TestHttpDataStore(server.getUrl("/uas.version"));
+			final UpdateService service = new UpdateService(store);
+			service.call();
+			service.call();
+			Assert.assertEquals(2, service.getConsecutiveFailures());
+			Assert.assertEquals(2, service.getFailureCount());
+			Assert.assertEquals(0, store.refreshes);
+
+			// a successful check resets the consecutive failures, but not the total count
+			server.setStatus(200);
+			service.call();
+			Assert.assertEquals(0, service.getConsecutiveFailures());
+			Assert.assertEquals(2, service.getFailureCount());
+			Assert.assertEquals(0, service.getUnchangedChecks());
+			Assert.assertEquals(1, store.refreshes);
+
+			service.call();
+			service.call();
+			Assert.assertEquals(2, service.getUnchangedChecks());
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void call_countFailedRefreshes() throws IOException {
+		final LocalHttpServer server = new LocalHttpServer();
+		try {
+			server.setContent("20120822-01".getBytes(CHARSET));
+			final TestHttpDataStore store = new TestHttpDataStore(server.getUrl("/uas.version"));
+			store.failing = true;
+			final UpdateService service = new UpdateService(store);
+			service.call();
+			service.call();
+			Assert.assertEquals(2, store.refreshes);
+			Assert.assertEquals(2, service.getConsecutiveFailures());
+			Assert.assertEquals(2, service.getFailureCount());
+			Assert.assertEquals("20120817-01", store.getData().getVersion());
+
+			// the update is still available, so the next check refreshes the store again
+			store.failing = false;
+			service.call();
+			Assert.assertEquals(3, store.refreshes);
+			Assert.assertEquals(0, service.getConsecutiveFailures());
+			Assert.assertEquals(2, service.getFailureCount());
+			Assert.assertEquals("20120822-01", store.getData().getVersion());
+		} finally {
+			server.stop();
+		}
+	}
+
 	@Test
 	public void call_notReachable() throws MalformedURLException {
 		final UpdateService service = new UpdateService(new NotUpdateableXmlDataStore());
 		service.call();
+		Assert.assertEquals(1, service.getConsecutiveFailures());
+		Assert.assertEquals(1, service.getFailureCount());
+		Assert.assertTrue(service.getLastUpdateCheck() > 0);
 	}
 
 	@Test
@@ -122,6 +233,14 @@ public class UpdateServiceTest {
 		Assert.assertTrue(service.getLastUpdateCheck() >= startTime);
 	}
 
+	@Test
+	public void getNextUpdateCheck() {
+		final UpdateService service = new UpdateService(new TestXmlDataStore());
+		Assert.assertEquals(0, service.getNextUpdateCheck());
+		service.setNextUpdateCheck(42L);
+		Assert.assertEquals(42L, service.getNextUpdateCheck());
+	}
+
 	@Test
 	public void run() {
 		final UpdateService service = new UpdateService(new TestXmlDataStore());
@@ -230,6 +230,62 @@ public class UpdatingUserAgentStringParserImplTest {
 		Assert.assertEquals(OperatingSystem.EMPTY, agent.getOperatingSystem());
 	}
 
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_initialDelay_negative() {
+		new UpdatingUserAgentStringParserImpl(new TestXmlDataStore(), PatternMatchingEngine.SEQUENTIAL, -1l);
+	}
+
+	@Test
+	public void construct_initialDelay() throws InterruptedException {
+		final UpdatingUserAgentStringParserImpl parser = new UpdatingUserAgentStringParserImpl(new TestXmlDataStore(),
+				PatternMatchingEngine.SEQUENTIAL, 60000l);
+
+		// the first check is deferred, even if the interval changes
+		parser.setUpdateInterval(100l);
+		Thread.sleep(500l);
+		Assert.assertEquals(0l, parser.getUpdater().getLastUpdateCheck());
+	}
+
+	@Test
+	public void getNextUpdateCheck() {
+		final long start = System.currentTimeMillis();
+		final UpdatingUserAgentStringParserImpl parser = new UpdatingUserAgentStringParserImpl(new TestXmlDataStore(),
+				PatternMatchingEngine.SEQUENTIAL, 60000l);
+		final long next = parser.getUpdater().getNextUpdateCheck();
+		Assert.assertTrue(next >= start + 54000l);
+		Assert.assertTrue(next <= System.currentTimeMillis() + 66000l);
+	}
+
+	@Test
+	public void getUpdateSchedule() {
+		final UpdatingUserAgentStringParserImpl parser = new UpdatingUserAgentStringParserImpl(new TestXmlDataStore());
+		Assert.assertSame(UpdateSchedule.DEFAULT, parser.getUpdateSchedule());
+		parser.setUpdateSchedule(UpdateSchedule.FIXED);
+		Assert.assertSame(UpdateSchedule.FIXED, parser.getUpdateSchedule());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setUpdateSchedule_null() {
+		new UpdatingUserAgentStringParserImpl(new TestXmlDataStore()).setUpdateSchedule(null);
+	}
+
+	@Test
+	public void testBackoffAfterFailures() throws InterruptedException {
+		final UpdatingUserAgentStringParserImpl parser = new UpdatingUserAgentStringParserImpl(new NotUpdateableXmlDataStore());
+		parser.setUpdateSchedule(new UpdateSchedule(0d, 50l, 1, 1));
+		parser.setUpdateInterval(60000l);
+
+		// the failed checks will be retried after 50, 100, 200, 400 ms and so on instead of once per minute
+		final long timeout = System.currentTimeMillis() + 10000l;
+		while (parser.getUpdater().getFailureCount() < 3 && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10l);
+		}
+		Assert.assertTrue(parser.getUpdater().getFailureCount() >= 3);
+		Assert.assertTrue(parser.getUpdater().getConsecutiveFailures() >= 3);
+		Assert.assertTrue(parser.getUpdater().getNextUpdateCheck() > parser.getUpdater().getLastUpdateCheck());
+		Assert.assertTrue(parser.getUpdater().getNextUpdateCheck() < System.currentTimeMillis() + 60000l);
+	}
+
 	@Test
 	public void refresh() throws Exception {
 		final UpdatingUserAgentStringParserImpl parser = new UpdatingUserAgentStringParserImpl(new TestXmlDataStore());
@@ -242,6 +298,26 @@ public class UpdatingUserAgentStringParserImplTest {
 		parser.setUpdateInterval(-1l);
 	}
 
+	@Test(expected = IllegalArgumentException.class)
+	public void setUpdateInterval_zero() throws MalformedURLException {
+		final UpdatingUserAgentStringParserImpl parser = new UpdatingUserAgentStringParserImpl(new TestXmlDataStore());
+		parser.setUpdateInterval(0l);
+	}
+
+	@Test
+	public void shutdown() throws InterruptedException {
+		final UpdatingUserAgentStringParserImpl parser = new UpdatingUserAgentStringParserImpl(new TestXmlDataStore());
+		parser.setUpdateInterval(100l);
+		parser.shutdown();
+		final long lastUpdateCheck = parser.getUpdater().getLastUpdateCheck();
+
+		// no more checks will be performed, but the parser can still be used
+		parser.setUpdateInterval(100l);
+		Thread.sleep(500l);
+		Assert.assertEquals(lastUpdateCheck, parser.getUpdater().getLastUpdateCheck());
+		Assert.assertEquals("IE", parser.parse("Mozilla/5.0 (compatible; MSIE 9.0; Windows NT 6.1; Trident/5.0)").getName());
+	}
+
 	@Test
 	public void testUpdateMechanismWhileParsing() throws InterruptedException {
 		final UpdatingUserAgentStringParserImpl parser = new UpdatingUserAgentStringParserImpl(new TestXmlDataStore());
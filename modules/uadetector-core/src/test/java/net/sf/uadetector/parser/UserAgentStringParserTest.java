@@ -15,15 +15,37 @@
  ******************************************************************************/
 package net.sf.uadetector.parser;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+import net.sf.uadetector.MutableUserAgent;
 import net.sf.uadetector.OperatingSystem;
 import net.sf.uadetector.OperatingSystemFamily;
 import net.sf.uadetector.UserAgent;
 import net.sf.uadetector.UserAgentFamily;
 import net.sf.uadetector.UserAgentType;
+import net.sf.uadetector.VersionExtractor;
 import net.sf.uadetector.VersionNumber;
+import net.sf.uadetector.datareader.XmlDataReader;
+import net.sf.uadetector.datastore.AbstractDataStore;
 import net.sf.uadetector.datastore.DataStore;
 import net.sf.uadetector.datastore.TestXmlDataStore;
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.internal.data.PatternAutomaton;
+import net.sf.uadetector.internal.data.domain.Browser;
+import net.sf.uadetector.internal.data.domain.BrowserPattern;
+import net.sf.uadetector.internal.data.domain.OperatingSystemPattern;
 import net.sf.uadetector.internal.data.domain.Robot;
+import net.sf.uadetector.internal.util.ScanningVersionExtractor;
+import net.sf.uadetector.internal.util.VersionParser;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -41,6 +63,11 @@ public class UserAgentStringParserTest {
 		new UserAgentStringParserImpl<DataStore>(null);
 	}
 
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_engine_null() throws Exception {
+		new UserAgentStringParserImpl<DataStore>(new TestXmlDataStore(), null);
+	}
+
 	@Test
 	public void getCurrentVersion() {
 		Assert.assertEquals("20120817-01", PARSER.getDataStore().getData().getVersion());
@@ -53,6 +80,270 @@ public class UserAgentStringParserTest {
 		Assert.assertNotNull(PARSER.getDataStore().getData());
 	}
 
+	@Test
+	public void parse_invalidPattern() throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final InputStream in = TestXmlDataStore.DATA_URL.openStream();
+		try {
+			final byte[] buffer = new byte[8 * 1024];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		final String valid = "<regstring>/mozilla.*Blazer\\/([0-9a-z\\+\\-\\.]+)/si</regstring>";
+		final String xml = new String(out.toByteArray(), DataStore.DEFAULT_CHARSET);
+		Assert.assertTrue(xml.contains(valid));
+		final byte[] content = xml.replace(valid, "<regstring>/mozilla.*Blazer\\/(bar/si</regstring>").getBytes(DataStore.DEFAULT_CHARSET);
+
+		// an invalid expression is read without an error and never matches
+		final Data data = new XmlDataReader().readStrictly(new ByteArrayInputStream(content), DataStore.DEFAULT_CHARSET);
+		final DataStore store = new AbstractDataStore(data, new XmlDataReader(), TestXmlDataStore.DATA_URL, TestXmlDataStore.VERSION_URL,
+				DataStore.DEFAULT_CHARSET) {
+		};
+		final String userAgentString = "Mozilla/4.0 (compatible; MSIE 6.0; Windows 98; PalmSource/hspr-H102; Blazer/4.0) 16;320x320";
+		Assert.assertEquals("Blazer", PARSER.parse(userAgentString).getName());
+		for (final PatternMatchingEngine engine : PatternMatchingEngine.values()) {
+			final UserAgentStringParserImpl<DataStore> parser = new UserAgentStringParserImpl<DataStore>(store, engine);
+			for (int i = 0; i < 2; i++) {
+				Assert.assertFalse("Blazer".equals(parser.parse(userAgentString).getName()));
+			}
+		}
+	}
+
+	@Test
+	public void releaseStaleParseContexts() throws Exception {
+		final AtomicReference<Data> current = new AtomicReference<Data>(new XmlDataReader().read(TestXmlDataStore.DATA_URL,
+				DataStore.DEFAULT_CHARSET));
+		final DataStore store = new AbstractDataStore(Data.EMPTY, new XmlDataReader(), TestXmlDataStore.DATA_URL,
+				TestXmlDataStore.VERSION_URL, DataStore.DEFAULT_CHARSET) {
+			@Override
+			public Data getData() {
+				return current.get();
+			}
+		};
+		final UserAgentStringParserImpl<DataStore> parser = new UserAgentStringParserImpl<DataStore>(store);
+		final String userAgent = "Mozilla/5.0 (compatible; MSIE 9.0; Windows NT 6.1; Trident/5.0)";
+		Assert.assertEquals("IE", parser.parse(userAgent, new MutableUserAgent()).getName());
+
+		// the working memory of this thread must not keep the previous data reachable
+		final WeakReference<Data> previous = new WeakReference<Data>(current.get());
+		current.set(new XmlDataReader().read(TestXmlDataStore.DATA_URL_NEWER, DataStore.DEFAULT_CHARSET));
+		parser.releaseStaleParseContexts();
+		for (int i = 0; i < 100 && previous.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10l);
+		}
+		Assert.assertNull(previous.get());
+		Assert.assertEquals("IE", parser.parse(userAgent, new MutableUserAgent()).getName());
+	}
+
+	@Test
+	public void shutdown() {
+		final UserAgentStringParserImpl<DataStore> parser = new UserAgentStringParserImpl<DataStore>(PARSER.getDataStore());
+		final String userAgent = "Mozilla/5.0 (compatible; MSIE 9.0; Windows NT 6.1; Trident/5.0)";
+		final UserAgent expected = parser.parse(userAgent);
+		Assert.assertEquals(expected, parser.parse(userAgent, new MutableUserAgent()).toUserAgent());
+		parser.shutdown();
+
+		// the working memory will be built again
+		Assert.assertEquals(expected, parser.parse(userAgent, new MutableUserAgent()).toUserAgent());
+	}
+
+	@Test
+	public void setOperatingSystemVersionExtractor() {
+		final VersionExtractor fixed = new VersionExtractor() {
+			@Override
+			public VersionNumber extract(final CharSequence userAgent) {
+				return new VersionNumber("42");
+			}
+		};
+		final String userAgent = "Mozilla/5.0 (compatible; MSIE 9.0; Windows NT 6.1; Trident/5.0)";
+		final UserAgentStringParserImpl<DataStore> parser = new UserAgentStringParserImpl<DataStore>(PARSER.getDataStore());
+		final MutableUserAgent agent = new MutableUserAgent();
+		Assert.assertEquals("6.1", parser.parse(userAgent, agent).getOperatingSystem().getVersionNumber().toVersionString());
+
+		final VersionExtractor original = VersionParser.getOperatingSystemVersionExtractor(OperatingSystemFamily.WINDOWS);
+		Assert.assertSame(original, parser.getOperatingSystemVersionExtractor(OperatingSystemFamily.WINDOWS));
+		Assert.assertSame(original, parser.setOperatingSystemVersionExtractor(OperatingSystemFamily.WINDOWS, fixed));
+		Assert.assertSame(fixed, parser.getOperatingSystemVersionExtractor(OperatingSystemFamily.WINDOWS));
+		Assert.assertEquals("42", parser.parse(userAgent).getOperatingSystem().getVersionNumber().toVersionString());
+		Assert.assertEquals("42", parser.parse(userAgent, agent).getOperatingSystem().getVersionNumber().toVersionString());
+
+		// other parsers and the built-in extractors are not affected
+		Assert.assertSame(original, PARSER.getOperatingSystemVersionExtractor(OperatingSystemFamily.WINDOWS));
+		Assert.assertSame(original, VersionParser.getOperatingSystemVersionExtractor(OperatingSystemFamily.WINDOWS));
+		Assert.assertEquals("6.1", PARSER.parse(userAgent).getOperatingSystem().getVersionNumber().toVersionString());
+		Assert.assertEquals("6.1", PARSER.parse(userAgent, agent).getOperatingSystem().getVersionNumber().toVersionString());
+	}
+
+	@Test
+	public void setOperatingSystemVersionExtractor_unsupportedFamily() {
+		final String userAgent = "Mozilla/5.0 (X11; U; SunOS sun4u; en-US; rv:1.8.1.11) Gecko/20080118 Firefox/2.0.0.11";
+		final UserAgentStringParserImpl<DataStore> parser = new UserAgentStringParserImpl<DataStore>(PARSER.getDataStore());
+		Assert.assertEquals(OperatingSystemFamily.SOLARIS, parser.parse(userAgent).getOperatingSystem().getFamily());
+		Assert.assertNull(parser.getOperatingSystemVersionExtractor(OperatingSystemFamily.SOLARIS));
+		Assert.assertNull(parser.setOperatingSystemVersionExtractor(OperatingSystemFamily.SOLARIS, new ScanningVersionExtractor(
+				ScanningVersionExtractor.Rule.prefix("rv:"))));
+		Assert.assertEquals("1.8.1.11", parser.parse(userAgent).getOperatingSystem().getVersionNumber().toVersionString());
+		Assert.assertEquals(VersionNumber.UNKNOWN, PARSER.parse(userAgent).getOperatingSystem().getVersionNumber());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setOperatingSystemVersionExtractor_extractor_null() {
+		new UserAgentStringParserImpl<DataStore>(PARSER.getDataStore()).setOperatingSystemVersionExtractor(OperatingSystemFamily.SOLARIS,
+				null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setOperatingSystemVersionExtractor_family_null() {
+		new UserAgentStringParserImpl<DataStore>(PARSER.getDataStore()).setOperatingSystemVersionExtractor(null,
+				new ScanningVersionExtractor());
+	}
+
+	@Test
+	public void parse_withDfaEngine() {
+		final UserAgentStringParserImpl<DataStore> dfa = new UserAgentStringParserImpl<DataStore>(PARSER.getDataStore(),
+				PatternMatchingEngine.DFA);
+		Assert.assertSame(PatternMatchingEngine.SEQUENTIAL, PARSER.getPatternMatchingEngine());
+		Assert.assertSame(PatternMatchingEngine.DFA, dfa.getPatternMatchingEngine());
+
+		final String[] userAgents = { "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_6_8) AppleWebKit/535.1 (KHTML, like Gecko) Chrome/13.0.782.112 Safari/535.1",
+				"Mozilla/5.0 (compatible; MSIE 9.0; Windows NT 6.1; Trident/5.0)", "Googlebot/2.1 (+http://www.google.com/bot.html)",
+				"Opera/9.80 (J2ME/MIDP; Opera Mini/9.80 (S60; SymbOS; Opera Mobi/23.348; U; en) Presto/2.5.25 Version/10.54", "",
+				"not a known user agent" };
+		for (final String userAgent : userAgents) {
+			Assert.assertEquals(PARSER.parse(userAgent), dfa.parse(userAgent));
+		}
+	}
+
+	@Test
+	public void parse_withDfaEngine_selectedPatternDoesNotMatch() {
+		final Data data = PARSER.getDataStore().getData();
+
+		// automata which select the first position for every text, although its pattern does not match
+		final SortedMap<BrowserPattern, Browser> browsers = new TreeMap<BrowserPattern, Browser>(data.getPatternBrowserMap());
+		final BrowserPattern browser = browsers.firstKey();
+		browsers.put(new BrowserPattern(browser.getId(), Pattern.compile(""), browser.getPosition()), browsers.remove(browser));
+		final PatternAutomaton<BrowserPattern, Browser> browserAutomaton = new PatternAutomaton<BrowserPattern, Browser>(browsers);
+		final SortedMap<OperatingSystemPattern, net.sf.uadetector.internal.data.domain.OperatingSystem> operatingSystems = new TreeMap<OperatingSystemPattern, net.sf.uadetector.internal.data.domain.OperatingSystem>(
+				data.getPatternOsMap());
+		final OperatingSystemPattern operatingSystem = operatingSystems.firstKey();
+		operatingSystems.put(new OperatingSystemPattern(operatingSystem.getId(), Pattern.compile(""), operatingSystem.getPosition()),
+				operatingSystems.remove(operatingSystem));
+		final PatternAutomaton<OperatingSystemPattern, net.sf.uadetector.internal.data.domain.OperatingSystem> operatingSystemAutomaton = new PatternAutomaton<OperatingSystemPattern, net.sf.uadetector.internal.data.domain.OperatingSystem>(
+				operatingSystems);
+		final Data inexact = new Data(data.getBrowsers(), data.getOperatingSystems(), data.getRobots(), data.getPatternBrowserMap(),
+				data.getPatternOsMap(), data.getVersion()) {
+			@Override
+			public PatternAutomaton<BrowserPattern, Browser> getBrowserPatternAutomaton() {
+				return browserAutomaton;
+			}
+
+			@Override
+			public PatternAutomaton<OperatingSystemPattern, net.sf.uadetector.internal.data.domain.OperatingSystem> getOperatingSystemPatternAutomaton() {
+				return operatingSystemAutomaton;
+			}
+		};
+		final DataStore store = new AbstractDataStore(inexact, new XmlDataReader(), TestXmlDataStore.DATA_URL,
+				TestXmlDataStore.VERSION_URL, DataStore.DEFAULT_CHARSET) {
+		};
+		final UserAgentStringParserImpl<DataStore> dfa = new UserAgentStringParserImpl<DataStore>(store, PatternMatchingEngine.DFA);
+
+		// the following patterns must be evaluated one by one
+		final String userAgent = "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_6_8) AppleWebKit/535.1 (KHTML, like Gecko) Chrome/13.0.782.112 Safari/535.1";
+		Assert.assertEquals(0, browserAutomaton.findFirst(userAgent));
+		Assert.assertEquals(0, operatingSystemAutomaton.findFirst(userAgent));
+		Assert.assertFalse(browser.getPattern().matcher(userAgent).find());
+		Assert.assertFalse(operatingSystem.getPattern().matcher(userAgent).find());
+		final UserAgent expected = PARSER.parse(userAgent);
+		Assert.assertEquals("Chrome", expected.getName());
+		Assert.assertEquals(OperatingSystemFamily.OS_X, expected.getOperatingSystem().getFamily());
+		Assert.assertEquals(expected, dfa.parse(userAgent));
+	}
+
+	@Test
+	public void parse_intoMutableUserAgent() {
+		final UserAgentStringParserImpl<DataStore> dfa = new UserAgentStringParserImpl<DataStore>(PARSER.getDataStore(),
+				PatternMatchingEngine.DFA);
+		final String[] userAgents = { "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_6_8) AppleWebKit/535.1 (KHTML, like Gecko) Chrome/13.0.782.112 Safari/535.1",
+				"Mozilla/5.0 (compatible; MSIE 9.0; Windows NT 6.1; Trident/5.0)", "Googlebot/2.1 (+http://www.google.com/bot.html)",
+				"Opera/9.80 (J2ME/MIDP; Opera Mini/9.80 (S60; SymbOS; Opera Mobi/23.348; U; en) Presto/2.5.25 Version/10.54",
+				"Mozilla/5.0 (Macintosh; Intel Mac OS X 10_6_8) AppleWebKit/535.1 (KHTML, like Gecko) Chrome/$ Safari/535.1", "",
+				"not a known user agent" };
+		final MutableUserAgent agent = new MutableUserAgent();
+
+		// twice, so that the second pass works with the matchers and caches of this thread
+		for (int i = 0; i < 2; i++) {
+			for (final String userAgent : userAgents) {
+				Assert.assertSame(agent, PARSER.parse(userAgent, agent));
+				Assert.assertEquals(userAgent, agent.getUserAgentString());
+				Assert.assertEquals(userAgent, PARSER.parse(userAgent), agent.toUserAgent());
+				Assert.assertEquals(userAgent, dfa.parse(userAgent), dfa.parse(userAgent, agent).toUserAgent());
+			}
+			for (final Robot robot : PARSER.getDataStore().getData().getRobots()) {
+				Assert.assertEquals(PARSER.parse(robot.getUserAgentString()), PARSER.parse(robot.getUserAgentString(), agent).toUserAgent());
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parse_intoMutableUserAgent_result_null() {
+		PARSER.parse("", (MutableUserAgent) null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parse_intoMutableUserAgent_userAgent_null() {
+		PARSER.parse((String) null, new MutableUserAgent());
+	}
+
+	@Test
+	public void parse_fromBytesAndCharSequence() throws Exception {
+		final String[] userAgents = { "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_6_8) AppleWebKit/535.1 (KHTML, like Gecko) Chrome/13.0.782.112 Safari/535.1",
+				"Mozilla/5.0 (compatible; MSIE 9.0; Windows NT 6.1; Trident/5.0)", "Googlebot/2.1 (+http://www.google.com/bot.html)",
+				"Opera/9.80 (J2ME/MIDP; Opera Mini/9.80 (S60; SymbOS; Opera Mobi/23.348; U; en) Presto/2.5.25 Version/10.54", "",
+				"not a known user agent" };
+		final MutableUserAgent agent = new MutableUserAgent();
+		final ByteBuffer direct = ByteBuffer.allocateDirect(256);
+		for (final String userAgent : userAgents) {
+			final UserAgent expected = PARSER.parse(userAgent);
+			final byte[] bytes = ("\r\n" + userAgent + "\r\n").getBytes("ISO-8859-1");
+
+			Assert.assertEquals(expected, PARSER.parse(bytes, 2, bytes.length - 4, agent).toUserAgent());
+			Assert.assertEquals(expected, PARSER.parse(ByteBuffer.wrap(bytes, 2, bytes.length - 4), agent).toUserAgent());
+
+			direct.clear();
+			direct.put(bytes, 2, bytes.length - 4).flip();
+			Assert.assertEquals(expected, PARSER.parse(direct, agent).toUserAgent());
+			Assert.assertEquals(0, direct.position());
+
+			Assert.assertEquals(expected, PARSER.parse(new StringBuilder(userAgent), agent).toUserAgent());
+			Assert.assertEquals(expected, PARSER.parse((CharSequence) new StringBuilder(userAgent)));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parse_fromBuffer_null() {
+		PARSER.parse((ByteBuffer) null, new MutableUserAgent());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parse_fromBytes_null() {
+		PARSER.parse((byte[]) null, 0, 0, new MutableUserAgent());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parse_fromBytes_result_null() {
+		PARSER.parse(new byte[0], 0, 0, null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parse_fromCharSequence_null() {
+		PARSER.parse((CharSequence) null);
+	}
+
 	@Test
 	public void parse_browser_CHROME_withoutVersionInfo() throws Exception {
 		final String userAgent = "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_6_8) AppleWebKit/535.1 (KHTML, like Gecko) Chrome/$ Safari/535.1";
@@ -0,0 +1,422 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.logs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.uadetector.OperatingSystemFamily;
+import net.sf.uadetector.UserAgent;
+import net.sf.uadetector.UserAgentFamily;
+import net.sf.uadetector.UserAgentStringParser;
+import net.sf.uadetector.UserAgentType;
+import net.sf.uadetector.parser.BatchResult;
+import net.sf.uadetector.parser.BatchUserAgentStringParser;
+import net.sf.uadetector.service.UADetectorServiceFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Analyzes access logs in the <em>combined log format</em> and counts the requests per user agent family, operating
+ * system family and user agent type.<br>
+ * <br>
+ * The log files are divided into segments at line boundaries. Every segment is mapped into memory with a
+ * {@link FileChannel} and scanned byte by byte by one of several worker threads. The user agent field of a line is
+ * located directly in the mapped bytes and counted in a hash table of the worker, so that no {@code String} will be
+ * created for a line. At the end the tables of all workers are merged, each distinct user agent string is detected
+ * exactly once and its count is added to the result.<br>
+ * <br>
+ * An {@code AccessLogAnalyzer} is safe when used concurrently by multiple threads.
+ * 
+ * @author André Rouél
+ */
+public final class AccessLogAnalyzer {
+
+	/**
+	 * Factory to create daemon threads that runs as a background process and do not blocks an application shutdown
+	 */
+	private static final class DaemonThreadFactory implements ThreadFactory {
+		@Override
+		public Thread newThread(final Runnable r) {
+			final Thread thread = new Thread(r);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	/**
+	 * Range of a log file which starts at the beginning of a line and ends after a line feed or at the end of the file
+	 */
+	private static final class Segment {
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+
+		private Segment(final FileChannel channel, final long start, final long end) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	/**
+	 * Scans segments until there are no more left and counts the user agent fields of all lines in its own counter
+	 */
+	private static final class Worker implements Callable<UserAgentCounter> {
+		private final List<Segment> segments;
+		private final AtomicInteger next;
+
+		private Worker(final List<Segment> segments, final AtomicInteger next) {
+			this.segments = segments;
+			this.next = next;
+		}
+
+		@Override
+		public UserAgentCounter call() throws IOException {
+			final UserAgentCounter counter = new UserAgentCounter();
+			int index;
+			while ((index = next.getAndIncrement()) < segments.size()) {
+				final Segment segment = segments.get(index);
+				scan(segment.channel.map(FileChannel.MapMode.READ_ONLY, segment.start, segment.end - segment.start), counter);
+			}
+			return counter;
+		}
+	}
+
+	/**
+	 * Size of the buffer which is used to search the next line feed after a segment boundary
+	 */
+	private static final int BOUNDARY_BUFFER_SIZE = 8 * 1024;
+
+	private static final Logger LOG = LoggerFactory.getLogger(AccessLogAnalyzer.class);
+
+	/**
+	 * Maximum size of a segment in bytes
+	 */
+	static final long MAXIMUM_SEGMENT_SIZE = 32L * 1024 * 1024;
+
+	/**
+	 * Minimum size of a segment in bytes
+	 */
+	static final long MINIMUM_SEGMENT_SIZE = 1024L * 1024;
+
+	/**
+	 * Divides the given file into segments which consist of whole lines.
+	 */
+	private static void addSegments(final FileChannel channel, final long segmentSize, final List<Segment> segments)
+			throws IOException {
+		final long size = channel.size();
+		final ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_BUFFER_SIZE);
+		long start = 0;
+		while (start < size) {
+			final long end = start + segmentSize >= size ? size : findLineEnd(channel, start + segmentSize, buffer);
+			segments.add(new Segment(channel, start, end));
+			start = end;
+		}
+	}
+
+	/**
+	 * Searches the position after the next line feed at or after the given position.
+	 */
+	private static long findLineEnd(final FileChannel channel, final long from, final ByteBuffer buffer) throws IOException {
+		long position = from - 1;
+		while (true) {
+			buffer.clear();
+			final int read = channel.read(buffer, position);
+			if (read <= 0) {
+				return channel.size();
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+	}
+
+	private static UserAgentCounter get(final Future<UserAgentCounter> future) throws IOException {
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the workers.", e);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * Analyzes the given access logs with the data of the resource module and prints the statistics.
+	 * 
+	 * @param args
+	 *            paths of access logs
+	 * @throws IOException
+	 *             if a log file can not be read
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: java " + AccessLogAnalyzer.class.getName() + " <access log>...");
+			return;
+		}
+
+		final File[] files = new File[args.length];
+		for (int i = 0; i < args.length; i++) {
+			files[i] = new File(args[i]);
+		}
+		final AccessLogStatistics statistics = new AccessLogAnalyzer(UADetectorServiceFactory.getResourceModuleParser()).analyze(files);
+
+		System.out.println("lines: " + statistics.getLineCount());
+		System.out.println("lines without user agent: " + statistics.getMissingUserAgentCount());
+		System.out.println("distinct user agents: " + statistics.getDistinctUserAgentCount());
+		print("type", statistics.getTypeCounts());
+		print("family", statistics.getFamilyCounts());
+		print("operating system family", statistics.getOperatingSystemFamilyCounts());
+	}
+
+	private static void print(final String label, final Map<? extends Enum<?>, Long> counts) {
+		for (final Map.Entry<? extends Enum<?>, Long> entry : counts.entrySet()) {
+			System.out.println(label + "\t" + entry.getKey().name() + "\t" + entry.getValue());
+		}
+	}
+
+	/**
+	 * Scans all lines of the given buffer and counts their user agent fields.
+	 * 
+	 * @param buffer
+	 *            buffer which contains whole lines
+	 * @param counter
+	 *            counter of the current worker
+	 */
+	static void scan(final ByteBuffer buffer, final UserAgentCounter counter) {
+		final int limit = buffer.limit();
+		int lineStart = 0;
+		for (int i = 0; i < limit; i++) {
+			if (buffer.get(i) == '\n') {
+				scanLine(buffer, lineStart, i, counter);
+				lineStart = i + 1;
+			}
+		}
+		if (lineStart < limit) {
+			scanLine(buffer, lineStart, limit, counter);
+		}
+	}
+
+	private static void scanLine(final ByteBuffer buffer, final int lineStart, final int lineEnd, final UserAgentCounter counter) {
+		if (lineEnd == lineStart || lineEnd - lineStart == 1 && buffer.get(lineStart) == '\r') {
+			return; // blank line
+		}
+		final long field = UserAgentField.find(buffer, lineStart, lineEnd);
+		if (field == UserAgentField.NOT_FOUND) {
+			counter.countLine(false);
+		} else {
+			counter.countLine(true);
+			counter.add(buffer, UserAgentField.start(field), UserAgentField.end(field));
+		}
+	}
+
+	/**
+	 * Parser to detect the user agent strings
+	 */
+	private final UserAgentStringParser parser;
+
+	/**
+	 * Fixed size of segments in bytes or {@code 0} if the size is determined by the size of a file
+	 */
+	private final long segmentSize;
+
+	/**
+	 * Number of threads to scan segments and to detect user agent strings
+	 */
+	private final int threads;
+
+	/**
+	 * Constructs an {@code AccessLogAnalyzer} which uses one thread per available processor.
+	 * 
+	 * @param parser
+	 *            parser to detect the user agent strings
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public AccessLogAnalyzer(final UserAgentStringParser parser) {
+		this(parser, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs an {@code AccessLogAnalyzer} which uses the given number of threads.
+	 * 
+	 * @param parser
+	 *            parser to detect the user agent strings
+	 * @param threads
+	 *            number of threads
+	 * @throws IllegalArgumentException
+	 *             if the given parser is {@code null}
+	 * @throws IllegalArgumentException
+	 *             if the given number of threads is smaller than {@code 1}
+	 */
+	public AccessLogAnalyzer(final UserAgentStringParser parser, final int threads) {
+		this(parser, threads, 0);
+	}
+
+	/**
+	 * Constructs an {@code AccessLogAnalyzer} which divides the log files into segments of the given size.
+	 * 
+	 * @param parser
+	 *            parser to detect the user agent strings
+	 * @param threads
+	 *            number of threads
+	 * @param segmentSize
+	 *            size of segments in bytes or {@code 0} to determine it by the size of a file
+	 */
+	AccessLogAnalyzer(final UserAgentStringParser parser, final int threads, final long segmentSize) {
+		if (parser == null) {
+			throw new IllegalArgumentException("Argument 'parser' must not be null.");
+		}
+		if (threads < 1) {
+			throw new IllegalArgumentException("Argument 'threads' must not be smaller than 1.");
+		}
+		if (segmentSize < 0) {
+			throw new IllegalArgumentException("Argument 'segmentSize' must not be smaller than 0.");
+		}
+
+		this.parser = parser;
+		this.threads = threads;
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Analyzes the given access logs.
+	 * 
+	 * @param files
+	 *            access logs in the combined log format
+	 * @return statistics about the user agents of all requests
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null} or contains {@code null}
+	 * @throws IOException
+	 *             if a log file can not be read
+	 * @throws IllegalStateException
+	 *             if the current thread was interrupted while waiting for the workers
+	 */
+	public AccessLogStatistics analyze(final File... files) throws IOException {
+		if (files == null) {
+			throw new IllegalArgumentException("Argument 'files' must not be null.");
+		}
+		for (final File file : files) {
+			if (file == null) {
+				throw new IllegalArgumentException("Argument 'files' must not contain null.");
+			}
+		}
+
+		final long start = System.nanoTime();
+		final List<RandomAccessFile> openFiles = new ArrayList<RandomAccessFile>(files.length);
+		final ExecutorService executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory());
+		try {
+			// divide all files into segments which can be scanned independently
+			final List<Segment> segments = new ArrayList<Segment>();
+			for (final File file : files) {
+				final RandomAccessFile raf = new RandomAccessFile(file, "r");
+				openFiles.add(raf);
+				addSegments(raf.getChannel(), segmentSize(raf.length()), segments);
+			}
+
+			// scan all segments, each worker counts into its own table
+			final AtomicInteger next = new AtomicInteger();
+			final List<Future<UserAgentCounter>> futures = new ArrayList<Future<UserAgentCounter>>(threads);
+			for (int i = 0; i < Math.min(threads, Math.max(1, segments.size())); i++) {
+				futures.add(executor.submit(new Worker(segments, next)));
+			}
+			final UserAgentCounter total = new UserAgentCounter();
+			for (final Future<UserAgentCounter> future : futures) {
+				total.addAll(get(future));
+			}
+			LOG.debug("Scanned " + segments.size() + " segments with " + total.getLineCount() + " lines.");
+
+			return count(total, new BatchUserAgentStringParser(parser, executor, threads), System.nanoTime() - start);
+		} finally {
+			executor.shutdownNow();
+			for (final RandomAccessFile raf : openFiles) {
+				raf.close();
+			}
+		}
+	}
+
+	/**
+	 * Detects every distinct user agent string once and adds its number of occurrences to the counters.
+	 */
+	private AccessLogStatistics count(final UserAgentCounter total, final BatchUserAgentStringParser batchParser,
+			final long scanNanos) {
+		final long start = System.nanoTime();
+		final List<String> userAgents = new ArrayList<String>(total.size());
+		final long[] occurrences = new long[total.size()];
+		for (int slot = 0; slot < total.capacity(); slot++) {
+			final byte[] key = total.keyAt(slot);
+			if (key != null) {
+				occurrences[userAgents.size()] = total.countAt(slot);
+				userAgents.add(UserAgentField.decode(key));
+			}
+		}
+
+		final BatchResult result = batchParser.parse(userAgents);
+		final long[] familyCounts = new long[UserAgentFamily.values().length];
+		final long[] osFamilyCounts = new long[OperatingSystemFamily.values().length];
+		final long[] typeCounts = new long[UserAgentType.values().length];
+		for (int i = 0; i < result.size(); i++) {
+			final UserAgent userAgent = result.getUserAgent(i);
+			familyCounts[userAgent.getFamily().ordinal()] += occurrences[i];
+			osFamilyCounts[userAgent.getOperatingSystem().getFamily().ordinal()] += occurrences[i];
+			typeCounts[userAgent.getType().ordinal()] += occurrences[i];
+		}
+		final long elapsed = scanNanos + System.nanoTime() - start;
+		return new AccessLogStatistics(total.getLineCount(), total.getMissingCount(), result.getDistinctCount(), familyCounts,
+				osFamilyCounts, typeCounts, elapsed, result.getDataVersion());
+	}
+
+	/**
+	 * Determines the size of the segments of a file, so that all threads get work but no mapping gets too large.
+	 */
+	private long segmentSize(final long fileSize) {
+		if (segmentSize > 0) {
+			return segmentSize;
+		}
+		final long perThread = fileSize / (threads * 4L) + 1;
+		return Math.max(MINIMUM_SEGMENT_SIZE, Math.min(MAXIMUM_SEGMENT_SIZE, perThread));
+	}
+
+}
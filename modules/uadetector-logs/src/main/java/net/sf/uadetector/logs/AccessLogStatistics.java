@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.logs;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.uadetector.OperatingSystemFamily;
+import net.sf.uadetector.UserAgentFamily;
+import net.sf.uadetector.UserAgentType;
+
+/**
+ * Result of the analysis of one or more access logs by an {@link AccessLogAnalyzer}. It contains the number of
+ * requests per user agent family, operating system family and user agent type.<br>
+ * <br>
+ * An {@code AccessLogStatistics} object is immutable.
+ * 
+ * @author André Rouél
+ */
+public final class AccessLogStatistics {
+
+	private static <E extends Enum<E>> Map<E, Long> toMap(final Class<E> type, final long[] counts) {
+		final Map<E, Long> map = new EnumMap<E, Long>(type);
+		for (final E constant : type.getEnumConstants()) {
+			if (counts[constant.ordinal()] > 0) {
+				map.put(constant, Long.valueOf(counts[constant.ordinal()]));
+			}
+		}
+		return Collections.unmodifiableMap(map);
+	}
+
+	private static <E extends Enum<E>> long valueOf(final Map<E, Long> map, final E key) {
+		if (key == null) {
+			throw new IllegalArgumentException("Argument 'key' must not be null.");
+		}
+		final Long value = map.get(key);
+		return value == null ? 0L : value.longValue();
+	}
+
+	/**
+	 * Version of the <em>UAS data</em> the user agents were detected with
+	 */
+	private final String dataVersion;
+
+	/**
+	 * Number of distinct user agent strings
+	 */
+	private final int distinctUserAgentCount;
+
+	/**
+	 * Time spent for the analysis in nanoseconds
+	 */
+	private final long elapsedNanos;
+
+	/**
+	 * Number of requests per user agent family
+	 */
+	private final Map<UserAgentFamily, Long> familyCounts;
+
+	/**
+	 * Number of analyzed lines
+	 */
+	private final long lineCount;
+
+	/**
+	 * Number of lines without a user agent
+	 */
+	private final long missingUserAgentCount;
+
+	/**
+	 * Number of requests per operating system family
+	 */
+	private final Map<OperatingSystemFamily, Long> operatingSystemFamilyCounts;
+
+	/**
+	 * Number of requests per user agent type
+	 */
+	private final Map<UserAgentType, Long> typeCounts;
+
+	AccessLogStatistics(final long lineCount, final long missingUserAgentCount, final int distinctUserAgentCount,
+			final long[] familyCounts, final long[] operatingSystemFamilyCounts, final long[] typeCounts, final long elapsedNanos,
+			final String dataVersion) {
+		this.lineCount = lineCount;
+		this.missingUserAgentCount = missingUserAgentCount;
+		this.distinctUserAgentCount = distinctUserAgentCount;
+		this.familyCounts = toMap(UserAgentFamily.class, familyCounts);
+		this.operatingSystemFamilyCounts = toMap(OperatingSystemFamily.class, operatingSystemFamilyCounts);
+		this.typeCounts = toMap(UserAgentType.class, typeCounts);
+		this.elapsedNanos = elapsedNanos;
+		this.dataVersion = dataVersion;
+	}
+
+	/**
+	 * Gets the version of the <em>UAS data</em> the user agents were detected with.
+	 * 
+	 * @return version of the <em>UAS data</em>
+	 */
+	public String getDataVersion() {
+		return dataVersion;
+	}
+
+	/**
+	 * Gets the number of distinct user agent strings, which is the number of strings that were actually parsed.
+	 * 
+	 * @return number of distinct user agent strings
+	 */
+	public int getDistinctUserAgentCount() {
+		return distinctUserAgentCount;
+	}
+
+	/**
+	 * Gets the time which was spent for the analysis.
+	 * 
+	 * @param unit
+	 *            unit of the returned time
+	 * @return elapsed time in the given unit
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public long getElapsedTime(final TimeUnit unit) {
+		if (unit == null) {
+			throw new IllegalArgumentException("Argument 'unit' must not be null.");
+		}
+		return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Gets the number of requests of the given user agent family.
+	 * 
+	 * @param family
+	 *            user agent family
+	 * @return number of requests
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public long getFamilyCount(final UserAgentFamily family) {
+		return valueOf(familyCounts, family);
+	}
+
+	/**
+	 * Gets the number of requests per user agent family. Families without requests are not contained.
+	 * 
+	 * @return unmodifiable map of user agent families to the number of requests
+	 */
+	public Map<UserAgentFamily, Long> getFamilyCounts() {
+		return familyCounts;
+	}
+
+	/**
+	 * Gets the number of analyzed lines.
+	 * 
+	 * @return number of lines
+	 */
+	public long getLineCount() {
+		return lineCount;
+	}
+
+	/**
+	 * Gets the number of lines without a user agent, e.g. lines in the <em>common log format</em> or requests without
+	 * a {@code User-Agent} header. These lines are not contained in the counts per family or type.
+	 * 
+	 * @return number of lines without a user agent
+	 */
+	public long getMissingUserAgentCount() {
+		return missingUserAgentCount;
+	}
+
+	/**
+	 * Gets the number of requests of the given operating system family.
+	 * 
+	 * @param family
+	 *            operating system family
+	 * @return number of requests
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public long getOperatingSystemFamilyCount(final OperatingSystemFamily family) {
+		return valueOf(operatingSystemFamilyCounts, family);
+	}
+
+	/**
+	 * Gets the number of requests per operating system family. Families without requests are not contained.
+	 * 
+	 * @return unmodifiable map of operating system families to the number of requests
+	 */
+	public Map<OperatingSystemFamily, Long> getOperatingSystemFamilyCounts() {
+		return operatingSystemFamilyCounts;
+	}
+
+	/**
+	 * Gets the number of requests of the given user agent type.
+	 * 
+	 * @param type
+	 *            user agent type
+	 * @return number of requests
+	 * @throws IllegalArgumentException
+	 *             if the given argument is {@code null}
+	 */
+	public long getTypeCount(final UserAgentType type) {
+		return valueOf(typeCounts, type);
+	}
+
+	/**
+	 * Gets the number of requests per user agent type. Types without requests are not contained.
+	 * 
+	 * @return unmodifiable map of user agent types to the number of requests
+	 */
+	public Map<UserAgentType, Long> getTypeCounts() {
+		return typeCounts;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("AccessLogStatistics [lineCount=");
+		builder.append(lineCount);
+		builder.append(", missingUserAgentCount=");
+		builder.append(missingUserAgentCount);
+		builder.append(", distinctUserAgentCount=");
+		builder.append(distinctUserAgentCount);
+		builder.append(", familyCounts=");
+		builder.append(familyCounts);
+		builder.append(", operatingSystemFamilyCounts=");
+		builder.append(operatingSystemFamilyCounts);
+		builder.append(", typeCounts=");
+		builder.append(typeCounts);
+		builder.append(", elapsedMillis=");
+		builder.append(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+		builder.append(", dataVersion=");
+		builder.append(dataVersion);
+		builder.append("]");
+		return builder.toString();
+	}
+
+}
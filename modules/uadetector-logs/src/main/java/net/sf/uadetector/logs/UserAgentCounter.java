@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.logs;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Counts the occurrences of raw user agent fields and the number of processed lines. Every worker thread owns one
+ * counter, so that no synchronization is necessary while scanning. The counters of all threads are merged at the end.<br>
+ * <br>
+ * The fields are stored in an open addressing hash table as byte arrays. Only the first occurrence of a field is
+ * copied, all further occurrences are compared directly against the bytes of the log file.<br>
+ * <br>
+ * This class is not thread safe.
+ * 
+ * @author André Rouél
+ */
+final class UserAgentCounter {
+
+	/**
+	 * Initial number of slots of the hash table, must be a power of two
+	 */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private static int hash(final ByteBuffer buffer, final int from, final int to) {
+		int hash = 0x811C9DC5; // FNV-1a
+		for (int i = from; i < to; i++) {
+			hash ^= buffer.get(i);
+			hash *= 0x01000193;
+		}
+		return hash ^ hash >>> 16;
+	}
+
+	private static boolean matches(final byte[] key, final ByteBuffer buffer, final int from, final int to) {
+		if (key.length != to - from) {
+			return false;
+		}
+		for (int i = 0; i < key.length; i++) {
+			if (key[i] != buffer.get(from + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private long[] counts = new long[INITIAL_CAPACITY];
+
+	private int[] hashes = new int[INITIAL_CAPACITY];
+
+	private byte[][] keys = new byte[INITIAL_CAPACITY][];
+
+	/**
+	 * Number of processed lines
+	 */
+	private long lineCount;
+
+	/**
+	 * Number of processed lines without a user agent field
+	 */
+	private long missingCount;
+
+	/**
+	 * Number of distinct fields in the hash table
+	 */
+	private int size;
+
+	/**
+	 * Counts an occurrence of the user agent field within the given range of the buffer.
+	 * 
+	 * @param buffer
+	 *            buffer which contains the field
+	 * @param from
+	 *            position of the first byte of the field
+	 * @param to
+	 *            position after the last byte of the field
+	 */
+	void add(final ByteBuffer buffer, final int from, final int to) {
+		add(buffer, from, to, 1);
+	}
+
+	private void add(final ByteBuffer buffer, final int from, final int to, final long count) {
+		final int hash = hash(buffer, from, to);
+		final int mask = keys.length - 1;
+		int slot = hash & mask;
+		while (keys[slot] != null) {
+			if (hashes[slot] == hash && matches(keys[slot], buffer, from, to)) {
+				counts[slot] += count;
+				return;
+			}
+			slot = slot + 1 & mask;
+		}
+
+		final byte[] key = new byte[to - from];
+		for (int i = 0; i < key.length; i++) {
+			key[i] = buffer.get(from + i);
+		}
+		keys[slot] = key;
+		hashes[slot] = hash;
+		counts[slot] = count;
+		size++;
+		if (size * 2 > keys.length) {
+			resize();
+		}
+	}
+
+	/**
+	 * Adds all counts of the given counter to this one.
+	 * 
+	 * @param other
+	 *            counter to merge
+	 */
+	void addAll(final UserAgentCounter other) {
+		for (int slot = 0; slot < other.keys.length; slot++) {
+			final byte[] key = other.keys[slot];
+			if (key != null) {
+				add(ByteBuffer.wrap(key), 0, key.length, other.counts[slot]);
+			}
+		}
+		lineCount += other.lineCount;
+		missingCount += other.missingCount;
+	}
+
+	/**
+	 * Counts a processed line.
+	 * 
+	 * @param withUserAgent
+	 *            whether the line contains a user agent field
+	 */
+	void countLine(final boolean withUserAgent) {
+		lineCount++;
+		if (!withUserAgent) {
+			missingCount++;
+		}
+	}
+
+	/**
+	 * Gets the number of slots of the hash table. Use {@link #keyAt(int)} and {@link #countAt(int)} to iterate over the
+	 * counted fields.
+	 * 
+	 * @return number of slots
+	 */
+	int capacity() {
+		return keys.length;
+	}
+
+	long countAt(final int slot) {
+		return counts[slot];
+	}
+
+	long getLineCount() {
+		return lineCount;
+	}
+
+	long getMissingCount() {
+		return missingCount;
+	}
+
+	/**
+	 * Gets the field stored in the given slot.
+	 * 
+	 * @param slot
+	 *            slot of the hash table
+	 * @return raw bytes of a field or {@code null} if the slot is empty
+	 */
+	byte[] keyAt(final int slot) {
+		return keys[slot];
+	}
+
+	private void resize() {
+		final byte[][] oldKeys = keys;
+		final int[] oldHashes = hashes;
+		final long[] oldCounts = counts;
+		keys = new byte[oldKeys.length * 2][];
+		hashes = new int[keys.length];
+		counts = new long[keys.length];
+		final int mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				int slot = oldHashes[i] & mask;
+				while (keys[slot] != null) {
+					slot = slot + 1 & mask;
+				}
+				keys[slot] = oldKeys[i];
+				hashes[slot] = oldHashes[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of distinct fields.
+	 * 
+	 * @return number of distinct fields
+	 */
+	int size() {
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return "UserAgentCounter [size=" + size + ", lineCount=" + lineCount + ", missingCount=" + missingCount + "]";
+	}
+
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.logs;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Locates the user agent field within a line of an access log in the <em>combined log format</em> directly in the
+ * bytes of the line, without decoding it into a {@code String}.<br>
+ * <br>
+ * In the combined log format the user agent is the last field of a line and is enclosed in double quotes. Double quotes
+ * within the field are escaped with a backslash. Lines in the <em>common log format</em> have no user agent field.
+ * 
+ * @author André Rouél
+ */
+final class UserAgentField {
+
+	/**
+	 * Value which is returned if a line does not contain a user agent
+	 */
+	static final long NOT_FOUND = -1L;
+
+	private static final byte BACKSLASH = '\\';
+
+	private static final byte QUOTE = '"';
+
+	/**
+	 * Searches the user agent field in the given line.
+	 * 
+	 * @param buffer
+	 *            buffer which contains the line
+	 * @param lineStart
+	 *            position of the first byte of the line
+	 * @param lineEnd
+	 *            position after the last byte of the line (without the line feed)
+	 * @return start and end position of the field packed into a {@code long} (see {@link #start(long)} and
+	 *         {@link #end(long)}) or {@link #NOT_FOUND} if the line contains no user agent
+	 */
+	static long find(final ByteBuffer buffer, final int lineStart, final int lineEnd) {
+		int end = lineEnd;
+		while (end > lineStart && isTrailingWhitespace(buffer.get(end - 1))) {
+			end--;
+		}
+		if (end - lineStart < 2 || buffer.get(end - 1) != QUOTE) {
+			return NOT_FOUND;
+		}
+
+		final int closing = end - 1;
+		for (int i = closing - 1; i >= lineStart; i--) {
+			if (buffer.get(i) == QUOTE && !isEscaped(buffer, lineStart, i)) {
+				final int start = i + 1;
+				if (start == closing || closing - start == 1 && buffer.get(start) == '-') {
+					return NOT_FOUND; // empty field or placeholder for a missing header
+				}
+				return (long) start << 32 | closing;
+			}
+		}
+		return NOT_FOUND;
+	}
+
+	/**
+	 * Checks whether the character at the given position is preceded by an odd number of backslashes.
+	 */
+	private static boolean isEscaped(final ByteBuffer buffer, final int lineStart, final int position) {
+		int backslashes = 0;
+		for (int i = position - 1; i >= lineStart && buffer.get(i) == BACKSLASH; i--) {
+			backslashes++;
+		}
+		return backslashes % 2 == 1;
+	}
+
+	private static boolean isTrailingWhitespace(final byte b) {
+		return b == '\r' || b == ' ' || b == '\t';
+	}
+
+	/**
+	 * Gets the end position (exclusive) of a found field.
+	 * 
+	 * @param field
+	 *            packed positions returned by {@link #find(ByteBuffer, int, int)}
+	 * @return end position of the field
+	 */
+	static int end(final long field) {
+		return (int) field;
+	}
+
+	/**
+	 * Gets the start position of a found field.
+	 * 
+	 * @param field
+	 *            packed positions returned by {@link #find(ByteBuffer, int, int)}
+	 * @return start position of the field
+	 */
+	static int start(final long field) {
+		return (int) (field >>> 32);
+	}
+
+	/**
+	 * Decodes the raw bytes of a user agent field into a string. Escape sequences of the web server like {@code \"},
+	 * {@code \\} and {@code \xhh} are resolved, all other bytes are interpreted as <em>ISO-8859-1</em>.
+	 * 
+	 * @param raw
+	 *            bytes of a user agent field
+	 * @return decoded user agent string
+	 */
+	static String decode(final byte[] raw) {
+		final StringBuilder builder = new StringBuilder(raw.length);
+		int i = 0;
+		while (i < raw.length) {
+			final char chr = (char) (raw[i] & 0xFF);
+			if (chr == BACKSLASH && i + 1 < raw.length) {
+				final char next = (char) (raw[i + 1] & 0xFF);
+				if (next == QUOTE || next == BACKSLASH) {
+					builder.append(next);
+					i += 2;
+					continue;
+				}
+				if (next == 'x' && i + 3 < raw.length) {
+					final int high = Character.digit((char) (raw[i + 2] & 0xFF), 16);
+					final int low = Character.digit((char) (raw[i + 3] & 0xFF), 16);
+					if (high >= 0 && low >= 0) {
+						builder.append((char) (high << 4 | low));
+						i += 4;
+						continue;
+					}
+				}
+			}
+			builder.append(chr);
+			i++;
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * <strong>Attention:</strong> This class is not intended to create objects from it.
+	 */
+	private UserAgentField() {
+		// This class is not intended to create objects from it.
+	}
+
+}
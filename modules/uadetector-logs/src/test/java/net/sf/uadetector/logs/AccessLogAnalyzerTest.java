@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.logs;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.uadetector.OperatingSystemFamily;
+import net.sf.uadetector.UserAgent;
+import net.sf.uadetector.UserAgentFamily;
+import net.sf.uadetector.UserAgentStringParser;
+import net.sf.uadetector.UserAgentType;
+import net.sf.uadetector.service.UADetectorServiceFactory;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class AccessLogAnalyzerTest {
+
+	private static final String[] USER_AGENTS = {
+			"Mozilla/5.0 (Windows NT 6.1; WOW64; rv:15.0) Gecko/20120427 Firefox/15.0a1",
+			"Mozilla/5.0 (iPad; U; CPU OS 5_1 like Mac OS X; en_us) AppleWebKit/534.46 (KHTML, like Gecko) Version/5.1 Mobile/9B176 Safari/7534.48.3",
+			"Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)",
+			"Mozilla/5.0 (Linux; U; Android 4.0.3; de-de; GT-I9100 Build/IML74K) AppleWebKit/534.30 (KHTML, like Gecko) Version/4.0 Mobile Safari/534.30",
+			"Opera/9.80 (X11; FreeBSD 8.2-STABLE amd64; U; en) Presto/2.9.168 Version/11.52", "curl/7.26.0", "unknown agent" };
+
+	private static final UserAgentStringParser PARSER = UADetectorServiceFactory.getResourceModuleParser();
+
+	private static File log;
+
+	private static List<String> expected;
+
+	private static int missing;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		log = File.createTempFile("access", ".log");
+		expected = new ArrayList<String>();
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(log), "ISO-8859-1");
+		try {
+			for (int i = 0; i < 5000; i++) {
+				final String request = "10.0.0." + i % 256 + " - - [10/Oct/2012:13:55:36 +0200] \"GET /page/" + i + " HTTP/1.1\" 200 "
+						+ i * 7;
+				if (i % 97 == 0) {
+					writer.write(request + "\n"); // common log format
+					missing++;
+				} else if (i % 89 == 0) {
+					writer.write(request + " \"-\" \"-\"\r\n");
+					missing++;
+				} else if (i % 101 == 0) {
+					writer.write("\n"); // blank line is not counted
+				} else {
+					final String userAgent = USER_AGENTS[i * 31 % USER_AGENTS.length];
+					writer.write(request + " \"http://www.example.com/\" \"" + userAgent + "\"\n");
+					expected.add(userAgent);
+				}
+			}
+			// last line without line feed
+			writer.write("10.0.0.1 - - [10/Oct/2012:13:55:37 +0200] \"GET / HTTP/1.1\" 200 1 \"-\" \"" + USER_AGENTS[0] + "\"");
+			expected.add(USER_AGENTS[0]);
+		} finally {
+			writer.close();
+		}
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		log.delete();
+	}
+
+	private static void assertStatistics(final AccessLogStatistics statistics) {
+		Assert.assertEquals(expected.size() + missing, statistics.getLineCount());
+		Assert.assertEquals(missing, statistics.getMissingUserAgentCount());
+		Assert.assertEquals(USER_AGENTS.length, statistics.getDistinctUserAgentCount());
+		Assert.assertEquals(PARSER.getDataVersion(), statistics.getDataVersion());
+
+		final long[] families = new long[UserAgentFamily.values().length];
+		final long[] osFamilies = new long[OperatingSystemFamily.values().length];
+		final long[] types = new long[UserAgentType.values().length];
+		for (final String userAgent : expected) {
+			final UserAgent agent = PARSER.parse(userAgent);
+			families[agent.getFamily().ordinal()]++;
+			osFamilies[agent.getOperatingSystem().getFamily().ordinal()]++;
+			types[agent.getType().ordinal()]++;
+		}
+		for (final UserAgentFamily family : UserAgentFamily.values()) {
+			Assert.assertEquals(family.name(), families[family.ordinal()], statistics.getFamilyCount(family));
+		}
+		for (final OperatingSystemFamily family : OperatingSystemFamily.values()) {
+			Assert.assertEquals(family.name(), osFamilies[family.ordinal()], statistics.getOperatingSystemFamilyCount(family));
+		}
+		for (final UserAgentType type : UserAgentType.values()) {
+			Assert.assertEquals(type.name(), types[type.ordinal()], statistics.getTypeCount(type));
+		}
+		Assert.assertTrue(statistics.getTypeCount(UserAgentType.ROBOT) > 0);
+		Assert.assertTrue(statistics.getElapsedTime(TimeUnit.NANOSECONDS) > 0);
+	}
+
+	@Test
+	public void analyze() throws Exception {
+		assertStatistics(new AccessLogAnalyzer(PARSER, 2).analyze(log));
+	}
+
+	@Test
+	public void analyze_emptyFile() throws Exception {
+		final File empty = File.createTempFile("empty", ".log");
+		try {
+			final AccessLogStatistics statistics = new AccessLogAnalyzer(PARSER, 2).analyze(empty);
+			Assert.assertEquals(0L, statistics.getLineCount());
+			Assert.assertEquals(0, statistics.getDistinctUserAgentCount());
+			Assert.assertTrue(statistics.getFamilyCounts().isEmpty());
+		} finally {
+			empty.delete();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void analyze_files_containsNull() throws Exception {
+		new AccessLogAnalyzer(PARSER).analyze(log, null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void analyze_files_null() throws Exception {
+		new AccessLogAnalyzer(PARSER).analyze((File[]) null);
+	}
+
+	@Test
+	public void analyze_manySmallSegments() throws Exception {
+		// segments smaller than a line must still be aligned to line boundaries
+		assertStatistics(new AccessLogAnalyzer(PARSER, 4, 64).analyze(log));
+		assertStatistics(new AccessLogAnalyzer(PARSER, 3, 4096).analyze(log));
+	}
+
+	@Test
+	public void analyze_multipleFiles() throws Exception {
+		final AccessLogStatistics single = new AccessLogAnalyzer(PARSER, 2).analyze(log);
+		final AccessLogStatistics twice = new AccessLogAnalyzer(PARSER, 2, 1024).analyze(log, log);
+		Assert.assertEquals(2 * single.getLineCount(), twice.getLineCount());
+		Assert.assertEquals(single.getDistinctUserAgentCount(), twice.getDistinctUserAgentCount());
+		Assert.assertEquals(2 * single.getTypeCount(UserAgentType.ROBOT), twice.getTypeCount(UserAgentType.ROBOT));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_parser_null() {
+		new AccessLogAnalyzer(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void construct_threads_toSmall() {
+		new AccessLogAnalyzer(PARSER, 0);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void getFamilyCounts_unmodifiable() throws Exception {
+		new AccessLogAnalyzer(PARSER, 1).analyze(log).getFamilyCounts().clear();
+	}
+
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.logs;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UserAgentCounterTest {
+
+	private static void add(final UserAgentCounter counter, final String userAgent) throws Exception {
+		final ByteBuffer buffer = ByteBuffer.wrap(("[" + userAgent + "]").getBytes("ISO-8859-1"));
+		counter.add(buffer, 1, buffer.limit() - 1);
+	}
+
+	private static Map<String, Long> toMap(final UserAgentCounter counter) {
+		final Map<String, Long> map = new HashMap<String, Long>();
+		for (int slot = 0; slot < counter.capacity(); slot++) {
+			if (counter.keyAt(slot) != null) {
+				map.put(UserAgentField.decode(counter.keyAt(slot)), Long.valueOf(counter.countAt(slot)));
+			}
+		}
+		return map;
+	}
+
+	@Test
+	public void add_countsOccurrences() throws Exception {
+		final UserAgentCounter counter = new UserAgentCounter();
+		for (int i = 0; i < 10000; i++) {
+			add(counter, "ua-" + i % 1500);
+		}
+		Assert.assertEquals(1500, counter.size());
+		final Map<String, Long> map = toMap(counter);
+		Assert.assertEquals(1500, map.size());
+		for (int i = 0; i < 1500; i++) {
+			Assert.assertEquals(i < 10000 % 1500 ? 7L : 6L, map.get("ua-" + i).longValue());
+		}
+	}
+
+	@Test
+	public void addAll_mergesCountsAndLines() throws Exception {
+		final UserAgentCounter first = new UserAgentCounter();
+		add(first, "a");
+		add(first, "b");
+		first.countLine(true);
+		first.countLine(true);
+		first.countLine(false);
+		final UserAgentCounter second = new UserAgentCounter();
+		add(second, "b");
+		add(second, "c");
+		second.countLine(true);
+		second.countLine(true);
+
+		first.addAll(second);
+		Assert.assertEquals(3, first.size());
+		Assert.assertEquals(5L, first.getLineCount());
+		Assert.assertEquals(1L, first.getMissingCount());
+		final Map<String, Long> map = toMap(first);
+		Assert.assertEquals(1L, map.get("a").longValue());
+		Assert.assertEquals(2L, map.get("b").longValue());
+		Assert.assertEquals(1L, map.get("c").longValue());
+	}
+
+	@Test
+	public void add_emptyField() throws Exception {
+		final UserAgentCounter counter = new UserAgentCounter();
+		add(counter, "");
+		add(counter, "");
+		Assert.assertEquals(1, counter.size());
+		Assert.assertEquals(2L, toMap(counter).get("").longValue());
+	}
+
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector.logs;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UserAgentFieldTest {
+
+	private static ByteBuffer bytes(final String text) throws Exception {
+		return ByteBuffer.wrap(text.getBytes("ISO-8859-1"));
+	}
+
+	private static String find(final String line) throws Exception {
+		final ByteBuffer buffer = bytes(line);
+		final long field = UserAgentField.find(buffer, 0, buffer.limit());
+		if (field == UserAgentField.NOT_FOUND) {
+			return null;
+		}
+		final byte[] raw = new byte[UserAgentField.end(field) - UserAgentField.start(field)];
+		for (int i = 0; i < raw.length; i++) {
+			raw[i] = buffer.get(UserAgentField.start(field) + i);
+		}
+		return UserAgentField.decode(raw);
+	}
+
+	@Test
+	public void decode_escapeSequences() throws Exception {
+		Assert.assertEquals("a\"b\\cä", UserAgentField.decode("a\\\"b\\\\c\\xe4".getBytes("ISO-8859-1")));
+		Assert.assertEquals("\\xzz\\", UserAgentField.decode("\\xzz\\".getBytes("ISO-8859-1")));
+	}
+
+	@Test
+	public void find_combinedLogFormat() throws Exception {
+		Assert.assertEquals("Mozilla/5.0 (X11; Linux x86_64)", find("127.0.0.1 - frank [10/Oct/2000:13:55:36 -0700] "
+				+ "\"GET /apache_pb.gif HTTP/1.0\" 200 2326 \"http://www.example.com/start.html\" \"Mozilla/5.0 (X11; Linux x86_64)\""));
+	}
+
+	@Test
+	public void find_commonLogFormat() throws Exception {
+		Assert.assertNull(find("127.0.0.1 - frank [10/Oct/2000:13:55:36 -0700] \"GET /apache_pb.gif HTTP/1.0\" 200 2326"));
+	}
+
+	@Test
+	public void find_emptyOrMissing() throws Exception {
+		Assert.assertNull(find("127.0.0.1 - - [10/Oct/2000:13:55:36 -0700] \"GET / HTTP/1.0\" 200 2326 \"-\" \"-\""));
+		Assert.assertNull(find("127.0.0.1 - - [10/Oct/2000:13:55:36 -0700] \"GET / HTTP/1.0\" 200 2326 \"-\" \"\""));
+		Assert.assertNull(find(""));
+		Assert.assertNull(find("\""));
+	}
+
+	@Test
+	public void find_escapedQuotes() throws Exception {
+		Assert.assertEquals("say \"hi\"", find("1.2.3.4 - - [x] \"GET / HTTP/1.0\" 200 1 \"-\" \"say \\\"hi\\\"\""));
+		Assert.assertEquals("ends with \\", find("1.2.3.4 - - [x] \"GET / HTTP/1.0\" 200 1 \"-\" \"ends with \\\\\""));
+	}
+
+	@Test
+	public void find_trailingWhitespace() throws Exception {
+		Assert.assertEquals("curl/7.26.0", find("1.2.3.4 - - [x] \"GET / HTTP/1.0\" 200 1 \"-\" \"curl/7.26.0\" \r"));
+	}
+
+	@Test
+	public void find_withinLargerBuffer() throws Exception {
+		final ByteBuffer buffer = bytes("xx\"a\"\"ua\"yy");
+		final long field = UserAgentField.find(buffer, 5, 9);
+		Assert.assertEquals(6, UserAgentField.start(field));
+		Assert.assertEquals(8, UserAgentField.end(field));
+	}
+
+}
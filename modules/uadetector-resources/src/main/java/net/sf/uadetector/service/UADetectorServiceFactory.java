@@ -66,18 +66,36 @@ public final class UADetectorServiceFactory {
 		private static final String PATH = "net/sf/uadetector/resources";
 
 		/**
-		 * {@link URL} to the UAS data delivered in this module
+		 * {@link URL} to the UAS data delivered in this module, which are compressed in GZIP format ({@code uas.xml.gz}).
+		 * If there is no compressed resource, the uncompressed one ({@code uas.xml}) will be used.
 		 */
-		public static final URL UAS_DATA = ResourceModuleXmlDataStore.class.getClassLoader().getResource(PATH + "/uas.xml");
+		public static final URL UAS_DATA = findResource(PATH + "/uas.xml.gz", PATH + "/uas.xml");
 
 		/**
 		 * {@link URL} to the version information of the delivered UAS data in this module
 		 */
 		public static final URL UAS_VERSION = ResourceModuleXmlDataStore.class.getClassLoader().getResource(PATH + "/uas.version");
 
+		/**
+		 * Finds the first of the given resources which is available for the {@code ClassLoader} of this class.
+		 * 
+		 * @param names
+		 *            names of resources in the order of preference
+		 * @return {@code URL} of the first available resource or {@code null} if there is none
+		 */
+		private static URL findResource(final String... names) {
+			for (final String name : names) {
+				final URL url = ResourceModuleXmlDataStore.class.getClassLoader().getResource(name);
+				if (url != null) {
+					return url;
+				}
+			}
+			return null;
+		}
+
 		/**
 		 * Constructs an {@code ResourceModuleXmlDataStore} by reading <em>UAS data</em> by the specified URL
-		 * {@link UADetectorServiceFactory#UAS_DATA} (in XML format).
+		 * {@link UADetectorServiceFactory#UAS_DATA} (in XML format, compressed or uncompressed).
 		 */
 		public ResourceModuleXmlDataStore() {
 			super(DEFAULT_DATA_READER, UAS_DATA, UAS_VERSION, DEFAULT_CHARSET);
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright 2012 André Rouél
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package net.sf.uadetector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.uadetector.internal.data.Data;
+import net.sf.uadetector.parser.PatternMatchingEngine;
+import net.sf.uadetector.parser.UserAgentStringParserImpl;
+import net.sf.uadetector.service.UADetectorServiceFactory.ResourceModuleXmlDataStore;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class PatternMatchingEngineIntegrationTest {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PatternMatchingEngineIntegrationTest.class);
+
+	private static final ResourceModuleXmlDataStore STORE = new ResourceModuleXmlDataStore();
+
+	private static List<String> userAgentStrings() {
+		final List<String> userAgentStrings = new ArrayList<String>();
+		for (final UserAgentExample example : UserAgentExamplesReader.read()) {
+			userAgentStrings.add(example.getUserAgentString());
+		}
+		for (final OperatingSystemExample example : OperatingSystemExamplesReader.read()) {
+			userAgentStrings.add(example.getUserAgentString());
+		}
+		return userAgentStrings;
+	}
+
+	@Test
+	public void parse_intoMutableUserAgent_sameResults() {
+		final MutableUserAgent agent = new MutableUserAgent();
+		for (final PatternMatchingEngine engine : PatternMatchingEngine.values()) {
+			final UserAgentStringParserImpl<ResourceModuleXmlDataStore> parser = new UserAgentStringParserImpl<ResourceModuleXmlDataStore>(
+					STORE, engine);
+
+			// twice, so that the second pass is answered by the matchers and caches of this thread
+			for (int i = 0; i < 2; i++) {
+				for (final String userAgentString : userAgentStrings()) {
+					Assert.assertEquals(engine + ": " + userAgentString, parser.parse(userAgentString),
+							parser.parse(userAgentString, agent).toUserAgent());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void parse_sameResultsWithBothEngines() {
+		final UserAgentStringParser sequential = new UserAgentStringParserImpl<ResourceModuleXmlDataStore>(STORE,
+				PatternMatchingEngine.SEQUENTIAL);
+		final UserAgentStringParser dfa = new UserAgentStringParserImpl<ResourceModuleXmlDataStore>(STORE, PatternMatchingEngine.DFA);
+
+		final List<String> userAgentStrings = userAgentStrings();
+		for (final String userAgentString : userAgentStrings) {
+			Assert.assertEquals(userAgentString, sequential.parse(userAgentString), dfa.parse(userAgentString));
+		}
+
+		final Data data = STORE.getData();
+		LOG.info(userAgentStrings.size() + " user agent strings compared, " + data.getBrowserPatternAutomaton().getFallbackCount()
+				+ " browser and " + data.getOperatingSystemPatternAutomaton().getFallbackCount()
+				+ " operating system patterns are evaluated sequentially by the DFA engine");
+	}
+
+}
@@ -17,6 +17,7 @@ package net.sf.uadetector;
 
 import net.sf.uadetector.service.UADetectorServiceFactory;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 public class ResourceModuleXmlDataStoreTest {
@@ -26,4 +27,12 @@ public class ResourceModuleXmlDataStoreTest {
 		new UADetectorServiceFactory.ResourceModuleXmlDataStore();
 	}
 
+	@Test
+	public void read_compressedData() {
+		Assert.assertTrue(UADetectorServiceFactory.ResourceModuleXmlDataStore.UAS_DATA.getPath().endsWith("/uas.xml.gz"));
+		final UADetectorServiceFactory.ResourceModuleXmlDataStore store = new UADetectorServiceFactory.ResourceModuleXmlDataStore();
+		Assert.assertFalse(store.getData().getBrowsers().isEmpty());
+		Assert.assertFalse(store.getData().getVersion().isEmpty());
+	}
+
 }